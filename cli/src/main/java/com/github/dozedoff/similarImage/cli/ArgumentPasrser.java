@@ -18,15 +18,19 @@
 package com.github.dozedoff.similarImage.cli;
 
 import java.io.IOException;
+import java.nio.file.DirectoryStream.Filter;
 import java.nio.file.FileVisitor;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import org.apache.activemq.artemis.api.core.ActiveMQException;
 import org.apache.activemq.artemis.api.core.SimpleString;
@@ -41,15 +45,21 @@ import org.slf4j.LoggerFactory;
 
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.Slf4jReporter;
-import com.github.dozedoff.commonj.hash.ImagePHash;
+import com.github.dozedoff.similarImage.handler.HashHandler;
 import com.github.dozedoff.similarImage.handler.HashNames;
+import com.github.dozedoff.similarImage.image.FusedImagePHash;
 import com.github.dozedoff.similarImage.image.ImageResizer;
+import com.github.dozedoff.similarImage.image.kernel.DCTBackend;
+import com.github.dozedoff.similarImage.image.kernel.DCTBatcher;
+import com.github.dozedoff.similarImage.image.kernel.DCTTransformer;
 import com.github.dozedoff.similarImage.io.HashAttribute;
+import com.github.dozedoff.similarImage.io.Statistics;
 import com.github.dozedoff.similarImage.messaging.ArtemisQueue;
 import com.github.dozedoff.similarImage.messaging.ArtemisSession;
 import com.github.dozedoff.similarImage.messaging.ArtemisQueue.QueueAddress;
 import com.github.dozedoff.similarImage.messaging.HasherNode;
 import com.github.dozedoff.similarImage.messaging.ResizerNode;
+import com.github.dozedoff.similarImage.thread.LiveIndexJob;
 
 import net.sourceforge.argparse4j.ArgumentParsers;
 import net.sourceforge.argparse4j.impl.Arguments;
@@ -77,7 +87,7 @@ public class ArgumentPasrser {
 	private final MetricRegistry metrics;
 
 	private enum CommandLineOptions {
-		path, update, progress
+		path, update, progress, watch
 	};
 
 	private enum Subcommand {
@@ -85,6 +95,8 @@ public class ArgumentPasrser {
 	}
 
 	private final FileVisitor<Path> visitor;
+	private final Filter<Path> fileFilter;
+	private final Collection<HashHandler> handlers;
 	private final ArgumentParser parser;
 
 	private static String enumToString(CommandLineOptions optionEnum) {
@@ -98,7 +110,23 @@ public class ArgumentPasrser {
 	 *            visitor to use processing files
 	 */
 	public ArgumentPasrser(FileVisitor<Path> visitor) {
+		this(visitor, null, null);
+	}
+
+	/**
+	 * Setup the command line parser with support for watching directories.
+	 * 
+	 * @param visitor
+	 *            visitor to use processing files
+	 * @param fileFilter
+	 *            filter for files to process when watching directories
+	 * @param handlers
+	 *            handlers to use processing files when watching directories
+	 */
+	public ArgumentPasrser(FileVisitor<Path> visitor, Filter<Path> fileFilter, Collection<HashHandler> handlers) {
 		this.visitor = visitor;
+		this.fileFilter = fileFilter;
+		this.handlers = handlers;
 		this.metrics = new MetricRegistry();
 
 		// TODO add hash selection
@@ -115,6 +143,8 @@ public class ArgumentPasrser {
 				.help("Process all files in the given directory");
 		localSubcommand.addArgument("--" + enumToString(CommandLineOptions.progress)).action(Arguments.storeTrue())
 				.help("Check the hashing progress of the given paths");
+		localSubcommand.addArgument("--" + enumToString(CommandLineOptions.watch)).action(Arguments.storeTrue())
+				.help("Update extended attributes and keep watching the given paths for changes");
 
 		int processors = Runtime.getRuntime().availableProcessors();
 		Subparser nodeSubcommand = parser.addSubparsers().addParser("node").setDefault("subcommand", Subcommand.node);
@@ -124,6 +154,11 @@ public class ArgumentPasrser {
 		nodeSubcommand.addArgument("--hash").action(Arguments.storeTrue());
 		nodeSubcommand.addArgument("--resize-workers").help("Number of resize workers to start").type(Integer.class).setDefault(processors);
 		nodeSubcommand.addArgument("--hash-workers").help("Number of hash workers to start").type(Integer.class).setDefault(processors);
+		nodeSubcommand.addArgument("--dct-batch")
+				.help("Number of images the hash workers collect for a batched DCT, 0 disables batching")
+				.type(Integer.class).setDefault(0);
+		nodeSubcommand.addArgument("--dct-backend").help("Backend used for the batched DCT").choices("aparapi", "cpu")
+				.setDefault("aparapi");
 		nodeSubcommand.addArgument("--status").action(Arguments.storeTrue());
 		nodeSubcommand.addArgument("--window").help("Consumer window size in bytes").type(Integer.class).setDefault(DEFAULT_WINDOW);
 		nodeSubcommand.addArgument("--metrics").help("Log metrics once a minute").action(Arguments.storeTrue());
@@ -153,6 +188,8 @@ public class ArgumentPasrser {
 		List<Object> paths = parsedArgs.getList(enumToString(CommandLineOptions.path));
 		if (parsedArgs.getBoolean(enumToString(CommandLineOptions.update))) {
 			walkPathsWithVisitor(paths, visitor);
+		} else if (parsedArgs.getBoolean(enumToString(CommandLineOptions.watch))) {
+			watchPaths(paths);
 		} else if (parsedArgs.getBoolean(enumToString(CommandLineOptions.progress))) {
 			LOGGER.info("Checking progress...");
 
@@ -177,6 +214,23 @@ public class ArgumentPasrser {
 		}
 	}
 
+	private void watchPaths(List<Object> paths) {
+		if (fileFilter == null || handlers == null) {
+			LOGGER.error("Watching directories is not supported by this configuration");
+			return;
+		}
+
+		if (paths.isEmpty()) {
+			LOGGER.error("No paths to watch");
+			return;
+		}
+
+		List<Path> roots = paths.stream().map(path -> Paths.get((String) path)).collect(Collectors.toList());
+		LOGGER.info("Watching {} for changes...", roots);
+
+		new LiveIndexJob(roots, fileFilter, handlers, new Statistics()).run();
+	}
+
 	private void outputProgress(MetricRegistry metrics2) {
 		ProgressCalc pc = new ProgressCalc(metrics2);
 		System.out.println(pc.toString());
@@ -209,7 +263,8 @@ public class ArgumentPasrser {
 			}
 
 			if (parsedArgs.getBoolean("hash")) {
-				startHashWorkers(session, parsedArgs.getInt("hash_workers"));
+				startHashWorkers(session, parsedArgs.getInt("hash_workers"), parsedArgs.getInt("dct_batch"),
+						DCTBackend.valueOf(parsedArgs.getString("dct_backend").toUpperCase(Locale.ROOT)));
 			}
 
 			if (parsedArgs.getBoolean("status")) {
@@ -239,11 +294,13 @@ public class ArgumentPasrser {
 		}
 	}
 
-	private void startHashWorkers(ArtemisSession session, int workerCount) {
+	private void startHashWorkers(ArtemisSession session, int workerCount, int dctBatchSize, DCTBackend backend) {
+		FusedImagePHash hasher = createHasher(dctBatchSize, backend);
+
 		for (int i = 0; i < workerCount; i++) {
 			LOGGER.info("Starting hash worker {} ...", i);
 			try {
-				HasherNode consumer = new HasherNode(session.getSession(), new ImagePHash(),
+				HasherNode consumer = new HasherNode(session.getSession(), hasher,
 						ArtemisQueue.QueueAddress.HASH_REQUEST.toString(), ArtemisQueue.QueueAddress.RESULT.toString(), metrics);
 				hashWorkers.add(consumer);
 			} catch (ActiveMQException e) {
@@ -252,6 +309,21 @@ public class ArgumentPasrser {
 		}
 	}
 
+	/**
+	 * Create a hasher shared by all hash workers. With batching enabled, the workers submit their DCTs to a common
+	 * batcher, so the kernel is launched once per batch instead of once per image.
+	 */
+	private FusedImagePHash createHasher(int dctBatchSize, DCTBackend backend) {
+		if (dctBatchSize < 1) {
+			return new FusedImagePHash();
+		}
+
+		LOGGER.info("Hash workers will use batched DCT with the {} backend and a batch size of {}", backend,
+				dctBatchSize);
+		DCTTransformer transformer = backend.create(FusedImagePHash.RESIZE_SIZE, FusedImagePHash.DCT_SIZE);
+		return new FusedImagePHash(new DCTBatcher(transformer, dctBatchSize));
+	}
+
 	private void startResizeWorkers(ArtemisSession session, int workerCount) {
 		for (int i = 0; i < workerCount; i++) {
 			LOGGER.info("Starting resize worker {} ...", i);
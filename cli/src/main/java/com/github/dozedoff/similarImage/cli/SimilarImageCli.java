@@ -18,14 +18,16 @@
 package com.github.dozedoff.similarImage.cli;
 
 import java.util.Arrays;
+import java.util.List;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.github.dozedoff.commonj.filefilter.SimpleImageFilter;
-import com.github.dozedoff.commonj.hash.ImagePHash;
 import com.github.dozedoff.similarImage.handler.ExtendedAttributeUpdateHandler;
+import com.github.dozedoff.similarImage.handler.HashHandler;
 import com.github.dozedoff.similarImage.handler.HashNames;
+import com.github.dozedoff.similarImage.image.FusedImagePHash;
 import com.github.dozedoff.similarImage.io.HashAttribute;
 import com.github.dozedoff.similarImage.io.Statistics;
 import com.github.dozedoff.similarImage.thread.ImageFindJobVisitor;
@@ -47,10 +49,11 @@ public class SimilarImageCli {
 	 * Setup an instance for parsing command line arguments and hashing files.
 	 */
 	public SimilarImageCli() {
-		ImageFindJobVisitor visitor = new ImageFindJobVisitor(new SimpleImageFilter(), Arrays.asList(
-				new ExtendedAttributeUpdateHandler(new HashAttribute(HashNames.DEFAULT_DCT_HASH_2), new ImagePHash())),
-				new Statistics());
-		parser = new ArgumentPasrser(visitor);
+		SimpleImageFilter fileFilter = new SimpleImageFilter();
+		List<HashHandler> handlers = Arrays.asList(
+				new ExtendedAttributeUpdateHandler(new HashAttribute(HashNames.DEFAULT_DCT_HASH_2), new FusedImagePHash()));
+		ImageFindJobVisitor visitor = new ImageFindJobVisitor(fileFilter, handlers, new Statistics());
+		parser = new ArgumentPasrser(visitor, fileFilter, handlers);
 	}
 
 	/**
@@ -17,6 +17,9 @@
  */
 package com.github.dozedoff.similarImage.app;
 
+import com.github.dozedoff.similarImage.duplicate.HammingIndexType;
+import com.github.dozedoff.similarImage.image.kernel.DCTBackend;
+
 public interface MainSetting {
 	/**
 	 * The number of threads to use for hashing and resizing.
@@ -25,6 +28,67 @@ public interface MainSetting {
 	 */
 	int threads();
 
+	/**
+	 * The number of directories to list in parallel when scanning for images.
+	 * 
+	 * @return the number of threads used to walk directories
+	 */
+	int walkerThreads();
+
+	/**
+	 * The number of found files that can wait to be read and sent for hashing. The directory scan pauses if the queue
+	 * is full.
+	 * 
+	 * @return the maximum number of queued files
+	 */
+	int hashQueueCapacity();
+
+	/**
+	 * The width of the wide hash calculated in addition to the 64 bit hash. Images with a wide hash are grouped by it,
+	 * which gives fewer false positives at larger distances.
+	 * 
+	 * @return the wide hash width in bits, a multiple of 64, or 0 to disable wide hashes
+	 */
+	int wideHashBits();
+
+	/**
+	 * If images are decoded at a reduced resolution for hashing. This is faster for large images, but the hash can
+	 * differ from the full resolution hash by a few bits. Applies to the resizer nodes, and to local hashing if
+	 * {@link #multiHash()} is enabled.
+	 * 
+	 * @return if true, images are subsampled when they are decoded for hashing
+	 */
+	boolean subsampledDecode();
+
+	/**
+	 * The index used to search for hashes within the hamming distance when grouping images.
+	 * 
+	 * @return the name of a {@link HammingIndexType}
+	 */
+	String searchIndex();
+
+	/**
+	 * If found images are hashed locally with all hash families from a single decode of each file, instead of being
+	 * sent to the hashing nodes.
+	 * 
+	 * @return if true, images are hashed locally with all hash families
+	 */
+	boolean multiHash();
+
+	/**
+	 * The number of images the hashing node collects for a batched DCT.
+	 * 
+	 * @return the batch size, or 0 to calculate the DCT for each image in the hashing thread
+	 */
+	int dctBatch();
+
+	/**
+	 * The backend used to calculate batched DCTs on the hashing node. Only used if {@link #dctBatch()} is enabled.
+	 * 
+	 * @return the name of a {@link DCTBackend}
+	 */
+	String dctBackend();
+
 	/**
 	 * If ignored images should be included by default.
 	 * 
@@ -17,6 +17,12 @@
  */
 package com.github.dozedoff.similarImage.app;
 
+import java.util.Arrays;
+
+import com.github.dozedoff.similarImage.duplicate.HammingIndexType;
+import com.github.dozedoff.similarImage.image.WideDctHash;
+import com.github.dozedoff.similarImage.image.kernel.DCTBackend;
+
 public class MainSettingValidator {
 	private MainSettingValidator() {
 	}
@@ -33,5 +39,33 @@ public class MainSettingValidator {
 		if (mainSetting.threads() < 1) {
 			throw new IllegalArgumentException("Thread number must be greater than zero");
 		}
+
+		if (mainSetting.hashQueueCapacity() < 1) {
+			throw new IllegalArgumentException("Hash queue capacity must be greater than zero");
+		}
+
+		int wideHashBits = mainSetting.wideHashBits();
+
+		if (wideHashBits < 0 || wideHashBits % Long.SIZE != 0 || wideHashBits > WideDctHash.MAX_BIT_LENGTH) {
+			throw new IllegalArgumentException(
+					"Wide hash bits must be 0 or a multiple of " + Long.SIZE + " up to " + WideDctHash.MAX_BIT_LENGTH);
+		}
+
+		try {
+			HammingIndexType.valueOf(String.valueOf(mainSetting.searchIndex()));
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException(
+					"Search index must be one of " + Arrays.toString(HammingIndexType.values()), e);
+		}
+
+		if (mainSetting.dctBatch() < 0) {
+			throw new IllegalArgumentException("DCT batch size must not be negative");
+		}
+
+		try {
+			DCTBackend.valueOf(String.valueOf(mainSetting.dctBackend()));
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("DCT backend must be one of " + Arrays.toString(DCTBackend.values()), e);
+		}
 	}
 }
@@ -20,8 +20,10 @@ package com.github.dozedoff.similarImage.component;
 import javax.inject.Singleton;
 
 import com.github.dozedoff.similarImage.db.Database;
+import com.github.dozedoff.similarImage.db.repository.DirectoryRepository;
 import com.github.dozedoff.similarImage.db.repository.FilterRepository;
 import com.github.dozedoff.similarImage.db.repository.IgnoreRepository;
+import com.github.dozedoff.similarImage.db.repository.ImageHashRepository;
 import com.github.dozedoff.similarImage.db.repository.ImageRepository;
 import com.github.dozedoff.similarImage.db.repository.PendingHashImageRepository;
 import com.github.dozedoff.similarImage.db.repository.TagRepository;
@@ -46,5 +48,9 @@ public interface PersistenceComponent {
 
 	IgnoreRepository getIgnoreRepository();
 
+	ImageHashRepository getImageHashRepository();
+
+	DirectoryRepository getDirectoryRepository();
+
 	TransactionManager getTransactionManager();
 }
@@ -0,0 +1,166 @@
+/*  Copyright (C) 2016  Nicholas Wright
+    
+    This file is part of similarImage - A similar image finder using pHash
+    
+    similarImage is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.similarImage.db;
+
+import java.util.Objects;
+
+import com.google.common.base.MoreObjects;
+import com.j256.ormlite.field.DatabaseField;
+import com.j256.ormlite.table.DatabaseTable;
+
+/**
+ * Repository record for the fingerprint of a directory listing. A record is only stored once every image in the
+ * directory tree has been hashed, so a tree with matching fingerprints can be skipped when rescanning.
+ * 
+ * @author Nicholas Wright
+ * 
+ */
+@DatabaseTable
+public final class DirectoryRecord {
+	public static final String PATH_COLUMN_NAME = "path";
+	public static final String LAST_MODIFIED_COLUMN_NAME = "lastModified";
+	public static final String ENTRY_COUNT_COLUMN_NAME = "entryCount";
+	public static final String LISTING_HASH_COLUMN_NAME = "listingHash";
+	public static final String FILE_COUNT_COLUMN_NAME = "fileCount";
+
+	@DatabaseField(id = true, canBeNull = false, columnName = PATH_COLUMN_NAME)
+	private String path;
+
+	@DatabaseField(canBeNull = false, columnName = LAST_MODIFIED_COLUMN_NAME)
+	private long lastModified;
+
+	@DatabaseField(canBeNull = false, columnName = ENTRY_COUNT_COLUMN_NAME)
+	private int entryCount;
+
+	@DatabaseField(canBeNull = false, columnName = LISTING_HASH_COLUMN_NAME)
+	private long listingHash;
+
+	@DatabaseField(canBeNull = false, columnName = FILE_COUNT_COLUMN_NAME)
+	private int fileCount;
+
+	/**
+	 * Intended for DAO only
+	 * 
+	 * @deprecated DAO only
+	 */
+	@Deprecated
+	public DirectoryRecord() {
+	}
+
+	/**
+	 * Create a new record for the fingerprint of a directory.
+	 * 
+	 * @param path
+	 *            of the directory
+	 * @param lastModified
+	 *            modification time of the directory in milliseconds
+	 * @param entryCount
+	 *            number of entries in the directory
+	 * @param listingHash
+	 *            hash of the entry names in the directory
+	 * @param fileCount
+	 *            number of accepted files in the directory, not including sub-directories
+	 */
+	public DirectoryRecord(String path, long lastModified, int entryCount, long listingHash, int fileCount) {
+		this.path = path;
+		this.lastModified = lastModified;
+		this.entryCount = entryCount;
+		this.listingHash = listingHash;
+		this.fileCount = fileCount;
+	}
+
+	/**
+	 * Get the path of the directory.
+	 * 
+	 * @return path of the directory
+	 */
+	public String getPath() {
+		return path;
+	}
+
+	/**
+	 * Get the modification time of the directory.
+	 * 
+	 * @return modification time in milliseconds
+	 */
+	public long getLastModified() {
+		return lastModified;
+	}
+
+	/**
+	 * Get the number of entries in the directory.
+	 * 
+	 * @return number of files and directories
+	 */
+	public int getEntryCount() {
+		return entryCount;
+	}
+
+	/**
+	 * Get the hash of the entry names.
+	 * 
+	 * @return hash of the listing
+	 */
+	public long getListingHash() {
+		return listingHash;
+	}
+
+	/**
+	 * Get the number of accepted files in the directory, not including sub-directories.
+	 * 
+	 * @return number of files
+	 */
+	public int getFileCount() {
+		return fileCount;
+	}
+
+	/**
+	 * Check if the fingerprint of this record matches the other record. The path and file count are not compared.
+	 * 
+	 * @param other
+	 *            record to compare to
+	 * @return true if modification time, entry count and listing hash are equal
+	 */
+	public boolean hasSameFingerprint(DirectoryRecord other) {
+		return lastModified == other.lastModified && entryCount == other.entryCount
+				&& listingHash == other.listingHash;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj instanceof DirectoryRecord) {
+			DirectoryRecord other = (DirectoryRecord) obj;
+
+			return Objects.equals(path, other.path) && hasSameFingerprint(other) && fileCount == other.fileCount;
+		}
+
+		return false;
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(path, lastModified, entryCount, listingHash, fileCount);
+	}
+
+	@Override
+	public String toString() {
+		return MoreObjects.toStringHelper(DirectoryRecord.class).add("path", path).add("lastModified", lastModified)
+				.add("entryCount", entryCount).add("listingHash", listingHash).add("fileCount", fileCount)
+				.toString();
+	}
+}
@@ -39,7 +39,7 @@ public final class IgnoreRecord {
 	@DatabaseField(generatedId = true, canBeNull = false)
 	private int id;
 
-	@DatabaseField(canBeNull = false, foreign = true, columnName = IMAGEPATH_FIELD_NAME)
+	@DatabaseField(canBeNull = false, foreign = true, index = true, columnName = IMAGEPATH_FIELD_NAME)
 	private ImageRecord image;
 
 	/**
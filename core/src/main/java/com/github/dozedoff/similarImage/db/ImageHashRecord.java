@@ -0,0 +1,135 @@
+/*  Copyright (C) 2016  Nicholas Wright
+    
+    This file is part of similarImage - A similar image finder using pHash
+    
+    similarImage is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.similarImage.db;
+
+import java.util.Objects;
+
+import com.google.common.base.MoreObjects;
+import com.j256.ormlite.field.DatabaseField;
+import com.j256.ormlite.table.DatabaseTable;
+
+/**
+ * Repository record for the hashes of additional hash families. Each image can have one hash per hash family. The
+ * default hash is stored in {@link ImageRecord}.
+ * 
+ * @author Nicholas Wright
+ * 
+ */
+@DatabaseTable
+public final class ImageHashRecord {
+	public static final String PATH_COLUMN_NAME = "path";
+	public static final String HASH_NAME_COLUMN_NAME = "hashName";
+	public static final String HASH_COLUMN_NAME = "hash";
+
+	@DatabaseField(generatedId = true, canBeNull = false)
+	private int id;
+
+	@DatabaseField(canBeNull = false, uniqueCombo = true, index = true, columnName = PATH_COLUMN_NAME)
+	private String path;
+
+	@DatabaseField(canBeNull = false, uniqueCombo = true, columnName = HASH_NAME_COLUMN_NAME)
+	private String hashName;
+
+	@DatabaseField(canBeNull = false, columnName = HASH_COLUMN_NAME)
+	private long hash;
+
+	/**
+	 * Intended for DAO only
+	 * 
+	 * @deprecated DAO only
+	 */
+	@Deprecated
+	public ImageHashRecord() {
+	}
+
+	/**
+	 * Create a new record for the hash of an image.
+	 * 
+	 * @param path
+	 *            of the image
+	 * @param hashName
+	 *            name of the hash family, see {@link com.github.dozedoff.similarImage.handler.HashNames}
+	 * @param hash
+	 *            value of the hash
+	 */
+	public ImageHashRecord(String path, String hashName, long hash) {
+		this.path = path;
+		this.hashName = hashName;
+		this.hash = hash;
+	}
+
+	/**
+	 * Get the path of the image.
+	 * 
+	 * @return path of the image
+	 */
+	public String getPath() {
+		return path;
+	}
+
+	/**
+	 * Get the name of the hash family.
+	 * 
+	 * @return name of the hash
+	 */
+	public String getHashName() {
+		return hashName;
+	}
+
+	/**
+	 * Get the hash value.
+	 * 
+	 * @return the hash
+	 */
+	public long getHash() {
+		return hash;
+	}
+
+	/**
+	 * Set the hash value.
+	 * 
+	 * @param hash
+	 *            the new hash value
+	 */
+	public void setHash(long hash) {
+		this.hash = hash;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj instanceof ImageHashRecord) {
+			ImageHashRecord other = (ImageHashRecord) obj;
+
+			return Objects.equals(path, other.path) && Objects.equals(hashName, other.hashName)
+					&& hash == other.hash;
+		}
+
+		return false;
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(path, hashName, hash);
+	}
+
+	@Override
+	public String toString() {
+		return MoreObjects.toStringHelper(ImageHashRecord.class).add("path", path).add("hashName", hashName)
+				.add("hash", hash).toString();
+	}
+}
@@ -17,17 +17,28 @@
  */
 package com.github.dozedoff.similarImage.db;
 
+import com.github.dozedoff.similarImage.duplicate.WideHash;
+import com.j256.ormlite.field.DataType;
 import com.j256.ormlite.field.DatabaseField;
 import com.j256.ormlite.table.DatabaseTable;
 
 @DatabaseTable
 public final class ImageRecord implements Comparable<ImageRecord> {
 	public static final String PATH_COLUMN_NAME = "path";
+	public static final String WIDE_HASH_COLUMN_NAME = "wideHash";
+	public static final String FILE_SIZE_COLUMN_NAME = "fileSize";
+	public static final String DIGEST_COLUMN_NAME = "digest";
 
 	@DatabaseField(id = true, canBeNull = false, columnName = PATH_COLUMN_NAME)
 	String path;
 	@DatabaseField(canBeNull = false)
 	long pHash;
+	@DatabaseField(canBeNull = true, dataType = DataType.BYTE_ARRAY, columnName = WIDE_HASH_COLUMN_NAME)
+	byte[] wideHash;
+	@DatabaseField(canBeNull = true, columnName = FILE_SIZE_COLUMN_NAME)
+	Long fileSize;
+	@DatabaseField(canBeNull = true, columnName = DIGEST_COLUMN_NAME)
+	Long digest;
 
 	/**
 	 * Intended for DAO
@@ -41,6 +52,42 @@ public final class ImageRecord implements Comparable<ImageRecord> {
 		this.pHash = pHash;
 	}
 
+	/**
+	 * Create a record with a wide hash in addition to the 64 bit hash.
+	 * 
+	 * @param path
+	 *            of the image
+	 * @param pHash
+	 *            64 bit hash of the image
+	 * @param wideHash
+	 *            wide hash of the image, can be null
+	 */
+	public ImageRecord(String path, long pHash, WideHash wideHash) {
+		this(path, pHash);
+		this.wideHash = wideHash == null ? null : wideHash.toBytes();
+	}
+
+	/**
+	 * Create a record with the size and content digest of the file, so that byte-identical files can be found without
+	 * hashing them.
+	 * 
+	 * @param path
+	 *            of the image
+	 * @param pHash
+	 *            64 bit hash of the image
+	 * @param wideHash
+	 *            wide hash of the image, can be null
+	 * @param fileSize
+	 *            size of the file in bytes
+	 * @param digest
+	 *            digest of the file contents
+	 */
+	public ImageRecord(String path, long pHash, WideHash wideHash, long fileSize, long digest) {
+		this(path, pHash, wideHash);
+		this.fileSize = fileSize;
+		this.digest = digest;
+	}
+
 	public String getPath() {
 		return path;
 	}
@@ -49,6 +96,51 @@ public final class ImageRecord implements Comparable<ImageRecord> {
 		return pHash;
 	}
 
+	/**
+	 * Check if this record has a wide hash.
+	 * 
+	 * @return true if a wide hash is stored for this record
+	 */
+	public boolean hasWideHash() {
+		return wideHash != null;
+	}
+
+	/**
+	 * Get the wide hash of the image.
+	 * 
+	 * @return the wide hash, or null if the record has none
+	 */
+	public WideHash getWideHash() {
+		return wideHash == null ? null : WideHash.fromBytes(wideHash);
+	}
+
+	/**
+	 * Check if the size and content digest of the file are known.
+	 * 
+	 * @return true if the record has a size and digest
+	 */
+	public boolean hasContentDigest() {
+		return fileSize != null && digest != null;
+	}
+
+	/**
+	 * Get the size of the file.
+	 * 
+	 * @return the file size in bytes, or null if it is not known
+	 */
+	public Long getFileSize() {
+		return fileSize;
+	}
+
+	/**
+	 * Get the digest of the file contents.
+	 * 
+	 * @return the digest, or null if it is not known
+	 */
+	public Long getDigest() {
+		return digest;
+	}
+
 	@Override
 	public int hashCode() {
 		final int prime = 31;
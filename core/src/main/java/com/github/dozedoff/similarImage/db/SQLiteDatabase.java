@@ -24,12 +24,11 @@ import org.flywaydb.core.Flyway;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.j256.ormlite.jdbc.JdbcPooledConnectionSource;
 import com.j256.ormlite.support.ConnectionSource;
-import com.j256.ormlite.support.DatabaseConnection;
 
 /**
- * Create/Open and configure a SQLite database
+ * Create/Open and configure a SQLite database. The database runs in WAL mode, with reads served from a connection pool
+ * and writes going through a single writer connection, see {@link SQLiteWalConnectionSource}.
  * 
  * @author Nicholas Wright
  */
@@ -37,6 +36,13 @@ public class SQLiteDatabase implements Database {
 	private static final Logger LOGGER = LoggerFactory.getLogger(SQLiteDatabase.class);
 	private final static String DEFAULT_DB_PATH = "similarImage.db";
 	private final static String DB_PREFIX = "jdbc:sqlite:";
+	private final static int BUSY_TIMEOUT_MILLIS = 30000;
+
+	/**
+	 * Applied by the driver to every connection it opens, so pooled connections are configured the same way.
+	 */
+	private final static String CONNECTION_PRAGMAS = "?journal_mode=WAL&synchronous=NORMAL&page_size=4096"
+			+ "&cache_size=10000&locking_mode=NORMAL&temp_store=MEMORY&busy_timeout=" + BUSY_TIMEOUT_MILLIS;
 
 	private final ConnectionSource connectionSource;
 
@@ -65,10 +71,9 @@ public class SQLiteDatabase implements Database {
 	 */
 	public SQLiteDatabase(String dbPath) {
 		try {
-			String fullDbPath = DB_PREFIX + dbPath;
-			connectionSource = new JdbcPooledConnectionSource(fullDbPath);
+			String fullDbPath = DB_PREFIX + dbPath + CONNECTION_PRAGMAS;
+			connectionSource = new SQLiteWalConnectionSource(fullDbPath);
 			migrateDatabase(fullDbPath);
-			setupDatabase(connectionSource);
 
 			LOGGER.info("Loaded database");
 		} catch (SQLException e) {
@@ -77,17 +82,6 @@ public class SQLiteDatabase implements Database {
 		}
 	}
 
-	private void setupDatabase(ConnectionSource cs) throws SQLException {
-		LOGGER.info("Setting database config...");
-		DatabaseConnection dbConn = cs.getReadWriteConnection("");
-		// FIXME Tests fail if journal_mode PRAGMA is set
-		dbConn.executeStatement("PRAGMA page_size = 4096;", DatabaseConnection.DEFAULT_RESULT_FLAGS);
-		dbConn.executeStatement("PRAGMA cache_size=10000;", DatabaseConnection.DEFAULT_RESULT_FLAGS);
-		dbConn.executeStatement("PRAGMA locking_mode=NORMAL;", DatabaseConnection.DEFAULT_RESULT_FLAGS);
-		dbConn.executeStatement("PRAGMA synchronous=NORMAL;", DatabaseConnection.DEFAULT_RESULT_FLAGS);
-		dbConn.executeStatement("PRAGMA temp_store = MEMORY;", DatabaseConnection.DEFAULT_RESULT_FLAGS);
-	}
-
 	private void migrateDatabase(String fullDbPath) {
 		Flyway flyway = Flyway.configure().dataSource(fullDbPath, "", "").load();
 		flyway.migrate();
@@ -0,0 +1,130 @@
+/*  Copyright (C) 2016  Nicholas Wright
+    
+    This file is part of similarImage - A similar image finder using pHash
+    
+    similarImage is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.similarImage.db;
+
+import java.io.IOException;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.j256.ormlite.jdbc.JdbcDatabaseConnection;
+import com.j256.ormlite.jdbc.JdbcPooledConnectionSource;
+import com.j256.ormlite.support.DatabaseConnection;
+
+/**
+ * Connection source for a SQLite database in WAL mode. Reads are served from a pool of connections, all writes go
+ * through a single dedicated writer connection. A thread requesting the writer blocks until it has been released by the
+ * previous thread, so writers queue up in Java instead of failing with busy or locked errors in SQLite.<br>
+ * Within a transaction, the writer connection is also used for reads by the thread that started the transaction.
+ * 
+ * @author Nicholas Wright
+ * 
+ */
+public class SQLiteWalConnectionSource extends JdbcPooledConnectionSource {
+	private final DatabaseConnection writer;
+	private final ReentrantLock writerLock = new ReentrantLock(true);
+
+	/**
+	 * Create a connection source for the given database. The journal mode should be set to WAL in the url, else readers
+	 * will still be blocked by the writer.
+	 * 
+	 * @param url
+	 *            JDBC url of the database
+	 * @throws SQLException
+	 *             if the database could not be opened
+	 */
+	public SQLiteWalConnectionSource(String url) throws SQLException {
+		super(url);
+		this.writer = new JdbcDatabaseConnection(DriverManager.getConnection(url));
+	}
+
+	/**
+	 * Get a pooled connection for reading, or the connection of the current transaction.
+	 * 
+	 * @param tableName
+	 *            the table the connection is used for
+	 * @return a connection for reading
+	 * @throws SQLException
+	 *             if a connection could not be opened
+	 */
+	@Override
+	public DatabaseConnection getReadOnlyConnection(String tableName) throws SQLException {
+		return super.getReadWriteConnection(tableName);
+	}
+
+	/**
+	 * Get the writer connection, or the connection of the current transaction. Blocks until the writer is released by
+	 * other threads.
+	 * 
+	 * @param tableName
+	 *            the table the connection is used for
+	 * @return the writer connection
+	 * @throws SQLException
+	 *             if the connection source is closed
+	 */
+	@Override
+	public DatabaseConnection getReadWriteConnection(String tableName) throws SQLException {
+		DatabaseConnection saved = getSavedConnection();
+
+		if (saved != null) {
+			return saved;
+		}
+
+		if (!isOpen(tableName)) {
+			throw new SQLException("Connection source is closed");
+		}
+
+		writerLock.lock();
+		return writer;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void releaseConnection(DatabaseConnection connection) throws SQLException {
+		if (connection != writer) {
+			super.releaseConnection(connection);
+			return;
+		}
+
+		if (isSavedConnection(connection)) {
+			return;
+		}
+
+		writerLock.unlock();
+	}
+
+	/**
+	 * Check if the writer connection is currently in use.
+	 * 
+	 * @return true if a thread holds the writer connection
+	 */
+	public boolean isWriterInUse() {
+		return writerLock.isLocked();
+	}
+
+	/**
+	 * Close the read connections and the writer connection.
+	 */
+	@Override
+	public void close() throws IOException {
+		super.close();
+		writer.closeQuietly();
+	}
+}
@@ -37,7 +37,7 @@ public class Tag {
 	@DatabaseField(canBeNull = false, unique = true, index = true, columnName = NAME_FIELD_NAME)
 	private String tag;
 
-	@DatabaseField(canBeNull = false)
+	@DatabaseField(canBeNull = false, index = true)
 	private boolean contextMenu;
 
 	/**
@@ -0,0 +1,73 @@
+/*  Copyright (C) 2016  Nicholas Wright
+    
+    This file is part of similarImage - A similar image finder using pHash
+    
+    similarImage is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.similarImage.db.repository;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import com.github.dozedoff.similarImage.db.DirectoryRecord;
+
+/**
+ * Repository for the fingerprints of scanned directories.
+ * 
+ * @author Nicholas Wright
+ * 
+ */
+public interface DirectoryRepository extends Repository {
+	/**
+	 * Store a {@link DirectoryRecord} in the repository. If it already exists, it will be updated.
+	 * 
+	 * @param directory
+	 *            to store
+	 * @throws RepositoryException
+	 *             if there is a error accessing the datasource
+	 */
+	void store(DirectoryRecord directory) throws RepositoryException;
+
+	/**
+	 * Get the {@link DirectoryRecord} that exactly matches the path, if any.
+	 * 
+	 * @param path
+	 *            to search for
+	 * @return the matching {@link DirectoryRecord} or null if there is no match
+	 * @throws RepositoryException
+	 *             if there is a error accessing the datasource
+	 */
+	DirectoryRecord getByPath(Path path) throws RepositoryException;
+
+	/**
+	 * Get all {@link DirectoryRecord} that start with the given path.
+	 * 
+	 * @param directory
+	 *            path that the paths should start with
+	 * @return {@link DirectoryRecord} that start with the given path
+	 * @throws RepositoryException
+	 *             if there is a error accessing the datasource
+	 */
+	List<DirectoryRecord> startsWithPath(Path directory) throws RepositoryException;
+
+	/**
+	 * Remove the {@link DirectoryRecord} from the datasource.
+	 * 
+	 * @param directory
+	 *            to remove
+	 * @throws RepositoryException
+	 *             if there is a error accessing the datasource
+	 */
+	void remove(DirectoryRecord directory) throws RepositoryException;
+}
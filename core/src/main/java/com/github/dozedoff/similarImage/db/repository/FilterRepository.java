@@ -17,6 +17,7 @@
  */
 package com.github.dozedoff.similarImage.db.repository;
 
+import java.util.Collection;
 import java.util.List;
 
 import com.github.dozedoff.similarImage.db.FilterRecord;
@@ -70,6 +71,16 @@ public interface FilterRepository extends Repository {
 	 */
 	void store(FilterRecord toStore) throws RepositoryException;
 
+	/**
+	 * Persist all {@link FilterRecord} in a single transaction.
+	 * 
+	 * @param toStore
+	 *            the {@link FilterRecord} to persist
+	 * @throws RepositoryException
+	 *             if the repository encounters an error processing the request
+	 */
+	void storeAll(Collection<FilterRecord> toStore) throws RepositoryException;
+
 	/**
 	 * Remove the {@link FilterRecord} from the datasource
 	 * 
@@ -0,0 +1,100 @@
+/*  Copyright (C) 2016  Nicholas Wright
+    
+    This file is part of similarImage - A similar image finder using pHash
+    
+    similarImage is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.similarImage.db.repository;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import com.github.dozedoff.similarImage.db.ImageHashRecord;
+
+/**
+ * Interface for repositories that handle the hashes of additional hash families.
+ * 
+ * @author Nicholas Wright
+ * 
+ */
+public interface ImageHashRepository extends Repository {
+
+	/**
+	 * Store the record in the repository. An existing hash for the same path and hash name is replaced.
+	 * 
+	 * @param record
+	 *            the {@link ImageHashRecord} to persist
+	 * @throws RepositoryException
+	 *             if there is an error accessing the repository
+	 */
+	void store(ImageHashRecord record) throws RepositoryException;
+
+	/**
+	 * Get all hashes stored for the image.
+	 * 
+	 * @param path
+	 *            of the image
+	 * @return a list of hashes, one for each hash family
+	 * @throws RepositoryException
+	 *             if there is an error accessing the repository
+	 */
+	List<ImageHashRecord> getByPath(Path path) throws RepositoryException;
+
+	/**
+	 * Get the hash of the image for a hash family.
+	 * 
+	 * @param path
+	 *            of the image
+	 * @param hashName
+	 *            name of the hash family
+	 * @return the record if found, otherwise null
+	 * @throws RepositoryException
+	 *             if there is an error accessing the repository
+	 */
+	ImageHashRecord getByPath(Path path, String hashName) throws RepositoryException;
+
+	/**
+	 * Get all images with a matching hash for the hash family.
+	 * 
+	 * @param hashName
+	 *            name of the hash family
+	 * @param hash
+	 *            to search for
+	 * @return a list of matching records
+	 * @throws RepositoryException
+	 *             if there is an error accessing the repository
+	 */
+	List<ImageHashRecord> getByHash(String hashName, long hash) throws RepositoryException;
+
+	/**
+	 * Get all hashes of a hash family.
+	 * 
+	 * @param hashName
+	 *            name of the hash family
+	 * @return a list of all records for the hash family
+	 * @throws RepositoryException
+	 *             if there is an error accessing the repository
+	 */
+	List<ImageHashRecord> getAll(String hashName) throws RepositoryException;
+
+	/**
+	 * Remove all hashes stored for the image.
+	 * 
+	 * @param path
+	 *            of the image
+	 * @throws RepositoryException
+	 *             if there is an error accessing the repository
+	 */
+	void remove(Path path) throws RepositoryException;
+}
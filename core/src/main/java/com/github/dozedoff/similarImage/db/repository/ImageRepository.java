@@ -20,6 +20,8 @@ package com.github.dozedoff.similarImage.db.repository;
 import java.nio.file.Path;
 import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import com.github.dozedoff.similarImage.db.ImageRecord;
 
@@ -33,6 +35,16 @@ public interface ImageRepository extends Repository {
 	 */
 	void store(ImageRecord image) throws RepositoryException;
 
+	/**
+	 * Store all {@link ImageRecord} in a single transaction. Existing records will be updated.
+	 * 
+	 * @param images
+	 *            to store
+	 * @throws RepositoryException
+	 *             if there is a error accessing the datasource, none of the images will be stored
+	 */
+	void storeAll(Collection<ImageRecord> images) throws RepositoryException;
+
 	/**
 	 * Return all {@link ImageRecord} that match the given hash.
 	 * 
@@ -44,6 +56,19 @@ public interface ImageRepository extends Repository {
 	 */
 	List<ImageRecord> getByHash(long hash) throws RepositoryException;
 
+	/**
+	 * Return all {@link ImageRecord} of files with the given size and content digest, i.e. byte-identical files.
+	 * 
+	 * @param fileSize
+	 *            size of the file in bytes
+	 * @param digest
+	 *            digest of the file contents
+	 * @return a list containing {@link ImageRecord} with the given size and digest
+	 * @throws RepositoryException
+	 *             if there is a error accessing the datasource
+	 */
+	List<ImageRecord> getByContentDigest(long fileSize, long digest) throws RepositoryException;
+
 	/**
 	 * Get the {@link ImageRecord} that exactly matches the path, if any.
 	 * 
@@ -56,7 +81,18 @@ public interface ImageRepository extends Repository {
 	ImageRecord getByPath(Path path) throws RepositoryException;
 
 	/**
-	 * Get all {@link ImageRecord} that start with the given path.
+	 * Get the {@link ImageRecord} for all paths that exist in the datasource. Paths without a record are skipped.
+	 * 
+	 * @param paths
+	 *            to search for
+	 * @return the matching {@link ImageRecord}, in no particular order
+	 * @throws RepositoryException
+	 *             if there is a error accessing the datasource
+	 */
+	List<ImageRecord> getByPaths(Collection<Path> paths) throws RepositoryException;
+
+	/**
+	 * Get all {@link ImageRecord} that start with the given path. Paths are compared case sensitive.
 	 * 
 	 * @param directory
 	 *            path that the paths should start with
@@ -66,6 +102,45 @@ public interface ImageRepository extends Repository {
 	 */
 	List<ImageRecord> startsWithPath(Path directory) throws RepositoryException;
 
+	/**
+	 * Stream the paths of all {@link ImageRecord} that start with the given path, in ascending order, without loading
+	 * all records into memory.
+	 * 
+	 * @param directory
+	 *            path that the paths should start with
+	 * @param action
+	 *            called for every path
+	 * @throws RepositoryException
+	 *             if there is a error accessing the datasource
+	 */
+	void forEachPath(Path directory, Consumer<String> action) throws RepositoryException;
+
+	/**
+	 * Stream all {@link ImageRecord} that start with the given path, ordered by path. Records are read in fixed size
+	 * batches, so only the current batch is held in memory. No connection is kept open between batches.
+	 * 
+	 * @param directory
+	 *            only include images from the directory and it's sub-directories. If null, all images are included.
+	 * @return a lazily populated stream of {@link ImageRecord}. If reading a later batch fails, the stream throws a
+	 *         {@link RuntimeException} with the {@link RepositoryException} as cause.
+	 * @throws RepositoryException
+	 *             if there is a error reading the first batch from the datasource
+	 */
+	Stream<ImageRecord> stream(Path directory) throws RepositoryException;
+
+	/**
+	 * Stream all {@link ImageRecord} that start with the given path and are not ignored, ordered by path. Records are
+	 * read in fixed size batches, so only the current batch is held in memory.
+	 * 
+	 * @param directory
+	 *            only include images from the directory and it's sub-directories. If null, all images are included.
+	 * @return a lazily populated stream of non-ignored {@link ImageRecord}. If reading a later batch fails, the stream
+	 *         throws a {@link RuntimeException} with the {@link RepositoryException} as cause.
+	 * @throws RepositoryException
+	 *             if there is a error reading the first batch from the datasource
+	 */
+	Stream<ImageRecord> streamWithoutIgnored(Path directory) throws RepositoryException;
+
 	/**
 	 * Remove the {@link ImageRecord} from the datasource.
 	 * 
@@ -78,7 +153,7 @@ public interface ImageRepository extends Repository {
 
 	/**
 	 * Remove all {@link ImageRecord} in the {@link Collection} from the
-	 * datasource.
+	 * datasource in a single transaction.
 	 * 
 	 * @param images
 	 *            to remove
@@ -17,6 +17,7 @@
  */
 package com.github.dozedoff.similarImage.db.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -69,6 +70,16 @@ public interface PendingHashImageRepository extends Repository {
 	 */
 	void remove(PendingHashImage image) throws RepositoryException;
 
+	/**
+	 * Remove all images from the datasource in a single transaction.
+	 * 
+	 * @param images
+	 *            to remove
+	 * @throws RepositoryException
+	 *             if there is an error accessing the datasource
+	 */
+	void removeAll(Collection<PendingHashImage> images) throws RepositoryException;
+
 	/**
 	 * Get all {@link PendingHashImage} entries
 	 * 
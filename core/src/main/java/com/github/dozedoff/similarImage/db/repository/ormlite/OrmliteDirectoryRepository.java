@@ -0,0 +1,116 @@
+/*  Copyright (C) 2016  Nicholas Wright
+    
+    This file is part of similarImage - A similar image finder using pHash
+    
+    similarImage is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.similarImage.db.repository.ormlite;
+
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.List;
+
+import com.github.dozedoff.similarImage.db.DirectoryRecord;
+import com.github.dozedoff.similarImage.db.repository.DirectoryRepository;
+import com.github.dozedoff.similarImage.db.repository.RepositoryException;
+import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.stmt.PreparedQuery;
+import com.j256.ormlite.stmt.SelectArg;
+
+/**
+ * Repository for accessing {@link DirectoryRecord} database table via ORMlite.
+ * 
+ * @author Nicholas Wright
+ * 
+ */
+public class OrmliteDirectoryRepository implements DirectoryRepository {
+	private final Dao<DirectoryRecord, String> directoryDao;
+
+	private PreparedQuery<DirectoryRecord> queryStartsWithPath;
+	private SelectArg argStartsWithPath;
+	private SelectArg argStartsWithPathEnd;
+
+	/**
+	 * Create a repository using ORMlite DAO to access the database.
+	 * 
+	 * @param directoryDao
+	 *            for the {@link DirectoryRecord} table
+	 * @throws RepositoryException
+	 *             if there is an error setting up prepared queries
+	 */
+	public OrmliteDirectoryRepository(Dao<DirectoryRecord, String> directoryDao) throws RepositoryException {
+		this.directoryDao = directoryDao;
+
+		argStartsWithPath = new SelectArg();
+		argStartsWithPathEnd = new SelectArg();
+
+		try {
+			queryStartsWithPath = directoryDao.queryBuilder().orderBy(DirectoryRecord.PATH_COLUMN_NAME, true).where()
+					.ge(DirectoryRecord.PATH_COLUMN_NAME, argStartsWithPath).and()
+					.lt(DirectoryRecord.PATH_COLUMN_NAME, argStartsWithPathEnd).prepare();
+		} catch (SQLException e) {
+			throw new RepositoryException("Failed to setup prepared statements", e);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void store(DirectoryRecord directory) throws RepositoryException {
+		try {
+			directoryDao.createOrUpdate(directory);
+		} catch (SQLException e) {
+			throw new RepositoryException("Failed to store directory", e);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public DirectoryRecord getByPath(Path path) throws RepositoryException {
+		try {
+			return directoryDao.queryForId(path.toString());
+		} catch (SQLException e) {
+			throw new RepositoryException("Failed to query for path", e);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized List<DirectoryRecord> startsWithPath(Path directory) throws RepositoryException {
+		PathRange.setBounds(directory, argStartsWithPath, argStartsWithPathEnd);
+
+		try {
+			return directoryDao.query(queryStartsWithPath);
+		} catch (SQLException e) {
+			throw new RepositoryException("Failed to query for starts with path", e);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void remove(DirectoryRecord directory) throws RepositoryException {
+		try {
+			directoryDao.delete(directory);
+		} catch (SQLException e) {
+			throw new RepositoryException("Failed to remove directory", e);
+		}
+	}
+}
@@ -18,6 +18,7 @@
 package com.github.dozedoff.similarImage.db.repository.ormlite;
 
 import java.sql.SQLException;
+import java.util.Collection;
 import java.util.List;
 
 import com.github.dozedoff.similarImage.db.FilterRecord;
@@ -124,6 +125,28 @@ public class OrmliteFilterRepository implements FilterRepository {
 		}
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void storeAll(Collection<FilterRecord> toStore) throws RepositoryException {
+		if (toStore.isEmpty()) {
+			return;
+		}
+
+		try {
+			filterDao.callBatchTasks(() -> {
+				for (FilterRecord filter : toStore) {
+					store(filter);
+				}
+
+				return null;
+			});
+		} catch (Exception e) {
+			throw new RepositoryException(STORE_FILTER_ERROR_MSG, e);
+		}
+	}
+
 	private void checkAndCreateThumbnail(FilterRecord toStore) throws RepositoryException {
 		Thumbnail thumbnail = toStore.getThumbnail();
 
@@ -0,0 +1,152 @@
+/*  Copyright (C) 2016  Nicholas Wright
+    
+    This file is part of similarImage - A similar image finder using pHash
+    
+    similarImage is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.similarImage.db.repository.ormlite;
+
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.github.dozedoff.similarImage.db.ImageHashRecord;
+import com.github.dozedoff.similarImage.db.repository.ImageHashRepository;
+import com.github.dozedoff.similarImage.db.repository.RepositoryException;
+import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.stmt.DeleteBuilder;
+import com.j256.ormlite.stmt.SelectArg;
+
+/**
+ * Repository for accessing {@link ImageHashRecord} database table via ORMlite.
+ * 
+ * @author Nicholas Wright
+ * 
+ */
+public class OrmliteImageHashRepository implements ImageHashRepository {
+	private final Dao<ImageHashRecord, Integer> hashDao;
+
+	/**
+	 * Create a repository using ORMlite DAO to access the database.
+	 * 
+	 * @param hashDao
+	 *            for the {@link ImageHashRecord} table
+	 */
+	public OrmliteImageHashRepository(Dao<ImageHashRecord, Integer> hashDao) {
+		this.hashDao = hashDao;
+	}
+
+	private Map<String, Object> pathAndName(String path, String hashName) {
+		Map<String, Object> fields = new HashMap<>();
+		fields.put(ImageHashRecord.PATH_COLUMN_NAME, path);
+		fields.put(ImageHashRecord.HASH_NAME_COLUMN_NAME, hashName);
+		return fields;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void store(ImageHashRecord record) throws RepositoryException {
+		try {
+			List<ImageHashRecord> existing = hashDao
+					.queryForFieldValuesArgs(pathAndName(record.getPath(), record.getHashName()));
+
+			if (existing.isEmpty()) {
+				hashDao.create(record);
+			} else {
+				ImageHashRecord stored = existing.get(0);
+				stored.setHash(record.getHash());
+				hashDao.update(stored);
+			}
+		} catch (SQLException e) {
+			throw new RepositoryException("Failed to store hash", e);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<ImageHashRecord> getByPath(Path path) throws RepositoryException {
+		Map<String, Object> fields = new HashMap<>();
+		fields.put(ImageHashRecord.PATH_COLUMN_NAME, path.toString());
+
+		try {
+			return hashDao.queryForFieldValuesArgs(fields);
+		} catch (SQLException e) {
+			throw new RepositoryException("Failed to query hashes by path", e);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public ImageHashRecord getByPath(Path path, String hashName) throws RepositoryException {
+		try {
+			List<ImageHashRecord> records = hashDao.queryForFieldValuesArgs(pathAndName(path.toString(), hashName));
+			return records.isEmpty() ? null : records.get(0);
+		} catch (SQLException e) {
+			throw new RepositoryException("Failed to query hash by path and name", e);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<ImageHashRecord> getByHash(String hashName, long hash) throws RepositoryException {
+		Map<String, Object> fields = new HashMap<>();
+		fields.put(ImageHashRecord.HASH_NAME_COLUMN_NAME, hashName);
+		fields.put(ImageHashRecord.HASH_COLUMN_NAME, hash);
+
+		try {
+			return hashDao.queryForFieldValuesArgs(fields);
+		} catch (SQLException e) {
+			throw new RepositoryException("Failed to query by hash", e);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<ImageHashRecord> getAll(String hashName) throws RepositoryException {
+		Map<String, Object> fields = new HashMap<>();
+		fields.put(ImageHashRecord.HASH_NAME_COLUMN_NAME, hashName);
+
+		try {
+			return hashDao.queryForFieldValuesArgs(fields);
+		} catch (SQLException e) {
+			throw new RepositoryException("Failed to query hashes by name", e);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void remove(Path path) throws RepositoryException {
+		try {
+			DeleteBuilder<ImageHashRecord, Integer> delete = hashDao.deleteBuilder();
+			delete.where().eq(ImageHashRecord.PATH_COLUMN_NAME, new SelectArg(path.toString()));
+			delete.delete();
+		} catch (SQLException e) {
+			throw new RepositoryException("Failed to remove hashes", e);
+		}
+	}
+}
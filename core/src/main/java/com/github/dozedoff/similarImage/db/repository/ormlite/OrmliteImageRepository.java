@@ -19,26 +19,56 @@ package com.github.dozedoff.similarImage.db.repository.ormlite;
 
 import java.nio.file.Path;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import com.github.dozedoff.similarImage.db.IgnoreRecord;
 import com.github.dozedoff.similarImage.db.ImageRecord;
 import com.github.dozedoff.similarImage.db.repository.ImageRepository;
 import com.github.dozedoff.similarImage.db.repository.RepositoryException;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Iterables;
+import com.j256.ormlite.dao.CloseableIterator;
 import com.j256.ormlite.dao.Dao;
 import com.j256.ormlite.stmt.PreparedQuery;
 import com.j256.ormlite.stmt.QueryBuilder;
 import com.j256.ormlite.stmt.SelectArg;
+import com.j256.ormlite.stmt.Where;
 
 public class OrmliteImageRepository implements ImageRepository {
-	private static final String STRING_QUERY_WILDCARD = "%";
+	/**
+	 * Maximum number of paths per IN query or delete, stays well below the SQLite limit for bound variables.
+	 */
+	private static final int CHUNK_SIZE = 500;
+	/**
+	 * Number of records read per query when streaming.
+	 */
+	private static final long FETCH_SIZE = 1000;
 	private final Dao<ImageRecord, String> imageDao;
+	private final Dao<IgnoreRecord, String> ignoreDao;
 
 	private PreparedQuery<ImageRecord> queryStartsWithPath;
 	private PreparedQuery<ImageRecord> queryNotIgnored;
 	private PreparedQuery<ImageRecord> queryNotIgnoredWithPath;
+	private PreparedQuery<ImageRecord> queryContentDigest;
+	private PreparedQuery<ImageRecord> queryPathsStartingWith;
 	private SelectArg argStartsWithPath;
+	private SelectArg argStartsWithPathEnd;
+	private SelectArg argFileSize;
+	private SelectArg argDigest;
+	private SelectArg argPathPrefix;
+	private SelectArg argPathPrefixEnd;
 
 	/**
 	 * Create a repository using ORMlite DAO to access the database.
@@ -52,17 +82,31 @@ public class OrmliteImageRepository implements ImageRepository {
 	 */
 	public OrmliteImageRepository(Dao<ImageRecord, String> imageDao, Dao<IgnoreRecord, String> ignoreDao) throws RepositoryException {
 		this.imageDao = imageDao;
+		this.ignoreDao = ignoreDao;
 		
 		argStartsWithPath = new SelectArg();
+		argStartsWithPathEnd = new SelectArg();
+		argFileSize = new SelectArg();
+		argDigest = new SelectArg();
+		argPathPrefix = new SelectArg();
+		argPathPrefixEnd = new SelectArg();
 
 		try {
-			queryStartsWithPath = imageDao.queryBuilder().where().like(ImageRecord.PATH_COLUMN_NAME, argStartsWithPath)
-					.prepare();
+			queryStartsWithPath = imageDao.queryBuilder().where().ge(ImageRecord.PATH_COLUMN_NAME, argStartsWithPath)
+					.and().lt(ImageRecord.PATH_COLUMN_NAME, argStartsWithPathEnd).prepare();
 			QueryBuilder<IgnoreRecord, String> ignored = ignoreDao.queryBuilder();
 			ignored.where().isNull(IgnoreRecord.IMAGEPATH_FIELD_NAME);
 			queryNotIgnored = imageDao.queryBuilder().leftJoin(ignored).prepare();
 			queryNotIgnoredWithPath = imageDao.queryBuilder().leftJoin(ignored).where()
-					.like(ImageRecord.PATH_COLUMN_NAME, argStartsWithPath).prepare();
+					.ge(ImageRecord.PATH_COLUMN_NAME, argStartsWithPath).and()
+					.lt(ImageRecord.PATH_COLUMN_NAME, argStartsWithPathEnd).prepare();
+			queryContentDigest = imageDao.queryBuilder().where().eq(ImageRecord.FILE_SIZE_COLUMN_NAME, argFileSize)
+					.and().eq(ImageRecord.DIGEST_COLUMN_NAME, argDigest).prepare();
+			QueryBuilder<ImageRecord, String> paths = imageDao.queryBuilder();
+			paths.selectColumns(ImageRecord.PATH_COLUMN_NAME).orderBy(ImageRecord.PATH_COLUMN_NAME, true).where()
+					.ge(ImageRecord.PATH_COLUMN_NAME, argPathPrefix).and()
+					.lt(ImageRecord.PATH_COLUMN_NAME, argPathPrefixEnd);
+			queryPathsStartingWith = paths.prepare();
 		} catch (SQLException e) {
 			throw new RepositoryException("Failed to setup prepared statements", e);
 		}
@@ -80,6 +124,60 @@ public class OrmliteImageRepository implements ImageRepository {
 		}
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void storeAll(Collection<ImageRecord> images) throws RepositoryException {
+		if (images.isEmpty()) {
+			return;
+		}
+
+		try {
+			imageDao.callBatchTasks(() -> {
+				Set<String> existing = new HashSet<>();
+
+				for (ImageRecord image : queryByPaths(
+						images.stream().map(ImageRecord::getPath).collect(Collectors.toList()), true)) {
+					existing.add(image.getPath());
+				}
+
+				for (ImageRecord image : images) {
+					if (existing.add(image.getPath())) {
+						imageDao.create(image);
+					} else {
+						imageDao.update(image);
+					}
+				}
+
+				return null;
+			});
+		} catch (Exception e) {
+			throw new RepositoryException("Failed to store images", e);
+		}
+	}
+
+	/**
+	 * Query records in chunks, with one bound argument per path.
+	 */
+	private List<ImageRecord> queryByPaths(Collection<String> paths, boolean pathOnly) throws SQLException {
+		List<ImageRecord> records = new ArrayList<>(paths.size());
+
+		for (List<String> chunk : Iterables.partition(paths, CHUNK_SIZE)) {
+			QueryBuilder<ImageRecord, String> query = imageDao.queryBuilder();
+
+			if (pathOnly) {
+				query.selectColumns(ImageRecord.PATH_COLUMN_NAME);
+			}
+
+			query.where().in(ImageRecord.PATH_COLUMN_NAME,
+					chunk.stream().map(SelectArg::new).collect(Collectors.toList()));
+			records.addAll(query.query());
+		}
+
+		return records;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -92,6 +190,21 @@ public class OrmliteImageRepository implements ImageRepository {
 		}
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized List<ImageRecord> getByContentDigest(long fileSize, long digest) throws RepositoryException {
+		argFileSize.setValue(fileSize);
+		argDigest.setValue(digest);
+
+		try {
+			return imageDao.query(queryContentDigest);
+		} catch (SQLException e) {
+			throw new RepositoryException("Failed to query by content digest", e);
+		}
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -104,12 +217,24 @@ public class OrmliteImageRepository implements ImageRepository {
 		}
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<ImageRecord> getByPaths(Collection<Path> paths) throws RepositoryException {
+		try {
+			return queryByPaths(paths.stream().map(Path::toString).collect(Collectors.toList()), false);
+		} catch (SQLException e) {
+			throw new RepositoryException("Failed to query for paths", e);
+		}
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
 	public synchronized List<ImageRecord> startsWithPath(Path directory) throws RepositoryException {
-		argStartsWithPath.setValue(directory.toString() + STRING_QUERY_WILDCARD);
+		PathRange.setBounds(directory, argStartsWithPath, argStartsWithPathEnd);
 
 		try {
 			return imageDao.query(queryStartsWithPath);
@@ -118,6 +243,134 @@ public class OrmliteImageRepository implements ImageRepository {
 		}
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void forEachPath(Path directory, Consumer<String> action) throws RepositoryException {
+		PathRange.setBounds(directory, argPathPrefix, argPathPrefixEnd);
+		CloseableIterator<ImageRecord> iterator = null;
+
+		try {
+			iterator = imageDao.iterator(queryPathsStartingWith);
+
+			while (iterator.hasNext()) {
+				action.accept(iterator.next().getPath());
+			}
+		} catch (SQLException e) {
+			throw new RepositoryException("Failed to stream paths", e);
+		} finally {
+			if (iterator != null) {
+				iterator.closeQuietly();
+			}
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Stream<ImageRecord> stream(Path directory) throws RepositoryException {
+		return streamBatches(directory, false);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Stream<ImageRecord> streamWithoutIgnored(Path directory) throws RepositoryException {
+		return streamBatches(directory, true);
+	}
+
+	private Stream<ImageRecord> streamBatches(Path directory, boolean withoutIgnored) throws RepositoryException {
+		String prefix = directory == null ? null : directory.toString();
+		BatchIterator iterator = new BatchIterator(prefix, withoutIgnored);
+
+		try {
+			iterator.nextBatch();
+		} catch (SQLException e) {
+			throw new RepositoryException("Failed to stream images", e);
+		}
+
+		return StreamSupport.stream(
+				Spliterators.spliteratorUnknownSize(iterator,
+						Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL), false);
+	}
+
+	/**
+	 * Reads records ordered by path, in batches of {@link #FETCH_SIZE}. Each batch continues after the last path of the
+	 * previous batch, so every batch is a short query using the primary key index.
+	 */
+	private final class BatchIterator extends AbstractIterator<ImageRecord> {
+		private final String prefix;
+		private final String prefixEnd;
+		private final boolean withoutIgnored;
+
+		private Iterator<ImageRecord> batch = Collections.emptyIterator();
+		private boolean lastBatch;
+		private String lastPath;
+
+		BatchIterator(String prefix, boolean withoutIgnored) {
+			this.prefix = prefix;
+			this.prefixEnd = prefix == null ? null : PathRange.upperBound(prefix);
+			this.withoutIgnored = withoutIgnored;
+		}
+
+		void nextBatch() throws SQLException {
+			QueryBuilder<ImageRecord, String> query = imageDao.queryBuilder();
+
+			if (withoutIgnored) {
+				QueryBuilder<IgnoreRecord, String> ignored = ignoreDao.queryBuilder();
+				ignored.where().isNull(IgnoreRecord.IMAGEPATH_FIELD_NAME);
+				query.leftJoin(ignored);
+			}
+
+			query.orderBy(ImageRecord.PATH_COLUMN_NAME, true).limit(FETCH_SIZE);
+
+			if (prefix != null || lastPath != null) {
+				Where<ImageRecord, String> where = query.where();
+
+				if (lastPath != null) {
+					where.gt(ImageRecord.PATH_COLUMN_NAME, new SelectArg(lastPath));
+				} else {
+					where.ge(ImageRecord.PATH_COLUMN_NAME, new SelectArg(prefix));
+				}
+
+				if (prefix != null) {
+					where.and().lt(ImageRecord.PATH_COLUMN_NAME, new SelectArg(prefixEnd));
+				}
+			}
+
+			List<ImageRecord> records = query.query();
+			lastBatch = records.size() < FETCH_SIZE;
+			batch = records.iterator();
+		}
+
+		@Override
+		protected ImageRecord computeNext() {
+			if (!batch.hasNext()) {
+				if (lastBatch) {
+					return endOfData();
+				}
+
+				try {
+					nextBatch();
+				} catch (SQLException e) {
+					throw new RuntimeException(new RepositoryException("Failed to read next batch of images", e));
+				}
+
+				if (!batch.hasNext()) {
+					return endOfData();
+				}
+			}
+
+			ImageRecord next = batch.next();
+			lastPath = next.getPath();
+
+			return next;
+		}
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -135,10 +388,20 @@ public class OrmliteImageRepository implements ImageRepository {
 	 */
 	@Override
 	public void remove(Collection<ImageRecord> images) throws RepositoryException {
+		if (images.isEmpty()) {
+			return;
+		}
+
 		try {
-			imageDao.delete(images);
-		} catch (SQLException e) {
-			throw new RepositoryException("Failed to remove some or all images", e);
+			imageDao.callBatchTasks(() -> {
+				for (List<ImageRecord> chunk : Iterables.partition(images, CHUNK_SIZE)) {
+					imageDao.delete(chunk);
+				}
+
+				return null;
+			});
+		} catch (Exception e) {
+			throw new RepositoryException("Failed to remove images", e);
 		}
 	}
 
@@ -170,8 +433,8 @@ public class OrmliteImageRepository implements ImageRepository {
 	 * {@inheritDoc}
 	 */
 	@Override
-	public List<ImageRecord> getAllWithoutIgnored(Path directory) throws RepositoryException {
-		argStartsWithPath.setValue(directory.toString() + STRING_QUERY_WILDCARD);
+	public synchronized List<ImageRecord> getAllWithoutIgnored(Path directory) throws RepositoryException {
+		PathRange.setBounds(directory, argStartsWithPath, argStartsWithPathEnd);
 
 		try {
 			return imageDao.query(queryNotIgnoredWithPath);
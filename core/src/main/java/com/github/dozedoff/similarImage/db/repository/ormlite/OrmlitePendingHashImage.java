@@ -18,11 +18,13 @@
 package com.github.dozedoff.similarImage.db.repository.ormlite;
 
 import java.sql.SQLException;
+import java.util.Collection;
 import java.util.List;
 
 import com.github.dozedoff.similarImage.db.PendingHashImage;
 import com.github.dozedoff.similarImage.db.repository.PendingHashImageRepository;
 import com.github.dozedoff.similarImage.db.repository.RepositoryException;
+import com.google.common.collect.Iterables;
 import com.j256.ormlite.dao.Dao;
 import com.j256.ormlite.stmt.PreparedQuery;
 import com.j256.ormlite.stmt.SelectArg;
@@ -34,6 +36,11 @@ import com.j256.ormlite.stmt.SelectArg;
  *
  */
 public class OrmlitePendingHashImage implements PendingHashImageRepository {
+	/**
+	 * Maximum number of entries per delete, stays well below the SQLite limit for bound variables.
+	 */
+	private static final int CHUNK_SIZE = 500;
+
 	private final Dao<PendingHashImage, Integer> pendingDao;
 
 	private final PreparedQuery<PendingHashImage> uuidQuery;
@@ -134,4 +141,26 @@ public class OrmlitePendingHashImage implements PendingHashImageRepository {
 			throw new RepositoryException("Failed to remove entry", e);
 		}
 	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void removeAll(Collection<PendingHashImage> images) throws RepositoryException {
+		if (images.isEmpty()) {
+			return;
+		}
+
+		try {
+			pendingDao.callBatchTasks(() -> {
+				for (List<PendingHashImage> chunk : Iterables.partition(images, CHUNK_SIZE)) {
+					pendingDao.delete(chunk);
+				}
+
+				return null;
+			});
+		} catch (Exception e) {
+			throw new RepositoryException("Failed to remove entries", e);
+		}
+	}
 }
@@ -26,14 +26,18 @@ import org.slf4j.LoggerFactory;
 
 import com.github.dozedoff.similarImage.db.BadFileRecord;
 import com.github.dozedoff.similarImage.db.Database;
+import com.github.dozedoff.similarImage.db.DirectoryRecord;
 import com.github.dozedoff.similarImage.db.FilterRecord;
 import com.github.dozedoff.similarImage.db.IgnoreRecord;
+import com.github.dozedoff.similarImage.db.ImageHashRecord;
 import com.github.dozedoff.similarImage.db.ImageRecord;
 import com.github.dozedoff.similarImage.db.PendingHashImage;
 import com.github.dozedoff.similarImage.db.Tag;
 import com.github.dozedoff.similarImage.db.Thumbnail;
+import com.github.dozedoff.similarImage.db.repository.DirectoryRepository;
 import com.github.dozedoff.similarImage.db.repository.FilterRepository;
 import com.github.dozedoff.similarImage.db.repository.IgnoreRepository;
+import com.github.dozedoff.similarImage.db.repository.ImageHashRepository;
 import com.github.dozedoff.similarImage.db.repository.ImageRepository;
 import com.github.dozedoff.similarImage.db.repository.PendingHashImageRepository;
 import com.github.dozedoff.similarImage.db.repository.RepositoryException;
@@ -62,6 +66,8 @@ public class OrmliteRepositoryFactory implements RepositoryFactory {
 	private Dao<Tag, Long> tagDao;
 	private Dao<PendingHashImage, Integer> pendingDao;
 	private Dao<IgnoreRecord, String> ignoreDao;
+	private Dao<ImageHashRecord, Integer> imageHashDao;
+	private Dao<DirectoryRecord, String> directoryDao;
 
 	/**
 	 * Create a new Repository Factory using the given database instance.
@@ -89,6 +95,8 @@ public class OrmliteRepositoryFactory implements RepositoryFactory {
 		tagDao = DaoManager.createDao(cs, Tag.class);
 		pendingDao = DaoManager.createDao(cs, PendingHashImage.class);
 		ignoreDao = DaoManager.createDao(cs, IgnoreRecord.class);
+		imageHashDao = DaoManager.createDao(cs, ImageHashRecord.class);
+		directoryDao = DaoManager.createDao(cs, DirectoryRecord.class);
 
 		imageRecordDao.setObjectCache(new LruObjectCache(LARGE_CACHE_SIZE));
 		filterRecordDao.setObjectCache(new LruObjectCache(DEFAULT_CACHE_SIZE));
@@ -157,4 +165,28 @@ public class OrmliteRepositoryFactory implements RepositoryFactory {
 	public IgnoreRepository buildIgnoreRepository() throws RepositoryException {
 		return new OrmliteIgnoreRepository(ignoreDao);
 	}
+
+	/**
+	 * Create a new {@link ImageHashRepository}
+	 * 
+	 * @return an initialized {@link OrmliteImageHashRepository}
+	 * @throws RepositoryException
+	 *             if there was an error with the DAO or database
+	 */
+	@Override
+	public ImageHashRepository buildImageHashRepository() throws RepositoryException {
+		return new OrmliteImageHashRepository(imageHashDao);
+	}
+
+	/**
+	 * Create a new {@link DirectoryRepository}
+	 * 
+	 * @return an initialized {@link OrmliteDirectoryRepository}
+	 * @throws RepositoryException
+	 *             if there was an error with the DAO or database
+	 */
+	@Override
+	public DirectoryRepository buildDirectoryRepository() throws RepositoryException {
+		return new OrmliteDirectoryRepository(directoryDao);
+	}
 }
@@ -0,0 +1,89 @@
+/*  Copyright (C) 2016  Nicholas Wright
+    
+    This file is part of similarImage - A similar image finder using pHash
+    
+    similarImage is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.similarImage.db.repository.ormlite;
+
+import java.nio.file.Path;
+
+import com.j256.ormlite.stmt.SelectArg;
+
+/**
+ * Bounds for selecting all paths that start with a prefix. A query on <code>path &gt;= lower AND path &lt; upper</code>
+ * is answered with a range scan on the index of the path column, where <code>LIKE 'prefix%'</code> reads the whole
+ * table, as SQLite cannot use an index for a case insensitive LIKE.<br>
+ * SQLite compares text as UTF-8 bytes, which sorts the same as code points. The upper bound is therefore the prefix with
+ * the last code point incremented. Unlike LIKE, the match is case sensitive and '_' and '%' have no special meaning.
+ * 
+ * @author Nicholas Wright
+ * 
+ */
+final class PathRange {
+	private static final int SURROGATE_START = Character.MIN_SURROGATE;
+	private static final int SURROGATE_END = Character.MAX_SURROGATE + 1;
+	/**
+	 * Upper bound for an empty prefix. No valid path sorts after it, unless it starts with the largest code point.
+	 */
+	private static final String LAST = new String(Character.toChars(Character.MAX_CODE_POINT));
+
+	private PathRange() {
+	}
+
+	/**
+	 * Set the bounds for the given prefix.
+	 * 
+	 * @param prefix
+	 *            the paths have to start with
+	 * @param lower
+	 *            argument for the inclusive lower bound
+	 * @param upper
+	 *            argument for the exclusive upper bound
+	 */
+	static void setBounds(Path prefix, SelectArg lower, SelectArg upper) {
+		String value = prefix.toString();
+
+		lower.setValue(value);
+		upper.setValue(upperBound(value));
+	}
+
+	/**
+	 * Get the smallest string that is greater than all strings starting with the prefix.
+	 * 
+	 * @param prefix
+	 *            to get the bound for
+	 * @return the exclusive upper bound
+	 */
+	static String upperBound(String prefix) {
+		int end = prefix.length();
+
+		while (end > 0) {
+			int codePoint = prefix.codePointBefore(end);
+			end -= Character.charCount(codePoint);
+
+			if (codePoint < Character.MAX_CODE_POINT) {
+				int next = codePoint + 1;
+
+				if (next == SURROGATE_START) {
+					next = SURROGATE_END;
+				}
+
+				return new StringBuilder(prefix.substring(0, end)).appendCodePoint(next).toString();
+			}
+		}
+
+		return LAST;
+	}
+}
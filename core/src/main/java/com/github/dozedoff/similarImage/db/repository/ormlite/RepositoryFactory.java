@@ -17,8 +17,10 @@
  */
 package com.github.dozedoff.similarImage.db.repository.ormlite;
 
+import com.github.dozedoff.similarImage.db.repository.DirectoryRepository;
 import com.github.dozedoff.similarImage.db.repository.FilterRepository;
 import com.github.dozedoff.similarImage.db.repository.IgnoreRepository;
+import com.github.dozedoff.similarImage.db.repository.ImageHashRepository;
 import com.github.dozedoff.similarImage.db.repository.ImageRepository;
 import com.github.dozedoff.similarImage.db.repository.PendingHashImageRepository;
 import com.github.dozedoff.similarImage.db.repository.RepositoryException;
@@ -77,4 +79,22 @@ public interface RepositoryFactory {
 	 */
 	IgnoreRepository buildIgnoreRepository() throws RepositoryException;
 
+	/**
+	 * Create a new {@link ImageHashRepository}
+	 * 
+	 * @return an initialized {@link ImageHashRepository}
+	 * @throws RepositoryException
+	 *             if there was an error with the datasource
+	 */
+	ImageHashRepository buildImageHashRepository() throws RepositoryException;
+
+	/**
+	 * Create a new {@link DirectoryRepository}
+	 * 
+	 * @return an initialized {@link DirectoryRepository}
+	 * @throws RepositoryException
+	 *             if there was an error with the datasource
+	 */
+	DirectoryRepository buildDirectoryRepository() throws RepositoryException;
+
 }
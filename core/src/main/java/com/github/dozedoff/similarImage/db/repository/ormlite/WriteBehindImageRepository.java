@@ -0,0 +1,556 @@
+/*  Copyright (C) 2016  Nicholas Wright
+    
+    This file is part of similarImage - A similar image finder using pHash
+    
+    similarImage is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.similarImage.db.repository.ormlite;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.github.dozedoff.similarImage.db.ImageRecord;
+import com.github.dozedoff.similarImage.db.repository.ImageRepository;
+import com.github.dozedoff.similarImage.db.repository.RepositoryException;
+import com.github.dozedoff.similarImage.thread.NamedThreadFactory;
+
+/**
+ * Decorator that queues stored {@link ImageRecord} and writes them to the delegate in batches, using
+ * {@link ImageRepository#storeAll(Collection)}. A batch is written once it reaches the batch size, or once the oldest
+ * queued record reaches the maximum age.<br>
+ * Lookups by path, hash or content digest include queued records, all other queries and removals flush the queue
+ * first. Queued records are written when the repository is closed or the JVM shuts down. If writing a batch fails, the
+ * records are queued again, unless a newer record for the same path has been queued in the meantime, and the flush is
+ * retried with an increasing delay. Lookups are not blocked while waiting to retry. If all attempts fail, the records
+ * stay queued and will be written with a later flush.
+ * 
+ * @author Nicholas Wright
+ * 
+ */
+public class WriteBehindImageRepository implements ImageRepository, AutoCloseable {
+	private static final Logger LOGGER = LoggerFactory.getLogger(WriteBehindImageRepository.class);
+
+	public static final int DEFAULT_BATCH_SIZE = 100;
+	public static final long DEFAULT_MAX_AGE_MILLIS = 1000;
+
+	private static final int WRITE_ATTEMPTS = 3;
+	private static final long RETRY_DELAY_MILLIS = 50;
+
+	public static final String METRIC_NAME_FLUSH = MetricRegistry.name(WriteBehindImageRepository.class, "flush");
+	public static final String METRIC_NAME_BATCH_SIZE = MetricRegistry.name(WriteBehindImageRepository.class, "batch",
+			"size");
+	public static final String METRIC_NAME_FLUSH_FAILED = MetricRegistry.name(WriteBehindImageRepository.class,
+			"flush", "failed");
+	public static final String METRIC_NAME_PENDING = MetricRegistry.name(WriteBehindImageRepository.class, "pending");
+
+	private final ImageRepository delegate;
+	private final int batchSize;
+	private final long maxAgeNanos;
+
+	private final Queue<ImageRecord> pending = new ConcurrentLinkedQueue<>();
+	/**
+	 * The most recently queued record for each path.
+	 */
+	private final Map<String, ImageRecord> latestPending = new ConcurrentHashMap<>();
+	private final AtomicInteger pendingCount = new AtomicInteger();
+	private final AtomicBoolean flushScheduled = new AtomicBoolean();
+	private final AtomicBoolean closed = new AtomicBoolean();
+	private volatile long oldestPending;
+
+	/**
+	 * Held for reading while queued records and the delegate are queried, held for writing while a batch is moved from
+	 * the queue to the database, so lookups do not miss records in transit.
+	 */
+	private final ReadWriteLock flushLock = new ReentrantReadWriteLock();
+
+	private final ScheduledExecutorService flusher;
+	private final Thread shutdownHook;
+
+	private final Timer flushTimer;
+	private final Histogram batchSizes;
+	private final Meter flushFailed;
+
+	/**
+	 * Create a write-behind repository with the default batch size and maximum age.
+	 * 
+	 * @param delegate
+	 *            repository the records are written to
+	 * @param metrics
+	 *            registry for tracking flush latency and batch sizes
+	 */
+	public WriteBehindImageRepository(ImageRepository delegate, MetricRegistry metrics) {
+		this(delegate, metrics, DEFAULT_BATCH_SIZE, DEFAULT_MAX_AGE_MILLIS, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Create a write-behind repository.
+	 * 
+	 * @param delegate
+	 *            repository the records are written to
+	 * @param metrics
+	 *            registry for tracking flush latency and batch sizes
+	 * @param batchSize
+	 *            number of queued records that triggers a write, and the maximum number of records per transaction
+	 * @param maxAge
+	 *            maximum time a record should stay queued
+	 * @param unit
+	 *            unit of the maximum age
+	 */
+	public WriteBehindImageRepository(ImageRepository delegate, MetricRegistry metrics, int batchSize, long maxAge,
+			TimeUnit unit) {
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("Batch size must be at least 1");
+		}
+
+		if (maxAge < 1) {
+			throw new IllegalArgumentException("Maximum age must be positive");
+		}
+
+		this.delegate = Objects.requireNonNull(delegate, "Delegate cannot be null");
+		this.batchSize = batchSize;
+		this.maxAgeNanos = unit.toNanos(maxAge);
+
+		this.flushTimer = metrics.timer(METRIC_NAME_FLUSH);
+		this.batchSizes = metrics.histogram(METRIC_NAME_BATCH_SIZE);
+		this.flushFailed = metrics.meter(METRIC_NAME_FLUSH_FAILED);
+		metrics.<Gauge<Integer>> gauge(METRIC_NAME_PENDING, () -> pendingCount::get);
+
+		NamedThreadFactory threadFactory = new NamedThreadFactory("Write-behind flush");
+		this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = threadFactory.newThread(runnable);
+			thread.setDaemon(true);
+			return thread;
+		});
+		long checkInterval = Math.max(1, maxAgeNanos / 2);
+		this.flusher.scheduleWithFixedDelay(this::flushIfDue, checkInterval, checkInterval, TimeUnit.NANOSECONDS);
+
+		this.shutdownHook = new Thread(this::flushOnShutdown, "Write-behind shutdown flush");
+		Runtime.getRuntime().addShutdownHook(shutdownHook);
+	}
+
+	/**
+	 * Queue the record for writing. Once the repository has been closed, records are written immediately.
+	 * 
+	 * @param image
+	 *            to store
+	 * @throws RepositoryException
+	 *             if the repository is closed and the record could not be written
+	 */
+	@Override
+	public void store(ImageRecord image) throws RepositoryException {
+		if (closed.get()) {
+			delegate.store(image);
+			return;
+		}
+
+		enqueue(image);
+	}
+
+	/**
+	 * Queue the records for writing. Once the repository has been closed, records are written immediately.
+	 * 
+	 * @param images
+	 *            to store
+	 * @throws RepositoryException
+	 *             if the repository is closed and the records could not be written
+	 */
+	@Override
+	public void storeAll(Collection<ImageRecord> images) throws RepositoryException {
+		if (closed.get()) {
+			delegate.storeAll(images);
+			return;
+		}
+
+		for (ImageRecord image : images) {
+			enqueue(image);
+		}
+	}
+
+	private void enqueue(ImageRecord image) throws RepositoryException {
+		latestPending.put(image.getPath(), image);
+		pending.add(image);
+
+		int queued = pendingCount.incrementAndGet();
+
+		if (queued == 1) {
+			oldestPending = System.nanoTime();
+		}
+
+		if (queued >= batchSize && flushScheduled.compareAndSet(false, true)) {
+			try {
+				flusher.execute(this::backgroundFlush);
+			} catch (RejectedExecutionException e) {
+				flushScheduled.set(false);
+				flush();
+			}
+		}
+	}
+
+	/**
+	 * Get the number of records waiting to be written.
+	 * 
+	 * @return number of queued records
+	 */
+	public int getPendingCount() {
+		return pendingCount.get();
+	}
+
+	/**
+	 * Write all queued records to the delegate. If a batch fails, the flush is retried after a delay. The lock is not
+	 * held while waiting.
+	 * 
+	 * @throws RepositoryException
+	 *             if the records could not be written after all attempts, the records stay queued
+	 */
+	public void flush() throws RepositoryException {
+		long delay = RETRY_DELAY_MILLIS;
+
+		for (int attempt = 1;; attempt++) {
+			try {
+				flushPending();
+				return;
+			} catch (RepositoryException e) {
+				if (attempt >= WRITE_ATTEMPTS) {
+					flushFailed.mark();
+					throw new RepositoryException("Failed to write queued images after " + attempt
+							+ " attempts, records are queued again", e);
+				}
+
+				LOGGER.warn("Failed to write queued images (attempt {} of {}), retrying in {} ms: {}", attempt,
+						WRITE_ATTEMPTS, delay, e.toString());
+			}
+
+			try {
+				TimeUnit.MILLISECONDS.sleep(delay);
+			} catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+				throw new RepositoryException("Interrupted while waiting to retry writing queued images", ie);
+			}
+
+			delay *= 2;
+		}
+	}
+
+	private void flushPending() throws RepositoryException {
+		flushLock.writeLock().lock();
+
+		try {
+			while (!pending.isEmpty()) {
+				flushBatch();
+			}
+		} finally {
+			flushLock.writeLock().unlock();
+		}
+	}
+
+	private void flushBatch() throws RepositoryException {
+		List<ImageRecord> batch = new ArrayList<>(batchSize);
+		ImageRecord record;
+
+		while (batch.size() < batchSize && (record = pending.poll()) != null) {
+			batch.add(record);
+		}
+
+		if (pendingCount.addAndGet(-batch.size()) > 0) {
+			oldestPending = System.nanoTime();
+		}
+
+		batchSizes.update(batch.size());
+
+		try (Timer.Context context = flushTimer.time()) {
+			delegate.storeAll(batch);
+		} catch (RepositoryException e) {
+			requeue(batch);
+			throw e;
+		}
+
+		for (ImageRecord written : batch) {
+			// compare by identity, a newer record for the same path can be equal to the written one
+			latestPending.computeIfPresent(written.getPath(), (path, latest) -> latest == written ? null : latest);
+		}
+	}
+
+	/**
+	 * Queue the records of a failed batch again. Records that have been replaced by a newer queued record are dropped,
+	 * so they cannot overwrite the newer record.
+	 */
+	private void requeue(List<ImageRecord> batch) {
+		int requeued = 0;
+
+		for (ImageRecord record : batch) {
+			if (latestPending.get(record.getPath()) == record) {
+				pending.add(record);
+				requeued++;
+			}
+		}
+
+		if (pendingCount.getAndAdd(requeued) == 0 && requeued > 0) {
+			oldestPending = System.nanoTime();
+		}
+	}
+
+	private void backgroundFlush() {
+		flushScheduled.set(false);
+
+		try {
+			flush();
+		} catch (RepositoryException e) {
+			LOGGER.error("{}, cause: {}", e.getMessage(), e.getCause() == null ? null : e.getCause().toString());
+		}
+	}
+
+	private void flushIfDue() {
+		if (pendingCount.get() > 0 && System.nanoTime() - oldestPending >= maxAgeNanos) {
+			backgroundFlush();
+		}
+	}
+
+	private void flushOnShutdown() {
+		try {
+			closeAndFlush();
+		} catch (RepositoryException e) {
+			LOGGER.error("Failed to write queued images on shutdown: {}", e.toString());
+		}
+	}
+
+	/**
+	 * Stop the background writer and write all queued records. Records stored after closing are written immediately.
+	 * 
+	 * @throws RepositoryException
+	 *             if the queued records could not be written
+	 */
+	@Override
+	public void close() throws RepositoryException {
+		closeAndFlush();
+
+		try {
+			Runtime.getRuntime().removeShutdownHook(shutdownHook);
+		} catch (IllegalStateException e) {
+			LOGGER.debug("JVM is already shutting down, shutdown hook not removed");
+		}
+	}
+
+	private void closeAndFlush() throws RepositoryException {
+		if (closed.compareAndSet(false, true)) {
+			flusher.shutdown();
+
+			try {
+				flusher.awaitTermination(1, TimeUnit.MINUTES);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		flush();
+	}
+
+	/**
+	 * Replace stored records with queued records for the same path, and add queued records matching the query.
+	 */
+	private List<ImageRecord> mergePending(List<ImageRecord> stored, Predicate<ImageRecord> query) {
+		if (latestPending.isEmpty()) {
+			return stored;
+		}
+
+		List<ImageRecord> merged = new ArrayList<>(stored.size());
+
+		for (ImageRecord record : stored) {
+			if (!latestPending.containsKey(record.getPath())) {
+				merged.add(record);
+			}
+		}
+
+		for (ImageRecord record : latestPending.values()) {
+			if (query.test(record)) {
+				merged.add(record);
+			}
+		}
+
+		return merged;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<ImageRecord> getByHash(long hash) throws RepositoryException {
+		flushLock.readLock().lock();
+
+		try {
+			return mergePending(delegate.getByHash(hash), record -> record.getpHash() == hash);
+		} finally {
+			flushLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<ImageRecord> getByContentDigest(long fileSize, long digest) throws RepositoryException {
+		flushLock.readLock().lock();
+
+		try {
+			return mergePending(delegate.getByContentDigest(fileSize, digest), record -> record.hasContentDigest()
+					&& record.getFileSize() == fileSize && record.getDigest() == digest);
+		} finally {
+			flushLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public ImageRecord getByPath(Path path) throws RepositoryException {
+		flushLock.readLock().lock();
+
+		try {
+			ImageRecord queued = latestPending.get(path.toString());
+
+			if (queued != null) {
+				return queued;
+			}
+
+			return delegate.getByPath(path);
+		} finally {
+			flushLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<ImageRecord> getByPaths(Collection<Path> paths) throws RepositoryException {
+		flushLock.readLock().lock();
+
+		try {
+			Set<String> requested = paths.stream().map(Path::toString).collect(Collectors.toSet());
+
+			return mergePending(delegate.getByPaths(paths), record -> requested.contains(record.getPath()));
+		} finally {
+			flushLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<ImageRecord> startsWithPath(Path directory) throws RepositoryException {
+		flush();
+		return delegate.startsWithPath(directory);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void forEachPath(Path directory, Consumer<String> action) throws RepositoryException {
+		flush();
+		delegate.forEachPath(directory, action);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Stream<ImageRecord> stream(Path directory) throws RepositoryException {
+		flush();
+		return delegate.stream(directory);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Stream<ImageRecord> streamWithoutIgnored(Path directory) throws RepositoryException {
+		flush();
+		return delegate.streamWithoutIgnored(directory);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void remove(ImageRecord image) throws RepositoryException {
+		flush();
+		delegate.remove(image);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void remove(Collection<ImageRecord> images) throws RepositoryException {
+		flush();
+		delegate.remove(images);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<ImageRecord> getAll() throws RepositoryException {
+		flush();
+		return delegate.getAll();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<ImageRecord> getAllWithoutIgnored() throws RepositoryException {
+		flush();
+		return delegate.getAllWithoutIgnored();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<ImageRecord> getAllWithoutIgnored(Path directory) throws RepositoryException {
+		flush();
+		return delegate.getAllWithoutIgnored(directory);
+	}
+}
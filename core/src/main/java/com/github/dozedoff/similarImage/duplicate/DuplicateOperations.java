@@ -20,6 +20,7 @@ package com.github.dozedoff.similarImage.duplicate;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.DirectoryStream;
 import java.nio.file.FileSystem;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
@@ -27,13 +28,12 @@ import java.nio.file.Path;
 import java.security.DigestInputStream;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 
-import javax.imageio.ImageIO;
 import javax.inject.Inject;
 
 import org.imgscalr.Scalr;
@@ -53,11 +53,11 @@ import com.github.dozedoff.similarImage.db.repository.IgnoreRepository;
 import com.github.dozedoff.similarImage.db.repository.ImageRepository;
 import com.github.dozedoff.similarImage.db.repository.RepositoryException;
 import com.github.dozedoff.similarImage.db.repository.TagRepository;
+import com.github.dozedoff.similarImage.image.FirstFrameGifDecoder;
+import com.github.dozedoff.similarImage.image.ImageDecodeService;
 import com.github.dozedoff.similarImage.result.Result;
 import com.github.dozedoff.similarImage.util.ImageUtil;
 
-import at.dhyan.open_imaging.GifDecoder;
-
 public class DuplicateOperations {
 	private static final Tag TAG_DNW = new Tag(Tags.DNW.toString());
 
@@ -182,15 +182,18 @@ public class DuplicateOperations {
 	 *            tag to use for filter records
 	 */
 	public void markAll(Collection<Result> records, Tag tag) {
+		List<FilterRecord> filters = new ArrayList<>(records.size());
+
 		for (Result result : records) {
 			ImageRecord record = result.getImageRecord();
-			try {
-				markAs(record, tag);
-				logger.info("Adding pHash {} to filter, tag {}, source file {}", record.getpHash(), tag,
-						record.getPath());
-			} catch (RepositoryException e) {
-				logger.warn("Failed to add tag for {}: {}", record.getPath(), e.toString());
-			}
+			filters.add(createFilter(record, tag));
+			logger.info("Adding pHash {} to filter, tag {}, source file {}", record.getpHash(), tag, record.getPath());
+		}
+
+		try {
+			filterRepository.storeAll(filters);
+		} catch (RepositoryException e) {
+			logger.warn("Failed to add tag {} for {} images: {}", tag, filters.size(), e.toString());
 		}
 	}
 
@@ -267,9 +270,13 @@ public class DuplicateOperations {
 			long pHash = image.getpHash();
 			logger.info("Adding pHash {} to filter, reason {}", pHash, tag);
 
+			filterRepository.store(createFilter(image, tag));
+	}
+
+	private FilterRecord createFilter(ImageRecord image, Tag tag) {
 		Thumbnail thumb = createThumbnail(fileSystem.getPath(image.getPath()));
 
-			filterRepository.store(new FilterRecord(pHash, tag, thumb));
+		return new FilterRecord(image.getpHash(), tag, thumb);
 	}
 
 	private Thumbnail createThumbnail(Path path) {
@@ -281,17 +288,17 @@ public class DuplicateOperations {
 				return thumb;
 			}
 
-			InputStream is = Files.newInputStream(path);
 			MessageDigest md = MessageDigest.getInstance(MESSAGE_DIGEST_ALGORITHM);
-			DigestInputStream dis = new DigestInputStream(is, md);
 			BufferedImage img;
 
-			try {
-				img = ImageIO.read(dis);
-			} catch (ArrayIndexOutOfBoundsException e) {
-				img = GifDecoder.read(is).getFrame(0);
+			try (InputStream is = Files.newInputStream(path); DigestInputStream dis = new DigestInputStream(is, md)) {
+				if (FirstFrameGifDecoder.isGif(path)) {
+					img = FirstFrameGifDecoder.decode(dis);
+				} else {
+					img = ImageDecodeService.getDefault().read(dis);
+				}
 			}
-			
+
 			BufferedImage resized = Scalr.resize(img, Method.QUALITY, Mode.AUTOMATIC, THUMBNAIL_SIZE);
 
 			thumb = new Thumbnail(md.digest(), ImageUtil.imageToBytes(resized));
@@ -317,21 +324,33 @@ public class DuplicateOperations {
 			return;
 		}
 
-		try {
-			int addCount = 0;
-			Iterator<Path> iter = Files.newDirectoryStream(directory).iterator();
+		List<Path> files = new ArrayList<>();
 
-			while (iter.hasNext()) {
-				Path current = iter.next();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+			for (Path current : stream) {
 				if (Files.isRegularFile(current)) {
-					markAs(current, tag);
-					addCount++;
+					files.add(current);
 				}
 			}
-
-			logger.info("Added {} images from {} to filter list", addCount, directory);
 		} catch (IOException e) {
 			logger.error("Failed to add images to filter list, {}", e);
+			return;
+		}
+
+		try {
+			List<FilterRecord> filters = new ArrayList<>(files.size());
+
+			for (ImageRecord image : imageRepository.getByPaths(files)) {
+				filters.add(createFilter(image, tag));
+			}
+
+			if (!filters.isEmpty()) {
+				filterRepository.storeAll(filters);
+			}
+
+			logger.info("Added {} images from {} to filter list", filters.size(), directory);
+		} catch (RepositoryException e) {
+			logger.warn(FILTER_ADD_FAILED_MESSAGE, directory, e.getMessage());
 		}
 	}
 
@@ -42,7 +42,7 @@ public abstract class DuplicateUtil {
 	 *            records to sort.
 	 * @return a one to many map with the hash vales as the key.
 	 */
-	public static Multimap<Long, ImageRecord> groupByHash(Collection<ImageRecord> dbRecords) {
+	public static Multimap<Long, ImageRecord> groupByHash(Iterable<ImageRecord> dbRecords) {
 		Multimap<Long, ImageRecord> groupedByHash = MultimapBuilder.hashKeys().hashSetValues().build();
 
 		logger.info("Grouping records by hash...");
@@ -51,7 +51,30 @@ public abstract class DuplicateUtil {
 			groupedByHash.put(ir.getpHash(), ir);
 		}
 
-		logger.info("{} records, in {} groups", dbRecords.size(), groupedByHash.keySet().size());
+		logger.info("{} records, in {} groups", groupedByHash.size(), groupedByHash.keySet().size());
+
+		return groupedByHash;
+	}
+
+	/**
+	 * Group records by wide hash using a one to many map. Records without a wide hash are skipped.
+	 * 
+	 * @param dbRecords
+	 *            records to sort.
+	 * @return a one to many map with the wide hash values as the key.
+	 */
+	public static Multimap<WideHash, ImageRecord> groupByWideHash(Iterable<ImageRecord> dbRecords) {
+		Multimap<WideHash, ImageRecord> groupedByHash = MultimapBuilder.hashKeys().hashSetValues().build();
+
+		logger.info("Grouping records by wide hash...");
+
+		for (ImageRecord ir : dbRecords) {
+			if (ir.hasWideHash()) {
+				groupedByHash.put(ir.getWideHash(), ir);
+			}
+		}
+
+		logger.info("{} records, in {} wide hash groups", groupedByHash.size(), groupedByHash.keySet().size());
 
 		return groupedByHash;
 	}
@@ -0,0 +1,45 @@
+/*  Copyright (C) 2016  Nicholas Wright
+    
+    This file is part of similarImage - A similar image finder using pHash
+    
+    similarImage is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.similarImage.duplicate;
+
+/**
+ * Index over a fixed set of 64 bit hashes, that finds all hashes within a hamming distance of a query hash.
+ * Implementations are immutable once created and can be queried from multiple threads.
+ * 
+ * @author Nicholas Wright
+ * 
+ */
+public interface HammingIndex {
+	/**
+	 * Find all indexed hashes within the given distance of the hash.
+	 * 
+	 * @param hash
+	 *            to search for
+	 * @param hammingDistance
+	 *            the maximum hamming distance to match hashes for (up to and including)
+	 * @return the distinct matching hashes, in no particular order
+	 */
+	long[] searchWithin(long hash, int hammingDistance);
+
+	/**
+	 * Get the number of distinct hashes in the index.
+	 * 
+	 * @return number of indexed hashes
+	 */
+	int size();
+}
@@ -0,0 +1,55 @@
+/*  Copyright (C) 2016  Nicholas Wright
+    
+    This file is part of similarImage - A similar image finder using pHash
+    
+    similarImage is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.similarImage.duplicate;
+
+/**
+ * Available {@link HammingIndex} implementations for searching hashes.
+ * 
+ * @author Nicholas Wright
+ * 
+ */
+public enum HammingIndexType {
+	/**
+	 * Use a {@link LongBKTree}. Works for any distance, but visits a large part of the tree for larger distances.
+	 */
+	BK_TREE {
+		@Override
+		public HammingIndex create(long[] hashes) {
+			return new LongBKTree(hashes);
+		}
+	},
+	/**
+	 * Use {@link MultiIndexHashing}, which looks up substrings of the hash in hash tables. Fast for small distances,
+	 * the cost grows quickly once the distance exceeds the number of substrings.
+	 */
+	MULTI_INDEX {
+		@Override
+		public HammingIndex create(long[] hashes) {
+			return new MultiIndexHashing(hashes);
+		}
+	};
+
+	/**
+	 * Create a new index for this type.
+	 * 
+	 * @param hashes
+	 *            distinct hashes to index
+	 * @return a new index containing the hashes
+	 */
+	public abstract HammingIndex create(long[] hashes);
+}
@@ -0,0 +1,433 @@
+/*  Copyright (C) 2016  Nicholas Wright
+    
+    This file is part of similarImage - A similar image finder using pHash
+    
+    similarImage is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.similarImage.duplicate;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Finds all pairs of hashes within a hamming distance of each other. The sorted hashes are split in half recursively,
+ * each range of the hash space being joined with itself in parallel on a {@link ForkJoinPool}. Pairs with one hash in
+ * each half are found by building an index of the upper half and searching it with the hashes of the lower half, so
+ * each pair is only searched for once. Small ranges are compared directly.<br>
+ * All hashes of a sorted range share the leading bits of the first and last hash. If these common prefixes of two
+ * ranges already differ in more bits than the distance, no pair between the ranges can match and the ranges are
+ * skipped.<br>
+ * The result is immutable, the matches of each hash are stored in one flat array.
+ * 
+ * @author Nicholas Wright
+ * 
+ */
+public final class HammingJoin {
+	private static final int CHUNK_SIZE = 256;
+	private static final int DIRECT_COMPARE_LIMIT = CHUNK_SIZE * CHUNK_SIZE;
+
+	private final long[] hashes;
+	private final int[] offsets;
+	private final int[] matches;
+	private final long pairCount;
+
+	private HammingJoin(long[] hashes, int[] offsets, int[] matches, long pairCount) {
+		this.hashes = hashes;
+		this.offsets = offsets;
+		this.matches = matches;
+		this.pairCount = pairCount;
+	}
+
+	/**
+	 * Find all hashes within the given distance of each other.
+	 * 
+	 * @param hashes
+	 *            sorted, distinct hashes to join
+	 * @param indexType
+	 *            used to search the upper half of a range
+	 * @param hammingDistance
+	 *            the maximum hamming distance for a pair (up to and including)
+	 * @param pool
+	 *            used to run the searches
+	 * @return the matches for each hash
+	 */
+	public static HammingJoin join(long[] hashes, HammingIndexType indexType, int hammingDistance,
+			ForkJoinPool pool) {
+		Collection<Pairs> found = new ConcurrentLinkedQueue<>();
+
+		if (hashes.length > 0 && hammingDistance > 0) {
+			Join join = new Join(hashes, indexType, hammingDistance, found);
+			pool.invoke(join.new RangeTask(0, hashes.length));
+		}
+
+		return merge(hashes, found);
+	}
+
+	private static HammingJoin merge(long[] hashes, Collection<Pairs> found) {
+		int[] offsets = new int[hashes.length + 1];
+		long pairCount = 0;
+
+		for (int i = 0; i < hashes.length; i++) {
+			offsets[i + 1] = 1;
+		}
+
+		for (Pairs pairs : found) {
+			for (int i = 0; i < pairs.size; i++) {
+				offsets[pairs.left[i] + 1]++;
+				offsets[pairs.right[i] + 1]++;
+			}
+
+			pairCount += pairs.size;
+		}
+
+		for (int i = 0; i < hashes.length; i++) {
+			offsets[i + 1] += offsets[i];
+		}
+
+		int[] matches = new int[offsets[hashes.length]];
+		int[] next = Arrays.copyOf(offsets, hashes.length);
+
+		for (int i = 0; i < hashes.length; i++) {
+			matches[next[i]++] = i;
+		}
+
+		for (Pairs pairs : found) {
+			for (int i = 0; i < pairs.size; i++) {
+				matches[next[pairs.left[i]]++] = pairs.right[i];
+				matches[next[pairs.right[i]]++] = pairs.left[i];
+			}
+		}
+
+		return new HammingJoin(hashes, offsets, matches, pairCount);
+	}
+
+	/**
+	 * Get the number of joined hashes.
+	 * 
+	 * @return number of hashes
+	 */
+	public int size() {
+		return hashes.length;
+	}
+
+	/**
+	 * Get the hash at the given index. The hashes are in the same order as they were passed to the join.
+	 * 
+	 * @param index
+	 *            of the hash, from 0 to {@link #size()} exclusive
+	 * @return the hash at the index
+	 */
+	public long getHash(int index) {
+		return hashes[index];
+	}
+
+	/**
+	 * Get all hashes within distance of the hash at the given index, including the hash itself.
+	 * 
+	 * @param index
+	 *            of the hash, from 0 to {@link #size()} exclusive
+	 * @return the matching hashes, in no particular order
+	 */
+	public long[] getMatches(int index) {
+		long[] result = new long[offsets[index + 1] - offsets[index]];
+
+		for (int i = 0; i < result.length; i++) {
+			result[i] = hashes[matches[offsets[index] + i]];
+		}
+
+		return result;
+	}
+
+	/**
+	 * Get the first position of the matches for the hash at the given index. Use {@link #getMatchIndex(int)} to get
+	 * the index of the matching hash at a position, so the matches can be read without copying them.
+	 * 
+	 * @param index
+	 *            of the hash, from 0 to {@link #size()} exclusive
+	 * @return the first position, inclusive
+	 */
+	public int getMatchesStart(int index) {
+		return offsets[index];
+	}
+
+	/**
+	 * Get the end of the positions of the matches for the hash at the given index.
+	 * 
+	 * @param index
+	 *            of the hash, from 0 to {@link #size()} exclusive
+	 * @return the last position, exclusive
+	 */
+	public int getMatchesEnd(int index) {
+		return offsets[index + 1];
+	}
+
+	/**
+	 * Get the index of the matching hash at the given position.
+	 * 
+	 * @param position
+	 *            of the match
+	 * @return the index of the matching hash, see {@link #getHash(int)}
+	 */
+	public int getMatchIndex(int position) {
+		return matches[position];
+	}
+
+	/**
+	 * Get the number of distinct pairs of different hashes that are within distance.
+	 * 
+	 * @return number of found pairs
+	 */
+	public long getPairCount() {
+		return pairCount;
+	}
+
+	/**
+	 * State of a single join.
+	 */
+	private static final class Join {
+		private final long[] hashes;
+		private final HammingIndexType indexType;
+		private final int hammingDistance;
+		private final Collection<Pairs> found;
+		private final ThreadLocal<SearchBuffers> searchBuffers = ThreadLocal.withInitial(SearchBuffers::new);
+
+		Join(long[] hashes, HammingIndexType indexType, int hammingDistance, Collection<Pairs> found) {
+			this.hashes = hashes;
+			this.indexType = indexType;
+			this.hammingDistance = hammingDistance;
+			this.found = found;
+		}
+
+		/**
+		 * Lower bound for the distance between any hash of the first range and any hash of the second range. The
+		 * hashes are sorted as signed values, so a range with hashes of both signs has no common prefix.
+		 */
+		int prefixDistance(int from, int to, int otherFrom, int otherTo) {
+			int prefix = Math.min(Long.numberOfLeadingZeros(hashes[from] ^ hashes[to - 1]),
+					Long.numberOfLeadingZeros(hashes[otherFrom] ^ hashes[otherTo - 1]));
+
+			if (prefix == 0) {
+				return 0;
+			}
+
+			return Long.bitCount((hashes[from] ^ hashes[otherFrom]) & (-1L << (Long.SIZE - prefix)));
+		}
+
+		/**
+		 * Compare every hash of the first range with every hash of the second range. If the ranges are the same, each
+		 * pair is only compared once.
+		 */
+		void compare(int from, int to, int otherFrom, int otherTo) {
+			Pairs pairs = new Pairs();
+
+			for (int i = from; i < to; i++) {
+				long hash = hashes[i];
+
+				for (int j = Math.max(otherFrom, i + 1); j < otherTo; j++) {
+					if (Long.bitCount(hash ^ hashes[j]) <= hammingDistance) {
+						pairs.add(i, j);
+					}
+				}
+			}
+
+			add(pairs);
+		}
+
+		void add(Pairs pairs) {
+			if (pairs.size > 0) {
+				found.add(pairs);
+			}
+		}
+
+		/**
+		 * Joins a range with itself, by joining both halves and the halves with each other.
+		 */
+		private final class RangeTask extends RecursiveAction {
+			private static final long serialVersionUID = 1L;
+
+			private final int from;
+			private final int to;
+
+			RangeTask(int from, int to) {
+				this.from = from;
+				this.to = to;
+			}
+
+			@Override
+			protected void compute() {
+				if (to - from <= CHUNK_SIZE) {
+					compare(from, to, from, to);
+					return;
+				}
+
+				int middle = (from + to) >>> 1;
+
+				invokeAll(new RangeTask(from, middle), new RangeTask(middle, to),
+						new CrossTask(from, middle, middle, to));
+			}
+		}
+
+		/**
+		 * Finds the pairs between a lower and an upper range. Unless the ranges are small enough to compare directly,
+		 * the upper range is indexed and searched with chunks of the lower range.
+		 */
+		private final class CrossTask extends RecursiveAction {
+			private static final long serialVersionUID = 1L;
+
+			private final int from;
+			private final int to;
+			private final int upperFrom;
+			private final int upperTo;
+
+			CrossTask(int from, int to, int upperFrom, int upperTo) {
+				this.from = from;
+				this.to = to;
+				this.upperFrom = upperFrom;
+				this.upperTo = upperTo;
+			}
+
+			@Override
+			protected void compute() {
+				if (prefixDistance(from, to, upperFrom, upperTo) > hammingDistance) {
+					return;
+				}
+
+				if ((long) (to - from) * (upperTo - upperFrom) <= DIRECT_COMPARE_LIMIT) {
+					compare(from, to, upperFrom, upperTo);
+					return;
+				}
+
+				HammingIndex index = indexType.create(Arrays.copyOfRange(hashes, upperFrom, upperTo));
+				int chunks = (to - from + CHUNK_SIZE - 1) / CHUNK_SIZE;
+				SearchTask[] searches = new SearchTask[chunks];
+
+				for (int i = 0; i < chunks; i++) {
+					int chunkFrom = from + i * CHUNK_SIZE;
+					searches[i] = new SearchTask(index, chunkFrom, Math.min(chunkFrom + CHUNK_SIZE, to), upperFrom,
+							upperTo);
+				}
+
+				invokeAll(searches);
+			}
+		}
+
+		/**
+		 * Searches the index of the upper range with a chunk of the lower range.
+		 */
+		private final class SearchTask extends RecursiveAction {
+			private static final long serialVersionUID = 1L;
+
+			private final HammingIndex index;
+			private final int from;
+			private final int to;
+			private final int upperFrom;
+			private final int upperTo;
+
+			SearchTask(HammingIndex index, int from, int to, int upperFrom, int upperTo) {
+				this.index = index;
+				this.from = from;
+				this.to = to;
+				this.upperFrom = upperFrom;
+				this.upperTo = upperTo;
+			}
+
+			@Override
+			protected void compute() {
+				if (prefixDistance(from, to, upperFrom, upperTo) > hammingDistance) {
+					return;
+				}
+
+				Pairs pairs = new Pairs();
+
+				if (index instanceof LongBKTree) {
+					searchTree((LongBKTree) index, pairs);
+				} else {
+					for (int i = from; i < to; i++) {
+						for (long match : index.searchWithin(hashes[i], hammingDistance)) {
+							pairs.add(i, Arrays.binarySearch(hashes, upperFrom, upperTo, match));
+						}
+					}
+				}
+
+				add(pairs);
+			}
+
+			/**
+			 * Search the tree with the buffers of the worker thread, so the searches do not allocate memory.
+			 */
+			private void searchTree(LongBKTree tree, Pairs pairs) {
+				SearchBuffers buffers = searchBuffers.get();
+				int[] stack = buffers.stack(tree.stackSize());
+
+				for (int i = from; i < to; i++) {
+					long[] results = buffers.results;
+					int found = tree.searchWithin(hashes[i], hammingDistance, results, stack);
+
+					if (found > results.length) {
+						results = buffers.growResults(found);
+						tree.searchWithin(hashes[i], hammingDistance, results, stack);
+					}
+
+					for (int j = 0; j < found; j++) {
+						pairs.add(i, Arrays.binarySearch(hashes, upperFrom, upperTo, results[j]));
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Buffers for searching a {@link LongBKTree}, kept by each worker thread and grown to the largest size needed.
+	 */
+	private static final class SearchBuffers {
+		private int[] stack = new int[0];
+		private long[] results = new long[CHUNK_SIZE];
+
+		int[] stack(int size) {
+			if (stack.length < size) {
+				stack = new int[size];
+			}
+
+			return stack;
+		}
+
+		long[] growResults(int size) {
+			results = new long[Math.max(size, results.length * 2)];
+			return results;
+		}
+	}
+
+	/**
+	 * Pairs of hash indices found by a task.
+	 */
+	private static final class Pairs {
+		private int[] left = new int[16];
+		private int[] right = new int[16];
+		private int size;
+
+		void add(int leftIndex, int rightIndex) {
+			if (size == left.length) {
+				left = Arrays.copyOf(left, size * 2);
+				right = Arrays.copyOf(right, size * 2);
+			}
+
+			left[size] = leftIndex;
+			right[size] = rightIndex;
+			size++;
+		}
+	}
+}
@@ -0,0 +1,271 @@
+/*  Copyright (C) 2016  Nicholas Wright
+    
+    This file is part of similarImage - A similar image finder using pHash
+    
+    similarImage is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.similarImage.duplicate;
+
+import java.util.Arrays;
+
+/**
+ * BK-tree specialized for 64 bit hashes, using the hamming distance as metric. Keys are stored as primitives and the
+ * tree is stored in flat arrays, so searching does not box keys or create objects.<br>
+ * The nodes are stored in pre-order. Each node has a bitmap of the distances that have a child, bit d - 1 is set if
+ * there is a child at distance d. The children of a node are stored consecutively, ordered by distance, so the child
+ * for a distance is found by counting the bits set below it.<br>
+ * The search stack is bounded by the largest sum of child counts along a path from the root, which is computed when
+ * the tree is built. This is usually far smaller than the number of nodes.
+ * 
+ * @author Nicholas Wright
+ * 
+ */
+public final class LongBKTree implements HammingIndex {
+	private static final int MAX_DISTANCE = Long.SIZE;
+	private static final int INITIAL_RESULT_SIZE = 64;
+
+	private final long[] keys;
+	private final long[] childMasks;
+	private final int[] childStarts;
+	private final int[] children;
+	private final int stackSize;
+
+	/**
+	 * Build a tree containing the given hashes. Duplicate hashes are only added once.
+	 * 
+	 * @param hashes
+	 *            to add to the tree
+	 */
+	public LongBKTree(long[] hashes) {
+		this.keys = distinct(hashes);
+		this.childMasks = new long[keys.length];
+		this.childStarts = new int[keys.length];
+		this.children = new int[Math.max(keys.length - 1, 0)];
+
+		this.stackSize = build();
+	}
+
+	private static long[] distinct(long[] hashes) {
+		long[] sorted = hashes.clone();
+		Arrays.sort(sorted);
+
+		int unique = 0;
+
+		for (int i = 0; i < sorted.length; i++) {
+			if (i == 0 || sorted[i] != sorted[unique - 1]) {
+				sorted[unique++] = sorted[i];
+			}
+		}
+
+		return Arrays.copyOf(sorted, unique);
+	}
+
+	/**
+	 * Builds the tree top down. The first key of a range becomes the node, the remaining keys are partitioned by their
+	 * distance to the node, each partition being the range of a child. Along with each range, the number of children of
+	 * the nodes above it is tracked to find the size of the search stack.
+	 * 
+	 * @return the size of the stack needed for searching the tree
+	 */
+	private int build() {
+		if (keys.length == 0) {
+			return 0;
+		}
+
+		long[] scratch = new long[keys.length];
+		byte[] distances = new byte[keys.length];
+		int[] counts = new int[MAX_DISTANCE + 1];
+		int[] ranges = new int[keys.length * 3];
+		int pending = 0;
+		int nextChild = 0;
+		int maxPathChildren = 1;
+
+		ranges[pending++] = 0;
+		ranges[pending++] = keys.length;
+		ranges[pending++] = 0;
+
+		while (pending > 0) {
+			int pathChildren = ranges[--pending];
+			int end = ranges[--pending];
+			int node = ranges[--pending];
+			long key = keys[node];
+
+			childStarts[node] = nextChild;
+
+			Arrays.fill(counts, 0);
+
+			for (int i = node + 1; i < end; i++) {
+				int distance = Long.bitCount(keys[i] ^ key);
+				distances[i] = (byte) distance;
+				counts[distance]++;
+			}
+
+			long mask = 0;
+
+			for (int distance = 1; distance <= MAX_DISTANCE; distance++) {
+				if (counts[distance] > 0) {
+					mask |= 1L << (distance - 1);
+				}
+			}
+
+			int childPathChildren = pathChildren + Long.bitCount(mask);
+			int offset = node + 1;
+
+			maxPathChildren = Math.max(maxPathChildren, childPathChildren);
+
+			for (int distance = 1; distance <= MAX_DISTANCE; distance++) {
+				int count = counts[distance];
+
+				if (count == 0) {
+					continue;
+				}
+
+				children[nextChild++] = offset;
+				ranges[pending++] = offset;
+				ranges[pending++] = offset + count;
+				ranges[pending++] = childPathChildren;
+				counts[distance] = offset;
+				offset += count;
+			}
+
+			childMasks[node] = mask;
+
+			for (int i = node + 1; i < end; i++) {
+				scratch[counts[distances[i]]++] = keys[i];
+			}
+
+			System.arraycopy(scratch, node + 1, keys, node + 1, end - node - 1);
+		}
+
+		return maxPathChildren;
+	}
+
+	/**
+	 * Find all hashes within the given distance of the hash and write them to the result buffer. If there are more
+	 * matches than fit in the buffer, the buffer is filled and the total number of matches is returned, so the search
+	 * can be repeated with a buffer that is large enough.<br>
+	 * Apart from a small stack, the search does not allocate memory.
+	 * 
+	 * @param hash
+	 *            to search for
+	 * @param hammingDistance
+	 *            the maximum hamming distance to match hashes for (up to and including)
+	 * @param results
+	 *            buffer for the matching hashes
+	 * @return the number of matching hashes, can be larger than the buffer
+	 */
+	public int searchWithin(long hash, int hammingDistance, long[] results) {
+		return searchWithin(hash, hammingDistance, results, new int[stackSize]);
+	}
+
+	/**
+	 * Find all hashes within the given distance of the hash, using a stack owned by the caller, see
+	 * {@link #searchWithin(long, int, long[])}. Callers that search many times can re-use the stack, so the search
+	 * does not allocate any memory.
+	 * 
+	 * @param hash
+	 *            to search for
+	 * @param hammingDistance
+	 *            the maximum hamming distance to match hashes for (up to and including)
+	 * @param results
+	 *            buffer for the matching hashes
+	 * @param stack
+	 *            used for the search, must hold at least {@link #stackSize()} elements
+	 * @return the number of matching hashes, can be larger than the buffer
+	 * @throws IllegalArgumentException
+	 *             if the stack is too small for this tree
+	 */
+	public int searchWithin(long hash, int hammingDistance, long[] results, int[] stack) {
+		if (stack.length < stackSize) {
+			throw new IllegalArgumentException(
+					"Stack size must be at least " + stackSize + ", but was " + stack.length);
+		}
+
+		if (keys.length == 0 || hammingDistance < 0) {
+			return 0;
+		}
+
+		int radius = Math.min(hammingDistance, MAX_DISTANCE);
+		int top = 0;
+		int found = 0;
+
+		stack[top++] = 0;
+
+		while (top > 0) {
+			int node = stack[--top];
+			long key = keys[node];
+			int distance = Long.bitCount(key ^ hash);
+
+			if (distance <= radius) {
+				if (found < results.length) {
+					results[found] = key;
+				}
+
+				found++;
+			}
+
+			long mask = childMasks[node];
+			int low = Math.max(distance - radius, 1);
+			int high = Math.min(distance + radius, MAX_DISTANCE);
+
+			if (mask == 0 || low > high) {
+				continue;
+			}
+
+			long window = mask & ((-1L >>> (MAX_DISTANCE - (high - low + 1))) << (low - 1));
+			int childStart = childStarts[node];
+
+			while (window != 0) {
+				long below = Long.lowestOneBit(window) - 1;
+				stack[top++] = children[childStart + Long.bitCount(mask & below)];
+				window &= window - 1;
+			}
+		}
+
+		return found;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long[] searchWithin(long hash, int hammingDistance) {
+		long[] results = new long[Math.min(keys.length, INITIAL_RESULT_SIZE)];
+		int found = searchWithin(hash, hammingDistance, results);
+
+		if (found > results.length) {
+			results = new long[found];
+			searchWithin(hash, hammingDistance, results);
+		}
+
+		return Arrays.copyOf(results, found);
+	}
+
+	/**
+	 * Get the size of the stack needed for searching this tree, see {@link #searchWithin(long, int, long[], int[])}.
+	 * 
+	 * @return the maximum number of pending nodes in a search
+	 */
+	public int stackSize() {
+		return stackSize;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int size() {
+		return keys.length;
+	}
+}
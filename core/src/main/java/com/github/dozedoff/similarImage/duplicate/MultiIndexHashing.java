@@ -0,0 +1,248 @@
+/*  Copyright (C) 2016  Nicholas Wright
+    
+    This file is part of similarImage - A similar image finder using pHash
+    
+    similarImage is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.similarImage.duplicate;
+
+import java.util.Arrays;
+
+/**
+ * {@link HammingIndex} using multi-index hashing. The 64 bit hash is split into m disjoint substrings, and there is one
+ * lookup table per substring. If two hashes are within distance r, then at least one of their substrings is within
+ * distance r / m, so a query only has to look up the substrings close to the query substrings and check the hashes
+ * found there.<br>
+ * With r = m * a + b, at least one of the first b + 1 substrings is within distance a, or one of the remaining
+ * substrings is within a - 1. Each lookup table is stored as sorted arrays, a sorted list of distinct substring values
+ * and for each value a range of hashes.
+ * 
+ * @author Nicholas Wright
+ * 
+ */
+public final class MultiIndexHashing implements HammingIndex {
+	/**
+	 * Default number of substrings, gives 16 bit substrings.
+	 */
+	public static final int DEFAULT_SUBSTRINGS = 4;
+	private static final int HASH_BITS = Long.SIZE;
+
+	private final long[] hashes;
+	private final int[] shifts;
+	private final int[] widths;
+	private final long[][] keys;
+	private final int[][] offsets;
+	private final int[][] entries;
+
+	/**
+	 * Create an index with {@value #DEFAULT_SUBSTRINGS} substrings.
+	 * 
+	 * @param hashes
+	 *            distinct hashes to index
+	 */
+	public MultiIndexHashing(long[] hashes) {
+		this(hashes, DEFAULT_SUBSTRINGS);
+	}
+
+	/**
+	 * Create an index that splits the hashes into the given number of substrings. If 64 is not divisible by the number
+	 * of substrings, the first substrings are one bit longer.
+	 * 
+	 * @param hashes
+	 *            distinct hashes to index
+	 * @param substrings
+	 *            number of substrings, from 1 to 64
+	 * @throws IllegalArgumentException
+	 *             if the number of substrings is out of range
+	 */
+	public MultiIndexHashing(long[] hashes, int substrings) {
+		if (substrings < 1 || substrings > HASH_BITS) {
+			throw new IllegalArgumentException("Number of substrings must be between 1 and " + HASH_BITS);
+		}
+
+		this.hashes = hashes.clone();
+		this.shifts = new int[substrings];
+		this.widths = new int[substrings];
+		this.keys = new long[substrings][];
+		this.offsets = new int[substrings][];
+		this.entries = new int[substrings][];
+
+		int shift = 0;
+
+		for (int i = 0; i < substrings; i++) {
+			widths[i] = HASH_BITS / substrings + (i < HASH_BITS % substrings ? 1 : 0);
+			shifts[i] = shift;
+			shift += widths[i];
+
+			buildTable(i);
+		}
+	}
+
+	private long substring(long hash, int table) {
+		long mask = widths[table] == HASH_BITS ? -1L : (1L << widths[table]) - 1;
+
+		return (hash >>> shifts[table]) & mask;
+	}
+
+	private void buildTable(int table) {
+		long[] tableKeys = new long[hashes.length];
+
+		for (int i = 0; i < hashes.length; i++) {
+			tableKeys[i] = substring(hashes[i], table);
+		}
+
+		long[] sorted = tableKeys.clone();
+		Arrays.sort(sorted);
+
+		int unique = 0;
+
+		for (int i = 0; i < sorted.length; i++) {
+			if (i == 0 || sorted[i] != sorted[unique - 1]) {
+				sorted[unique++] = sorted[i];
+			}
+		}
+
+		long[] distinct = Arrays.copyOf(sorted, unique);
+		int[] tableOffsets = new int[unique + 1];
+		int[] slots = new int[hashes.length];
+
+		for (int i = 0; i < hashes.length; i++) {
+			slots[i] = Arrays.binarySearch(distinct, tableKeys[i]);
+			tableOffsets[slots[i] + 1]++;
+		}
+
+		for (int i = 0; i < unique; i++) {
+			tableOffsets[i + 1] += tableOffsets[i];
+		}
+
+		int[] next = Arrays.copyOf(tableOffsets, unique);
+		int[] tableEntries = new int[hashes.length];
+
+		for (int i = 0; i < hashes.length; i++) {
+			tableEntries[next[slots[i]]++] = i;
+		}
+
+		keys[table] = distinct;
+		offsets[table] = tableOffsets;
+		entries[table] = tableEntries;
+	}
+
+	/**
+	 * Get the number of substrings the hashes are split into.
+	 * 
+	 * @return number of lookup tables
+	 */
+	public int getSubstrings() {
+		return widths.length;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int size() {
+		return hashes.length;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long[] searchWithin(long hash, int hammingDistance) {
+		if (hammingDistance < 0 || hashes.length == 0) {
+			return new long[0];
+		}
+
+		int substrings = widths.length;
+		int radius = hammingDistance / substrings;
+		int remainder = hammingDistance % substrings;
+		Candidates candidates = new Candidates();
+
+		for (int table = 0; table < substrings; table++) {
+			int tableRadius = table <= remainder ? radius : radius - 1;
+
+			if (tableRadius >= 0) {
+				probe(table, substring(hash, table), 0, Math.min(tableRadius, widths[table]), candidates);
+			}
+		}
+
+		return candidates.matches(hash, hammingDistance);
+	}
+
+	/**
+	 * Look up the key and all keys that differ in up to the given number of bits, flipping only bits at or above the
+	 * start bit, so every key is looked up once.
+	 */
+	private void probe(int table, long key, int startBit, int flips, Candidates candidates) {
+		lookup(table, key, candidates);
+
+		if (flips == 0) {
+			return;
+		}
+
+		for (int bit = startBit; bit < widths[table]; bit++) {
+			probe(table, key ^ (1L << bit), bit + 1, flips - 1, candidates);
+		}
+	}
+
+	private void lookup(int table, long key, Candidates candidates) {
+		int slot = Arrays.binarySearch(keys[table], key);
+
+		if (slot < 0) {
+			return;
+		}
+
+		for (int i = offsets[table][slot]; i < offsets[table][slot + 1]; i++) {
+			candidates.add(entries[table][i]);
+		}
+	}
+
+	/**
+	 * Indices of hashes found in the lookup tables. A hash can be found in several tables, duplicates are removed
+	 * when the matches are collected.
+	 */
+	private final class Candidates {
+		private int[] indices = new int[16];
+		private int size;
+
+		void add(int index) {
+			if (size == indices.length) {
+				indices = Arrays.copyOf(indices, size * 2);
+			}
+
+			indices[size++] = index;
+		}
+
+		long[] matches(long hash, int hammingDistance) {
+			Arrays.sort(indices, 0, size);
+
+			long[] matches = new long[size];
+			int count = 0;
+
+			for (int i = 0; i < size; i++) {
+				if (i > 0 && indices[i] == indices[i - 1]) {
+					continue;
+				}
+
+				long candidate = hashes[indices[i]];
+
+				if (Long.bitCount(candidate ^ hash) <= hammingDistance) {
+					matches[count++] = candidate;
+				}
+			}
+
+			return Arrays.copyOf(matches, count);
+		}
+	}
+}
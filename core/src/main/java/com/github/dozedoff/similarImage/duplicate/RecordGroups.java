@@ -0,0 +1,421 @@
+/*  Copyright (C) 2016  Nicholas Wright
+    
+    This file is part of similarImage - A similar image finder using pHash
+    
+    similarImage is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.similarImage.duplicate;
+
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import com.github.dozedoff.similarImage.db.ImageRecord;
+import com.google.common.collect.ImmutableMultiset;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Multiset;
+import com.google.common.collect.SetMultimap;
+
+/**
+ * Groups of images, stored as ids of a {@link RecordStore}. The {@link ImageRecord}s of a group are only created when
+ * the group is iterated, and are not kept, so a large result only holds an int for every image in a group.<br>
+ * Groups can be removed, but not changed. All methods that add records throw {@link UnsupportedOperationException}.
+ * 
+ * @author Nicholas Wright
+ * 
+ */
+public final class RecordGroups implements SetMultimap<Long, ImageRecord> {
+	private final RecordStore records;
+	private final Map<Long, Collection<ImageRecord>> groups;
+
+	private RecordGroups(RecordStore records, Map<Long, Collection<ImageRecord>> groups) {
+		this.records = records;
+		this.groups = groups;
+	}
+
+	/**
+	 * Create a builder for groups of records in the given store.
+	 * 
+	 * @param records
+	 *            the ids refer to
+	 * @return a new builder
+	 */
+	public static Builder builder(RecordStore records) {
+		return new Builder(records);
+	}
+
+	/**
+	 * Builds {@link RecordGroups}.
+	 */
+	public static final class Builder {
+		private final RecordStore records;
+		private final Map<Long, Collection<ImageRecord>> groups;
+
+		private Builder(RecordStore records) {
+			this.records = records;
+			this.groups = new HashMap<>();
+		}
+
+		/**
+		 * Set the group for the key. Duplicate ids are only added once.
+		 * 
+		 * @param key
+		 *            of the group
+		 * @param ids
+		 *            of the records in the group, the array is sorted and not copied
+		 * @return this builder
+		 */
+		public Builder put(long key, int[] ids) {
+			groups.put(key, new IdSet(records, distinctSorted(ids)));
+			return this;
+		}
+
+		/**
+		 * Create the groups. The builder should not be used afterwards.
+		 * 
+		 * @return groups with the added ids
+		 */
+		public RecordGroups build() {
+			return new RecordGroups(records, groups);
+		}
+
+		private static int[] distinctSorted(int[] ids) {
+			Arrays.sort(ids);
+
+			int distinct = 0;
+
+			for (int i = 0; i < ids.length; i++) {
+				if (i == 0 || ids[i] != ids[distinct - 1]) {
+					ids[distinct++] = ids[i];
+				}
+			}
+
+			return distinct == ids.length ? ids : Arrays.copyOf(ids, distinct);
+		}
+	}
+
+	/**
+	 * Get the store the ids of the groups refer to.
+	 * 
+	 * @return the store of the records
+	 */
+	public RecordStore getRecordStore() {
+		return records;
+	}
+
+	@Override
+	public int size() {
+		int size = 0;
+
+		for (Collection<ImageRecord> group : groups.values()) {
+			size += group.size();
+		}
+
+		return size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		for (Collection<ImageRecord> group : groups.values()) {
+			if (!group.isEmpty()) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return groups.containsKey(key);
+	}
+
+	@Override
+	public boolean containsValue(Object value) {
+		for (Collection<ImageRecord> group : groups.values()) {
+			if (group.contains(value)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	@Override
+	public boolean containsEntry(Object key, Object value) {
+		Collection<ImageRecord> group = groups.get(key);
+
+		return group != null && group.contains(value);
+	}
+
+	@Override
+	public boolean put(Long key, ImageRecord value) {
+		throw new UnsupportedOperationException("Groups cannot be changed");
+	}
+
+	@Override
+	public boolean remove(Object key, Object value) {
+		throw new UnsupportedOperationException("Groups cannot be changed");
+	}
+
+	@Override
+	public boolean putAll(Long key, Iterable<? extends ImageRecord> values) {
+		throw new UnsupportedOperationException("Groups cannot be changed");
+	}
+
+	@Override
+	public boolean putAll(Multimap<? extends Long, ? extends ImageRecord> multimap) {
+		throw new UnsupportedOperationException("Groups cannot be changed");
+	}
+
+	@Override
+	public Set<ImageRecord> replaceValues(Long key, Iterable<? extends ImageRecord> values) {
+		throw new UnsupportedOperationException("Groups cannot be changed");
+	}
+
+	/**
+	 * Remove the group for the key.
+	 * 
+	 * @param key
+	 *            of the group to remove
+	 * @return the removed group, or a empty set if there was no group for the key
+	 */
+	@Override
+	public Set<ImageRecord> removeAll(Object key) {
+		Collection<ImageRecord> removed = groups.remove(key);
+
+		return removed == null ? Collections.emptySet() : (Set<ImageRecord>) removed;
+	}
+
+	@Override
+	public void clear() {
+		groups.clear();
+	}
+
+	/**
+	 * Get the group for the key. The records are created every time the group is iterated.
+	 * 
+	 * @param key
+	 *            of the group
+	 * @return the group, or a empty set if there is no group for the key
+	 */
+	@Override
+	public Set<ImageRecord> get(Long key) {
+		Collection<ImageRecord> group = groups.get(key);
+
+		return group == null ? Collections.emptySet() : (Set<ImageRecord>) group;
+	}
+
+	@Override
+	public Set<Long> keySet() {
+		return groups.keySet();
+	}
+
+	/**
+	 * Get the keys with the size of their group as count.
+	 * 
+	 * @return a snapshot of the keys
+	 */
+	@Override
+	public Multiset<Long> keys() {
+		ImmutableMultiset.Builder<Long> keys = ImmutableMultiset.builder();
+
+		for (Entry<Long, Collection<ImageRecord>> group : groups.entrySet()) {
+			keys.addCopies(group.getKey(), group.getValue().size());
+		}
+
+		return keys.build();
+	}
+
+	@Override
+	public Collection<ImageRecord> values() {
+		return new AbstractCollection<ImageRecord>() {
+			@Override
+			public Iterator<ImageRecord> iterator() {
+				return Iterators.concat(Iterators.transform(groups.values().iterator(), Collection::iterator));
+			}
+
+			@Override
+			public int size() {
+				return RecordGroups.this.size();
+			}
+		};
+	}
+
+	@Override
+	public Set<Entry<Long, ImageRecord>> entries() {
+		return new AbstractSet<Entry<Long, ImageRecord>>() {
+			@Override
+			public Iterator<Entry<Long, ImageRecord>> iterator() {
+				return Iterators.concat(Iterators.transform(groups.entrySet().iterator(),
+						group -> Iterators.transform(group.getValue().iterator(),
+								record -> Maps.immutableEntry(group.getKey(), record))));
+			}
+
+			@Override
+			public boolean contains(Object o) {
+				if (!(o instanceof Entry)) {
+					return false;
+				}
+
+				Entry<?, ?> entry = (Entry<?, ?>) o;
+
+				return containsEntry(entry.getKey(), entry.getValue());
+			}
+
+			@Override
+			public int size() {
+				return RecordGroups.this.size();
+			}
+		};
+	}
+
+	/**
+	 * Get a map view of the groups. Groups can be removed from the map, but not added.
+	 * 
+	 * @return the groups by key
+	 */
+	@Override
+	public Map<Long, Collection<ImageRecord>> asMap() {
+		return groups;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj == this) {
+			return true;
+		}
+
+		if (obj instanceof Multimap) {
+			return asMap().equals(((Multimap<?, ?>) obj).asMap());
+		}
+
+		return false;
+	}
+
+	/**
+	 * The hash code is calculated from the records, as required by {@link Multimap#hashCode()}, so the groups are
+	 * created once.
+	 */
+	@Override
+	public int hashCode() {
+		int hashCode = 0;
+
+		for (Entry<Long, Collection<ImageRecord>> group : groups.entrySet()) {
+			int groupHashCode = 0;
+
+			for (ImageRecord record : group.getValue()) {
+				groupHashCode += record.hashCode();
+			}
+
+			hashCode += group.getKey().hashCode() ^ groupHashCode;
+		}
+
+		return hashCode;
+	}
+
+	@Override
+	public String toString() {
+		return groups.toString();
+	}
+
+	/**
+	 * A group of records, stored as sorted ids. Groups of the same store are hashed and compared by their ids, without
+	 * creating any records, so that identical groups can be found quickly. Note that the hash code is therefore not
+	 * consistent with other {@link Set} implementations containing the same records.
+	 */
+	private static final class IdSet extends AbstractSet<ImageRecord> {
+		private final RecordStore records;
+		private final int[] ids;
+		private int hashCode;
+
+		IdSet(RecordStore records, int[] ids) {
+			this.records = records;
+			this.ids = ids;
+		}
+
+		@Override
+		public Iterator<ImageRecord> iterator() {
+			return new Iterator<ImageRecord>() {
+				private int next;
+
+				@Override
+				public boolean hasNext() {
+					return next < ids.length;
+				}
+
+				@Override
+				public ImageRecord next() {
+					if (!hasNext()) {
+						throw new NoSuchElementException();
+					}
+
+					return records.getRecord(ids[next++]);
+				}
+			};
+		}
+
+		@Override
+		public int size() {
+			return ids.length;
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			if (!(o instanceof ImageRecord)) {
+				return false;
+			}
+
+			ImageRecord record = (ImageRecord) o;
+			int id = records.indexOfPath(record.getPath());
+
+			return id >= 0 && records.getHash(id) == record.getpHash() && Arrays.binarySearch(ids, id) >= 0;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (o == this) {
+				return true;
+			}
+
+			if (o instanceof IdSet && ((IdSet) o).records == records) {
+				return Arrays.equals(ids, ((IdSet) o).ids);
+			}
+
+			return super.equals(o);
+		}
+
+		/**
+		 * The hash code is calculated from the ids. It is only calculated once, as the set cannot be changed.
+		 */
+		@Override
+		public int hashCode() {
+			if (hashCode == 0) {
+				hashCode = Arrays.hashCode(ids);
+			}
+
+			return hashCode;
+		}
+	}
+}
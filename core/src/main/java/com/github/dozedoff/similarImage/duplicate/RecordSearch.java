@@ -19,9 +19,10 @@
 package com.github.dozedoff.similarImage.duplicate;
 
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 import org.everpeace.search.BKTree;
 import org.slf4j.Logger;
@@ -34,69 +35,157 @@ import com.google.common.collect.MultimapBuilder;
 
 /**
  * Builds the necessary data structures from the supplied data to allow queries
- * for records with hashes at a given hamming-distance.
+ * for records with hashes at a given hamming-distance. Records that have a
+ * {@link WideHash} can also be queried by their wide hash. The records are kept in a {@link RecordStore}, and
+ * {@link ImageRecord} instances are only created for records that are returned by a query. The 64 bit hashes are
+ * searched with a {@link HammingIndex} of the configured {@link HammingIndexType}.<br>
+ * The indexes are built on the first query that needs them, so a search that is only used for
+ * {@link #distanceJoin(long)} does not build an index over all hashes.
  * 
  * @author Nicholas Wright
  *
  */
 public class RecordSearch {
 	private static final Logger logger = LoggerFactory.getLogger(RecordSearch.class);
-	private Multimap<Long, ImageRecord> imagesGroupedByHash;
-	private BKTree<Long> bkTree;
+	private final HammingIndexType indexType;
+	private RecordStore records;
+	private long[] hashes;
+	private HammingIndex index;
+	private BKTree<WideHash> wideBkTree;
+	private boolean wideBkTreeBuilt;
 
+	/**
+	 * Create a search that uses a {@link HammingIndexType#BK_TREE}.
+	 */
 	public RecordSearch() {
-		imagesGroupedByHash = MultimapBuilder.hashKeys().hashSetValues().build();
-		bkTree = new BKTree<Long>(new CompareHammingDistance(), 0L);
+		this(HammingIndexType.BK_TREE);
+	}
+
+	/**
+	 * Create a search that uses the given type of index for 64 bit hashes.
+	 * 
+	 * @param indexType
+	 *            the index to build for hash queries
+	 */
+	public RecordSearch(HammingIndexType indexType) {
+		this.indexType = indexType;
+		this.records = RecordStore.of(Collections.emptyList());
+		this.hashes = new long[0];
 	}
 
 	/**
-	 * Sort the given records into groups and build a tree to query them.
+	 * Sort the given records into groups for querying. The records are only iterated once, so they can be streamed
+	 * from a datasource. The indexes of a previous build are discarded.
 	 * 
 	 * @param dbRecords
 	 *            that should eventually be queried.
 	 */
-	public void build(Collection<ImageRecord> dbRecords) {
-		logger.info("Building Record search from {} records...", dbRecords.size());
+	public void build(Iterable<ImageRecord> dbRecords) {
+		logger.info("Building Record search...");
 
 		groupRecords(dbRecords);
-		buildBkTree();
+		collectHashes();
 	}
 
-	private void groupRecords(Collection<ImageRecord> dbRecords) {
+	private void groupRecords(Iterable<ImageRecord> dbRecords) {
 		Stopwatch swGroup = Stopwatch.createStarted();
-		this.imagesGroupedByHash = DuplicateUtil.groupByHash(dbRecords);
+		this.records = RecordStore.of(dbRecords);
 		swGroup.stop();
 
-		logger.info("Grouped records into {} groups in {}", numberOfHashes(), swGroup);
+		logger.info("Grouped {} records into {} groups in {}", records.size(), numberOfHashes(), swGroup);
 	}
 
-	private void buildBkTree() {
-		if (imagesGroupedByHash.isEmpty()) {
-			logger.warn("No hashes provided, cannot build BK tree!");
-			return;
+	private synchronized void collectHashes() {
+		index = null;
+		wideBkTree = null;
+		wideBkTreeBuilt = false;
+		hashes = new long[numberOfHashes()];
+
+		for (int i = 0; i < numberOfHashes(); i++) {
+			hashes[i] = records.getUniqueHash(i);
 		}
+	}
+
+	private synchronized HammingIndex index() {
+		if (index == null && numberOfHashes() > 0) {
+			buildIndex();
+		}
+
+		return index;
+	}
+
+	private synchronized BKTree<WideHash> wideBkTree() {
+		if (!wideBkTreeBuilt) {
+			buildWideBkTree();
+			wideBkTreeBuilt = true;
+		}
+
+		return wideBkTree;
+	}
+
+	private void buildIndex() {
+		logger.info("Building {} index from {} hashes", indexType, numberOfHashes());
 
-		logger.info("Building BK-Tree from {} hashes", numberOfHashes());
+		Stopwatch swBuildIndex = Stopwatch.createStarted();
+		index = indexType.create(hashes);
+		swBuildIndex.stop();
+
+		logger.info("Took {} to build {} index with {} hashes", swBuildIndex, indexType, numberOfHashes());
+	}
+
+	private void buildWideBkTree() {
+		Set<WideHash> wideHashes = records.getWideHashes();
+
+		if (wideHashes.isEmpty()) {
+			return;
+		}
 
 		Stopwatch swBuildTree = Stopwatch.createStarted();
-		bkTree = BKTree.build(imagesGroupedByHash.keySet(), new CompareHammingDistance());
+		wideBkTree = BKTree.build(wideHashes, new WideHammingDistance());
 		swBuildTree.stop();
 
-		logger.info("Took {} to build BK-tree with {} hashes", swBuildTree, numberOfHashes());
+		logger.info("Took {} to build wide hash BK-tree with {} hashes", swBuildTree, wideHashes.size());
 	}
 
 	private int numberOfHashes() {
-		return imagesGroupedByHash.keySet().size();
+		return records.getHashCount();
 	}
 
 	/**
-	 * Return all groups with exact matches and more than one image per match.
+	 * Get the type of index used for 64 bit hashes.
+	 * 
+	 * @return the configured index type
+	 */
+	public HammingIndexType getIndexType() {
+		return indexType;
+	}
+
+	/**
+	 * Get the store with the records used to build this search.
+	 * 
+	 * @return the record store
+	 */
+	public RecordStore getRecordStore() {
+		return records;
+	}
+
+	/**
+	 * Return all hashes that are shared by more than one image.
 	 * 
 	 * @return distinct list of matches
 	 */
 	public List<Long> exactMatch() {
-		DuplicateUtil.removeSingleImageGroups(imagesGroupedByHash);
-		return new ArrayList<>(imagesGroupedByHash.keySet());
+		List<Long> matches = new ArrayList<>();
+
+		for (int i = 0; i < numberOfHashes(); i++) {
+			long hash = records.getUniqueHash(i);
+
+			if (records.getGroupSize(hash) > 1) {
+				matches.add(hash);
+			}
+		}
+
+		return matches;
 	}
 
 	/**
@@ -110,13 +199,87 @@ public class RecordSearch {
 	 */
 	public Multimap<Long, ImageRecord> distanceMatch(long hash, long hammingDistance) {
 		Multimap<Long, ImageRecord> searchResult = MultimapBuilder.hashKeys().hashSetValues().build();
+		HammingIndex searchIndex = index();
+
+		if (searchIndex == null) {
+			return searchResult;
+		}
+
+		for (long key : searchIndex.searchWithin(hash, (int) hammingDistance)) {
+			int group = records.indexOfHash(key);
+
+			for (int position = records.getGroupStart(group); position < records.getGroupEnd(group); position++) {
+				searchResult.put(key, records.getRecord(records.getId(position)));
+			}
+		}
+
+		return searchResult;
+	}
+
+	/**
+	 * Find the matching hashes for all hashes at once, see {@link HammingJoin}. The join builds its own indexes of the
+	 * configured type, the searches are run on the common {@link ForkJoinPool}. The hashes of the join have the same
+	 * order as the unique hashes of the {@link RecordStore}.
+	 * 
+	 * @param hammingDistance
+	 *            the maximum hamming distance to match hashes for (up to and including)
+	 * @return the matching hashes for every hash
+	 */
+	public HammingJoin distanceJoin(long hammingDistance) {
+		Stopwatch sw = Stopwatch.createStarted();
+		HammingJoin join = HammingJoin.join(hashes, indexType, (int) hammingDistance, ForkJoinPool.commonPool());
+
+		logger.info("Found {} pairs for {} hashes in {}, using hamming distance {}", join.getPairCount(), join.size(),
+				sw, hammingDistance);
+
+		return join;
+	}
+
+	/**
+	 * For the given wide hash, return the hashes and images for all wide hashes that are at or within the given
+	 * hamming distance. Only records that have a wide hash are considered.
+	 * 
+	 * @param hash
+	 *            the wide hash to search
+	 * @param hammingDistance
+	 *            the maximum hamming distance to match hashes for (up to and including)
+	 * @return A multimap containing the found wide hashes and matching images
+	 */
+	public Multimap<WideHash, ImageRecord> distanceMatch(WideHash hash, long hammingDistance) {
+		Multimap<WideHash, ImageRecord> searchResult = MultimapBuilder.hashKeys().hashSetValues().build();
+		BKTree<WideHash> tree = wideBkTree();
+
+		if (tree == null) {
+			return searchResult;
+		}
 
-		Set<Long> resultKeys = bkTree.searchWithin(hash, (double) hammingDistance);
+		Set<WideHash> resultKeys = tree.searchWithin(hash, (double) hammingDistance);
 
-		for (Long key : resultKeys) {
-			searchResult.putAll(key, imagesGroupedByHash.get(key));
+		for (WideHash key : resultKeys) {
+			records.getIds(key).forEach(id -> searchResult.put(key, records.getRecord(id)));
 		}
 
 		return searchResult;
 	}
+
+	/**
+	 * For the given wide hash, return the ids of all records with a wide hash at or within the given hamming distance.
+	 * No {@link ImageRecord}s are created, use the {@link RecordStore} to resolve the ids.
+	 * 
+	 * @param hash
+	 *            the wide hash to search
+	 * @param hammingDistance
+	 *            the maximum hamming distance to match hashes for (up to and including)
+	 * @return the ids of matching records, in no particular order
+	 */
+	public int[] distanceMatchIds(WideHash hash, long hammingDistance) {
+		BKTree<WideHash> tree = wideBkTree();
+
+		if (tree == null) {
+			return new int[0];
+		}
+
+		return tree.searchWithin(hash, (double) hammingDistance).stream().flatMapToInt(records::getIds)
+				.toArray();
+	}
 }
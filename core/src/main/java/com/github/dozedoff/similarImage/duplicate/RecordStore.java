@@ -0,0 +1,335 @@
+/*  Copyright (C) 2016  Nicholas Wright
+    
+    This file is part of similarImage - A similar image finder using pHash
+    
+    similarImage is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.similarImage.duplicate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import com.github.dozedoff.similarImage.db.ImageRecord;
+import com.github.dozedoff.similarImage.util.PrefixCompressedPathSet;
+
+/**
+ * Immutable, column oriented store for {@link ImageRecord}s used for grouping. Every record is identified by an int id,
+ * which is the position of its path in ascending order. Hashes are kept in a primitive array, paths in a
+ * {@link PrefixCompressedPathSet}. The ids of records with the same hash are stored as a contiguous range, see
+ * {@link #getGroupStart(int)} and {@link #getGroupEnd(int)}.<br>
+ * {@link ImageRecord} instances are only created when requested with {@link #getRecord(int)}, and are not kept by the
+ * store. The file size and content digest of records are not kept, as they are not used for grouping.
+ * 
+ * @author Nicholas Wright
+ * 
+ */
+public final class RecordStore {
+
+	private final PrefixCompressedPathSet paths;
+	private final long[] hashes;
+	private final WideHash[] wideHashes;
+	private final long[] uniqueHashes;
+	private final int[] groupOffsets;
+	private final int[] idsByHash;
+	private final Map<WideHash, int[]> idsByWideHash;
+
+	private RecordStore(PrefixCompressedPathSet paths, long[] hashes, WideHash[] wideHashes) {
+		this.paths = paths;
+		this.hashes = hashes;
+		this.wideHashes = wideHashes;
+		this.uniqueHashes = uniqueSorted(hashes);
+		this.groupOffsets = new int[uniqueHashes.length + 1];
+		this.idsByHash = new int[hashes.length];
+		this.idsByWideHash = groupByWideHash(wideHashes);
+
+		groupByHash();
+	}
+
+	/**
+	 * Create a store from the given records. The records are iterated once and do not need to be sorted. If there are
+	 * several records with the same path, the last one is kept.
+	 * 
+	 * @param records
+	 *            to store
+	 * @return a new store
+	 */
+	public static RecordStore of(Iterable<ImageRecord> records) {
+		List<String> recordPaths = new ArrayList<>();
+		long[] recordHashes = new long[0];
+		List<WideHash> recordWideHashes = new ArrayList<>();
+		boolean hasWideHashes = false;
+		int count = 0;
+
+		for (ImageRecord record : records) {
+			if (count == recordHashes.length) {
+				recordHashes = Arrays.copyOf(recordHashes, Math.max(16, count * 2));
+			}
+
+			recordPaths.add(record.getPath());
+			recordHashes[count] = record.getpHash();
+
+			WideHash wide = record.getWideHash();
+			recordWideHashes.add(wide);
+			hasWideHashes |= wide != null;
+
+			count++;
+		}
+
+		PrefixCompressedPathSet paths = PrefixCompressedPathSet.of(recordPaths);
+		long[] hashes = new long[paths.size()];
+		WideHash[] wideHashes = new WideHash[hasWideHashes ? paths.size() : 0];
+
+		for (int i = 0; i < count; i++) {
+			int id = paths.indexOf(recordPaths.get(i));
+			hashes[id] = recordHashes[i];
+
+			if (hasWideHashes) {
+				wideHashes[id] = recordWideHashes.get(i);
+			}
+		}
+
+		return new RecordStore(paths, hashes, wideHashes);
+	}
+
+	private static long[] uniqueSorted(long[] values) {
+		long[] sorted = values.clone();
+		Arrays.sort(sorted);
+
+		int unique = 0;
+
+		for (int i = 0; i < sorted.length; i++) {
+			if (i == 0 || sorted[i] != sorted[unique - 1]) {
+				sorted[unique++] = sorted[i];
+			}
+		}
+
+		return Arrays.copyOf(sorted, unique);
+	}
+
+	private void groupByHash() {
+		int[] groups = new int[hashes.length];
+
+		for (int id = 0; id < hashes.length; id++) {
+			groups[id] = Arrays.binarySearch(uniqueHashes, hashes[id]);
+			groupOffsets[groups[id] + 1]++;
+		}
+
+		for (int group = 0; group < uniqueHashes.length; group++) {
+			groupOffsets[group + 1] += groupOffsets[group];
+		}
+
+		int[] next = Arrays.copyOf(groupOffsets, uniqueHashes.length);
+
+		for (int id = 0; id < hashes.length; id++) {
+			idsByHash[next[groups[id]]++] = id;
+		}
+	}
+
+	private static Map<WideHash, int[]> groupByWideHash(WideHash[] wideHashes) {
+		Map<WideHash, int[]> grouped = new HashMap<>();
+
+		for (int id = 0; id < wideHashes.length; id++) {
+			WideHash wide = wideHashes[id];
+
+			if (wide == null) {
+				continue;
+			}
+
+			int[] ids = grouped.get(wide);
+
+			if (ids == null) {
+				ids = new int[] { id };
+			} else {
+				ids = Arrays.copyOf(ids, ids.length + 1);
+				ids[ids.length - 1] = id;
+			}
+
+			grouped.put(wide, ids);
+		}
+
+		return grouped;
+	}
+
+	/**
+	 * Get the number of records.
+	 * 
+	 * @return number of stored records
+	 */
+	public int size() {
+		return hashes.length;
+	}
+
+	/**
+	 * Get the number of distinct hashes.
+	 * 
+	 * @return number of distinct hashes
+	 */
+	public int getHashCount() {
+		return uniqueHashes.length;
+	}
+
+	/**
+	 * Get a distinct hash by index. Hashes are in ascending order.
+	 * 
+	 * @param index
+	 *            of the hash, from 0 to {@link #getHashCount()} exclusive
+	 * @return the hash at the index
+	 */
+	public long getUniqueHash(int index) {
+		return uniqueHashes[index];
+	}
+
+	/**
+	 * Get the index of a distinct hash, the index of the range of records with that hash.
+	 * 
+	 * @param hash
+	 *            to look up
+	 * @return the index of the hash, or a negative value if no record has the hash
+	 */
+	public int indexOfHash(long hash) {
+		return Arrays.binarySearch(uniqueHashes, hash);
+	}
+
+	/**
+	 * Get the first position of the records with the distinct hash at the given index. Use {@link #getId(int)} to get
+	 * the id of the record at a position.
+	 * 
+	 * @param index
+	 *            of the hash, from 0 to {@link #getHashCount()} exclusive
+	 * @return the first position, inclusive
+	 */
+	public int getGroupStart(int index) {
+		return groupOffsets[index];
+	}
+
+	/**
+	 * Get the end of the positions of the records with the distinct hash at the given index.
+	 * 
+	 * @param index
+	 *            of the hash, from 0 to {@link #getHashCount()} exclusive
+	 * @return the last position, exclusive
+	 */
+	public int getGroupEnd(int index) {
+		return groupOffsets[index + 1];
+	}
+
+	/**
+	 * Get the id of the record at the given position. Records are ordered by hash, then by id.
+	 * 
+	 * @param position
+	 *            from 0 to {@link #size()} exclusive
+	 * @return the id of the record
+	 */
+	public int getId(int position) {
+		return idsByHash[position];
+	}
+
+	/**
+	 * Get the id of the record with the given path.
+	 * 
+	 * @param path
+	 *            of the image
+	 * @return the id of the record, or a negative value if there is no record with the path
+	 */
+	public int indexOfPath(String path) {
+		return paths.indexOf(path);
+	}
+
+	/**
+	 * Get the number of records with the given hash.
+	 * 
+	 * @param hash
+	 *            to look up
+	 * @return number of records with the hash
+	 */
+	public int getGroupSize(long hash) {
+		int group = indexOfHash(hash);
+
+		return group < 0 ? 0 : groupOffsets[group + 1] - groupOffsets[group];
+	}
+
+	/**
+	 * Get the ids of all records with the given wide hash.
+	 * 
+	 * @param wideHash
+	 *            to look up
+	 * @return the ids of matching records, empty if there are none. The ids are streamed from the store without
+	 *         copying them
+	 */
+	public IntStream getIds(WideHash wideHash) {
+		int[] ids = idsByWideHash.get(wideHash);
+
+		return ids == null ? IntStream.empty() : Arrays.stream(ids);
+	}
+
+	/**
+	 * Get all distinct wide hashes.
+	 * 
+	 * @return an unmodifiable view of the wide hashes
+	 */
+	public Set<WideHash> getWideHashes() {
+		return Collections.unmodifiableSet(idsByWideHash.keySet());
+	}
+
+	/**
+	 * Get the hash of a record.
+	 * 
+	 * @param id
+	 *            of the record
+	 * @return the 64 bit hash
+	 */
+	public long getHash(int id) {
+		return hashes[id];
+	}
+
+	/**
+	 * Get the wide hash of a record.
+	 * 
+	 * @param id
+	 *            of the record
+	 * @return the wide hash, or null if the record has none
+	 */
+	public WideHash getWideHash(int id) {
+		return wideHashes.length == 0 ? null : wideHashes[id];
+	}
+
+	/**
+	 * Get the path of a record. The path is decoded on every call.
+	 * 
+	 * @param id
+	 *            of the record
+	 * @return the path of the image
+	 */
+	public String getPath(int id) {
+		return paths.get(id);
+	}
+
+	/**
+	 * Create the record for the id. A new instance is created on every call, so callers should only resolve records
+	 * they need.
+	 * 
+	 * @param id
+	 *            of the record
+	 * @return the record with path and hashes
+	 */
+	public ImageRecord getRecord(int id) {
+		return new ImageRecord(getPath(id), hashes[id], getWideHash(id));
+	}
+}
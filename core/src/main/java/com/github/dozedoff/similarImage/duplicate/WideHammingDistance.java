@@ -0,0 +1,33 @@
+/*  Copyright (C) 2016  Nicholas Wright
+    
+    This file is part of similarImage - A similar image finder using pHash
+    
+    similarImage is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.similarImage.duplicate;
+
+import org.everpeace.search.Distance;
+
+/**
+ * Hamming distance between {@link WideHash} values, for use with BK-trees.
+ * 
+ * @author Nicholas Wright
+ * 
+ */
+public class WideHammingDistance implements Distance<WideHash> {
+	@Override
+	public double eval(WideHash e1, WideHash e2) {
+		return e1.distance(e2);
+	}
+}
@@ -0,0 +1,207 @@
+/*  Copyright (C) 2016  Nicholas Wright
+    
+    This file is part of similarImage - A similar image finder using pHash
+    
+    similarImage is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.similarImage.duplicate;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Immutable hash value that is wider than a single long, for example 128 or 256 bit hashes. The bits are packed into
+ * longs, most significant word first. The hamming distance is calculated on the packed words without boxing.
+ * 
+ * @author Nicholas Wright
+ * 
+ */
+public final class WideHash implements Comparable<WideHash> {
+	private final long[] words;
+
+	/**
+	 * Create a new hash from the given words. The array is copied.
+	 * 
+	 * @param words
+	 *            of the hash, most significant word first
+	 */
+	public WideHash(long... words) {
+		if (words.length == 0) {
+			throw new IllegalArgumentException("A hash needs at least one word");
+		}
+
+		this.words = words.clone();
+	}
+
+	/**
+	 * Create a hash from its binary representation, see {@link #toBytes()}.
+	 * 
+	 * @param bytes
+	 *            of the hash, the length must be a multiple of {@link Long#BYTES}
+	 * @return a new hash
+	 */
+	public static WideHash fromBytes(byte[] bytes) {
+		if (bytes.length == 0 || bytes.length % Long.BYTES != 0) {
+			throw new IllegalArgumentException("Invalid hash length of " + bytes.length + " bytes");
+		}
+
+		ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		long[] words = new long[bytes.length / Long.BYTES];
+
+		for (int i = 0; i < words.length; i++) {
+			words[i] = buffer.getLong();
+		}
+
+		return new WideHash(words);
+	}
+
+	/**
+	 * Get the binary representation of the hash, as stored in the database.
+	 * 
+	 * @return the words of the hash in big endian order
+	 */
+	public byte[] toBytes() {
+		ByteBuffer buffer = ByteBuffer.allocate(words.length * Long.BYTES);
+
+		for (long word : words) {
+			buffer.putLong(word);
+		}
+
+		return buffer.array();
+	}
+
+	/**
+	 * Get the number of bits of the hash.
+	 * 
+	 * @return the width of the hash in bits
+	 */
+	public int getBitLength() {
+		return words.length * Long.SIZE;
+	}
+
+	/**
+	 * Get the number of words of the hash.
+	 * 
+	 * @return the number of longs used to store the hash
+	 */
+	public int getWordCount() {
+		return words.length;
+	}
+
+	/**
+	 * Get a word of the hash.
+	 * 
+	 * @param index
+	 *            of the word, 0 is the most significant word
+	 * @return the word at the index
+	 */
+	public long getWord(int index) {
+		return words[index];
+	}
+
+	/**
+	 * Calculate the hamming distance to the other hash.
+	 * 
+	 * @param other
+	 *            hash to compare to, must have the same width
+	 * @return the number of bits that differ
+	 */
+	public int distance(WideHash other) {
+		return distance(this.words, other.words);
+	}
+
+	/**
+	 * Calculate the hamming distance between two packed hashes.
+	 * 
+	 * @param a
+	 *            first hash
+	 * @param b
+	 *            second hash, must have the same number of words as the first one
+	 * @return the number of bits that differ
+	 */
+	public static int distance(long[] a, long[] b) {
+		if (a.length != b.length) {
+			throw new IllegalArgumentException(
+					"Cannot compare hashes of different width (" + a.length + " and " + b.length + " words)");
+		}
+
+		int distance = 0;
+
+		for (int i = 0; i < a.length; i++) {
+			distance += Long.bitCount(a[i] ^ b[i]);
+		}
+
+		return distance;
+	}
+
+	/**
+	 * Compares the words as unsigned values, most significant word first. Shorter hashes are ordered first.
+	 * 
+	 * @param o
+	 *            hash to compare to
+	 * @return a negative, zero or positive value if this hash is less, equal or greater
+	 */
+	@Override
+	public int compareTo(WideHash o) {
+		if (words.length != o.words.length) {
+			return Integer.compare(words.length, o.words.length);
+		}
+
+		for (int i = 0; i < words.length; i++) {
+			int result = Long.compareUnsigned(words[i], o.words[i]);
+
+			if (result != 0) {
+				return result;
+			}
+		}
+
+		return 0;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj instanceof WideHash) {
+			return Arrays.equals(words, ((WideHash) obj).words);
+		}
+
+		return false;
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(words);
+	}
+
+	/**
+	 * Format the hash as a hexadecimal string, most significant word first.
+	 * 
+	 * @return the hash in hexadecimal
+	 */
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder(words.length * Long.BYTES * 2);
+
+		for (long word : words) {
+			String hex = Long.toHexString(word);
+
+			for (int i = hex.length(); i < Long.BYTES * 2; i++) {
+				sb.append('0');
+			}
+
+			sb.append(hex);
+		}
+
+		return sb.toString();
+	}
+}
@@ -17,7 +17,9 @@
  */
 package com.github.dozedoff.similarImage.handler;
 
+import java.io.BufferedInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 
@@ -63,8 +65,8 @@ public class ExtendedAttributeUpdateHandler implements HashHandler {
 	@Override
 	public boolean handle(Path file) {
 		if (!hashAttribute.areAttributesValid(file)) {
-			try {
-				long hash = hasher.getLongHash(Files.newInputStream(file));
+			try (InputStream is = new BufferedInputStream(Files.newInputStream(file))) {
+				long hash = hasher.getLongHash(is);
 				hashAttribute.writeHash(file, hash);
 			} catch (IOException e) {
 				LOGGER.warn("Failed to hash {}, {}", file, e.toString());
@@ -19,14 +19,17 @@ package com.github.dozedoff.similarImage.handler;
 
 import java.nio.file.Path;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.github.dozedoff.commonj.hash.ImagePHash;
 import com.github.dozedoff.similarImage.db.repository.ImageRepository;
+import com.github.dozedoff.similarImage.io.ContentDigestShortcut;
 import com.github.dozedoff.similarImage.io.HashAttribute;
 import com.github.dozedoff.similarImage.io.Statistics;
+import com.github.dozedoff.similarImage.thread.BoundedExecutor;
 import com.github.dozedoff.similarImage.thread.ImageHashJob;
 
 /**
@@ -43,12 +46,14 @@ public class HashingHandler implements HashHandler {
 	private final Statistics statistics;
 	private final HashAttribute hashAttribute;
 	private final ExecutorService threadPool;
+	private final ContentDigestShortcut digestShortcut;
 
 	/**
 	 * Setup the handler so it can hash files and update the database.
 	 * 
 	 * @param threadPool
-	 *            used to execute hashing jobs
+	 *            used to execute hashing jobs. Use a {@link BoundedExecutor} to block the caller
+	 *            if too many jobs are pending
 	 * 
 	 * @param hasher
 	 *            class that does the hash computation
@@ -58,14 +63,17 @@ public class HashingHandler implements HashHandler {
 	 *            tracking file stats
 	 * @param hashAttribute
 	 *            used to store hashes as extended attributes
+	 * @param digestShortcut
+	 *            re-uses the hash of byte-identical files that have already been hashed
 	 */
 	public HashingHandler(ExecutorService threadPool, ImagePHash hasher, ImageRepository imageRepository,
-			Statistics statistics, HashAttribute hashAttribute) {
+			Statistics statistics, HashAttribute hashAttribute, ContentDigestShortcut digestShortcut) {
 		this.hasher = hasher;
 		this.statistics = statistics;
 		this.hashAttribute = hashAttribute;
 		this.threadPool = threadPool;
 		this.imageRepository = imageRepository;
+		this.digestShortcut = digestShortcut;
 	}
 
 	/**
@@ -73,7 +81,7 @@ public class HashingHandler implements HashHandler {
 	 * 
 	 * @param file
 	 *            the image to hash
-	 * @return this handler will always return true
+	 * @return true if the job was accepted, false if the thread pool rejected it
 	 */
 	@Override
 	public boolean handle(Path file) {
@@ -81,7 +89,13 @@ public class HashingHandler implements HashHandler {
 
 		ImageHashJob job = new ImageHashJob(file, hasher, imageRepository, statistics);
 		job.setHashAttribute(hashAttribute);
-		threadPool.execute(job);
-		return true;
+		job.setDigestShortcut(digestShortcut);
+		try {
+			threadPool.execute(job);
+			return true;
+		} catch (RejectedExecutionException e) {
+			LOGGER.warn("Hashing job for {} was rejected: {}", file, e.toString());
+			return false;
+		}
 	}
 }
@@ -0,0 +1,132 @@
+/*  Copyright (C) 2016  Nicholas Wright
+    
+    This file is part of similarImage - A similar image finder using pHash
+    
+    similarImage is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.similarImage.handler;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.dozedoff.similarImage.db.repository.ImageHashRepository;
+import com.github.dozedoff.similarImage.db.repository.ImageRepository;
+import com.github.dozedoff.similarImage.image.MultiHasher;
+import com.github.dozedoff.similarImage.image.SubsamplingImageDecoder;
+import com.github.dozedoff.similarImage.image.WideDctHash;
+import com.github.dozedoff.similarImage.io.HashAttribute;
+import com.github.dozedoff.similarImage.io.Statistics;
+import com.github.dozedoff.similarImage.thread.BoundedExecutor;
+import com.github.dozedoff.similarImage.thread.MultiHashJob;
+
+/**
+ * Creates hashing jobs that calculate multiple hash families with a single decode of each file. Every hash is also
+ * written as an extended attribute, using the hash name as namespace. Images are decoded at full resolution, unless a
+ * {@link SubsamplingImageDecoder} is set.
+ * 
+ * @author Nicholas Wright
+ * 
+ */
+public class MultiHashingHandler implements HashHandler {
+	private static final Logger LOGGER = LoggerFactory.getLogger(MultiHashingHandler.class);
+
+	private final ExecutorService threadPool;
+	private final MultiHasher hasher;
+	private final ImageRepository imageRepository;
+	private final ImageHashRepository imageHashRepository;
+	private final Statistics statistics;
+	private final Map<String, HashAttribute> hashAttributes;
+	private WideDctHash wideHasher;
+	private SubsamplingImageDecoder imageDecoder;
+
+	/**
+	 * Setup the handler so it can hash files and update the database.
+	 * 
+	 * @param threadPool
+	 *            used to execute hashing jobs. Use a {@link BoundedExecutor} to block the caller
+	 *            if too many jobs are pending
+	 * @param hasher
+	 *            calculates the hashes
+	 * @param imageRepository
+	 *            access to the image datasource
+	 * @param imageHashRepository
+	 *            access to the additional hashes datasource
+	 * @param statistics
+	 *            tracking file stats
+	 */
+	public MultiHashingHandler(ExecutorService threadPool, MultiHasher hasher, ImageRepository imageRepository,
+			ImageHashRepository imageHashRepository, Statistics statistics) {
+		this.threadPool = threadPool;
+		this.hasher = hasher;
+		this.imageRepository = imageRepository;
+		this.imageHashRepository = imageHashRepository;
+		this.statistics = statistics;
+		this.hashAttributes = new HashMap<>();
+
+		for (String hashName : hasher.getHashNames()) {
+			hashAttributes.put(hashName, new HashAttribute(hashName));
+		}
+	}
+
+	/**
+	 * Also calculate a wide hash for every image, stored with the {@link HashNames#DEFAULT_DCT_HASH_2} hash.
+	 * 
+	 * @param wideHasher
+	 *            to use, or null to disable wide hashes
+	 */
+	public void setWideHasher(WideDctHash wideHasher) {
+		this.wideHasher = wideHasher;
+	}
+
+	/**
+	 * Decode images at a reduced resolution before hashing. This is faster for large images, but the hashes can differ
+	 * from the full resolution hashes by a few bits.
+	 * 
+	 * @param imageDecoder
+	 *            to use, or null to decode images at full resolution
+	 */
+	public void setImageDecoder(SubsamplingImageDecoder imageDecoder) {
+		this.imageDecoder = imageDecoder;
+	}
+
+	/**
+	 * Create a new {@link MultiHashJob} and execute it.
+	 * 
+	 * @param file
+	 *            the image to hash
+	 * @return true if the job was accepted, false if the thread pool rejected it
+	 */
+	@Override
+	public boolean handle(Path file) {
+		LOGGER.trace("Handling {} with {}", file, MultiHashingHandler.class.getSimpleName());
+
+		MultiHashJob job = new MultiHashJob(file, hasher, imageRepository, imageHashRepository, statistics);
+		job.setHashAttributes(hashAttributes);
+		job.setWideHasher(wideHasher);
+		job.setImageDecoder(imageDecoder);
+		try {
+			threadPool.execute(job);
+			return true;
+		} catch (RejectedExecutionException e) {
+			LOGGER.warn("Hashing job for {} was rejected: {}", file, e.toString());
+			return false;
+		}
+	}
+}
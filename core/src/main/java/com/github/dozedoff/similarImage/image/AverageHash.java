@@ -0,0 +1,66 @@
+/*  Copyright (C) 2016  Nicholas Wright
+    
+    This file is part of similarImage - A similar image finder using pHash
+    
+    similarImage is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.similarImage.image;
+
+import com.github.dozedoff.similarImage.handler.HashNames;
+
+/**
+ * Average hash, sets a bit for every pixel of an 8x8 grayscale image that is brighter than the mean.
+ * 
+ * @author Nicholas Wright
+ * 
+ */
+public class AverageHash extends GrayscaleHashFamily {
+	private static final int SIZE = 8;
+
+	/**
+	 * Create a hash family that scales images to an 8x8 grayscale image.
+	 */
+	public AverageHash() {
+		super(SIZE, SIZE);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String getHashName() {
+		return HashNames.AVERAGE_HASH;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected long hash(int[] luminance, int width, int height) {
+		long total = 0;
+
+		for (int value : luminance) {
+			total += value;
+		}
+
+		double average = total / (double) luminance.length;
+		long hash = 0;
+
+		for (int value : luminance) {
+			hash = (hash << 1) | (value > average ? 1 : 0);
+		}
+
+		return hash;
+	}
+}
@@ -0,0 +1,67 @@
+/*  Copyright (C) 2016  Nicholas Wright
+    
+    This file is part of similarImage - A similar image finder using pHash
+    
+    similarImage is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.similarImage.image;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+import com.github.dozedoff.commonj.hash.ImagePHash;
+import com.github.dozedoff.similarImage.handler.HashNames;
+
+/**
+ * The default DCT based hash, {@link HashNames#DEFAULT_DCT_HASH_2}, as a {@link HashFamily}.
+ * 
+ * @author Nicholas Wright
+ * 
+ */
+public class DctHash implements HashFamily {
+	private final ImagePHash hasher;
+
+	/**
+	 * Create a hash family using a {@link FusedImagePHash}.
+	 */
+	public DctHash() {
+		this(new FusedImagePHash());
+	}
+
+	/**
+	 * Create a hash family using the given hasher.
+	 * 
+	 * @param hasher
+	 *            used to calculate the hash
+	 */
+	public DctHash(ImagePHash hasher) {
+		this.hasher = hasher;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String getHashName() {
+		return HashNames.DEFAULT_DCT_HASH_2;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long hash(BufferedImage image) throws IOException {
+		return hasher.getLongHash(image);
+	}
+}
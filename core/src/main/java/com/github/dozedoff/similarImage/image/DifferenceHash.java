@@ -0,0 +1,64 @@
+/*  Copyright (C) 2016  Nicholas Wright
+    
+    This file is part of similarImage - A similar image finder using pHash
+    
+    similarImage is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.similarImage.image;
+
+import com.github.dozedoff.similarImage.handler.HashNames;
+
+/**
+ * Difference hash, sets a bit for every pixel of a 9x8 grayscale image that is brighter than its right neighbor.
+ * 
+ * @author Nicholas Wright
+ * 
+ */
+public class DifferenceHash extends GrayscaleHashFamily {
+	private static final int WIDTH = 9;
+	private static final int HEIGHT = 8;
+
+	/**
+	 * Create a hash family that scales images to a 9x8 grayscale image.
+	 */
+	public DifferenceHash() {
+		super(WIDTH, HEIGHT);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String getHashName() {
+		return HashNames.DIFFERENCE_HASH;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected long hash(int[] luminance, int width, int height) {
+		long hash = 0;
+
+		for (int y = 0; y < height; y++) {
+			int row = y * width;
+
+			for (int x = 0; x < width - 1; x++) {
+				hash = (hash << 1) | (luminance[row + x] > luminance[row + x + 1] ? 1 : 0);
+			}
+		}
+
+		return hash;
+	}
+}
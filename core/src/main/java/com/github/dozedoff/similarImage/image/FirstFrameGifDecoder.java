@@ -0,0 +1,157 @@
+/*  Copyright (C) 2016  Nicholas Wright
+    
+    This file is part of similarImage - A similar image finder using pHash
+    
+    similarImage is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.similarImage.image;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import javax.imageio.IIOException;
+
+import at.dhyan.open_imaging.GifDecoder;
+
+/**
+ * Reads only the first frame of a GIF. The block structure of the stream is parsed without decoding any pixels, and
+ * reading stops after the image data of the first frame. The copied blocks are terminated with a trailer, which
+ * results in a valid single frame GIF. Decoding that with {@link GifDecoder} gives the same image as
+ * {@code GifDecoder.read(is).getFrame(0)} without decoding the remaining frames of an animation.
+ * 
+ * @author Nicholas Wright
+ * 
+ */
+public abstract class FirstFrameGifDecoder {
+	private static final int HEADER_SIZE = 6;
+	private static final int LOGICAL_SCREEN_DESCRIPTOR_SIZE = 7;
+	private static final int IMAGE_DESCRIPTOR_SIZE = 9;
+
+	private static final int EXTENSION_INTRODUCER = 0x21;
+	private static final int IMAGE_SEPARATOR = 0x2C;
+	private static final int TRAILER = 0x3B;
+
+	private static final int COLOR_TABLE_FLAG = 0x80;
+	private static final int COLOR_TABLE_SIZE_MASK = 0x07;
+	private static final int COLOR_TABLE_ENTRY_SIZE = 3;
+	private static final int MAX_SUB_BLOCK_SIZE = 255;
+
+	private static final byte[] GIF87A = { 'G', 'I', 'F', '8', '7', 'a' };
+	private static final byte[] GIF89A = { 'G', 'I', 'F', '8', '9', 'a' };
+
+	/**
+	 * Check if the file name of the path has a GIF extension.
+	 * 
+	 * @param path
+	 *            to check
+	 * @return true if the file is a GIF
+	 */
+	public static boolean isGif(Path path) {
+		Path filename = path.getFileName();
+		return filename != null && filename.toString().toLowerCase().endsWith(".gif");
+	}
+
+	/**
+	 * Decode the first frame of the GIF in the stream. The stream is read up to the end of the first frame.
+	 * 
+	 * @param is
+	 *            stream containing a GIF
+	 * @return the first frame of the GIF
+	 * @throws IOException
+	 *             if the stream could not be read or does not contain a valid GIF
+	 */
+	public static BufferedImage decode(InputStream is) throws IOException {
+		return GifDecoder.read(readFirstFrame(is)).getFrame(0);
+	}
+
+	/**
+	 * Copy the blocks of the GIF up to and including the image data of the first frame, followed by a trailer. The
+	 * stream is read up to the end of the first frame.
+	 * 
+	 * @param is
+	 *            stream containing a GIF
+	 * @return a GIF that contains only the first frame
+	 * @throws IOException
+	 *             if the stream could not be read or does not contain a valid GIF
+	 */
+	public static byte[] readFirstFrame(InputStream is) throws IOException {
+		DataInputStream in = new DataInputStream(is);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		byte[] header = copy(in, out, HEADER_SIZE);
+
+		if (!Arrays.equals(header, GIF87A) && !Arrays.equals(header, GIF89A)) {
+			throw new IIOException("Invalid GIF header");
+		}
+
+		byte[] screenDescriptor = copy(in, out, LOGICAL_SCREEN_DESCRIPTOR_SIZE);
+		copyColorTable(in, out, screenDescriptor[4]);
+
+		while (true) {
+			int block = in.readUnsignedByte();
+			out.write(block);
+
+			if (block == EXTENSION_INTRODUCER) {
+				copy(in, out, 1);
+				copySubBlocks(in, out);
+			} else if (block == IMAGE_SEPARATOR) {
+				byte[] imageDescriptor = copy(in, out, IMAGE_DESCRIPTOR_SIZE);
+				copyColorTable(in, out, imageDescriptor[8]);
+				copy(in, out, 1);
+				copySubBlocks(in, out);
+				out.write(TRAILER);
+
+				return out.toByteArray();
+			} else if (block == TRAILER) {
+				throw new IIOException("GIF does not contain any frames");
+			} else {
+				throw new IIOException("Unknown block type " + block);
+			}
+		}
+	}
+
+	private static byte[] copy(DataInputStream in, ByteArrayOutputStream out, int length) throws IOException {
+		byte[] data = new byte[length];
+		in.readFully(data);
+		out.write(data);
+		return data;
+	}
+
+	private static void copyColorTable(DataInputStream in, ByteArrayOutputStream out, byte packedFields)
+			throws IOException {
+		if ((packedFields & COLOR_TABLE_FLAG) == 0) {
+			return;
+		}
+
+		int entries = 1 << ((packedFields & COLOR_TABLE_SIZE_MASK) + 1);
+		copy(in, out, entries * COLOR_TABLE_ENTRY_SIZE);
+	}
+
+	private static void copySubBlocks(DataInputStream in, ByteArrayOutputStream out) throws IOException {
+		byte[] subBlock = new byte[MAX_SUB_BLOCK_SIZE];
+		int size;
+
+		do {
+			size = in.readUnsignedByte();
+			out.write(size);
+			in.readFully(subBlock, 0, size);
+			out.write(subBlock, 0, size);
+		} while (size != 0);
+	}
+}
@@ -0,0 +1,273 @@
+/*  Copyright (C) 2016  Nicholas Wright
+    
+    This file is part of similarImage - A similar image finder using pHash
+    
+    similarImage is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.similarImage.image;
+
+import java.awt.Graphics2D;
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorConvertOp;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+
+import javax.imageio.IIOException;
+
+import com.github.dozedoff.commonj.hash.ImagePHash;
+import com.github.dozedoff.similarImage.handler.HashNames;
+import com.github.dozedoff.similarImage.image.kernel.DCTBatcher;
+
+/**
+ * Drop-in replacement for {@link ImagePHash} that computes the {@link HashNames#DEFAULT_DCT_HASH_2} hash without
+ * allocating per image. Each thread re-uses its own resize target, grayscale operation and primitive matrices. The
+ * cosine basis is precomputed and only the low frequency coefficients used by the hash are calculated. The arithmetic
+ * is done in the same order as {@link ImagePHash}, so the resulting hashes are bit-identical.<br>
+ * Optionally the DCT can be delegated to a {@link DCTBatcher}, so that multiple hashing threads share batched kernel
+ * launches. The batched backends only match the reference within floating point tolerance, so a coefficient that is
+ * within rounding distance of the average may flip a bit compared to the unbatched hash.
+ * 
+ * @author Nicholas Wright
+ * 
+ */
+public class FusedImagePHash extends ImagePHash {
+	/**
+	 * Size of the square image used to calculate the DCT.
+	 */
+	public static final int RESIZE_SIZE = 32;
+	/**
+	 * Size of the square block of low frequency DCT coefficients used for the hash.
+	 */
+	public static final int DCT_SIZE = 8;
+
+	private static final int RESIZE_AREA = RESIZE_SIZE * RESIZE_SIZE;
+	private static final int DCT_AREA = DCT_SIZE * DCT_SIZE;
+	private static final int BLUE_CHANNEL_MASK = 0xFF;
+
+	private static final double[] COSINE_BASIS = createCosineBasis();
+	private static final double[] COEFFICIENTS = createCoefficients();
+
+	private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+	private final DCTBatcher batcher;
+
+	private static double[] createCosineBasis() {
+		double[] basis = new double[DCT_SIZE * RESIZE_SIZE];
+
+		for (int u = 0; u < DCT_SIZE; u++) {
+			for (int i = 0; i < RESIZE_SIZE; i++) {
+				basis[u * RESIZE_SIZE + i] = Math.cos(((2 * i + 1) / (2.0 * RESIZE_SIZE)) * u * Math.PI);
+			}
+		}
+
+		return basis;
+	}
+
+	private static double[] createCoefficients() {
+		double[] coefficients = new double[DCT_SIZE];
+
+		for (int i = 1; i < DCT_SIZE; i++) {
+			coefficients[i] = 1;
+		}
+
+		coefficients[0] = 1 / Math.sqrt(2.0);
+
+		return coefficients;
+	}
+
+	/**
+	 * Create a hasher that calculates the DCT in the calling thread, producing hashes that are identical to
+	 * {@link ImagePHash}.
+	 */
+	public FusedImagePHash() {
+		this.batcher = null;
+	}
+
+	/**
+	 * Create a hasher that submits the DCT to the given batcher, so that multiple threads can share batched
+	 * transforms.
+	 * 
+	 * @param batcher
+	 *            to use for the DCT, must operate on {@link #RESIZE_SIZE} matrices and calculate at least
+	 *            {@link #DCT_SIZE} coefficients
+	 */
+	public FusedImagePHash(DCTBatcher batcher) {
+		if (batcher.getMatrixSize() != RESIZE_SIZE) {
+			throw new IllegalArgumentException(
+					"Batcher matrix size must be " + RESIZE_SIZE + ", but was " + batcher.getMatrixSize());
+		}
+
+		if (batcher.getCoefficientSize() < DCT_SIZE) {
+			throw new IllegalArgumentException("Batcher coefficient size must be at least " + DCT_SIZE + ", but was "
+					+ batcher.getCoefficientSize());
+		}
+
+		this.batcher = batcher;
+	}
+
+	/**
+	 * Decode the image from the stream and calculate the hash.
+	 * 
+	 * @param is
+	 *            stream containing the image data
+	 * @return the calculated hash
+	 * @throws IOException
+	 *             if the image could not be decoded
+	 */
+	@Override
+	public long getLongHash(InputStream is) throws IOException {
+		return getLongHash(ImageDecodeService.getDefault().read(is));
+	}
+
+	/**
+	 * Calculate the hash for the image.
+	 * 
+	 * @param image
+	 *            to hash
+	 * @return the calculated hash
+	 * @throws IOException
+	 *             if the image is null
+	 */
+	@Override
+	public long getLongHash(BufferedImage image) throws IOException {
+		if (image == null) {
+			throw new IIOException("Image is null. Did ImageIO fail to decode the image?");
+		}
+
+		Scratch scratch = SCRATCH.get();
+		scratch.loadLuminance(image);
+
+		if (batcher == null) {
+			scratch.transform();
+		} else {
+			scratch.loadLowFrequencies(transformBatched(scratch.luminance), batcher.getCoefficientSize());
+		}
+
+		return scratch.threshold();
+	}
+
+	private double[] transformBatched(double[] luminance) throws InterruptedIOException {
+		try {
+			return batcher.transformDCT(luminance);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for DCT batch");
+		}
+	}
+
+	/**
+	 * Per-thread buffers that are re-used for every hash.
+	 */
+	private static final class Scratch {
+		private final BufferedImage resized;
+		private final int[] pixels;
+		private final ColorConvertOp grayscale;
+		private final double[] luminance;
+		private final double[] dct;
+
+		Scratch() {
+			resized = new BufferedImage(RESIZE_SIZE, RESIZE_SIZE, BufferedImage.TYPE_INT_RGB);
+			pixels = ((DataBufferInt) resized.getRaster().getDataBuffer()).getData();
+			grayscale = new ColorConvertOp(ColorSpace.getInstance(ColorSpace.CS_GRAY), null);
+			luminance = new double[RESIZE_AREA];
+			dct = new double[DCT_AREA];
+		}
+
+		/**
+		 * Resize and convert the image, then copy the luminance into the matrix in column major order. A freshly
+		 * created image is black, so the pixels are cleared to match for images with transparency.
+		 */
+		void loadLuminance(BufferedImage image) {
+			Arrays.fill(pixels, 0);
+
+			Graphics2D g = resized.createGraphics();
+
+			try {
+				g.drawImage(image, 0, 0, RESIZE_SIZE, RESIZE_SIZE, null);
+			} finally {
+				g.dispose();
+			}
+
+			grayscale.filter(resized, resized);
+
+			for (int x = 0; x < RESIZE_SIZE; x++) {
+				for (int y = 0; y < RESIZE_SIZE; y++) {
+					luminance[x * RESIZE_SIZE + y] = pixels[y * RESIZE_SIZE + x] & BLUE_CHANNEL_MASK;
+				}
+			}
+		}
+
+		/**
+		 * Calculate the low frequency DCT coefficients. Only the coefficients used by the hash are computed.
+		 */
+		void transform() {
+			for (int u = 0; u < DCT_SIZE; u++) {
+				int uOffset = u * RESIZE_SIZE;
+
+				for (int v = 0; v < DCT_SIZE; v++) {
+					int vOffset = v * RESIZE_SIZE;
+					double sum = 0.0;
+
+					for (int i = 0; i < RESIZE_SIZE; i++) {
+						double cosU = COSINE_BASIS[uOffset + i];
+						int row = i * RESIZE_SIZE;
+
+						for (int j = 0; j < RESIZE_SIZE; j++) {
+							sum += cosU * COSINE_BASIS[vOffset + j] * luminance[row + j];
+						}
+					}
+
+					sum *= ((COEFFICIENTS[u] * COEFFICIENTS[v]) / 4.0);
+					dct[u * DCT_SIZE + v] = sum;
+				}
+			}
+		}
+
+		/**
+		 * Copy the low frequency coefficients from a block of DCT coefficients of the luminance matrix.
+		 */
+		void loadLowFrequencies(double[] coefficients, int coefficientSize) {
+			for (int u = 0; u < DCT_SIZE; u++) {
+				System.arraycopy(coefficients, u * coefficientSize, dct, u * DCT_SIZE, DCT_SIZE);
+			}
+		}
+
+		/**
+		 * Set a bit for every coefficient that is above the average, excluding the DC term from the average.
+		 */
+		long threshold() {
+			double total = 0;
+
+			for (int i = 0; i < DCT_AREA; i++) {
+				total += dct[i];
+			}
+
+			total -= dct[0];
+			double average = total / (double) (DCT_AREA - 1);
+
+			long hash = 0;
+
+			for (int i = 0; i < DCT_AREA; i++) {
+				hash += (dct[i] > average ? 1 : 0);
+				hash = Long.rotateLeft(hash, 1);
+			}
+
+			return hash;
+		}
+	}
+}
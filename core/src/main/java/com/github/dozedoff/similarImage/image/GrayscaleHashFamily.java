@@ -0,0 +1,116 @@
+/*  Copyright (C) 2016  Nicholas Wright
+    
+    This file is part of similarImage - A similar image finder using pHash
+    
+    similarImage is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.similarImage.image;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.IOException;
+import java.util.Arrays;
+
+import javax.imageio.IIOException;
+
+/**
+ * Base class for hash families that compare the luminance of a small grayscale version of the image. Each thread
+ * re-uses its own scaled image and luminance buffer.
+ * 
+ * @author Nicholas Wright
+ * 
+ */
+public abstract class GrayscaleHashFamily implements HashFamily {
+	private static final int BYTE_MASK = 0xFF;
+
+	private final int width;
+	private final int height;
+	private final ThreadLocal<Scratch> scratch;
+
+	/**
+	 * Create a hash family that hashes a grayscale image of the given size.
+	 * 
+	 * @param width
+	 *            of the scaled image
+	 * @param height
+	 *            of the scaled image
+	 */
+	protected GrayscaleHashFamily(int width, int height) {
+		this.width = width;
+		this.height = height;
+		this.scratch = ThreadLocal.withInitial(() -> new Scratch(width, height));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long hash(BufferedImage image) throws IOException {
+		if (image == null) {
+			throw new IIOException("Image is null. Did ImageIO fail to decode the image?");
+		}
+
+		Scratch buffers = scratch.get();
+		byte[] data = buffers.data;
+		int[] luminance = buffers.luminance;
+
+		Arrays.fill(data, (byte) 0);
+
+		Graphics2D g = buffers.scaled.createGraphics();
+
+		try {
+			g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+			g.drawImage(image, 0, 0, width, height, null);
+		} finally {
+			g.dispose();
+		}
+
+		for (int i = 0; i < data.length; i++) {
+			luminance[i] = data[i] & BYTE_MASK;
+		}
+
+		return hash(luminance, width, height);
+	}
+
+	/**
+	 * Calculate the hash from the luminance of the scaled image.
+	 * 
+	 * @param luminance
+	 *            of the scaled image in row major order
+	 * @param width
+	 *            of the scaled image
+	 * @param height
+	 *            of the scaled image
+	 * @return the calculated hash
+	 */
+	protected abstract long hash(int[] luminance, int width, int height);
+
+	/**
+	 * Per thread buffers. The scaled image is cleared to black before drawing, like a freshly created image, so pixels
+	 * not covered by a transparent image do not keep the values of the previous image.
+	 */
+	private static final class Scratch {
+		private final BufferedImage scaled;
+		private final byte[] data;
+		private final int[] luminance;
+
+		Scratch(int width, int height) {
+			scaled = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+			data = ((DataBufferByte) scaled.getRaster().getDataBuffer()).getData();
+			luminance = new int[data.length];
+		}
+	}
+}
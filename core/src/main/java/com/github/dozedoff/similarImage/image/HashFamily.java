@@ -0,0 +1,50 @@
+/*  Copyright (C) 2016  Nicholas Wright
+    
+    This file is part of similarImage - A similar image finder using pHash
+    
+    similarImage is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.similarImage.image;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+import com.github.dozedoff.similarImage.handler.HashNames;
+
+/**
+ * A perceptual hash algorithm that produces a 64 bit hash from an already decoded image.
+ * 
+ * @author Nicholas Wright
+ * 
+ */
+public interface HashFamily {
+	/**
+	 * Get the name used to store hashes of this family, see {@link HashNames}.
+	 * 
+	 * @return the name of the hash
+	 */
+	String getHashName();
+
+	/**
+	 * Calculate the hash for the image. Implementations must not modify the image, as it is shared with other hash
+	 * families.
+	 * 
+	 * @param image
+	 *            to hash
+	 * @return the calculated hash
+	 * @throws IOException
+	 *             if the image could not be hashed
+	 */
+	long hash(BufferedImage image) throws IOException;
+}
@@ -0,0 +1,313 @@
+/*  Copyright (C) 2016  Nicholas Wright
+    
+    This file is part of similarImage - A similar image finder using pHash
+    
+    similarImage is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.similarImage.image;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.imageio.IIOException;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.spi.ImageReaderSpi;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
+import com.codahale.metrics.Timer;
+import com.codahale.metrics.Timer.Context;
+import com.github.dozedoff.similarImage.io.ByteBufferImageInputStream;
+
+/**
+ * Decodes images with pooled {@link ImageReader}s. Each thread keeps one reader per image format, which is reset and
+ * re-used for the next image of the same format instead of looking up the service providers and creating a new reader
+ * for every image. Image data in memory is read directly from the buffer, without a stream cache.<br>
+ * The decode latency is tracked per format with a {@link Timer}, named {@link #METRIC_NAME_DECODE} followed by the
+ * lower case format name.
+ * 
+ * @author Nicholas Wright
+ * 
+ */
+public class ImageDecodeService {
+	/**
+	 * Name of the shared metric registry used by {@link #getDefault()}.
+	 */
+	public static final String SHARED_REGISTRY_NAME = "similarImage";
+	public static final String METRIC_NAME_DECODE = MetricRegistry.name(ImageDecodeService.class, "decode");
+
+	private static final ImageDecodeService DEFAULT = new ImageDecodeService(
+			SharedMetricRegistries.getOrCreate(SHARED_REGISTRY_NAME));
+
+	private final MetricRegistry metrics;
+	private final ThreadLocal<List<ImageReader>> readers;
+	private final ConcurrentMap<String, Timer> decodeTimers;
+
+	/**
+	 * Function that reads an image from a prepared reader.
+	 * 
+	 * @param <T>
+	 *            type of the result
+	 */
+	@FunctionalInterface
+	public interface ReaderFunction<T> {
+		/**
+		 * Read from the reader. The input of the reader is already set.
+		 * 
+		 * @param reader
+		 *            to read from
+		 * @return the result of the read
+		 * @throws IOException
+		 *             if there is an error reading the image
+		 */
+		T apply(ImageReader reader) throws IOException;
+	}
+
+	/**
+	 * Create a new service that reports decode latencies to the registry.
+	 * 
+	 * @param metrics
+	 *            registry for tracking decode latencies
+	 */
+	public ImageDecodeService(MetricRegistry metrics) {
+		this.metrics = metrics;
+		this.readers = ThreadLocal.withInitial(ArrayList::new);
+		this.decodeTimers = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * Get a service instance shared by classes that have no {@link MetricRegistry} of their own. The metrics are
+	 * reported to the shared registry {@value #SHARED_REGISTRY_NAME}.
+	 * 
+	 * @return the shared instance
+	 */
+	public static ImageDecodeService getDefault() {
+		return DEFAULT;
+	}
+
+	/**
+	 * Decode the first image in the buffer.
+	 * 
+	 * @param data
+	 *            containing the image
+	 * @return the decoded image, or null if no reader was found for the image format
+	 * @throws IOException
+	 *             if there is an error reading the image
+	 */
+	public BufferedImage read(ByteBuffer data) throws IOException {
+		return read(data, ImageDecodeService::readFirstImage);
+	}
+
+	/**
+	 * Decode the first image in the array.
+	 * 
+	 * @param data
+	 *            containing the image
+	 * @return the decoded image, or null if no reader was found for the image format
+	 * @throws IOException
+	 *             if there is an error reading the image
+	 */
+	public BufferedImage read(byte[] data) throws IOException {
+		return read(ByteBuffer.wrap(data));
+	}
+
+	/**
+	 * Read the file into memory and decode the first image.
+	 * 
+	 * @param path
+	 *            of the image file
+	 * @return the decoded image, or null if no reader was found for the image format
+	 * @throws IOException
+	 *             if there is an error reading the image
+	 */
+	public BufferedImage read(Path path) throws IOException {
+		return read(path, ImageDecodeService::readFirstImage);
+	}
+
+	/**
+	 * Decode the first image in the stream. The stream is not closed.
+	 * 
+	 * @param is
+	 *            containing the image
+	 * @return the decoded image, or null if no reader was found for the image format
+	 * @throws IOException
+	 *             if there is an error reading the image
+	 */
+	public BufferedImage read(InputStream is) throws IOException {
+		return read(is, ImageDecodeService::readFirstImage);
+	}
+
+	/**
+	 * Read the file into memory and apply the function with a reader for the image format.
+	 * 
+	 * @param path
+	 *            of the image file
+	 * @param function
+	 *            to read the image
+	 * @return the result of the function, or null if no reader was found for the image format
+	 * @throws IOException
+	 *             if there is an error reading the image
+	 */
+	public <T> T read(Path path, ReaderFunction<T> function) throws IOException {
+		return read(readFile(path), function);
+	}
+
+	/**
+	 * Apply the function with a reader for the image format.
+	 * 
+	 * @param data
+	 *            containing the image
+	 * @param function
+	 *            to read the image
+	 * @return the result of the function, or null if no reader was found for the image format
+	 * @throws IOException
+	 *             if there is an error reading the image
+	 */
+	public <T> T read(ByteBuffer data, ReaderFunction<T> function) throws IOException {
+		try (ImageInputStream iis = new ByteBufferImageInputStream(data)) {
+			return read(iis, function);
+		}
+	}
+
+	/**
+	 * Apply the function with a reader for the image format. The stream is not closed.
+	 * 
+	 * @param is
+	 *            containing the image
+	 * @param function
+	 *            to read the image
+	 * @return the result of the function, or null if no reader was found for the image format
+	 * @throws IOException
+	 *             if there is an error reading the image
+	 */
+	public <T> T read(InputStream is, ReaderFunction<T> function) throws IOException {
+		try (ImageInputStream iis = new MemoryCacheImageInputStream(is)) {
+			return read(iis, function);
+		}
+	}
+
+	/**
+	 * Apply the function with a pooled reader for the image format. The reader is reset afterwards and must not be
+	 * used outside of the function.
+	 * 
+	 * @param iis
+	 *            containing the image
+	 * @param function
+	 *            to read the image
+	 * @return the result of the function, or null if no reader was found for the image format
+	 * @throws IOException
+	 *             if there is an error reading the image
+	 */
+	public <T> T read(ImageInputStream iis, ReaderFunction<T> function) throws IOException {
+		ImageReader reader = acquireReader(iis);
+
+		if (reader == null) {
+			return null;
+		}
+
+		boolean reusable = false;
+
+		try (Context context = decodeTimer(reader).time()) {
+			reader.setInput(iis, true, true);
+			T result = function.apply(reader);
+			reusable = true;
+			return result;
+		} finally {
+			releaseReader(reader, reusable);
+		}
+	}
+
+	private static BufferedImage readFirstImage(ImageReader reader) throws IOException {
+		return reader.read(0, reader.getDefaultReadParam());
+	}
+
+	private ByteBuffer readFile(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long size = channel.size();
+
+			if (size > Integer.MAX_VALUE) {
+				throw new IIOException("File " + path + " is too large to decode (" + size + " bytes)");
+			}
+
+			ByteBuffer buffer = ByteBuffer.allocate((int) size);
+
+			while (buffer.hasRemaining() && channel.read(buffer) != -1) {
+				// read until the buffer is full
+			}
+
+			buffer.flip();
+			return buffer;
+		}
+	}
+
+	/**
+	 * Take a reader that can decode the stream from the pool of this thread, or create a new one.
+	 */
+	private ImageReader acquireReader(ImageInputStream iis) throws IOException {
+		List<ImageReader> pool = readers.get();
+
+		for (int i = 0; i < pool.size(); i++) {
+			ImageReader reader = pool.get(i);
+			ImageReaderSpi provider = reader.getOriginatingProvider();
+
+			if (provider != null && provider.canDecodeInput(iis)) {
+				pool.remove(i);
+				return reader;
+			}
+		}
+
+		Iterator<ImageReader> found = ImageIO.getImageReaders(iis);
+
+		if (!found.hasNext()) {
+			return null;
+		}
+
+		return found.next();
+	}
+
+	/**
+	 * Reset the reader and return it to the pool of this thread. Readers that failed are disposed, as their state is
+	 * unknown.
+	 */
+	private void releaseReader(ImageReader reader, boolean reusable) {
+		if (!reusable) {
+			reader.dispose();
+			return;
+		}
+
+		reader.reset();
+		readers.get().add(0, reader);
+	}
+
+	private Timer decodeTimer(ImageReader reader) throws IOException {
+		String format = reader.getFormatName().toLowerCase(Locale.ROOT);
+
+		return decodeTimers.computeIfAbsent(format,
+				key -> metrics.timer(MetricRegistry.name(METRIC_NAME_DECODE, key)));
+	}
+}
@@ -0,0 +1,111 @@
+/*  Copyright (C) 2016  Nicholas Wright
+    
+    This file is part of similarImage - A similar image finder using pHash
+    
+    similarImage is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.similarImage.image;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Calculates the hashes of multiple {@link HashFamily} from a single decoded image, so adding a hash family does not
+ * require decoding every file again.
+ * 
+ * @author Nicholas Wright
+ * 
+ */
+public class MultiHasher {
+	private final List<HashFamily> families;
+
+	/**
+	 * Create a hasher for the given hash families.
+	 * 
+	 * @param families
+	 *            to calculate, the hash names must be unique
+	 */
+	public MultiHasher(HashFamily... families) {
+		this(Arrays.asList(families));
+	}
+
+	/**
+	 * Create a hasher for the given hash families.
+	 * 
+	 * @param families
+	 *            to calculate, the hash names must be unique
+	 */
+	public MultiHasher(Collection<HashFamily> families) {
+		Set<String> names = new HashSet<>();
+
+		for (HashFamily family : families) {
+			if (!names.add(family.getHashName())) {
+				throw new IllegalArgumentException("Duplicate hash family " + family.getHashName());
+			}
+		}
+
+		this.families = new ArrayList<>(families);
+	}
+
+	/**
+	 * Create a hasher with all hash families known to this version.
+	 * 
+	 * @return a hasher for the default DCT, average and difference hash
+	 */
+	public static MultiHasher allFamilies() {
+		return new MultiHasher(new DctHash(), new AverageHash(), new DifferenceHash());
+	}
+
+	/**
+	 * Get the names of the hash families calculated by this hasher.
+	 * 
+	 * @return names of the hashes, in registration order
+	 */
+	public List<String> getHashNames() {
+		List<String> names = new ArrayList<>(families.size());
+
+		for (HashFamily family : families) {
+			names.add(family.getHashName());
+		}
+
+		return names;
+	}
+
+	/**
+	 * Calculate the hash of every registered hash family for the image.
+	 * 
+	 * @param image
+	 *            to hash
+	 * @return the hashes, mapped by hash name in registration order
+	 * @throws IOException
+	 *             if any of the hashes could not be calculated
+	 */
+	public Map<String, Long> hash(BufferedImage image) throws IOException {
+		Map<String, Long> hashes = new LinkedHashMap<>();
+
+		for (HashFamily family : families) {
+			hashes.put(family.getHashName(), family.hash(image));
+		}
+
+		return hashes;
+	}
+}
@@ -0,0 +1,227 @@
+/*  Copyright (C) 2016  Nicholas Wright
+    
+    This file is part of similarImage - A similar image finder using pHash
+    
+    similarImage is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.similarImage.image;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Iterator;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+
+/**
+ * Decodes images at a reduced resolution. The image header is read first to get the dimensions, then the image is
+ * decoded with source subsampling so that the shorter side is still at least the minimum size. Optionally a grayscale
+ * destination is used if the reader supports it, which avoids the color conversion and stores a single byte per pixel.
+ * <br>
+ * Images are scaled down to {@link FusedImagePHash#RESIZE_SIZE} for hashing, so decoding the full resolution of a
+ * large photo is wasted work. With {@link #MINIMUM_HASH_SIZE} the decoded image still has several source pixels per
+ * hash pixel, so the resulting hash is identical or within a few bits of the full resolution hash.<br>
+ * Readers are pooled by an {@link ImageDecodeService}.
+ * 
+ * @author Nicholas Wright
+ * 
+ */
+public class SubsamplingImageDecoder {
+	/**
+	 * Minimum size of the shorter image side when decoding images for hashing.
+	 */
+	public static final int MINIMUM_HASH_SIZE = FusedImagePHash.RESIZE_SIZE * 4;
+
+	private static final int RGB_BYTES_PER_PIXEL = 3;
+	private static final String NAME_DECODE = "decode";
+
+	public static final String METRIC_NAME_DECODED_BYTES = MetricRegistry.name(SubsamplingImageDecoder.class,
+			NAME_DECODE, "bytes", "decoded");
+	public static final String METRIC_NAME_SAVED_BYTES = MetricRegistry.name(SubsamplingImageDecoder.class, NAME_DECODE,
+			"bytes", "saved");
+	public static final String METRIC_NAME_SUBSAMPLED = MetricRegistry.name(SubsamplingImageDecoder.class, NAME_DECODE,
+			"subsampled");
+	public static final String METRIC_NAME_FULL_RESOLUTION = MetricRegistry.name(SubsamplingImageDecoder.class,
+			NAME_DECODE, "fullResolution");
+
+	private final int minimumSize;
+	private final boolean grayscale;
+	private final ImageDecodeService decodeService;
+
+	private final Counter decodedBytes;
+	private final Counter savedBytes;
+	private final Meter subsampled;
+	private final Meter fullResolution;
+
+	/**
+	 * Create a decoder for hashing, using {@link #MINIMUM_HASH_SIZE} and a grayscale destination. Byte metrics are
+	 * not reported, readers are pooled by the {@link ImageDecodeService#getDefault()} instance.
+	 */
+	public SubsamplingImageDecoder() {
+		this(MINIMUM_HASH_SIZE, true, new MetricRegistry(), ImageDecodeService.getDefault());
+	}
+
+	/**
+	 * Create a new decoder.
+	 * 
+	 * @param minimumSize
+	 *            the shorter side of the decoded image will be at least this many pixels, unless the image is smaller
+	 * @param grayscale
+	 *            if true, decode to a grayscale image if the reader supports it
+	 * @param metrics
+	 *            registry for tracking the decoded and saved bytes, and decode latency
+	 */
+	public SubsamplingImageDecoder(int minimumSize, boolean grayscale, MetricRegistry metrics) {
+		this(minimumSize, grayscale, metrics, new ImageDecodeService(metrics));
+	}
+
+	/**
+	 * Create a new decoder that uses the readers of the given service.
+	 * 
+	 * @param minimumSize
+	 *            the shorter side of the decoded image will be at least this many pixels, unless the image is smaller
+	 * @param grayscale
+	 *            if true, decode to a grayscale image if the reader supports it
+	 * @param metrics
+	 *            registry for tracking the decoded and saved bytes
+	 * @param decodeService
+	 *            used to pool readers
+	 */
+	public SubsamplingImageDecoder(int minimumSize, boolean grayscale, MetricRegistry metrics,
+			ImageDecodeService decodeService) {
+		if (minimumSize < 1) {
+			throw new IllegalArgumentException("Minimum size must be at least 1");
+		}
+
+		this.minimumSize = minimumSize;
+		this.grayscale = grayscale;
+		this.decodeService = decodeService;
+
+		this.decodedBytes = metrics.counter(METRIC_NAME_DECODED_BYTES);
+		this.savedBytes = metrics.counter(METRIC_NAME_SAVED_BYTES);
+		this.subsampled = metrics.meter(METRIC_NAME_SUBSAMPLED);
+		this.fullResolution = metrics.meter(METRIC_NAME_FULL_RESOLUTION);
+	}
+
+	/**
+	 * Decode the first image in the stream at a reduced resolution. The stream is not closed.
+	 * 
+	 * @param is
+	 *            stream containing the image data
+	 * @return the decoded image, or null if no reader was found for the image format, the same as
+	 *         {@link ImageIO#read(InputStream)}
+	 * @throws IOException
+	 *             if there is an error reading the image
+	 */
+	public BufferedImage decode(InputStream is) throws IOException {
+		return decodeService.read(is, this::decode);
+	}
+
+	/**
+	 * Decode the first image in the buffer at a reduced resolution.
+	 * 
+	 * @param data
+	 *            containing the image data
+	 * @return the decoded image, or null if no reader was found for the image format
+	 * @throws IOException
+	 *             if there is an error reading the image
+	 */
+	public BufferedImage decode(ByteBuffer data) throws IOException {
+		return decodeService.read(data, this::decode);
+	}
+
+	/**
+	 * Decode the first image in the file at a reduced resolution.
+	 * 
+	 * @param path
+	 *            of the image file
+	 * @return the decoded image, or null if no reader was found for the image format
+	 * @throws IOException
+	 *             if there is an error reading the image
+	 */
+	public BufferedImage decode(Path path) throws IOException {
+		return decodeService.read(path, this::decode);
+	}
+
+	private BufferedImage decode(ImageReader reader) throws IOException {
+		int width = reader.getWidth(0);
+		int height = reader.getHeight(0);
+		int factor = subsamplingFactor(width, height);
+
+		ImageReadParam param = reader.getDefaultReadParam();
+
+		if (factor > 1) {
+			param.setSourceSubsampling(factor, factor, 0, 0);
+			subsampled.mark();
+		} else {
+			fullResolution.mark();
+		}
+
+		if (grayscale) {
+			setGrayscaleDestination(reader, param);
+		}
+
+		BufferedImage image = reader.read(0, param);
+		updateByteMetrics(width, height, image);
+
+		return image;
+	}
+
+	/**
+	 * Calculate the largest subsampling factor that keeps the shorter side at or above the minimum size.
+	 * 
+	 * @param width
+	 *            of the full image
+	 * @param height
+	 *            of the full image
+	 * @return the subsampling factor, 1 if the image should be decoded at full resolution
+	 */
+	int subsamplingFactor(int width, int height) {
+		return Math.max(1, Math.min(width, height) / minimumSize);
+	}
+
+	private void setGrayscaleDestination(ImageReader reader, ImageReadParam param) throws IOException {
+		Iterator<ImageTypeSpecifier> types = reader.getImageTypes(0);
+
+		while (types.hasNext()) {
+			ImageTypeSpecifier type = types.next();
+
+			if (type.getBufferedImageType() == BufferedImage.TYPE_BYTE_GRAY) {
+				param.setDestinationType(type);
+				return;
+			}
+		}
+	}
+
+	private void updateByteMetrics(int width, int height, BufferedImage image) {
+		long fullBytes = (long) width * height * RGB_BYTES_PER_PIXEL;
+		long decoded = (long) image.getWidth() * image.getHeight() * bytesPerPixel(image);
+
+		decodedBytes.inc(decoded);
+		savedBytes.inc(Math.max(0, fullBytes - decoded));
+	}
+
+	private int bytesPerPixel(BufferedImage image) {
+		return Math.max(1, image.getColorModel().getPixelSize() / Byte.SIZE);
+	}
+}
@@ -0,0 +1,162 @@
+/*  Copyright (C) 2016  Nicholas Wright
+    
+    This file is part of similarImage - A similar image finder using pHash
+    
+    similarImage is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.similarImage.image;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.IOException;
+
+import javax.imageio.IIOException;
+
+import com.github.dozedoff.similarImage.duplicate.WideHash;
+import com.github.dozedoff.similarImage.image.kernel.SeparableDCT;
+
+/**
+ * DCT based perceptual hash that is wider than 64 bits. The image is scaled to a {@value #RESIZE_SIZE} pixel grayscale
+ * image, and a bit is set for every low frequency coefficient that is above the average, excluding the DC term. The
+ * coefficients are taken from a block that is {@value #BLOCK_WIDTH} frequencies wide, with as many rows as needed for
+ * the hash width.
+ * 
+ * @author Nicholas Wright
+ * 
+ */
+public class WideDctHash {
+	/**
+	 * Size of the square image used to calculate the DCT.
+	 */
+	public static final int RESIZE_SIZE = 32;
+	/**
+	 * Number of horizontal frequencies used for the hash.
+	 */
+	public static final int BLOCK_WIDTH = 16;
+	/**
+	 * Default width of the hash in bits.
+	 */
+	public static final int DEFAULT_BIT_LENGTH = 256;
+	/**
+	 * Maximum width of the hash in bits.
+	 */
+	public static final int MAX_BIT_LENGTH = BLOCK_WIDTH * RESIZE_SIZE;
+
+	private static final int BYTE_MASK = 0xFF;
+
+	private final int bitLength;
+	private final SeparableDCT dct;
+	private final ThreadLocal<BufferedImage> scaled;
+
+	/**
+	 * Create a hasher for {@value #DEFAULT_BIT_LENGTH} bit hashes.
+	 */
+	public WideDctHash() {
+		this(DEFAULT_BIT_LENGTH);
+	}
+
+	/**
+	 * Create a hasher for hashes of the given width.
+	 * 
+	 * @param bitLength
+	 *            width of the hash, must be a multiple of 64 and no more than 512
+	 */
+	public WideDctHash(int bitLength) {
+		if (bitLength <= 0 || bitLength % Long.SIZE != 0 || bitLength > MAX_BIT_LENGTH) {
+			throw new IllegalArgumentException(
+					"Hash width must be a multiple of " + Long.SIZE + " up to " + MAX_BIT_LENGTH + ", but was " + bitLength);
+		}
+
+		this.bitLength = bitLength;
+		this.dct = new SeparableDCT(RESIZE_SIZE);
+		this.scaled = ThreadLocal
+				.withInitial(() -> new BufferedImage(RESIZE_SIZE, RESIZE_SIZE, BufferedImage.TYPE_BYTE_GRAY));
+	}
+
+	/**
+	 * Get the width of the hashes produced by this hasher.
+	 * 
+	 * @return the hash width in bits
+	 */
+	public int getBitLength() {
+		return bitLength;
+	}
+
+	/**
+	 * Calculate the hash for the image.
+	 * 
+	 * @param image
+	 *            to hash
+	 * @return the calculated hash
+	 * @throws IOException
+	 *             if the image is null
+	 */
+	public WideHash hash(BufferedImage image) throws IOException {
+		if (image == null) {
+			throw new IIOException("Image is null. Did ImageIO fail to decode the image?");
+		}
+
+		double[] coefficients = dct.transformDCT(loadLuminance(image));
+
+		int rows = bitLength / BLOCK_WIDTH;
+		double total = 0;
+
+		for (int u = 0; u < rows; u++) {
+			for (int v = 0; v < BLOCK_WIDTH; v++) {
+				total += coefficients[u * RESIZE_SIZE + v];
+			}
+		}
+
+		total -= coefficients[0];
+		double average = total / (bitLength - 1);
+
+		long[] words = new long[bitLength / Long.SIZE];
+		int bit = 0;
+
+		for (int u = 0; u < rows; u++) {
+			for (int v = 0; v < BLOCK_WIDTH; v++) {
+				if (coefficients[u * RESIZE_SIZE + v] > average) {
+					words[bit / Long.SIZE] |= 1L << (Long.SIZE - 1 - (bit % Long.SIZE));
+				}
+
+				bit++;
+			}
+		}
+
+		return new WideHash(words);
+	}
+
+	private double[] loadLuminance(BufferedImage image) {
+		BufferedImage target = scaled.get();
+		Graphics2D g = target.createGraphics();
+
+		try {
+			g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+			g.drawImage(image, 0, 0, RESIZE_SIZE, RESIZE_SIZE, null);
+		} finally {
+			g.dispose();
+		}
+
+		byte[] data = ((DataBufferByte) target.getRaster().getDataBuffer()).getData();
+		double[] luminance = new double[data.length];
+
+		for (int i = 0; i < data.length; i++) {
+			luminance[i] = data[i] & BYTE_MASK;
+		}
+
+		return luminance;
+	}
+}
@@ -0,0 +1,68 @@
+/*  Copyright (C) 2017  Nicholas Wright
+    
+    This file is part of similarImage - A similar image finder using pHash
+    
+    similarImage is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.similarImage.image.kernel;
+
+/**
+ * Available implementations for calculating the DCT.
+ * 
+ * @author Nicholas Wright
+ *
+ */
+public enum DCTBackend {
+	/**
+	 * Use {@link DCTKernel}, runs on OpenCL devices if available, otherwise on the Aparapi Java thread pool.
+	 */
+	APARAPI {
+		@Override
+		public DCTTransformer create(int matrixSize, int coefficientSize) {
+			return new DCTKernel(matrixSize, coefficientSize);
+		}
+	},
+	/**
+	 * Use {@link SeparableDCT}, runs on the calling thread with a precomputed cosine table.
+	 */
+	CPU {
+		@Override
+		public DCTTransformer create(int matrixSize, int coefficientSize) {
+			return new SeparableDCT(matrixSize, coefficientSize);
+		}
+	};
+
+	/**
+	 * Create a new transformer for this backend.
+	 * 
+	 * @param matrixSize
+	 *            size of the square matrix the transformer will operate on
+	 * @return a new transformer instance
+	 */
+	public DCTTransformer create(int matrixSize) {
+		return create(matrixSize, matrixSize);
+	}
+
+	/**
+	 * Create a new transformer for this backend, that only calculates the top left block of low frequency
+	 * coefficients.
+	 * 
+	 * @param matrixSize
+	 *            size of the square matrix the transformer will operate on
+	 * @param coefficientSize
+	 *            size of the coefficient block to calculate
+	 * @return a new transformer instance
+	 */
+	public abstract DCTTransformer create(int matrixSize, int coefficientSize);
+}
@@ -0,0 +1,219 @@
+/*  Copyright (C) 2016  Nicholas Wright
+    
+    This file is part of similarImage - A similar image finder using pHash
+    
+    similarImage is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.similarImage.image.kernel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Collects matrices from multiple threads and transforms them in batches, so a {@link DCTTransformer} with a high
+ * per call cost, like the {@link DCTKernel}, is launched once per batch instead of once per matrix.<br>
+ * The thread that completes a batch runs the transform for all threads waiting on that batch. If a batch does not fill
+ * up within the maximum wait time, the waiting thread flushes the partial batch itself, so no background thread is
+ * needed.
+ * 
+ * @author Nicholas Wright
+ * 
+ */
+public class DCTBatcher {
+	/**
+	 * Default time in milliseconds a thread waits for a batch to fill up, before transforming a partial batch.
+	 */
+	public static final long DEFAULT_MAX_WAIT_MILLIS = 5;
+
+	private final DCTTransformer transformer;
+	private final int batchSize;
+	private final long maxWaitMillis;
+
+	private final Object batchLock = new Object();
+	private List<PendingMatrix> pending;
+
+	/**
+	 * Create a new batcher using the default maximum wait time.
+	 * 
+	 * @param transformer
+	 *            used to transform the batches
+	 * @param batchSize
+	 *            number of matrices to collect before the batch is transformed
+	 */
+	public DCTBatcher(DCTTransformer transformer, int batchSize) {
+		this(transformer, batchSize, DEFAULT_MAX_WAIT_MILLIS);
+	}
+
+	/**
+	 * Create a new batcher.
+	 * 
+	 * @param transformer
+	 *            used to transform the batches
+	 * @param batchSize
+	 *            number of matrices to collect before the batch is transformed
+	 * @param maxWaitMillis
+	 *            time in milliseconds to wait for a batch to fill up, before a partial batch is transformed
+	 */
+	public DCTBatcher(DCTTransformer transformer, int batchSize, long maxWaitMillis) {
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("Batch size must be at least 1");
+		}
+
+		if (maxWaitMillis < 0) {
+			throw new IllegalArgumentException("Wait time cannot be negative");
+		}
+
+		this.transformer = transformer;
+		this.batchSize = batchSize;
+		this.maxWaitMillis = maxWaitMillis;
+		this.pending = new ArrayList<>(batchSize);
+	}
+
+	/**
+	 * Get the size of the square matrix the underlying transformer operates on.
+	 * 
+	 * @return the width and height of the matrix
+	 */
+	public int getMatrixSize() {
+		return transformer.getMatrixSize();
+	}
+
+	/**
+	 * Get the size of the square block of low frequency coefficients the underlying transformer calculates.
+	 * 
+	 * @return the width and height of the coefficient block
+	 */
+	public int getCoefficientSize() {
+		return transformer.getCoefficientSize();
+	}
+
+	/**
+	 * Get the number of matrices that are collected for a batch.
+	 * 
+	 * @return the batch size
+	 */
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	/**
+	 * Add the matrix to the current batch and wait until the batch has been transformed. The matrix must not be
+	 * modified until this method returns.
+	 * 
+	 * @param matrix
+	 *            in row major order
+	 * @return a new array with the block of DCT coefficients in row major order
+	 * @throws InterruptedException
+	 *             if the thread was interrupted while waiting for the batch
+	 */
+	public double[] transformDCT(double[] matrix) throws InterruptedException {
+		PendingMatrix request = new PendingMatrix(matrix);
+		List<PendingMatrix> fullBatch = null;
+
+		synchronized (batchLock) {
+			pending.add(request);
+
+			if (pending.size() >= batchSize) {
+				fullBatch = takePending();
+			}
+		}
+
+		if (fullBatch != null) {
+			transform(fullBatch);
+		}
+
+		try {
+			return request.result.get(maxWaitMillis, TimeUnit.MILLISECONDS);
+		} catch (TimeoutException e) {
+			flush();
+			return awaitResult(request);
+		} catch (ExecutionException e) {
+			throw unwrap(e);
+		}
+	}
+
+	/**
+	 * Transform all matrices that are waiting for a batch to fill up.
+	 */
+	public void flush() {
+		List<PendingMatrix> partialBatch;
+
+		synchronized (batchLock) {
+			partialBatch = takePending();
+		}
+
+		transform(partialBatch);
+	}
+
+	private List<PendingMatrix> takePending() {
+		List<PendingMatrix> batch = pending;
+		pending = new ArrayList<>(batchSize);
+		return batch;
+	}
+
+	private void transform(List<PendingMatrix> batch) {
+		if (batch.isEmpty()) {
+			return;
+		}
+
+		double[][] matrices = new double[batch.size()][];
+
+		for (int i = 0; i < matrices.length; i++) {
+			matrices[i] = batch.get(i).matrix;
+		}
+
+		try {
+			double[][] results = transformer.transformDCT(matrices);
+
+			for (int i = 0; i < matrices.length; i++) {
+				batch.get(i).result.complete(results[i]);
+			}
+		} catch (RuntimeException e) {
+			for (PendingMatrix request : batch) {
+				request.result.completeExceptionally(e);
+			}
+		}
+	}
+
+	private double[] awaitResult(PendingMatrix request) throws InterruptedException {
+		try {
+			return request.result.get();
+		} catch (ExecutionException e) {
+			throw unwrap(e);
+		}
+	}
+
+	private RuntimeException unwrap(ExecutionException e) {
+		Throwable cause = e.getCause();
+
+		if (cause instanceof RuntimeException) {
+			return (RuntimeException) cause;
+		}
+
+		return new IllegalStateException("Failed to transform DCT batch", cause);
+	}
+
+	private static final class PendingMatrix {
+		private final double[] matrix;
+		private final CompletableFuture<double[]> result = new CompletableFuture<>();
+
+		PendingMatrix(double[] matrix) {
+			this.matrix = matrix;
+		}
+	}
+}
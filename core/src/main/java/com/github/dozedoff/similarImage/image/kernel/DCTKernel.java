@@ -17,22 +17,33 @@
  */
 package com.github.dozedoff.similarImage.image.kernel;
 
+import java.util.Arrays;
+
 import com.aparapi.Kernel;
 import com.aparapi.Range;
 import com.aparapi.device.Device;
 import com.aparapi.internal.kernel.KernelManager;
-import com.google.common.primitives.Doubles;
 
-public class DCTKernel extends Kernel {
+/**
+ * Aparapi kernel for calculating the DCT. Will run on OpenCL devices if available. Batches of matrices are transformed
+ * with a single launch of a 3D range, where the third dimension selects the matrix.
+ * 
+ * @author Nicholas Wright
+ *
+ * @see SeparableDCT for a CPU implementation
+ */
+public class DCTKernel extends Kernel implements DCTTransformer {
 	public static final int DEFAULT_MATRIX_SIZE = 8;
 	private final int N; // matrix size
 	private final int matrixArea;
+	private final int coefficientSize;
+	private final int coefficientArea;
 	private final double[] dctCoefficients;
-	private final double[] matrix;
-	private final double[] result;
+	private double[] matrix;
+	private double[] result;
 
 	private Device device;
-	private Range range;
+	private int batchCapacity;
 
 	/**
 	 * Create a new DCT kernel for a 8x8 matrix;
@@ -48,18 +59,53 @@ public class DCTKernel extends Kernel {
 	 *            size of the matrix that this kernel will opoerate on
 	 */
 	public DCTKernel(int matrixSize) {
+		this(matrixSize, matrixSize);
+	}
+
+	/**
+	 * Create a new DCT kernel for the given size, that only calculates the top left block of low frequency
+	 * coefficients. The launch range is limited to this block, so no work items are spent on coefficients that are
+	 * discarded.
+	 * 
+	 * @param matrixSize
+	 *            size of the matrix that this kernel will operate on
+	 * @param coefficientSize
+	 *            size of the coefficient block to calculate, between 1 and the matrix size
+	 */
+	public DCTKernel(int matrixSize, int coefficientSize) {
+		if (coefficientSize < 1 || coefficientSize > matrixSize) {
+			throw new IllegalArgumentException("Coefficient size must be between 1 and " + matrixSize);
+		}
+
 		this.N = matrixSize;
 		this.matrixArea = N*N;
-		this.matrix = new double[matrixArea];
-		this.result = new double[matrixArea];
+		this.coefficientSize = coefficientSize;
+		this.coefficientArea = coefficientSize * coefficientSize;
 		this.dctCoefficients = new double[N];
 		initCoefficients();
+		ensureBatchCapacity(1);
 
 		setDevice(KernelManager.instance().bestDevice());
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getMatrixSize() {
+		return N;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getCoefficientSize() {
+		return coefficientSize;
+	}
+
 	public void setDevice(Device device) {
-		range = Range.create2D(device, N, N);
+		this.device = device;
 	}
 
 	private void initCoefficients() {
@@ -70,21 +116,37 @@ public class DCTKernel extends Kernel {
 		dctCoefficients[0] = 1 / Math.sqrt(2.0);
 	}
 
+	/**
+	 * Grow the kernel buffers so they can hold the given number of matrices. The buffers are kept for following
+	 * batches, so they are only re-allocated (and re-transferred) when a larger batch is seen.
+	 */
+	private void ensureBatchCapacity(int batchSize) {
+		if (batchSize <= batchCapacity) {
+			return;
+		}
+
+		matrix = new double[matrixArea * batchSize];
+		result = new double[coefficientArea * batchSize];
+		batchCapacity = batchSize;
+	}
+
 	@Override
 	public void run() {
 		int u = getGlobalId(0);
 		int v = getGlobalId(1);
+		int batchIndex = getGlobalId(2);
+		int offset = batchIndex * matrixArea;
 
 		double sum = 0.0;
 
 		for (int g = 0; g < matrixArea; g++) {
 			sum += cos(((2 * (g / N) + 1) / (2.0 * N)) * u * Math.PI)
-					* cos(((2 * (g % N) + 1) / (2.0 * N)) * v * Math.PI) * (matrix[g]);
+					* cos(((2 * (g % N) + 1) / (2.0 * N)) * v * Math.PI) * (matrix[offset + g]);
 		}
 
 		sum *= ((dctCoefficients[u] * dctCoefficients[v]) / 4.0);
 
-		result[u * N + v] = sum;
+		result[batchIndex * coefficientArea + u * coefficientSize + v] = sum;
 	}
 
 	/**
@@ -94,13 +156,41 @@ public class DCTKernel extends Kernel {
 	 * 
 	 * @see DCT function from http://stackoverflow.com/questions/4240490/problems-with-dct-and-idct-algorithm-in-java
 	 */
-	public synchronized double[] transformDCT(double[] matrix) {
-		for (int i = 0; i < matrixArea; i++) {
-			this.matrix[i] = matrix[i];
+	@Override
+	public double[] transformDCT(double[] matrix) {
+		return transformDCT(new double[][] { matrix })[0];
+	}
+
+	/**
+	 * Transform all matrices with a single kernel launch. The kernel can only run one launch at a time, so callers
+	 * should collect matrices into batches (see {@link DCTBatcher}) instead of calling this for every matrix.
+	 * 
+	 * @param matrices
+	 *            to transform, each in row major order
+	 * @return a new array with the DCT coefficients for each matrix, in the same order as the input
+	 */
+	@Override
+	public synchronized double[][] transformDCT(double[][] matrices) {
+		int batchSize = matrices.length;
+
+		if (batchSize == 0) {
+			return new double[0][];
+		}
+
+		ensureBatchCapacity(batchSize);
+
+		for (int i = 0; i < batchSize; i++) {
+			System.arraycopy(matrices[i], 0, this.matrix, i * matrixArea, matrixArea);
 		}
 
-		execute(range);
+		execute(Range.create3D(device, coefficientSize, coefficientSize, batchSize));
+
+		double[][] results = new double[batchSize][];
+
+		for (int i = 0; i < batchSize; i++) {
+			results[i] = Arrays.copyOfRange(result, i * coefficientArea, (i + 1) * coefficientArea);
+		}
 
-		return Doubles.concat(result);
+		return results;
 	}
 }
@@ -0,0 +1,70 @@
+/*  Copyright (C) 2017  Nicholas Wright
+    
+    This file is part of similarImage - A similar image finder using pHash
+    
+    similarImage is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.similarImage.image.kernel;
+
+/**
+ * Calculates the two dimensional DCT for square matrices of a fixed size.
+ * 
+ * @author Nicholas Wright
+ *
+ */
+public interface DCTTransformer {
+	/**
+	 * Get the size of the square matrix this transformer operates on.
+	 * 
+	 * @return the width and height of the matrix
+	 */
+	int getMatrixSize();
+
+	/**
+	 * Get the size of the square block of low frequency coefficients this transformer calculates. The results only
+	 * contain this top left block of the full DCT.
+	 * 
+	 * @return the width and height of the coefficient block
+	 */
+	default int getCoefficientSize() {
+		return getMatrixSize();
+	}
+
+	/**
+	 * Calculate the DCT for the matrix.
+	 * 
+	 * @param matrix
+	 *            in row major order
+	 * @return a new array with the {@link #getCoefficientSize()} block of DCT coefficients in row major order
+	 */
+	double[] transformDCT(double[] matrix);
+
+	/**
+	 * Calculate the DCT for a batch of matrices. The default implementation transforms the matrices one after another,
+	 * implementations with a high per call overhead should override this to process the whole batch at once.
+	 * 
+	 * @param matrices
+	 *            to transform, each in row major order
+	 * @return a new array with the DCT coefficients for each matrix, in the same order as the input
+	 */
+	default double[][] transformDCT(double[][] matrices) {
+		double[][] results = new double[matrices.length][];
+
+		for (int i = 0; i < matrices.length; i++) {
+			results[i] = transformDCT(matrices[i]);
+		}
+
+		return results;
+	}
+}
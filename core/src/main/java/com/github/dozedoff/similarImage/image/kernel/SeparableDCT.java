@@ -0,0 +1,171 @@
+/*  Copyright (C) 2017  Nicholas Wright
+    
+    This file is part of similarImage - A similar image finder using pHash
+    
+    similarImage is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.similarImage.image.kernel;
+
+/**
+ * CPU implementation of the DCT used by {@link DCTKernel}. The cosine terms are calculated once when the instance is
+ * created and the transform is split into a row and a column pass, reducing the work per matrix from O(N^4) to
+ * O(N^3) without any trigonometric calls. This class is thread-safe, each thread uses its own intermediate buffer.
+ * 
+ * @author Nicholas Wright
+ *
+ */
+public class SeparableDCT implements DCTTransformer {
+	private final int N; // matrix size
+	private final int matrixArea;
+	private final int coefficientSize;
+	private final int coefficientArea;
+	/**
+	 * Cosine table, indexed by [frequency * N + sample]
+	 */
+	private final double[] cosineTable;
+	private final double[] dctCoefficients;
+	private final ThreadLocal<double[]> intermediate;
+
+	/**
+	 * Create a new DCT for a 8x8 matrix.
+	 */
+	public SeparableDCT() {
+		this(DCTKernel.DEFAULT_MATRIX_SIZE);
+	}
+
+	/**
+	 * Create a new DCT for the given size.
+	 * 
+	 * @param matrixSize
+	 *            size of the matrix that this instance will operate on
+	 */
+	public SeparableDCT(int matrixSize) {
+		this(matrixSize, matrixSize);
+	}
+
+	/**
+	 * Create a new DCT for the given size, that only calculates the top left block of low frequency coefficients. Both
+	 * passes skip the frequencies outside the block.
+	 * 
+	 * @param matrixSize
+	 *            size of the matrix that this instance will operate on
+	 * @param coefficientSize
+	 *            size of the coefficient block to calculate, between 1 and the matrix size
+	 */
+	public SeparableDCT(int matrixSize, int coefficientSize) {
+		if (coefficientSize < 1 || coefficientSize > matrixSize) {
+			throw new IllegalArgumentException("Coefficient size must be between 1 and " + matrixSize);
+		}
+
+		this.N = matrixSize;
+		this.matrixArea = N * N;
+		this.coefficientSize = coefficientSize;
+		this.coefficientArea = coefficientSize * coefficientSize;
+		this.cosineTable = new double[matrixArea];
+		this.dctCoefficients = new double[N];
+		this.intermediate = ThreadLocal.withInitial(() -> new double[N * coefficientSize]);
+
+		initCosineTable();
+		initCoefficients();
+	}
+
+	private void initCosineTable() {
+		for (int u = 0; u < N; u++) {
+			for (int i = 0; i < N; i++) {
+				cosineTable[u * N + i] = Math.cos(((2 * i + 1) / (2.0 * N)) * u * Math.PI);
+			}
+		}
+	}
+
+	private void initCoefficients() {
+		for (int i = 1; i < N; i++) {
+			dctCoefficients[i] = 1;
+		}
+
+		dctCoefficients[0] = 1 / Math.sqrt(2.0);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getMatrixSize() {
+		return N;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getCoefficientSize() {
+		return coefficientSize;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public double[] transformDCT(double[] matrix) {
+		double[] result = new double[coefficientArea];
+		transformDCT(matrix, 0, result, 0);
+		return result;
+	}
+
+	/**
+	 * Calculate the DCT for a matrix stored in a larger array and write the coefficient block into the result array.
+	 * Input and output are in row major order.
+	 * 
+	 * @param matrix
+	 *            array containing the matrix
+	 * @param matrixOffset
+	 *            index of the first element of the matrix
+	 * @param result
+	 *            array to write the coefficients to
+	 * @param resultOffset
+	 *            index where the first coefficient will be written
+	 */
+	public void transformDCT(double[] matrix, int matrixOffset, double[] result, int resultOffset) {
+		double[] rowPass = intermediate.get();
+
+		for (int i = 0; i < N; i++) {
+			int row = matrixOffset + i * N;
+
+			for (int v = 0; v < coefficientSize; v++) {
+				int basis = v * N;
+				double sum = 0.0;
+
+				for (int j = 0; j < N; j++) {
+					sum += cosineTable[basis + j] * matrix[row + j];
+				}
+
+				rowPass[i * coefficientSize + v] = sum;
+			}
+		}
+
+		for (int u = 0; u < coefficientSize; u++) {
+			int basis = u * N;
+
+			for (int v = 0; v < coefficientSize; v++) {
+				double sum = 0.0;
+
+				for (int i = 0; i < N; i++) {
+					sum += cosineTable[basis + i] * rowPass[i * coefficientSize + v];
+				}
+
+				double scale = (dctCoefficients[u] * dctCoefficients[v]) / 4.0;
+				result[resultOffset + u * coefficientSize + v] = sum * scale;
+			}
+		}
+	}
+}
@@ -0,0 +1,119 @@
+/*  Copyright (C) 2016  Nicholas Wright
+    
+    This file is part of similarImage - A similar image finder using pHash
+    
+    similarImage is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.similarImage.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageInputStreamImpl;
+
+/**
+ * {@link ImageInputStream} that reads directly from a {@link ByteBuffer}, without copying the data into a cache. The
+ * position and limit of the given buffer are not modified.
+ * 
+ * @author Nicholas Wright
+ * 
+ */
+public class ByteBufferImageInputStream extends ImageInputStreamImpl {
+	private static final int BYTE_MASK = 0xFF;
+
+	private final ByteBuffer buffer;
+
+	/**
+	 * Create a stream for the remaining bytes of the buffer.
+	 * 
+	 * @param buffer
+	 *            containing the image data
+	 */
+	public ByteBufferImageInputStream(ByteBuffer buffer) {
+		this.buffer = buffer.slice();
+	}
+
+	/**
+	 * Create a stream for the byte array.
+	 * 
+	 * @param data
+	 *            containing the image data
+	 */
+	public ByteBufferImageInputStream(byte[] data) {
+		this(ByteBuffer.wrap(data));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int read() throws IOException {
+		checkClosed();
+		bitOffset = 0;
+
+		if (streamPos >= buffer.limit()) {
+			return -1;
+		}
+
+		return buffer.get((int) streamPos++) & BYTE_MASK;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		checkClosed();
+		bitOffset = 0;
+
+		if (len == 0) {
+			return 0;
+		}
+
+		int remaining = buffer.limit() - (int) streamPos;
+
+		if (remaining <= 0) {
+			return -1;
+		}
+
+		int count = Math.min(len, remaining);
+		ByteBuffer view = buffer.duplicate();
+		view.position((int) streamPos);
+		view.get(b, off, count);
+		streamPos += count;
+
+		return count;
+	}
+
+	/**
+	 * Returns the number of bytes in the buffer.
+	 * 
+	 * @return length of the image data
+	 */
+	@Override
+	public long length() {
+		return buffer.limit();
+	}
+
+	/**
+	 * The data is already in memory, so nothing is cached.
+	 * 
+	 * @return always false
+	 */
+	@Override
+	public boolean isCached() {
+		return false;
+	}
+}
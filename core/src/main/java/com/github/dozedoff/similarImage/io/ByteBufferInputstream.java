@@ -47,6 +47,33 @@ public class ByteBufferInputstream extends InputStream {
 		}
 	}
 
+	/**
+	 * Copy up to len bytes from the buffer in a single bulk operation.
+	 * 
+	 * @param b
+	 *            array to copy the data into
+	 * @param off
+	 *            offset in the array
+	 * @param len
+	 *            maximum number of bytes to copy
+	 * @return the number of bytes copied, or -1 if the buffer has no remaining data
+	 */
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+
+		if (!buffer.hasRemaining()) {
+			return -1;
+		}
+
+		int count = Math.min(len, buffer.remaining());
+		buffer.get(b, off, count);
+
+		return count;
+	}
+
 	/**
 	 * Returns {@link ByteBuffer#remaining()} of the underlying buffer.
 	 * 
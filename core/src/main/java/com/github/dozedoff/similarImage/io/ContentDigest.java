@@ -0,0 +1,267 @@
+/*  Copyright (C) 2016  Nicholas Wright
+    
+    This file is part of similarImage - A similar image finder using pHash
+    
+    similarImage is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.similarImage.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Streaming 64 bit XXH64 digest of file contents. It is not cryptographic, but fast enough to be calculated for every
+ * file and good enough to detect byte-identical files, together with the file size. Instances are not thread-safe.
+ * 
+ * @author Nicholas Wright
+ * 
+ */
+public class ContentDigest {
+	private static final long PRIME64_1 = 0x9E3779B185EBCA87L;
+	private static final long PRIME64_2 = 0xC2B2AE3D27D4EB4FL;
+	private static final long PRIME64_3 = 0x165667B19E3779F9L;
+	private static final long PRIME64_4 = 0x85EBCA77C2B2AE63L;
+	private static final long PRIME64_5 = 0x27D4EB2F165667C5L;
+
+	private static final int STRIPE_SIZE = 32;
+	private static final int BUFFER_SIZE = 8192;
+	private static final int BYTE_MASK = 0xFF;
+
+	private final long seed;
+	private final byte[] stripe = new byte[STRIPE_SIZE];
+
+	private long v1;
+	private long v2;
+	private long v3;
+	private long v4;
+	private int stripeLength;
+	private long totalLength;
+
+	/**
+	 * Create a new digest with a seed of 0.
+	 */
+	public ContentDigest() {
+		this(0);
+	}
+
+	/**
+	 * Create a new digest with the given seed.
+	 * 
+	 * @param seed
+	 *            for the digest
+	 */
+	public ContentDigest(long seed) {
+		this.seed = seed;
+		reset();
+	}
+
+	/**
+	 * Calculate the digest of a byte array.
+	 * 
+	 * @param data
+	 *            to digest
+	 * @return the digest of the data
+	 */
+	public static long digest(byte[] data) {
+		ContentDigest digest = new ContentDigest();
+		digest.update(data, 0, data.length);
+		return digest.getValue();
+	}
+
+	/**
+	 * Calculate the digest of the remaining bytes of a buffer. The position of the buffer is not modified.
+	 * 
+	 * @param data
+	 *            to digest
+	 * @return the digest of the data
+	 */
+	public static long digest(ByteBuffer data) {
+		ContentDigest digest = new ContentDigest();
+		digest.update(data);
+		return digest.getValue();
+	}
+
+	/**
+	 * Read the stream to the end and calculate the digest. The stream is not closed.
+	 * 
+	 * @param is
+	 *            to read
+	 * @return the digest of the stream contents
+	 * @throws IOException
+	 *             if there is an error reading the stream
+	 */
+	public static long digest(InputStream is) throws IOException {
+		ContentDigest digest = new ContentDigest();
+		byte[] buffer = new byte[BUFFER_SIZE];
+		int read;
+
+		while ((read = is.read(buffer)) != -1) {
+			digest.update(buffer, 0, read);
+		}
+
+		return digest.getValue();
+	}
+
+	/**
+	 * Reset the digest to the initial state.
+	 */
+	public final void reset() {
+		v1 = seed + PRIME64_1 + PRIME64_2;
+		v2 = seed + PRIME64_2;
+		v3 = seed;
+		v4 = seed - PRIME64_1;
+		stripeLength = 0;
+		totalLength = 0;
+	}
+
+	/**
+	 * Add data to the digest.
+	 * 
+	 * @param data
+	 *            to add
+	 * @param offset
+	 *            of the first byte to add
+	 * @param length
+	 *            number of bytes to add
+	 */
+	public void update(byte[] data, int offset, int length) {
+		totalLength += length;
+		int end = offset + length;
+
+		if (stripeLength > 0) {
+			int fill = Math.min(STRIPE_SIZE - stripeLength, length);
+			System.arraycopy(data, offset, stripe, stripeLength, fill);
+			stripeLength += fill;
+			offset += fill;
+
+			if (stripeLength < STRIPE_SIZE) {
+				return;
+			}
+
+			processStripe(stripe, 0);
+			stripeLength = 0;
+		}
+
+		while (offset <= end - STRIPE_SIZE) {
+			processStripe(data, offset);
+			offset += STRIPE_SIZE;
+		}
+
+		stripeLength = end - offset;
+		System.arraycopy(data, offset, stripe, 0, stripeLength);
+	}
+
+	/**
+	 * Add the remaining bytes of the buffer to the digest. The position of the buffer is not modified. Buffers that are
+	 * not backed by an array, such as direct or mapped buffers, are copied in small chunks.
+	 * 
+	 * @param data
+	 *            to add
+	 */
+	public void update(ByteBuffer data) {
+		if (data.hasArray()) {
+			update(data.array(), data.arrayOffset() + data.position(), data.remaining());
+			return;
+		}
+
+		ByteBuffer view = data.duplicate();
+		byte[] chunk = new byte[Math.min(BUFFER_SIZE, view.remaining())];
+
+		while (view.hasRemaining()) {
+			int length = Math.min(chunk.length, view.remaining());
+			view.get(chunk, 0, length);
+			update(chunk, 0, length);
+		}
+	}
+
+	private void processStripe(byte[] data, int offset) {
+		v1 = round(v1, readLong(data, offset));
+		v2 = round(v2, readLong(data, offset + 8));
+		v3 = round(v3, readLong(data, offset + 16));
+		v4 = round(v4, readLong(data, offset + 24));
+	}
+
+	/**
+	 * Get the digest of all data added so far. The state is not modified, so more data can be added.
+	 * 
+	 * @return the current digest
+	 */
+	public long getValue() {
+		long hash;
+
+		if (totalLength >= STRIPE_SIZE) {
+			hash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+			hash = mergeRound(hash, v1);
+			hash = mergeRound(hash, v2);
+			hash = mergeRound(hash, v3);
+			hash = mergeRound(hash, v4);
+		} else {
+			hash = seed + PRIME64_5;
+		}
+
+		hash += totalLength;
+
+		int offset = 0;
+
+		while (offset + Long.BYTES <= stripeLength) {
+			hash ^= round(0, readLong(stripe, offset));
+			hash = Long.rotateLeft(hash, 27) * PRIME64_1 + PRIME64_4;
+			offset += Long.BYTES;
+		}
+
+		if (offset + Integer.BYTES <= stripeLength) {
+			hash ^= (readInt(stripe, offset) & 0xFFFFFFFFL) * PRIME64_1;
+			hash = Long.rotateLeft(hash, 23) * PRIME64_2 + PRIME64_3;
+			offset += Integer.BYTES;
+		}
+
+		while (offset < stripeLength) {
+			hash ^= (stripe[offset] & BYTE_MASK) * PRIME64_5;
+			hash = Long.rotateLeft(hash, 11) * PRIME64_1;
+			offset++;
+		}
+
+		hash ^= hash >>> 33;
+		hash *= PRIME64_2;
+		hash ^= hash >>> 29;
+		hash *= PRIME64_3;
+		hash ^= hash >>> 32;
+
+		return hash;
+	}
+
+	private static long round(long accumulator, long input) {
+		accumulator += input * PRIME64_2;
+		accumulator = Long.rotateLeft(accumulator, 31);
+		return accumulator * PRIME64_1;
+	}
+
+	private static long mergeRound(long accumulator, long value) {
+		accumulator ^= round(0, value);
+		return accumulator * PRIME64_1 + PRIME64_4;
+	}
+
+	private static long readLong(byte[] data, int offset) {
+		return (data[offset] & 0xFFL) | (data[offset + 1] & 0xFFL) << 8 | (data[offset + 2] & 0xFFL) << 16
+				| (data[offset + 3] & 0xFFL) << 24 | (data[offset + 4] & 0xFFL) << 32
+				| (data[offset + 5] & 0xFFL) << 40 | (data[offset + 6] & 0xFFL) << 48
+				| (data[offset + 7] & 0xFFL) << 56;
+	}
+
+	private static int readInt(byte[] data, int offset) {
+		return (data[offset] & BYTE_MASK) | (data[offset + 1] & BYTE_MASK) << 8 | (data[offset + 2] & BYTE_MASK) << 16
+				| (data[offset + 3] & BYTE_MASK) << 24;
+	}
+}
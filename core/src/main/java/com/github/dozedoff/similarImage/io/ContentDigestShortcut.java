@@ -0,0 +1,115 @@
+/*  Copyright (C) 2016  Nicholas Wright
+    
+    This file is part of similarImage - A similar image finder using pHash
+    
+    similarImage is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.similarImage.io;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.github.dozedoff.similarImage.db.ImageRecord;
+import com.github.dozedoff.similarImage.db.repository.ImageRepository;
+import com.github.dozedoff.similarImage.db.repository.RepositoryException;
+
+/**
+ * Re-uses the hash of a byte-identical file that has already been hashed. Files are matched by size and
+ * {@link ContentDigest}, so a copy of a known image can be stored without decoding it.
+ * 
+ * @author Nicholas Wright
+ * 
+ */
+public class ContentDigestShortcut {
+	private static final Logger LOGGER = LoggerFactory.getLogger(ContentDigestShortcut.class);
+
+	public static final String METRIC_NAME_DIGEST_HIT = MetricRegistry.name(ContentDigestShortcut.class, "digest",
+			"hit");
+	public static final String METRIC_NAME_DIGEST_MISS = MetricRegistry.name(ContentDigestShortcut.class, "digest",
+			"miss");
+
+	private final ImageRepository imageRepository;
+	private final Counter hits;
+	private final Counter misses;
+
+	/**
+	 * Create a shortcut that looks up and stores records in the given repository.
+	 * 
+	 * @param imageRepository
+	 *            access to the image datasource
+	 * @param metrics
+	 *            registry for tracking hits and misses
+	 */
+	public ContentDigestShortcut(ImageRepository imageRepository, MetricRegistry metrics) {
+		this.imageRepository = imageRepository;
+		this.hits = metrics.counter(METRIC_NAME_DIGEST_HIT);
+		this.misses = metrics.counter(METRIC_NAME_DIGEST_MISS);
+	}
+
+	/**
+	 * If a record with the same size and digest exists, store a copy of it for the given path.
+	 * 
+	 * @param path
+	 *            of the file
+	 * @param fileSize
+	 *            size of the file in bytes
+	 * @param digest
+	 *            of the file contents
+	 * @return the stored record, or null if there was no matching record
+	 * @throws RepositoryException
+	 *             if there is an error accessing the datasource
+	 */
+	public ImageRecord copyExisting(Path path, long fileSize, long digest) throws RepositoryException {
+		List<ImageRecord> identical = imageRepository.getByContentDigest(fileSize, digest);
+
+		if (identical.isEmpty()) {
+			misses.inc();
+			return null;
+		}
+
+		ImageRecord existing = identical.get(0);
+		ImageRecord copy = new ImageRecord(path.toString(), existing.getpHash(), existing.getWideHash(), fileSize,
+				digest);
+		imageRepository.store(copy);
+		hits.inc();
+
+		LOGGER.trace("Re-used hash of identical file {} for {}", existing.getPath(), path);
+
+		return copy;
+	}
+
+	/**
+	 * Store the hash of a file together with its size and digest, so that it can be found by
+	 * {@link #copyExisting(Path, long, long)}.
+	 * 
+	 * @param path
+	 *            of the file
+	 * @param hash
+	 *            of the image
+	 * @param fileSize
+	 *            size of the file in bytes
+	 * @param digest
+	 *            of the file contents
+	 * @throws RepositoryException
+	 *             if there is an error accessing the datasource
+	 */
+	public void store(Path path, long hash, long fileSize, long digest) throws RepositoryException {
+		imageRepository.store(new ImageRecord(path.toString(), hash, null, fileSize, digest));
+	}
+}
@@ -0,0 +1,131 @@
+/*  Copyright (C) 2016  Nicholas Wright
+    
+    This file is part of similarImage - A similar image finder using pHash
+    
+    similarImage is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.similarImage.io;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import com.github.dozedoff.similarImage.db.DirectoryRecord;
+
+/**
+ * Cheap fingerprint of a directory listing, consisting of the modification time, the number of entries and an order
+ * independent hash of the entry names. Adding, removing or renaming an entry changes the fingerprint, modifying the
+ * contents of a file does not.
+ * 
+ * @author Nicholas Wright
+ * 
+ */
+public final class DirectoryFingerprint {
+	private final Path directory;
+	private final long lastModified;
+	private final int entryCount;
+	private final long listingHash;
+
+	private DirectoryFingerprint(Path directory, long lastModified, int entryCount, long listingHash) {
+		this.directory = directory;
+		this.lastModified = lastModified;
+		this.entryCount = entryCount;
+		this.listingHash = listingHash;
+	}
+
+	/**
+	 * List the directory and calculate the fingerprint. Sub-directories are not listed.
+	 * 
+	 * @param directory
+	 *            to fingerprint
+	 * @return the current fingerprint of the directory
+	 * @throws IOException
+	 *             if the directory could not be read
+	 */
+	public static DirectoryFingerprint of(Path directory) throws IOException {
+		long lastModified = Files.getLastModifiedTime(directory).toMillis();
+		int entryCount = 0;
+		long listingHash = 0;
+
+		try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+			for (Path entry : entries) {
+				entryCount++;
+				listingHash += ContentDigest.digest(entry.getFileName().toString().getBytes(StandardCharsets.UTF_8));
+			}
+		}
+
+		return new DirectoryFingerprint(directory, lastModified, entryCount, listingHash);
+	}
+
+	/**
+	 * Get the directory of this fingerprint.
+	 * 
+	 * @return path of the directory
+	 */
+	public Path getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * Get the modification time of the directory.
+	 * 
+	 * @return modification time in milliseconds
+	 */
+	public long getLastModified() {
+		return lastModified;
+	}
+
+	/**
+	 * Get the number of entries in the directory.
+	 * 
+	 * @return number of files and directories
+	 */
+	public int getEntryCount() {
+		return entryCount;
+	}
+
+	/**
+	 * Get the hash of the entry names.
+	 * 
+	 * @return hash of the listing
+	 */
+	public long getListingHash() {
+		return listingHash;
+	}
+
+	/**
+	 * Check if the stored record has the same fingerprint.
+	 * 
+	 * @param record
+	 *            to compare to
+	 * @return true if the directory is unchanged since the record was stored
+	 */
+	public boolean matches(DirectoryRecord record) {
+		return lastModified == record.getLastModified() && entryCount == record.getEntryCount()
+				&& listingHash == record.getListingHash();
+	}
+
+	/**
+	 * Create a record for storing this fingerprint.
+	 * 
+	 * @param fileCount
+	 *            number of accepted files in the directory
+	 * @return a new record with this fingerprint
+	 */
+	public DirectoryRecord toRecord(int fileCount) {
+		return new DirectoryRecord(directory.toString(), lastModified, entryCount, listingHash, fileCount);
+	}
+}
@@ -0,0 +1,129 @@
+/*  Copyright (C) 2016  Nicholas Wright
+    
+    This file is part of similarImage - A similar image finder using pHash
+    
+    similarImage is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.similarImage.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Loads files into {@link ByteBuffer}s. Files at or above the map threshold are memory-mapped, so they are not copied
+ * into heap arrays. Smaller files are read into a heap buffer, as mapping them costs more than the copy. Direct buffers
+ * are not used for small files, their memory is only released by garbage collection, so loading many small files
+ * can run out of direct memory before the heap is full. If the file system does not support mapping, the file is read
+ * into a heap buffer instead.<br>
+ * The returned buffers are read-only views of the file data, positioned at the start of the file.
+ * 
+ * @author Nicholas Wright
+ * 
+ */
+public class MappedFileLoader {
+	private static final Logger LOGGER = LoggerFactory.getLogger(MappedFileLoader.class);
+
+	/**
+	 * Files smaller than this are read instead of mapped.
+	 */
+	public static final int DEFAULT_MAP_THRESHOLD = 64 * 1024;
+
+	private final int mapThreshold;
+
+	/**
+	 * Create a loader that maps files of {@link #DEFAULT_MAP_THRESHOLD} bytes or larger.
+	 */
+	public MappedFileLoader() {
+		this(DEFAULT_MAP_THRESHOLD);
+	}
+
+	/**
+	 * Create a loader that maps files with the given minimum size.
+	 * 
+	 * @param mapThreshold
+	 *            files with at least this many bytes are mapped, smaller files are read
+	 */
+	public MappedFileLoader(int mapThreshold) {
+		if (mapThreshold < 0) {
+			throw new IllegalArgumentException("Map threshold cannot be negative");
+		}
+
+		this.mapThreshold = mapThreshold;
+	}
+
+	/**
+	 * Get the size at which files are mapped instead of read.
+	 * 
+	 * @return the minimum size of mapped files in bytes
+	 */
+	public int getMapThreshold() {
+		return mapThreshold;
+	}
+
+	/**
+	 * Load the file into a buffer.
+	 * 
+	 * @param path
+	 *            of the file to load
+	 * @return a read-only buffer containing the file data
+	 * @throws IOException
+	 *             if the file could not be read, or is too large for a buffer
+	 */
+	public ByteBuffer load(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long size = channel.size();
+
+			if (size > Integer.MAX_VALUE) {
+				throw new IOException("File " + path + " is too large to load (" + size + " bytes)");
+			}
+
+			if (size >= mapThreshold) {
+				ByteBuffer mapped = map(channel, path, size);
+
+				if (mapped != null) {
+					return mapped;
+				}
+			}
+
+			return read(channel, (int) size);
+		}
+	}
+
+	private ByteBuffer map(FileChannel channel, Path path, long size) {
+		try {
+			return channel.map(MapMode.READ_ONLY, 0, size);
+		} catch (IOException | UnsupportedOperationException e) {
+			LOGGER.debug("Failed to map {}, reading instead: {}", path, e.toString());
+			return null;
+		}
+	}
+
+	private ByteBuffer read(FileChannel channel, int size) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(size);
+
+		while (buffer.hasRemaining() && channel.read(buffer) != -1) {
+			// read until the buffer is full
+		}
+
+		buffer.flip();
+		return buffer.asReadOnlyBuffer();
+	}
+}
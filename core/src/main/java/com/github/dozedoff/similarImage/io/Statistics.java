@@ -25,11 +25,12 @@ public class Statistics {
 	private final AtomicInteger processedFiles = new AtomicInteger();
 	private final AtomicInteger failedFiles = new AtomicInteger();
 	private final AtomicInteger skippedFiles = new AtomicInteger();
+	private final AtomicInteger skippedDirectories = new AtomicInteger();
 
 	private LinkedList<StatisticsChangedListener> statisticsChangedListners = new LinkedList<>();
 
 	public enum StatisticsEvent {
-		FOUND_FILES, PROCESSED_FILES, FAILED_FILES, SKIPPED_FILES
+		FOUND_FILES, PROCESSED_FILES, FAILED_FILES, SKIPPED_FILES, SKIPPED_DIRECTORIES
 	}
 
 	public int getFoundFiles() {
@@ -64,11 +65,36 @@ public class Statistics {
 		dispatchEvent(StatisticsEvent.SKIPPED_FILES, skippedFiles.incrementAndGet());
 	}
 
+	/**
+	 * Add files that were skipped without being visited, e.g. because their directory is unchanged.
+	 * 
+	 * @param count
+	 *            number of skipped files
+	 */
+	public void addSkippedFiles(int count) {
+		dispatchEvent(StatisticsEvent.SKIPPED_FILES, skippedFiles.addAndGet(count));
+	}
+
+	public int getSkippedDirectories() {
+		return skippedDirectories.get();
+	}
+
+	/**
+	 * Add directories that were skipped without being listed, because they are unchanged since the last scan.
+	 * 
+	 * @param count
+	 *            number of skipped directories
+	 */
+	public void addSkippedDirectories(int count) {
+		dispatchEvent(StatisticsEvent.SKIPPED_DIRECTORIES, skippedDirectories.addAndGet(count));
+	}
+
 	public void reset() {
 		foundFiles.set(0);
 		failedFiles.set(0);
 		processedFiles.set(0);
 		skippedFiles.set(0);
+		skippedDirectories.set(0);
 	}
 
 	public void addStatisticsListener(StatisticsChangedListener listener) {
@@ -33,6 +33,10 @@ import org.cfg4j.source.files.FilesConfigurationSource;
 import org.cfg4j.source.inmemory.InMemoryConfigurationSource;
 
 import com.github.dozedoff.similarImage.app.MainSetting;
+import com.github.dozedoff.similarImage.duplicate.HammingIndexType;
+import com.github.dozedoff.similarImage.image.kernel.DCTBackend;
+import com.github.dozedoff.similarImage.thread.BoundedExecutor;
+import com.github.dozedoff.similarImage.thread.ParallelDirectoryWalker;
 
 import dagger.Module;
 import dagger.Provides;
@@ -61,6 +65,14 @@ public class Cfg4jModule {
 		Properties props = new Properties();
 
 		props.put("all.threads", Runtime.getRuntime().availableProcessors());
+		props.put("all.walkerThreads", ParallelDirectoryWalker.DEFAULT_PARALLELISM);
+		props.put("all.hashQueueCapacity", BoundedExecutor.DEFAULT_QUEUE_CAPACITY);
+		props.put("all.wideHashBits", 0);
+		props.put("all.subsampledDecode", false);
+		props.put("all.multiHash", false);
+		props.put("all.dctBatch", 0);
+		props.put("all.dctBackend", DCTBackend.APARAPI.name());
+		props.put("all.searchIndex", HammingIndexType.BK_TREE.name());
 		props.put("all.includeIgnoredImages", false);
 
 		return props;
@@ -25,8 +25,10 @@ import javax.inject.Singleton;
 
 import com.github.dozedoff.similarImage.db.Database;
 import com.github.dozedoff.similarImage.db.SQLiteDatabase;
+import com.github.dozedoff.similarImage.db.repository.DirectoryRepository;
 import com.github.dozedoff.similarImage.db.repository.FilterRepository;
 import com.github.dozedoff.similarImage.db.repository.IgnoreRepository;
+import com.github.dozedoff.similarImage.db.repository.ImageHashRepository;
 import com.github.dozedoff.similarImage.db.repository.ImageRepository;
 import com.github.dozedoff.similarImage.db.repository.PendingHashImageRepository;
 import com.github.dozedoff.similarImage.db.repository.Repository;
@@ -127,6 +129,26 @@ public class SQLitePersistenceModule {
 		}
 	}
 
+	@Singleton
+	@Provides
+	public ImageHashRepository provideImageHashRepository(RepositoryFactory repositoryFactory) {
+		try {
+			return repositoryFactory.buildImageHashRepository();
+		} catch (RepositoryException e) {
+			throw runtimeException(ImageHashRepository.class, e);
+		}
+	}
+
+	@Singleton
+	@Provides
+	public DirectoryRepository provideDirectoryRepository(RepositoryFactory repositoryFactory) {
+		try {
+			return repositoryFactory.buildDirectoryRepository();
+		} catch (RepositoryException e) {
+			throw runtimeException(DirectoryRepository.class, e);
+		}
+	}
+
 	@Singleton
 	@Provides
 	public TransactionManager provideTransactionManager(ConnectionSource cs) {
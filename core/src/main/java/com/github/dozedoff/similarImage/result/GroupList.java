@@ -19,15 +19,18 @@ package com.github.dozedoff.similarImage.result;
 
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import javax.swing.DefaultListModel;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.github.dozedoff.similarImage.db.ImageRecord;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.MultimapBuilder;
 
@@ -40,6 +43,7 @@ public class GroupList {
 	private final Multimap<Result, ResultGroup> resultsToGroups;
 	private final Map<Long, ResultGroup> hashToGroup;
 	private final List<ResultGroup> groups;
+	private final Set<ImageRecord> removedRecords;
 	private DefaultListModel<ResultGroup> mappedListeModel;
 
 	/**
@@ -60,11 +64,12 @@ public class GroupList {
 		groups = new LinkedList<ResultGroup>();
 		hashToGroup = new HashMap<Long, ResultGroup>();
 		resultsToGroups = MultimapBuilder.hashKeys().linkedListValues().build();
+		removedRecords = new HashSet<ImageRecord>();
 	}
 
 	/**
-	 * Populate this {@link GroupList} with the given {@link ResultGroup}s, also creates a reverse map for
-	 * {@link Result} -> {@link ResultGroup}.
+	 * Populate this {@link GroupList} with the given {@link ResultGroup}s. The reverse map for {@link Result} ->
+	 * {@link ResultGroup} is filled as the groups create their results, see {@link #mapResults(ResultGroup)}.
 	 * 
 	 * @param groupsToAdd
 	 *            the {@link ResultGroup}s to add
@@ -77,7 +82,6 @@ public class GroupList {
 		for (ResultGroup g : groupsToAdd) {
 			groups.add(g);
 			hashToGroup.put(g.getHash(), g);
-			mapResultsToGroups(g);
 		}
 	}
 
@@ -90,15 +94,34 @@ public class GroupList {
 		return groups.size();
 	}
 
-	private void mapResultsToGroups(ResultGroup group) {
+	/**
+	 * Add the {@link Result}s of a group to the reverse map. Called by the {@link ResultGroup} once it has created its
+	 * results.
+	 * 
+	 * @param group
+	 *            that created its results
+	 */
+	void mapResults(ResultGroup group) {
 		for (Result result : group.getResults()) {
 			resultsToGroups.put(result, group);
 		}
 	}
 
+	/**
+	 * Check if a record was removed. Groups that create their results after the removal use this to skip the record.
+	 * 
+	 * @param record
+	 *            to check
+	 * @return true if a {@link Result} for the record was removed
+	 */
+	boolean isRemoved(ImageRecord record) {
+		return removedRecords.contains(record);
+	}
+
 	private void clearGroups() {
 		this.groups.clear();
 		this.resultsToGroups.clear();
+		this.removedRecords.clear();
 	}
 
 	/**
@@ -110,6 +133,7 @@ public class GroupList {
 	 */
 	public void remove(Result result) {
 		Collection<ResultGroup> groupsToRemoveFrom = resultsToGroups.removeAll(result);
+		boolean newlyRemoved = removedRecords.add(result.getImageRecord());
 
 		LOGGER.debug("Removing {} from {} group(s).", result, groupsToRemoveFrom.size());
 
@@ -117,10 +141,32 @@ public class GroupList {
 			g.remove(result, false);
 			checkAndremoveEmptyGroup(g);
 		}
+
+		if (newlyRemoved) {
+			removeFromPendingGroups(result.getImageRecord());
+		}
+	}
+
+	/**
+	 * Groups that have not created their results yet are not in the reverse map, so they are checked for the record
+	 * directly. This does not create their results.
+	 */
+	private void removeFromPendingGroups(ImageRecord record) {
+		List<ResultGroup> emptyGroups = new LinkedList<ResultGroup>();
+
+		for (ResultGroup g : groups) {
+			if (g.recordRemoved(record) && g.size() == 0) {
+				emptyGroups.add(g);
+			}
+		}
+
+		for (ResultGroup g : emptyGroups) {
+			checkAndremoveEmptyGroup(g);
+		}
 	}
 
 	private void checkAndremoveEmptyGroup(ResultGroup groupToCheck) {
-		if (!groupToCheck.hasResults()) {
+		if (groupToCheck.size() == 0) {
 			LOGGER.debug("Removing  {} because it has no results.", groupToCheck);
 			groups.remove(groupToCheck);
 			mappedListeModel.removeElement(groupToCheck);
@@ -28,14 +28,17 @@ import org.slf4j.LoggerFactory;
 import com.github.dozedoff.similarImage.db.ImageRecord;
 
 /**
- * A set of images that are possible duplicates.
+ * A set of images that are possible duplicates. The {@link Result}s are only created when the group is first accessed,
+ * so groups that are never displayed do not hold any results.
  */
 public class ResultGroup {
 	private static final Logger LOGGER = LoggerFactory.getLogger(ResultGroup.class);
 
 	private final GroupList parent;
 	private final long hash;
-	private final List<Result> results;
+	private final Collection<ImageRecord> records;
+	private List<Result> results;
+	private int removedRecords;
 
 	/**
 	 * Create a new {@link ResultGroup} with the given {@link ImageRecord}s.
@@ -45,22 +48,47 @@ public class ResultGroup {
 	 * @param hash
 	 *            this group and the {@link Result} within represent
 	 * @param records
-	 *            to use for the creation of the {@link Result}s
+	 *            to use for the creation of the {@link Result}s, the collection is kept until the results are created
 	 */
 	public ResultGroup(GroupList parent, long hash, Collection<ImageRecord> records) {
 		this.parent = parent;
 		this.hash = hash;
-		this.results = new LinkedList<Result>();
+		this.records = records;
+	}
+
+	private List<Result> results() {
+		if (results == null) {
+			LOGGER.trace("Building group {} with {} record(s)", hash, records.size());
+
+			results = new LinkedList<Result>();
 
-		LOGGER.trace("Building group with {} record(s)", records);
+			for (ImageRecord record : records) {
+				if (!parent.isRemoved(record)) {
+					results.add(new Result(this, record));
+				}
+			}
+
+			parent.mapResults(this);
+		}
 
-		buildResults(records);
+		return results;
 	}
 
-	private void buildResults(Collection<ImageRecord> records) {
-		for (ImageRecord record : records) {
-			results.add(new Result(this, record));
+	/**
+	 * Called by the {@link GroupList} when a record is removed before this group has created its results, so the
+	 * size of the group stays correct.
+	 * 
+	 * @param record
+	 *            that was removed
+	 * @return true if the results are not created yet and the group contains the record
+	 */
+	boolean recordRemoved(ImageRecord record) {
+		if (results != null || !records.contains(record)) {
+			return false;
 		}
+
+		removedRecords++;
+		return true;
 	}
 
 	/**
@@ -78,7 +106,7 @@ public class ResultGroup {
 	 * @return a list of results
 	 */
 	public List<Result> getResults() {
-		return results;
+		return results();
 	}
 
 	/**
@@ -103,13 +131,15 @@ public class ResultGroup {
 	 * @return true if the result was removed
 	 */
 	public boolean remove(Result result, boolean notifyParent) {
+		List<Result> current = results();
+
 		LOGGER.debug("Removing {} from {}, notify parent: {}", result, this, notifyParent);
 
 		if (notifyParent) {
 			parent.remove(result);
 		}
 
-		return results.remove(result);
+		return current.remove(result);
 	}
 
 	/**
@@ -119,7 +149,16 @@ public class ResultGroup {
 	 */
 	@Override
 	public String toString() {
-		return String.format("%d (%d)", this.hash, results.size());
+		return String.format("%d (%d)", this.hash, size());
+	}
+
+	/**
+	 * Get the number of results in this group, without creating them.
+	 * 
+	 * @return the number of results
+	 */
+	public int size() {
+		return results == null ? records.size() - removedRecords : results.size();
 	}
 
 	/**
@@ -128,7 +167,7 @@ public class ResultGroup {
 	 * @return true if there are results for this group
 	 */
 	public boolean hasResults() {
-		return !results.isEmpty();
+		return !results().isEmpty();
 	}
 
 	@Override
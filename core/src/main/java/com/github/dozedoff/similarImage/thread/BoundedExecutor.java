@@ -0,0 +1,229 @@
+/*  Copyright (C) 2016  Nicholas Wright
+    
+    This file is part of similarImage - A similar image finder using pHash
+    
+    similarImage is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.similarImage.thread;
+
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+/**
+ * Thread pool with a bounded queue that applies backpressure to the submitting thread. If the queue is full,
+ * {@link #execute(Runnable)} blocks until a queued task has started. This keeps a fast producer, such as the file
+ * walker, from queuing more jobs than fit into memory.<br>
+ * The number of threads can be changed while the executor is running. Tasks are only rejected if the executor has been
+ * shut down, or the submitting thread was interrupted while waiting.
+ * 
+ * @author Nicholas Wright
+ * 
+ */
+public class BoundedExecutor extends ThreadPoolExecutor {
+	public static final String METRIC_NAME_QUEUE_DEPTH = MetricRegistry.name(BoundedExecutor.class, "queue", "depth");
+	public static final String METRIC_NAME_SUBMIT_WAIT = MetricRegistry.name(BoundedExecutor.class, "submit", "wait");
+	public static final String METRIC_NAME_QUEUE_WAIT = MetricRegistry.name(BoundedExecutor.class, "queue", "wait");
+	public static final String METRIC_NAME_REJECTED = MetricRegistry.name(BoundedExecutor.class, "rejected");
+
+	/**
+	 * Default maximum number of tasks waiting to be executed.
+	 */
+	public static final int DEFAULT_QUEUE_CAPACITY = 1000;
+
+	private final int queueCapacity;
+	private final Semaphore queueSlots;
+
+	private final Timer submitWait;
+	private final Timer queueWait;
+	private final Meter rejected;
+
+	/**
+	 * Create a executor with the given number of threads and queue capacity.
+	 * 
+	 * @param threadCount
+	 *            number of threads used to execute tasks
+	 * @param queueCapacity
+	 *            maximum number of tasks waiting to be executed
+	 * @param threadName
+	 *            prefix for the names of the threads
+	 * @param metrics
+	 *            registry for tracking queue depth, wait times and rejected tasks
+	 */
+	public BoundedExecutor(int threadCount, int queueCapacity, String threadName, MetricRegistry metrics) {
+		super(threadCount, threadCount, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(),
+				new NamedThreadFactory(threadName));
+
+		if (queueCapacity < 1) {
+			throw new IllegalArgumentException("Queue capacity must be at least 1");
+		}
+
+		this.queueCapacity = queueCapacity;
+		this.queueSlots = new Semaphore(queueCapacity);
+
+		this.submitWait = metrics.timer(METRIC_NAME_SUBMIT_WAIT);
+		this.queueWait = metrics.timer(METRIC_NAME_QUEUE_WAIT);
+		this.rejected = metrics.meter(METRIC_NAME_REJECTED);
+		metrics.<Gauge<Integer>> gauge(METRIC_NAME_QUEUE_DEPTH, () -> this::getQueueDepth);
+
+		setRejectedExecutionHandler(this::reject);
+	}
+
+	/**
+	 * Execute the task, blocking until there is space in the queue.
+	 * 
+	 * @param command
+	 *            the task to execute
+	 * @throws RejectedExecutionException
+	 *             if the executor has been shut down, or the thread was interrupted while waiting for space in the
+	 *             queue
+	 */
+	@Override
+	public void execute(Runnable command) {
+		if (command == null) {
+			throw new NullPointerException("Task cannot be null");
+		}
+
+		acquireQueueSlot();
+
+		try {
+			super.execute(new QueuedTask(command));
+		} catch (RejectedExecutionException e) {
+			queueSlots.release();
+			throw e;
+		}
+	}
+
+	private void acquireQueueSlot() {
+		if (queueSlots.tryAcquire()) {
+			return;
+		}
+
+		try (Timer.Context context = submitWait.time()) {
+			queueSlots.acquire();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			rejected.mark();
+			throw new RejectedExecutionException("Interrupted while waiting for space in the queue", e);
+		}
+	}
+
+	private void reject(Runnable task, ThreadPoolExecutor executor) {
+		rejected.mark();
+		throw new RejectedExecutionException("Task " + task + " rejected from " + executor);
+	}
+
+	/**
+	 * Free the queue slot of the task, as it is no longer waiting.
+	 */
+	@Override
+	protected void beforeExecute(Thread t, Runnable r) {
+		super.beforeExecute(t, r);
+
+		if (r instanceof QueuedTask) {
+			queueSlots.release();
+			queueWait.update(System.nanoTime() - ((QueuedTask) r).queuedAt, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	/**
+	 * Tasks that are removed from the queue free their slots, so that threads waiting to submit are not blocked
+	 * forever.
+	 */
+	@Override
+	public List<Runnable> shutdownNow() {
+		List<Runnable> removed = super.shutdownNow();
+		queueSlots.release(removed.size());
+		return removed;
+	}
+
+	/**
+	 * Change the number of threads used to execute tasks. If the count is reduced, excess threads terminate once
+	 * their current task is done.
+	 * 
+	 * @param threadCount
+	 *            new number of threads
+	 */
+	public void setThreadCount(int threadCount) {
+		if (threadCount < 1) {
+			throw new IllegalArgumentException("Thread count must be at least 1");
+		}
+
+		if (threadCount > getMaximumPoolSize()) {
+			setMaximumPoolSize(threadCount);
+			setCorePoolSize(threadCount);
+		} else {
+			setCorePoolSize(threadCount);
+			setMaximumPoolSize(threadCount);
+		}
+	}
+
+	/**
+	 * Get the number of threads used to execute tasks.
+	 * 
+	 * @return the configured number of threads
+	 */
+	public int getThreadCount() {
+		return getCorePoolSize();
+	}
+
+	/**
+	 * Get the maximum number of tasks that can wait for execution.
+	 * 
+	 * @return the capacity of the queue
+	 */
+	public int getQueueCapacity() {
+		return queueCapacity;
+	}
+
+	/**
+	 * Get the number of tasks waiting for execution.
+	 * 
+	 * @return the number of queued tasks
+	 */
+	public int getQueueDepth() {
+		return getQueue().size();
+	}
+
+	/**
+	 * Task with the time it was queued.
+	 */
+	private static final class QueuedTask implements Runnable {
+		private final Runnable task;
+		private final long queuedAt;
+
+		QueuedTask(Runnable task) {
+			this.task = task;
+			this.queuedAt = System.nanoTime();
+		}
+
+		@Override
+		public void run() {
+			task.run();
+		}
+
+		@Override
+		public String toString() {
+			return task.toString();
+		}
+	}
+}
@@ -22,11 +22,19 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Iterator;
+import java.util.List;
 import java.util.stream.Stream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.github.dozedoff.similarImage.db.DirectoryRecord;
+import com.github.dozedoff.similarImage.db.repository.DirectoryRepository;
+import com.github.dozedoff.similarImage.db.repository.ImageRepository;
+import com.github.dozedoff.similarImage.db.repository.RepositoryException;
+import com.github.dozedoff.similarImage.util.PrefixCompressedPathSet;
+import com.google.common.base.Stopwatch;
+
 /**
  * Scan the given directory and all sub-directories and pass the found directories and files to the {@link ImageFindJobVisitor}.
  * 
@@ -37,6 +45,9 @@ public class ImageFindJob implements Runnable {
 	private final Logger logger = LoggerFactory.getLogger(ImageFindJob.class);
 	private final String searchPath;
 	private final ImageFindJobVisitor visitor;
+	private ImageRepository imageRepository;
+	private DirectoryRepository directoryRepository;
+	private ParallelDirectoryWalker directoryWalker;
 
 	/**
 	 * Create a new {@link ImageFindJob} with the given visitor and starting path.
@@ -51,10 +62,93 @@ public class ImageFindJob implements Runnable {
 		this.visitor = visitor;
 	}
 
+	/**
+	 * Preload the paths of already hashed images under the search path with a single query before scanning, so the
+	 * visitor can skip them without querying the database for every file.
+	 * 
+	 * @param imageRepository
+	 *            to load known paths from
+	 */
+	public void setImageRepository(ImageRepository imageRepository) {
+		this.imageRepository = imageRepository;
+	}
+
+	/**
+	 * Skip directory trees that are unchanged since the last scan, using the directory fingerprints stored in the
+	 * repository. If a directory walker is set, the fingerprints are checked by the listing threads and unchanged trees
+	 * are not listed. Fingerprints are only stored for directories where all images are known, so this should be used
+	 * together with {@link #setImageRepository(ImageRepository)}.
+	 * 
+	 * @param directoryRepository
+	 *            to load and store directory fingerprints, or null to scan all directories
+	 */
+	public void setDirectoryRepository(DirectoryRepository directoryRepository) {
+		this.directoryRepository = directoryRepository;
+	}
+
+	/**
+	 * List directories in parallel with the given walker, instead of walking the tree on the current thread. The
+	 * found files are still passed to the visitor on the current thread.
+	 * 
+	 * @param directoryWalker
+	 *            to use for walking the tree, or null to walk it sequentially
+	 */
+	public void setDirectoryWalker(ParallelDirectoryWalker directoryWalker) {
+		this.directoryWalker = directoryWalker;
+	}
+
+	private void loadKnownPaths() {
+		Stopwatch sw = Stopwatch.createStarted();
+		PrefixCompressedPathSet.Builder builder = PrefixCompressedPathSet.builder();
+
+		try {
+			imageRepository.forEachPath(Paths.get(searchPath), builder::add);
+			PrefixCompressedPathSet knownPaths = builder.build();
+			visitor.setKnownPaths(knownPaths);
+
+			logger.info("Loaded {} known paths ({} bytes) in {}", knownPaths.size(), knownPaths.encodedSize(), sw);
+		} catch (RepositoryException | IllegalArgumentException e) {
+			logger.warn("Failed to load known paths, falling back to database queries: {}", e.toString());
+		}
+	}
+
+	private boolean loadDirectoryRecords() {
+		Stopwatch sw = Stopwatch.createStarted();
+
+		try {
+			List<DirectoryRecord> records = directoryRepository.startsWithPath(Paths.get(searchPath));
+			visitor.setDirectoryRecords(directoryRepository, records);
+
+			logger.info("Loaded {} directory fingerprints in {}", records.size(), sw);
+			return true;
+		} catch (RepositoryException e) {
+			logger.warn("Failed to load directory fingerprints, scanning all directories: {}", e.toString());
+			return false;
+		}
+	}
+
 	@Override
 	public void run() {
+		if (imageRepository != null) {
+			loadKnownPaths();
+		}
+
+		boolean incremental = directoryRepository != null && loadDirectoryRecords();
+
 		logger.info("Scanning {} for images...", searchPath);
 
+		if (directoryWalker != null) {
+			walkParallel(incremental);
+		} else if (incremental) {
+			walkIncremental();
+		} else {
+			walk();
+		}
+
+		logger.info("Finished scanning for images in {}, found {} images", searchPath, visitor.getFileCount());
+	}
+
+	private void walk() {
 		try (Stream<Path> stream = Files.walk(Paths.get(searchPath));) {
 
 			Iterator<Path> iter = stream.iterator();
@@ -71,7 +165,53 @@ public class ImageFindJob implements Runnable {
 		} catch (IOException e) {
 			logger.error("Failed to walk file tree", e);
 		}
+	}
+
+	private void walkIncremental() {
+		try {
+			Files.walkFileTree(Paths.get(searchPath), visitor);
+		} catch (IOException e) {
+			logger.error("Failed to walk file tree", e);
+		}
 
-		logger.info("Finished scanning for images in {}, found {} images", searchPath, visitor.getFileCount());
+		if (Thread.currentThread().isInterrupted()) {
+			logger.info("Image find job interrupted");
+		}
+
+		logSkipped();
+	}
+
+	private void logSkipped() {
+		logger.info("Skipped {} unchanged directories containing {} images", visitor.getSkippedDirectories(),
+				visitor.getSkippedFiles());
+	}
+
+	private void walkParallel(boolean incremental) {
+		logger.debug("Listing directories with {} threads", directoryWalker.getParallelism());
+
+		try {
+			if (incremental) {
+				directoryWalker.walk(Paths.get(searchPath), visitor, this::visitBatch);
+				visitor.postVisitDirectories();
+				logSkipped();
+			} else {
+				directoryWalker.walk(Paths.get(searchPath), this::visitBatch);
+			}
+		} catch (InterruptedException e) {
+			logger.info("Image find job interrupted");
+			Thread.currentThread().interrupt();
+		} catch (IOException e) {
+			logger.error("Failed to walk file tree", e);
+		}
+	}
+
+	private void visitBatch(List<Path> batch) throws IOException {
+		for (Path path : batch) {
+			if (Thread.currentThread().isInterrupted()) {
+				return;
+			}
+
+			visitor.visitFile(path, null);
+		}
 	}
 }
@@ -23,26 +23,59 @@ import java.nio.file.FileVisitResult;
 import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.github.dozedoff.similarImage.db.DirectoryRecord;
+import com.github.dozedoff.similarImage.db.repository.DirectoryRepository;
+import com.github.dozedoff.similarImage.db.repository.RepositoryException;
 import com.github.dozedoff.similarImage.handler.HashHandler;
+import com.github.dozedoff.similarImage.io.DirectoryFingerprint;
 import com.github.dozedoff.similarImage.io.Statistics;
+import com.github.dozedoff.similarImage.thread.ParallelDirectoryWalker.DirectoryFilter;
+import com.github.dozedoff.similarImage.util.PrefixCompressedPathSet;
 
 /**
- * For every file that is found, check the file extension. A valid file is passed to the handlers for processing.
+ * For every file that is found, check the file extension. A valid file is passed to the handlers for processing, unless
+ * it is in the set of known paths.<br>
+ * If directory records are set, a directory tree is skipped if the fingerprints of the directory and all its stored
+ * sub-directories are unchanged. The fingerprint of a directory is stored once all its accepted files are known paths
+ * and the same is true for all its sub-directories, so new files are confirmed as hashed on the next scan.<br>
+ * When used as the {@link DirectoryFilter} of a {@link ParallelDirectoryWalker}, unchanged trees are skipped by the
+ * listing threads. The directories are then completed by {@link #postVisitDirectories()} once the walk has finished.
  * 
  * @author Nicholas Wright
  *
  */
-public class ImageFindJobVisitor extends SimpleFileVisitor<Path> {
+public class ImageFindJobVisitor extends SimpleFileVisitor<Path> implements DirectoryFilter {
 	private static final Logger LOGGER = LoggerFactory.getLogger(ImageFindJobVisitor.class);
 	private final Filter<Path> fileFilter;
 	private final Statistics statistics;
 	private int fileCount;
 	private Collection<HashHandler> handlers;
+	private PrefixCompressedPathSet knownPaths;
+	private DirectoryRepository directoryRepository;
+	private NavigableMap<String, DirectoryRecord> storedDirectories;
+	private final Map<Path, Optional<DirectoryFingerprint>> fingerprints = new ConcurrentHashMap<>();
+	private final Deque<DirectoryScan> directories = new ArrayDeque<>();
+	private final Map<Path, DirectoryScan> listedDirectories = new ConcurrentHashMap<>();
+	private final AtomicInteger skippedDirectories = new AtomicInteger();
+	private final AtomicInteger skippedFiles = new AtomicInteger();
 
 	/**
 	 * Creates a visitor that will pass the accepted files to the handlers.
@@ -60,6 +93,318 @@ public class ImageFindJobVisitor extends SimpleFileVisitor<Path> {
 		this.handlers = handlers;
 	}
 
+	/**
+	 * Set the paths that have already been hashed. Files in the set are skipped without querying the handlers.
+	 * 
+	 * @param knownPaths
+	 *            paths of hashed files, or null to pass all files to the handlers
+	 */
+	public void setKnownPaths(PrefixCompressedPathSet knownPaths) {
+		this.knownPaths = knownPaths;
+	}
+
+	/**
+	 * Set the stored directory fingerprints for the tree being walked. Unchanged directory trees will be skipped, and
+	 * the fingerprints of completely hashed directories are stored in the repository.
+	 * 
+	 * @param directoryRepository
+	 *            to store fingerprints in, or null to disable skipping
+	 * @param storedDirectories
+	 *            fingerprints from the last scan
+	 */
+	public void setDirectoryRecords(DirectoryRepository directoryRepository,
+			Collection<DirectoryRecord> storedDirectories) {
+		this.directoryRepository = directoryRepository;
+		this.storedDirectories = new TreeMap<>();
+
+		for (DirectoryRecord record : storedDirectories) {
+			this.storedDirectories.put(record.getPath(), record);
+		}
+	}
+
+	/**
+	 * Skip the directory tree if it is unchanged since the last scan, otherwise fingerprint the directory before it is
+	 * walked.
+	 * 
+	 * @param {@inheritDoc}
+	 * @return {@inheritDoc}
+	 * @throws {@inheritDoc}
+	 */
+	@Override
+	public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+		if (Thread.currentThread().isInterrupted()) {
+			return FileVisitResult.TERMINATE;
+		}
+
+		if (directoryRepository == null) {
+			return FileVisitResult.CONTINUE;
+		}
+
+		if (!directories.isEmpty()) {
+			directories.peek().addSubDirectory(dir);
+		}
+
+		if (isUnchangedTree(dir)) {
+			return FileVisitResult.SKIP_SUBTREE;
+		}
+
+		directories.push(new DirectoryScan(removeFingerprint(dir)));
+		return FileVisitResult.CONTINUE;
+	}
+
+	/**
+	 * Skip the directory tree if it is unchanged since the last scan, otherwise fingerprint the directory before it is
+	 * listed. Called by the listing threads of a {@link ParallelDirectoryWalker}.
+	 * 
+	 * @param directory
+	 *            that was found
+	 * @return false if the directory tree is unchanged
+	 */
+	@Override
+	public boolean accept(Path directory) {
+		if (directoryRepository == null) {
+			return true;
+		}
+
+		DirectoryScan parent = listedScan(directory.getParent());
+
+		if (parent != null) {
+			parent.addSubDirectory(directory);
+		}
+
+		if (isUnchangedTree(directory)) {
+			return false;
+		}
+
+		listedDirectories.put(directory, new DirectoryScan(removeFingerprint(directory)));
+		return true;
+	}
+
+	/**
+	 * Mark the directory as incomplete, so no fingerprint is stored for it or its parents.
+	 * 
+	 * @param directory
+	 *            that could not be listed
+	 * @param exc
+	 *            the cause of the failure
+	 */
+	@Override
+	public void failed(Path directory, IOException exc) {
+		DirectoryScan scan = listedDirectories.get(directory);
+
+		if (scan != null) {
+			scan.markFailed();
+		}
+	}
+
+	/**
+	 * Complete the directories listed by a {@link ParallelDirectoryWalker}, after all found files have been visited.
+	 * Sub-directories are completed before their parents. Only call this if the walk was not interrupted, otherwise
+	 * directories that were not fully listed would be stored.
+	 */
+	public void postVisitDirectories() {
+		if (directoryRepository == null) {
+			return;
+		}
+
+		NavigableMap<Path, DirectoryScan> deepestFirst = new TreeMap<>(listedDirectories).descendingMap();
+
+		for (Entry<Path, DirectoryScan> entry : deepestFirst.entrySet()) {
+			complete(entry.getKey(), entry.getValue(), listedScan(entry.getKey().getParent()));
+		}
+
+		listedDirectories.clear();
+	}
+
+	private DirectoryFingerprint removeFingerprint(Path directory) {
+		Optional<DirectoryFingerprint> fingerprint = fingerprints.remove(directory);
+
+		return fingerprint == null ? null : fingerprint.orElse(null);
+	}
+
+	private boolean isUnchangedTree(Path dir) {
+		DirectoryRecord record = storedDirectories.get(dir.toString());
+
+		if (!isUnchanged(dir, record)) {
+			return false;
+		}
+
+		List<Path> subDirectories = new ArrayList<>();
+		int fileCount = record.getFileCount();
+		String prefix = subDirectoryPrefix(dir);
+		for (Entry<String, DirectoryRecord> entry : storedDirectories.tailMap(prefix, true).entrySet()) {
+			if (!entry.getKey().startsWith(prefix)) {
+				break;
+			}
+
+			Path subDirectory = dir.getFileSystem().getPath(entry.getKey());
+
+			if (!isUnchanged(subDirectory, entry.getValue())) {
+				return false;
+			}
+
+			subDirectories.add(subDirectory);
+			fileCount += entry.getValue().getFileCount();
+		}
+
+		fingerprints.remove(dir);
+		subDirectories.forEach(fingerprints::remove);
+
+		skippedDirectories.addAndGet(subDirectories.size() + 1);
+		skippedFiles.addAndGet(fileCount);
+		statistics.addSkippedDirectories(subDirectories.size() + 1);
+		statistics.addSkippedFiles(fileCount);
+
+		LOGGER.debug("{} is unchanged, skipped {} directories with {} files", dir, subDirectories.size() + 1,
+				fileCount);
+		return true;
+	}
+
+	private String subDirectoryPrefix(Path dir) {
+		String separator = dir.getFileSystem().getSeparator();
+		String path = dir.toString();
+
+		return path.endsWith(separator) ? path : path + separator;
+	}
+
+	private boolean isUnchanged(Path directory, DirectoryRecord record) {
+		DirectoryFingerprint fingerprint = fingerprint(directory);
+
+		return record != null && fingerprint != null && fingerprint.matches(record);
+	}
+
+	/**
+	 * Get the fingerprint of the directory, taking it if there is none yet. The fingerprint is taken outside of the
+	 * map, so listing threads do not block each other.
+	 */
+	private DirectoryFingerprint fingerprint(Path directory) {
+		Optional<DirectoryFingerprint> fingerprint = fingerprints.get(directory);
+
+		if (fingerprint == null) {
+			fingerprint = takeFingerprint(directory);
+			Optional<DirectoryFingerprint> existing = fingerprints.putIfAbsent(directory, fingerprint);
+
+			if (existing != null) {
+				fingerprint = existing;
+			}
+		}
+
+		return fingerprint.orElse(null);
+	}
+
+	private Optional<DirectoryFingerprint> takeFingerprint(Path directory) {
+		try {
+			return Optional.of(DirectoryFingerprint.of(directory));
+		} catch (IOException e) {
+			LOGGER.debug("Failed to fingerprint {}: {}", directory, e.toString());
+			return Optional.empty();
+		}
+	}
+
+	/**
+	 * Remove the records of sub-directories that no longer exist, including all their sub-directories. Otherwise they
+	 * would prevent the tree from ever being skipped again.
+	 */
+	private void removeDeleted(Path dir, DirectoryScan scan) {
+		String prefix = subDirectoryPrefix(dir);
+		String separator = dir.getFileSystem().getSeparator();
+		Iterator<Entry<String, DirectoryRecord>> iter = storedDirectories.tailMap(prefix, true).entrySet().iterator();
+
+		while (iter.hasNext()) {
+			Entry<String, DirectoryRecord> entry = iter.next();
+
+			if (!entry.getKey().startsWith(prefix)) {
+				break;
+			}
+
+			String relative = entry.getKey().substring(prefix.length());
+			int separatorIndex = relative.indexOf(separator);
+			String name = separatorIndex < 0 ? relative : relative.substring(0, separatorIndex);
+
+			if (!scan.subDirectories.contains(name)) {
+				LOGGER.debug("Removing record of deleted directory {}", entry.getKey());
+				remove(entry.getValue());
+				iter.remove();
+			}
+		}
+	}
+
+	private void remove(DirectoryRecord record) {
+		try {
+			directoryRepository.remove(record);
+		} catch (RepositoryException e) {
+			LOGGER.warn("Failed to remove stale directory record {}: {}", record.getPath(), e.toString());
+		}
+	}
+
+	/**
+	 * Store the fingerprint of the directory, if it was taken and every accepted file in the directory tree is a known
+	 * path.
+	 * 
+	 * @param {@inheritDoc}
+	 * @return {@inheritDoc}
+	 * @throws {@inheritDoc}
+	 */
+	@Override
+	public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+		if (directoryRepository == null || directories.isEmpty()) {
+			return FileVisitResult.CONTINUE;
+		}
+
+		DirectoryScan scan = directories.pop();
+
+		if (exc != null) {
+			scan.markFailed();
+		}
+
+		complete(dir, scan, directories.peek());
+		return FileVisitResult.CONTINUE;
+	}
+
+	/**
+	 * Remove deleted sub-directories and store the fingerprint of a complete directory. An incomplete directory marks
+	 * its parent as incomplete.
+	 */
+	private void complete(Path dir, DirectoryScan scan, DirectoryScan parent) {
+		if (!scan.isComplete() && parent != null) {
+			parent.markIncomplete();
+		}
+
+		if (!scan.isFailed()) {
+			removeDeleted(dir, scan);
+		}
+
+		if (scan.isComplete()) {
+			store(scan.fingerprint.toRecord(scan.fileCount));
+		}
+	}
+
+	private void store(DirectoryRecord record) {
+		try {
+			directoryRepository.store(record);
+		} catch (RepositoryException e) {
+			LOGGER.warn("Failed to store directory record {}: {}", record.getPath(), e.toString());
+		}
+	}
+
+	/**
+	 * Log the file that could not be read and continue with the walk.
+	 * 
+	 * @param {@inheritDoc}
+	 * @return {@inheritDoc}
+	 */
+	@Override
+	public FileVisitResult visitFileFailed(Path file, IOException exc) {
+		LOGGER.warn("Failed to visit {}: {}", file, exc.toString());
+
+		DirectoryScan scan = scanOf(file);
+
+		if (scan != null) {
+			scan.markIncomplete();
+		}
+
+		return FileVisitResult.CONTINUE;
+	}
 
 	/**
 	 * Visit a file and if it is accepted, pass it to the handlers.
@@ -74,26 +419,66 @@ public class ImageFindJobVisitor extends SimpleFileVisitor<Path> {
 			statistics.incrementFoundFiles();
 			fileCount++;
 
-			boolean isHandled = false;
-
-			for (HashHandler handler : handlers) {
-				if (handler.handle(file)) {
-					isHandled = true;
-					break;
-				}
-			}
+			boolean isKnown = isKnownPath(file);
+			boolean isHandled = isKnown || handle(file);
 
 			statistics.incrementProcessedFiles();
 
+			DirectoryScan scan = scanOf(file);
+
+			if (scan != null) {
+				scan.addFile(isKnown);
+			}
+
 			if (!isHandled) {
 				statistics.incrementFailedFiles();
 				LOGGER.error("No handler was able to process {}", file);
 			}
 		}
 
+		if (Thread.currentThread().isInterrupted()) {
+			return FileVisitResult.TERMINATE;
+		}
+
 		return FileVisitResult.CONTINUE;
 	}
 
+	/**
+	 * Get the scan of the directory containing the file, either from the walked directories, or from the directories
+	 * listed by a {@link ParallelDirectoryWalker}.
+	 */
+	private DirectoryScan scanOf(Path file) {
+		if (!directories.isEmpty()) {
+			return directories.peek();
+		}
+
+		return listedScan(file.getParent());
+	}
+
+	private DirectoryScan listedScan(Path directory) {
+		return directory == null ? null : listedDirectories.get(directory);
+	}
+
+	private boolean handle(Path file) {
+		for (HashHandler handler : handlers) {
+			if (handler.handle(file)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private boolean isKnownPath(Path file) {
+		if (knownPaths != null && knownPaths.contains(file.toString())) {
+			LOGGER.trace("{} is a known path, skipping", file);
+			statistics.incrementSkippedFiles();
+			return true;
+		}
+
+		return false;
+	}
+
 	private boolean isAcceptedFile(Path file) throws IOException {
 		return fileFilter.accept(file);
 	}
@@ -106,4 +491,68 @@ public class ImageFindJobVisitor extends SimpleFileVisitor<Path> {
 	public int getFileCount() {
 		return fileCount;
 	}
+
+	/**
+	 * Get the number of directories that were skipped because they are unchanged.
+	 * 
+	 * @return number of skipped directories
+	 */
+	public int getSkippedDirectories() {
+		return skippedDirectories.get();
+	}
+
+	/**
+	 * Get the number of files in skipped directories, according to the stored directory records.
+	 * 
+	 * @return number of files in skipped directories
+	 */
+	public int getSkippedFiles() {
+		return skippedFiles.get();
+	}
+
+	/**
+	 * Tracks the files of a directory that is being walked. Sub-directories are added and failures are marked by the
+	 * listing threads of a {@link ParallelDirectoryWalker}, files are added by the thread visiting them.
+	 */
+	private static final class DirectoryScan {
+		private final DirectoryFingerprint fingerprint;
+		private final Set<String> subDirectories = ConcurrentHashMap.newKeySet();
+		private int fileCount;
+		private volatile boolean isComplete;
+		private volatile boolean isFailed;
+
+		DirectoryScan(DirectoryFingerprint fingerprint) {
+			this.fingerprint = fingerprint;
+			this.isComplete = fingerprint != null;
+		}
+
+		void addFile(boolean isKnown) {
+			fileCount++;
+
+			if (!isKnown) {
+				markIncomplete();
+			}
+		}
+
+		void addSubDirectory(Path directory) {
+			subDirectories.add(directory.getFileName().toString());
+		}
+
+		void markIncomplete() {
+			isComplete = false;
+		}
+
+		void markFailed() {
+			isFailed = true;
+			markIncomplete();
+		}
+
+		boolean isComplete() {
+			return isComplete;
+		}
+
+		boolean isFailed() {
+			return isFailed;
+		}
+	}
 }
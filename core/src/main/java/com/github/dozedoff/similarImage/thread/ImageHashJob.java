@@ -17,10 +17,9 @@
  */
 package com.github.dozedoff.similarImage.thread;
 
-import java.io.BufferedInputStream;
+import java.awt.image.BufferedImage;
 import java.io.IOException;
-import java.io.InputStream;
-import java.nio.file.Files;
+import java.nio.ByteBuffer;
 import java.nio.file.Path;
 
 import javax.imageio.IIOException;
@@ -32,12 +31,15 @@ import com.github.dozedoff.commonj.hash.ImagePHash;
 import com.github.dozedoff.similarImage.db.ImageRecord;
 import com.github.dozedoff.similarImage.db.repository.ImageRepository;
 import com.github.dozedoff.similarImage.db.repository.RepositoryException;
+import com.github.dozedoff.similarImage.image.FirstFrameGifDecoder;
+import com.github.dozedoff.similarImage.image.SubsamplingImageDecoder;
+import com.github.dozedoff.similarImage.io.ByteBufferInputstream;
+import com.github.dozedoff.similarImage.io.ContentDigest;
+import com.github.dozedoff.similarImage.io.ContentDigestShortcut;
 import com.github.dozedoff.similarImage.io.HashAttribute;
+import com.github.dozedoff.similarImage.io.MappedFileLoader;
 import com.github.dozedoff.similarImage.io.Statistics;
 
-import at.dhyan.open_imaging.GifDecoder;
-import at.dhyan.open_imaging.GifDecoder.GifImage;
-
 /**
  * Load an image and calculate the hash, then store the result in the database and as an extended attribute.
  * 
@@ -53,6 +55,9 @@ public class ImageHashJob implements Runnable {
 	private final ImagePHash hasher;
 	private final Statistics statistics;
 	private HashAttribute hashAttribute;
+	private SubsamplingImageDecoder imageDecoder;
+	private ContentDigestShortcut digestShortcut;
+	private MappedFileLoader fileLoader;
 
 	/**
 	 * Create a class that will hash an image an store the result.
@@ -71,6 +76,7 @@ public class ImageHashJob implements Runnable {
 		this.hasher = hasher;
 		this.statistics = statistics;
 		this.imageRepository = imageRepository;
+		this.fileLoader = new MappedFileLoader();
 	}
 
 	/**
@@ -83,6 +89,38 @@ public class ImageHashJob implements Runnable {
 		this.hashAttribute = hashAttribute;
 	}
 
+	/**
+	 * Set a {@link SubsamplingImageDecoder} to decode images at a reduced resolution before hashing. If not set, the
+	 * hasher decodes the image at full resolution.
+	 * 
+	 * @param imageDecoder
+	 *            to use for decoding images
+	 */
+	public final void setImageDecoder(SubsamplingImageDecoder imageDecoder) {
+		this.imageDecoder = imageDecoder;
+	}
+
+	/**
+	 * Set a {@link ContentDigestShortcut} to re-use the hash of byte-identical files. The digest and the hash are
+	 * calculated from the same loaded file.
+	 * 
+	 * @param digestShortcut
+	 *            to use for finding identical files
+	 */
+	public final void setDigestShortcut(ContentDigestShortcut digestShortcut) {
+		this.digestShortcut = digestShortcut;
+	}
+
+	/**
+	 * Set the {@link MappedFileLoader} used to load files. By default, large files are memory-mapped.
+	 * 
+	 * @param fileLoader
+	 *            to use for loading files
+	 */
+	public final void setFileLoader(MappedFileLoader fileLoader) {
+		this.fileLoader = fileLoader;
+	}
+
 	@Override
 	public void run() {
 		try {
@@ -111,25 +149,47 @@ public class ImageHashJob implements Runnable {
 	private long processFile(Path next) throws RepositoryException, IOException {
 		statistics.incrementProcessedFiles();
 
-		Path filename = next.getFileName();
-		try (InputStream bis = new BufferedInputStream(Files.newInputStream(next))) {
-			if (filename != null && filename.toString().toLowerCase().endsWith(".gif")) {
-				GifImage gi = GifDecoder.read(bis);
+		ByteBuffer data = fileLoader.load(next);
 
-				long hash = hasher.getLongHash(gi.getFrame(0));
-				imageRepository.store(new ImageRecord(next.toString(), hash));
-				return hash;
-			} else {
-
-				return doHash(next, bis);
-			}
+		if (digestShortcut != null) {
+			return processFileWithDigest(next, data);
 		}
-	}
 
-	private long doHash(Path next, InputStream is) throws IOException, RepositoryException {
-		long hash = hasher.getLongHash(is);
+		long hash = doHash(next, data);
 		imageRepository.store(new ImageRecord(next.toString(), hash));
 		return hash;
 	}
 
+	private long processFileWithDigest(Path next, ByteBuffer data) throws RepositoryException, IOException {
+		long digest = ContentDigest.digest(data);
+		ImageRecord identical = digestShortcut.copyExisting(next, data.remaining(), digest);
+
+		if (identical != null) {
+			return identical.getpHash();
+		}
+
+		long hash = doHash(next, data);
+		digestShortcut.store(next, hash, data.remaining(), digest);
+		return hash;
+	}
+
+	private long doHash(Path next, ByteBuffer data) throws IOException {
+		if (FirstFrameGifDecoder.isGif(next)) {
+			return hasher.getLongHash(FirstFrameGifDecoder.decode(new ByteBufferInputstream(data.duplicate())));
+		} else if (imageDecoder == null) {
+			return hasher.getLongHash(new ByteBufferInputstream(data.duplicate()));
+		} else {
+			return hasher.getLongHash(decode(data));
+		}
+	}
+
+	private BufferedImage decode(ByteBuffer data) throws IOException {
+		BufferedImage decoded = imageDecoder.decode(data);
+
+		if (decoded == null) {
+			throw new IIOException("Image is null. Did ImageIO fail to decode the image?");
+		}
+
+		return decoded;
+	}
 }
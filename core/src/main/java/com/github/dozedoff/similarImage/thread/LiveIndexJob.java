@@ -0,0 +1,475 @@
+/*  Copyright (C) 2016  Nicholas Wright
+    
+    This file is part of similarImage - A similar image finder using pHash
+    
+    similarImage is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.similarImage.thread;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream.Filter;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.InvalidAttributeValueException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.dozedoff.similarImage.db.ImageRecord;
+import com.github.dozedoff.similarImage.db.repository.ImageRepository;
+import com.github.dozedoff.similarImage.db.repository.RepositoryException;
+import com.github.dozedoff.similarImage.handler.HashHandler;
+import com.github.dozedoff.similarImage.io.ContentDigest;
+import com.github.dozedoff.similarImage.io.HashAttribute;
+import com.github.dozedoff.similarImage.io.Statistics;
+import com.google.common.collect.BiMap;
+import com.google.common.collect.HashBiMap;
+
+/**
+ * Watch directory trees for changes and keep the index up to date. Created and modified files are passed to the
+ * handlers, deleted files are removed from the {@link ImageRepository}. Events are debounced per path, so a file that
+ * is still being written is only handled once it has been quiet for the debounce time.<br>
+ * A reconciliation pass, similar to {@link ImageFindJob}, is run when the job starts and whenever the watch service
+ * reports that events were lost. The job runs until the thread is interrupted.
+ * 
+ * @author Nicholas Wright
+ * 
+ */
+public class LiveIndexJob implements Runnable {
+	private static final Logger LOGGER = LoggerFactory.getLogger(LiveIndexJob.class);
+
+	/**
+	 * Default time a path has to be quiet, before the change is processed.
+	 */
+	public static final long DEFAULT_DEBOUNCE_MILLIS = 2000;
+
+	private final List<Path> roots;
+	private final Filter<Path> fileFilter;
+	private final Collection<HashHandler> handlers;
+	private final Statistics statistics;
+	private final BiMap<WatchKey, Path> watchedDirectories = HashBiMap.create();
+	private final Map<Path, PendingChange> pending = new LinkedHashMap<>();
+
+	private ImageRepository imageRepository;
+	private HashAttribute hashAttribute;
+	private long debounceNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_DEBOUNCE_MILLIS);
+	private WatchService watchService;
+	private boolean isOverflow;
+
+	private enum Change {
+		CHANGED, DELETED, DELETED_DIRECTORY
+	}
+
+	/**
+	 * Create a job that watches the given directory trees.
+	 * 
+	 * @param roots
+	 *            directories to watch, including all sub-directories
+	 * @param fileFilter
+	 *            filter which specifies the accepted files
+	 * @param handlers
+	 *            for processing created and modified files
+	 * @param statistics
+	 *            for tracking stats about files
+	 */
+	public LiveIndexJob(Collection<Path> roots, Filter<Path> fileFilter, Collection<HashHandler> handlers,
+			Statistics statistics) {
+		if (roots.isEmpty()) {
+			throw new IllegalArgumentException("At least one directory to watch is required");
+		}
+
+		this.roots = new ArrayList<>(roots);
+		this.fileFilter = fileFilter;
+		this.handlers = handlers;
+		this.statistics = statistics;
+	}
+
+	/**
+	 * Remove deleted images from the repository, and re-hash images whose content has changed. The repository is also
+	 * used to skip known images during reconciliation.
+	 * 
+	 * @param imageRepository
+	 *            for the indexed images, or null if the handlers do not store images in a repository
+	 */
+	public void setImageRepository(ImageRepository imageRepository) {
+		this.imageRepository = imageRepository;
+	}
+
+	/**
+	 * Use the hash stored in the extended attributes of a file to check if it has changed, if its record has no
+	 * content digest. The attributes are only valid if the file was not modified after they were written, so writing
+	 * the attributes themselves does not cause the file to be hashed again.
+	 * 
+	 * @param hashAttribute
+	 *            used by the handlers to write hashes, or null to treat files without content digest as changed
+	 */
+	public void setHashAttribute(HashAttribute hashAttribute) {
+		this.hashAttribute = hashAttribute;
+	}
+
+	/**
+	 * Set the time a path has to be quiet, before the change is processed.
+	 * 
+	 * @param debounce
+	 *            time to wait after the last event
+	 * @param unit
+	 *            of the debounce time
+	 */
+	public void setDebounce(long debounce, TimeUnit unit) {
+		if (debounce < 0) {
+			throw new IllegalArgumentException("Debounce time cannot be negative");
+		}
+
+		this.debounceNanos = unit.toNanos(debounce);
+	}
+
+	@Override
+	public void run() {
+		try (WatchService service = roots.get(0).getFileSystem().newWatchService()) {
+			this.watchService = service;
+
+			reconcile();
+			LOGGER.info("Watching {} directories in {}", watchedDirectories.size(), roots);
+
+			while (!Thread.currentThread().isInterrupted()) {
+				processEvents(nextKey());
+
+				if (isOverflow) {
+					LOGGER.warn("Watch events were lost, reconciling {}", roots);
+					reconcile();
+				}
+
+				processDueChanges(System.nanoTime());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ClosedWatchServiceException e) {
+			LOGGER.debug("Watch service was closed");
+		} catch (IOException e) {
+			LOGGER.error("Failed to watch directories: {}", e.toString());
+		} finally {
+			watchedDirectories.clear();
+			pending.clear();
+		}
+
+		LOGGER.info("Stopped watching {}", roots);
+	}
+
+	/**
+	 * Wait for the next key. If there are pending changes, only wait until the oldest one is due.
+	 */
+	private WatchKey nextKey() throws InterruptedException {
+		if (pending.isEmpty()) {
+			return watchService.take();
+		}
+
+		PendingChange oldest = pending.values().iterator().next();
+		long wait = oldest.lastEvent + debounceNanos - System.nanoTime();
+
+		return wait > 0 ? watchService.poll(wait, TimeUnit.NANOSECONDS) : watchService.poll();
+	}
+
+	private void processEvents(WatchKey first) {
+		WatchKey key = first;
+
+		while (key != null) {
+			processKey(key);
+			key = watchService.poll();
+		}
+	}
+
+	private void processKey(WatchKey key) {
+		Path directory = watchedDirectories.get(key);
+
+		for (WatchEvent<?> event : key.pollEvents()) {
+			if (event.kind() == OVERFLOW) {
+				isOverflow = true;
+				continue;
+			}
+
+			if (directory == null || isOverflow) {
+				continue;
+			}
+
+			Path child = directory.resolve((Path) event.context());
+
+			if (event.kind() == ENTRY_DELETE) {
+				queue(child, watchedDirectories.containsValue(child) ? Change.DELETED_DIRECTORY : Change.DELETED);
+			} else if (event.kind() == ENTRY_CREATE && Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) {
+				watchTree(child, true);
+			} else {
+				queue(child, Change.CHANGED);
+			}
+		}
+
+		if (!key.reset()) {
+			watchedDirectories.remove(key);
+
+			if (directory != null && !isOverflow) {
+				queue(directory, Change.DELETED_DIRECTORY);
+			}
+		}
+	}
+
+	private void queue(Path path, Change change) {
+		PendingChange previous = pending.remove(path);
+
+		if (previous != null && previous.change == Change.DELETED_DIRECTORY && change == Change.DELETED) {
+			change = Change.DELETED_DIRECTORY;
+		}
+
+		pending.put(path, new PendingChange(change, System.nanoTime()));
+	}
+
+	/**
+	 * Process the changes that have been quiet for the debounce time. The map is in event order, so processing stops
+	 * at the first change that is not due yet.
+	 */
+	private void processDueChanges(long now) {
+		Iterator<Entry<Path, PendingChange>> iter = pending.entrySet().iterator();
+
+		while (iter.hasNext() && !Thread.currentThread().isInterrupted()) {
+			Entry<Path, PendingChange> entry = iter.next();
+
+			if (now - entry.getValue().lastEvent < debounceNanos) {
+				break;
+			}
+
+			iter.remove();
+
+			if (entry.getValue().change == Change.CHANGED) {
+				processChanged(entry.getKey());
+			} else {
+				processDeleted(entry.getKey(), entry.getValue().change == Change.DELETED_DIRECTORY);
+			}
+		}
+	}
+
+	private void processChanged(Path file) {
+		try {
+			if (!Files.isRegularFile(file) || !fileFilter.accept(file) || isUnchanged(file)) {
+				return;
+			}
+		} catch (IOException | RepositoryException e) {
+			LOGGER.warn("Failed to check {}: {}", file, e.toString());
+			return;
+		}
+
+		statistics.incrementFoundFiles();
+		boolean isHandled = handle(file);
+		statistics.incrementProcessedFiles();
+
+		if (!isHandled) {
+			statistics.incrementFailedFiles();
+			LOGGER.error("No handler was able to process {}", file);
+		}
+	}
+
+	/**
+	 * Check if the file is already indexed with the same content. Writing extended attributes also triggers a modify
+	 * event, so this prevents hashing a file again after it was hashed. If the record has no content digest, the
+	 * extended attributes are checked instead. The record of a changed file is removed, so the handlers will not skip
+	 * it.
+	 */
+	private boolean isUnchanged(Path file) throws IOException, RepositoryException {
+		if (imageRepository == null) {
+			return false;
+		}
+
+		ImageRecord record = imageRepository.getByPath(file);
+
+		if (record == null) {
+			return false;
+		}
+
+		if (record.hasContentDigest()) {
+			if (record.getFileSize() == Files.size(file)) {
+				try (InputStream is = Files.newInputStream(file)) {
+					if (record.getDigest() == ContentDigest.digest(is)) {
+						LOGGER.trace("{} is unchanged", file);
+						return true;
+					}
+				}
+			}
+		} else if (hasValidHashAttribute(file, record)) {
+			LOGGER.trace("{} is unchanged according to its extended attributes", file);
+			return true;
+		}
+
+		LOGGER.debug("{} has changed, removing old record", file);
+		imageRepository.remove(record);
+		return false;
+	}
+
+	private boolean hasValidHashAttribute(Path file, ImageRecord record) throws IOException {
+		if (hashAttribute == null) {
+			return false;
+		}
+
+		try {
+			return hashAttribute.readHash(file) == record.getpHash();
+		} catch (InvalidAttributeValueException e) {
+			return false;
+		}
+	}
+
+	private boolean handle(Path file) {
+		for (HashHandler handler : handlers) {
+			if (handler.handle(file)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private void processDeleted(Path path, boolean isDirectory) {
+		if (imageRepository == null || Files.exists(path, LinkOption.NOFOLLOW_LINKS)) {
+			return;
+		}
+
+		try {
+			ImageRecord record = imageRepository.getByPath(path);
+
+			if (record != null) {
+				LOGGER.debug("Removing deleted image {}", path);
+				imageRepository.remove(record);
+			}
+
+			if (isDirectory) {
+				removeMissing(path);
+			}
+		} catch (RepositoryException e) {
+			LOGGER.warn("Failed to remove deleted image {}: {}", path, e.toString());
+		}
+	}
+
+	/**
+	 * Remove all records under the directory whose file no longer exists.
+	 */
+	private void removeMissing(Path directory) throws RepositoryException {
+		List<String> missing = new ArrayList<>();
+
+		imageRepository.forEachPath(directory, path -> {
+			if (Files.notExists(directory.getFileSystem().getPath(path), LinkOption.NOFOLLOW_LINKS)) {
+				missing.add(path);
+			}
+		});
+
+		for (String path : missing) {
+			ImageRecord record = imageRepository.getByPath(directory.getFileSystem().getPath(path));
+
+			if (record != null) {
+				imageRepository.remove(record);
+			}
+		}
+
+		if (!missing.isEmpty()) {
+			LOGGER.info("Removed {} deleted images under {}", missing.size(), directory);
+		}
+	}
+
+	/**
+	 * Register watches for the directory and all sub-directories. Files in a new directory are queued, as they may
+	 * have been created before the watch was registered.
+	 */
+	private void watchTree(Path start, boolean queueFiles) {
+		try {
+			Files.walkFileTree(start, new SimpleFileVisitor<Path>() {
+				@Override
+				public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+					watchedDirectories.forcePut(dir.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY),
+							dir);
+					return FileVisitResult.CONTINUE;
+				}
+
+				@Override
+				public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+					if (queueFiles) {
+						queue(file, Change.CHANGED);
+					}
+
+					return FileVisitResult.CONTINUE;
+				}
+
+				@Override
+				public FileVisitResult visitFileFailed(Path file, IOException exc) {
+					LOGGER.warn("Failed to watch {}: {}", file, exc.toString());
+					return FileVisitResult.CONTINUE;
+				}
+			});
+		} catch (IOException e) {
+			LOGGER.warn("Failed to watch {}: {}", start, e.toString());
+		}
+	}
+
+	/**
+	 * Walk all roots like a normal scan, register watches for all directories and remove images that no longer exist.
+	 * Pending changes are discarded, as the scan covers them.
+	 */
+	private void reconcile() {
+		isOverflow = false;
+		pending.clear();
+
+		for (Path root : roots) {
+			watchTree(root, false);
+
+			ImageFindJob findJob = new ImageFindJob(root.toString(),
+					new ImageFindJobVisitor(fileFilter, handlers, statistics));
+			findJob.setImageRepository(imageRepository);
+			findJob.run();
+
+			if (imageRepository != null) {
+				try {
+					removeMissing(root);
+				} catch (RepositoryException e) {
+					LOGGER.warn("Failed to remove deleted images under {}: {}", root, e.toString());
+				}
+			}
+		}
+	}
+
+	private static final class PendingChange {
+		private final Change change;
+		private final long lastEvent;
+
+		PendingChange(Change change, long lastEvent) {
+			this.change = change;
+			this.lastEvent = lastEvent;
+		}
+	}
+}
@@ -0,0 +1,210 @@
+/*  Copyright (C) 2016  Nicholas Wright
+    
+    This file is part of similarImage - A similar image finder using pHash
+    
+    similarImage is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.similarImage.thread;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import javax.imageio.IIOException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.dozedoff.similarImage.db.ImageHashRecord;
+import com.github.dozedoff.similarImage.db.ImageRecord;
+import com.github.dozedoff.similarImage.db.repository.ImageHashRepository;
+import com.github.dozedoff.similarImage.db.repository.ImageRepository;
+import com.github.dozedoff.similarImage.db.repository.RepositoryException;
+import com.github.dozedoff.similarImage.duplicate.WideHash;
+import com.github.dozedoff.similarImage.handler.HashNames;
+import com.github.dozedoff.similarImage.image.FirstFrameGifDecoder;
+import com.github.dozedoff.similarImage.image.ImageDecodeService;
+import com.github.dozedoff.similarImage.image.MultiHasher;
+import com.github.dozedoff.similarImage.image.SubsamplingImageDecoder;
+import com.github.dozedoff.similarImage.image.WideDctHash;
+import com.github.dozedoff.similarImage.io.ByteBufferInputstream;
+import com.github.dozedoff.similarImage.io.HashAttribute;
+import com.github.dozedoff.similarImage.io.MappedFileLoader;
+import com.github.dozedoff.similarImage.io.Statistics;
+
+/**
+ * Load an image once and calculate the hashes of all hash families of a {@link MultiHasher}. The
+ * {@link HashNames#DEFAULT_DCT_HASH_2} hash is stored as an {@link ImageRecord}, all other hashes are stored as
+ * {@link ImageHashRecord}. If a {@link WideDctHash} is set, the wide hash is stored with the {@link ImageRecord}. Each
+ * hash can additionally be written as an extended attribute.<br>
+ * Images are decoded at full resolution, so the hashes are identical to the hashes of a single hasher, unless a
+ * {@link SubsamplingImageDecoder} is set.
+ * 
+ * @author Nicholas Wright
+ * 
+ */
+public class MultiHashJob implements Runnable {
+	private static final Logger LOGGER = LoggerFactory.getLogger(MultiHashJob.class);
+	private static final String EXCEPTION_STACKTRACE = "Trace for {} {}";
+
+	private final Path image;
+	private final MultiHasher hasher;
+	private final ImageRepository imageRepository;
+	private final ImageHashRepository imageHashRepository;
+	private final Statistics statistics;
+	private Map<String, HashAttribute> hashAttributes = Collections.emptyMap();
+	private WideDctHash wideHasher;
+	private SubsamplingImageDecoder imageDecoder;
+	private MappedFileLoader fileLoader;
+
+	/**
+	 * Create a job that will hash an image with multiple hash families and store the results.
+	 * 
+	 * @param image
+	 *            to hash
+	 * @param hasher
+	 *            calculates the hashes
+	 * @param imageRepository
+	 *            access to the image datasource
+	 * @param imageHashRepository
+	 *            access to the additional hashes datasource
+	 * @param statistics
+	 *            tracking file stats
+	 */
+	public MultiHashJob(Path image, MultiHasher hasher, ImageRepository imageRepository,
+			ImageHashRepository imageHashRepository, Statistics statistics) {
+		this.image = image;
+		this.hasher = hasher;
+		this.imageRepository = imageRepository;
+		this.imageHashRepository = imageHashRepository;
+		this.statistics = statistics;
+		this.fileLoader = new MappedFileLoader();
+	}
+
+	/**
+	 * Set the {@link HashAttribute}s used to write hashes as extended attributes. Hashes without a matching attribute
+	 * are only stored in the repository.
+	 * 
+	 * @param hashAttributes
+	 *            mapped by hash name
+	 */
+	public final void setHashAttributes(Map<String, HashAttribute> hashAttributes) {
+		this.hashAttributes = hashAttributes;
+	}
+
+	/**
+	 * Set the hasher used to calculate a wide hash, that is stored alongside the {@link HashNames#DEFAULT_DCT_HASH_2}
+	 * hash.
+	 * 
+	 * @param wideHasher
+	 *            to use, or null to not calculate wide hashes
+	 */
+	public final void setWideHasher(WideDctHash wideHasher) {
+		this.wideHasher = wideHasher;
+	}
+
+	/**
+	 * Set a {@link SubsamplingImageDecoder} to decode images at a reduced resolution before hashing. If not set, the
+	 * image is decoded at full resolution.
+	 * 
+	 * @param imageDecoder
+	 *            to use for decoding images
+	 */
+	public final void setImageDecoder(SubsamplingImageDecoder imageDecoder) {
+		this.imageDecoder = imageDecoder;
+	}
+
+	/**
+	 * Set the {@link MappedFileLoader} used to load files. By default, large files are memory-mapped.
+	 * 
+	 * @param fileLoader
+	 *            to use for loading files
+	 */
+	public final void setFileLoader(MappedFileLoader fileLoader) {
+		this.fileLoader = fileLoader;
+	}
+
+	@Override
+	public void run() {
+		try {
+			Map<String, Long> hashes = processFile(image);
+			writeAttributes(hashes);
+		} catch (IIOException e) {
+			LOGGER.warn("Failed to process image {} (IIO Error): {}", image, e.toString());
+			LOGGER.debug(EXCEPTION_STACKTRACE, image, e);
+			statistics.incrementFailedFiles();
+		} catch (IOException e) {
+			LOGGER.warn("Failed to load file {}: {}", image, e.toString());
+			statistics.incrementFailedFiles();
+		} catch (RepositoryException e) {
+			LOGGER.warn("Failed to query repository for {}: {}", image, e.toString());
+			statistics.incrementFailedFiles();
+		} catch (ArrayIndexOutOfBoundsException e) {
+			LOGGER.error("Failed to process image {}: {}", image, e.toString());
+			LOGGER.debug(EXCEPTION_STACKTRACE, image, e);
+			statistics.incrementFailedFiles();
+		}
+	}
+
+	private Map<String, Long> processFile(Path next) throws IOException, RepositoryException {
+		statistics.incrementProcessedFiles();
+
+		BufferedImage decoded = decode(next);
+		Map<String, Long> hashes = hasher.hash(decoded);
+		WideHash wideHash = wideHasher == null ? null : wideHasher.hash(decoded);
+
+		for (Entry<String, Long> hash : hashes.entrySet()) {
+			if (HashNames.DEFAULT_DCT_HASH_2.equals(hash.getKey())) {
+				imageRepository.store(new ImageRecord(next.toString(), hash.getValue(), wideHash));
+			} else {
+				imageHashRepository.store(new ImageHashRecord(next.toString(), hash.getKey(), hash.getValue()));
+			}
+		}
+
+		return hashes;
+	}
+
+	private BufferedImage decode(Path next) throws IOException {
+		ByteBuffer data = fileLoader.load(next);
+		BufferedImage decoded;
+
+		if (FirstFrameGifDecoder.isGif(next)) {
+			decoded = FirstFrameGifDecoder.decode(new ByteBufferInputstream(data));
+		} else if (imageDecoder == null) {
+			decoded = ImageDecodeService.getDefault().read(data);
+		} else {
+			decoded = imageDecoder.decode(data);
+		}
+
+		if (decoded == null) {
+			throw new IIOException("Image is null. Did ImageIO fail to decode the image?");
+		}
+
+		return decoded;
+	}
+
+	private void writeAttributes(Map<String, Long> hashes) {
+		for (Entry<String, Long> hash : hashes.entrySet()) {
+			HashAttribute attribute = hashAttributes.get(hash.getKey());
+
+			if (attribute != null) {
+				attribute.writeHash(image, hash.getValue());
+			}
+		}
+	}
+}
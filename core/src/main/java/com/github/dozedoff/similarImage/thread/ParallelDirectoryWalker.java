@@ -0,0 +1,340 @@
+/*  Copyright (C) 2016  Nicholas Wright
+    
+    This file is part of similarImage - A similar image finder using pHash
+    
+    similarImage is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.similarImage.thread;
+
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Walks a directory tree with a {@link ForkJoinPool}, listing directories in parallel. This hides the per-directory
+ * latency of network file systems. Like {@link Files#walk(Path, java.nio.file.FileVisitOption...)}, the start path,
+ * all directories and all files are returned and symbolic links are not followed.<br>
+ * The found paths are collected into batches and passed to a {@link BatchHandler} on the thread that called
+ * {@link #walk(Path, BatchHandler)}, so the handler does not need to be thread safe. The number of pending batches is
+ * bounded, so listing pauses if the handler cannot keep up. Directories that cannot be listed are logged and skipped.<br>
+ * A {@link DirectoryFilter} can be used to skip directory trees. Rejected directories are still returned, but they are
+ * not listed and no task is forked for them.
+ * 
+ * @author Nicholas Wright
+ * 
+ */
+public class ParallelDirectoryWalker {
+	private static final Logger LOGGER = LoggerFactory.getLogger(ParallelDirectoryWalker.class);
+
+	/**
+	 * Default number of directories listed in parallel.
+	 */
+	public static final int DEFAULT_PARALLELISM = 4;
+	/**
+	 * Default number of paths in a batch.
+	 */
+	public static final int DEFAULT_BATCH_SIZE = 256;
+
+	private static final int PENDING_BATCHES_PER_THREAD = 4;
+	private static final long POLL_TIMEOUT_MILLIS = 100;
+
+	private final int parallelism;
+	private final int batchSize;
+
+	/**
+	 * Handles the paths found by the walker.
+	 */
+	@FunctionalInterface
+	public interface BatchHandler {
+		/**
+		 * Handle a batch of found paths.
+		 * 
+		 * @param batch
+		 *            of found paths
+		 * @throws IOException
+		 *             if there is an error handling the paths, this will stop the walk
+		 */
+		void handle(List<Path> batch) throws IOException;
+	}
+
+	/**
+	 * Decides which directories are listed. Called from the listing threads, so implementations must be thread safe.
+	 */
+	@FunctionalInterface
+	public interface DirectoryFilter {
+		/**
+		 * Check if a directory should be listed. Called before the directory is listed.
+		 * 
+		 * @param directory
+		 *            that was found
+		 * @return true to list the directory, false to skip the directory and all its sub-directories
+		 */
+		boolean accept(Path directory);
+
+		/**
+		 * Called if an accepted directory could not be listed completely.
+		 * 
+		 * @param directory
+		 *            that failed to list
+		 * @param exc
+		 *            the cause of the failure
+		 */
+		default void failed(Path directory, IOException exc) {
+		}
+	}
+
+	/**
+	 * Create a walker with {@link #DEFAULT_PARALLELISM} and {@link #DEFAULT_BATCH_SIZE}.
+	 */
+	public ParallelDirectoryWalker() {
+		this(DEFAULT_PARALLELISM);
+	}
+
+	/**
+	 * Create a walker that lists the given number of directories in parallel.
+	 * 
+	 * @param parallelism
+	 *            number of threads used to list directories
+	 */
+	public ParallelDirectoryWalker(int parallelism) {
+		this(parallelism, DEFAULT_BATCH_SIZE);
+	}
+
+	/**
+	 * Create a walker that lists the given number of directories in parallel.
+	 * 
+	 * @param parallelism
+	 *            number of threads used to list directories
+	 * @param batchSize
+	 *            maximum number of paths passed to the handler at once
+	 */
+	public ParallelDirectoryWalker(int parallelism, int batchSize) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("Parallelism must be at least 1");
+		}
+
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("Batch size must be at least 1");
+		}
+
+		this.parallelism = parallelism;
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Get the number of directories listed in parallel.
+	 * 
+	 * @return the number of listing threads
+	 */
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * Walk the directory tree and pass the found paths to the handler. Returns once all paths have been handled.
+	 * 
+	 * @param start
+	 *            path to start the walk from
+	 * @param handler
+	 *            for the found paths, called on the current thread
+	 * @throws IOException
+	 *             if the start path cannot be accessed, or the handler failed
+	 * @throws InterruptedException
+	 *             if the thread was interrupted, the walk is stopped
+	 */
+	public void walk(Path start, BatchHandler handler) throws IOException, InterruptedException {
+		walk(start, directory -> true, handler);
+	}
+
+	/**
+	 * Walk the directory tree and pass the found paths to the handler. Directories rejected by the filter are not
+	 * listed. Returns once all paths have been handled.
+	 * 
+	 * @param start
+	 *            path to start the walk from
+	 * @param filter
+	 *            for the directories to list, called on the listing threads
+	 * @param handler
+	 *            for the found paths, called on the current thread
+	 * @throws IOException
+	 *             if the start path cannot be accessed, or the handler failed
+	 * @throws InterruptedException
+	 *             if the thread was interrupted, the walk is stopped
+	 */
+	public void walk(Path start, DirectoryFilter filter, BatchHandler handler)
+			throws IOException, InterruptedException {
+		if (!Files.exists(start, LinkOption.NOFOLLOW_LINKS)) {
+			throw new IOException("Start path " + start + " does not exist");
+		}
+
+		Walk walk = new Walk(parallelism * PENDING_BATCHES_PER_THREAD, filter);
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+
+		try {
+			ForkJoinTask<Void> root = pool.submit(walk.new DirectoryTask(start, true));
+			walk.handleBatches(root, handler);
+			root.get();
+		} catch (ExecutionException e) {
+			throw new IOException("Failed to walk " + start, e.getCause());
+		} finally {
+			walk.cancelled = true;
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * State of a single walk.
+	 */
+	private final class Walk {
+		private final BlockingQueue<List<Path>> batches;
+		private final DirectoryFilter filter;
+		private volatile boolean cancelled;
+
+		Walk(int pendingBatches, DirectoryFilter filter) {
+			this.batches = new LinkedBlockingQueue<>(pendingBatches);
+			this.filter = filter;
+		}
+
+		boolean isListed(Path path) {
+			return Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS) && filter.accept(path);
+		}
+
+		void handleBatches(ForkJoinTask<Void> root, BatchHandler handler) throws IOException, InterruptedException {
+			while (true) {
+				if (Thread.interrupted()) {
+					throw new InterruptedException("Directory walk was interrupted");
+				}
+
+				List<Path> batch = batches.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+
+				if (batch != null) {
+					handler.handle(batch);
+				} else if (root.isDone() && batches.isEmpty()) {
+					return;
+				}
+			}
+		}
+
+		void publish(List<Path> batch) throws InterruptedException {
+			if (batch.isEmpty()) {
+				return;
+			}
+
+			ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker() {
+				@Override
+				public boolean isReleasable() {
+					return cancelled || batches.offer(batch);
+				}
+
+				@Override
+				public boolean block() throws InterruptedException {
+					while (!cancelled && !batches.offer(batch, POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+						// retry until there is space or the walk is cancelled
+					}
+
+					return true;
+				}
+			});
+		}
+
+		/**
+		 * Lists a directory, forking a task for every accepted sub-directory. Only the start directory is checked
+		 * by its own task, all other directories are checked before their task is forked.
+		 */
+		private final class DirectoryTask extends RecursiveAction {
+			private static final long serialVersionUID = 1L;
+
+			private final Path directory;
+			private final boolean includeSelf;
+
+			DirectoryTask(Path directory, boolean includeSelf) {
+				this.directory = directory;
+				this.includeSelf = includeSelf;
+			}
+
+			@Override
+			protected void compute() {
+				List<DirectoryTask> subTasks = new LinkedList<>();
+				List<Path> batch = new ArrayList<>(batchSize);
+
+				if (includeSelf) {
+					batch.add(directory);
+				}
+
+				try {
+					if (!includeSelf || isListed(directory)) {
+						listDirectory(batch, subTasks);
+					}
+
+					publish(batch);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+
+				for (DirectoryTask task : subTasks) {
+					task.join();
+				}
+			}
+
+			private void listDirectory(List<Path> batch, List<DirectoryTask> subTasks) throws InterruptedException {
+				try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+					for (Path entry : stream) {
+						if (cancelled) {
+							return;
+						}
+
+						batch.add(entry);
+
+						if (isListed(entry)) {
+							DirectoryTask task = new DirectoryTask(entry, false);
+							task.fork();
+							subTasks.add(task);
+						}
+
+						if (batch.size() >= batchSize) {
+							publish(new ArrayList<>(batch));
+							batch.clear();
+						}
+					}
+				} catch (IOException e) {
+					listingFailed(e);
+				} catch (DirectoryIteratorException e) {
+					listingFailed(e.getCause());
+				}
+			}
+
+			private void listingFailed(IOException e) {
+				LOGGER.warn("Failed to list directory {}: {}", directory, e.toString());
+				filter.failed(directory, e);
+			}
+		}
+	}
+}
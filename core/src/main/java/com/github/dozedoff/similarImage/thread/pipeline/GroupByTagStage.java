@@ -17,12 +17,12 @@
  */
 package com.github.dozedoff.similarImage.thread.pipeline;
 
-import java.util.Collection;
 import java.util.function.Function;
 
 import com.github.dozedoff.similarImage.db.ImageRecord;
 import com.github.dozedoff.similarImage.db.Tag;
 import com.github.dozedoff.similarImage.db.repository.FilterRepository;
+import com.github.dozedoff.similarImage.duplicate.HammingIndexType;
 import com.github.dozedoff.similarImage.duplicate.RecordSearch;
 import com.github.dozedoff.similarImage.thread.TagFilter;
 import com.google.common.collect.Multimap;
@@ -34,7 +34,7 @@ import com.google.common.collect.MultimapBuilder;
  * @author Nicholas Wright
  *
  */
-public class GroupByTagStage implements Function<Collection<ImageRecord>, Multimap<Long, ImageRecord>> {
+public class GroupByTagStage implements Function<Iterable<ImageRecord>, Multimap<Long, ImageRecord>> {
 	private final Tag tag;
 	private final int hammingDistance;
 	private final FilterRepository filterRepository;
@@ -51,10 +51,27 @@ public class GroupByTagStage implements Function<Collection<ImageRecord>, Multim
 	 *            in which hashes are considered a match
 	 */
 	public GroupByTagStage(FilterRepository filterRepository, Tag tag, int hammingDistance) {
+		this(filterRepository, tag, hammingDistance, HammingIndexType.BK_TREE);
+	}
+
+	/**
+	 * Create a grouper that will only group images that match tagged hashs.
+	 * 
+	 * @param filterRepository
+	 *            to access the filter datasource
+	 * @param tag
+	 *            to use for hash query
+	 * @param hammingDistance
+	 *            in which hashes are considered a match
+	 * @param indexType
+	 *            the index used to search hashes
+	 */
+	public GroupByTagStage(FilterRepository filterRepository, Tag tag, int hammingDistance,
+			HammingIndexType indexType) {
 		this.filterRepository = filterRepository;
 		this.tag = tag;
 		this.hammingDistance = hammingDistance;
-		this.rs = new RecordSearch();
+		this.rs = new RecordSearch(indexType);
 	}
 
 	/**
@@ -78,7 +95,7 @@ public class GroupByTagStage implements Function<Collection<ImageRecord>, Multim
 	 * @return a {@link Multimap} of grouped images
 	 */
 	@Override
-	public Multimap<Long, ImageRecord> apply(Collection<ImageRecord> t) {
+	public Multimap<Long, ImageRecord> apply(Iterable<ImageRecord> t) {
 		Multimap<Long, ImageRecord> result = MultimapBuilder.hashKeys().hashSetValues().build();
 		
 		rs.build(t);
@@ -88,4 +105,13 @@ public class GroupByTagStage implements Function<Collection<ImageRecord>, Multim
 
 		return result;
 	}
+
+	/**
+	 * Get the index used to search hashes.
+	 * 
+	 * @return the index type
+	 */
+	public HammingIndexType getIndexType() {
+		return rs.getIndexType();
+	}
 }
@@ -17,30 +17,41 @@
  */
 package com.github.dozedoff.similarImage.thread.pipeline;
 
-import java.util.Collection;
-import java.util.function.Consumer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
 import java.util.function.Function;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.github.dozedoff.similarImage.db.ImageRecord;
+import com.github.dozedoff.similarImage.duplicate.HammingIndexType;
+import com.github.dozedoff.similarImage.duplicate.HammingJoin;
+import com.github.dozedoff.similarImage.duplicate.RecordGroups;
 import com.github.dozedoff.similarImage.duplicate.RecordSearch;
+import com.github.dozedoff.similarImage.duplicate.RecordStore;
+import com.github.dozedoff.similarImage.duplicate.WideHash;
 import com.google.common.base.Stopwatch;
 import com.google.common.collect.Multimap;
-import com.google.common.collect.MultimapBuilder;
 
 /**
- * Stage to group images by hash.
+ * Stage to group images by hash. Optionally images with a {@link WideHash} are grouped by their wide hash, which gives
+ * fewer false positives at larger distances. The groups are still keyed by the 64 bit hash.<br>
+ * The hamming distance is given for 64 bits. For wide hashes it is scaled to the length of the hash, so a 256 bit hash
+ * is matched with four times the distance.
  * 
  * @author Nicholas Wright
  *
  */
-public class GroupImagesStage implements Function<Collection<ImageRecord>, Multimap<Long, ImageRecord>> {
+public class GroupImagesStage implements Function<Iterable<ImageRecord>, Multimap<Long, ImageRecord>> {
 	private static final Logger LOGGER = LoggerFactory.getLogger(GroupImagesStage.class);
 
 	private final RecordSearch rs;
 	private final int hammingDistance;
+	private final boolean useWideHash;
 
 	/**
 	 * Groups images by hashes that are a exact match, i.e. have a hamming distance of 0;
@@ -56,34 +67,139 @@ public class GroupImagesStage implements Function<Collection<ImageRecord>, Multi
 	 *            group all images within this distance
 	 */
 	public GroupImagesStage(int hammingDistance) {
+		this(hammingDistance, false);
+	}
+
+	/**
+	 * Groups images by hashes that are within the given hamming distance;
+	 * 
+	 * @param hammingDistance
+	 *            group all images within this distance
+	 * @param useWideHash
+	 *            if true, images that have a wide hash are matched using the wide hash. Images without a wide hash
+	 *            are matched with the 64 bit hash.
+	 */
+	public GroupImagesStage(int hammingDistance, boolean useWideHash) {
+		this(hammingDistance, useWideHash, HammingIndexType.BK_TREE);
+	}
+
+	/**
+	 * Groups images by hashes that are within the given hamming distance;
+	 * 
+	 * @param hammingDistance
+	 *            group all images within this distance
+	 * @param useWideHash
+	 *            if true, images that have a wide hash are matched using the wide hash, with the distance scaled to
+	 *            the length of the hash. Images without a wide hash are matched with the 64 bit hash.
+	 * @param indexType
+	 *            the index used to search 64 bit hashes
+	 */
+	public GroupImagesStage(int hammingDistance, boolean useWideHash, HammingIndexType indexType) {
 		this.hammingDistance = hammingDistance;
-		this.rs = new RecordSearch();
+		this.useWideHash = useWideHash;
+		this.rs = new RecordSearch(indexType);
 	}
 
 	/**
-	 * Group images by hash. The group will contain a distinct set of images.
+	 * Group images by hash. The group will contain a distinct set of images. The images are only iterated once. The 64
+	 * bit hashes are matched with a single {@link HammingJoin} over the distinct hashes, which runs in parallel. Wide
+	 * hashes are searched once per distinct hash, the matches are shared by all groups containing that hash.<br>
+	 * The groups are returned as {@link RecordGroups}, which only store the ids of the images. The {@link ImageRecord}s
+	 * are created when a group is iterated.
 	 * 
 	 * @param toGroup
 	 *            imagese to group
 	 * @return a {@link Multimap} of grouped images
 	 */
 	@Override
-	public Multimap<Long, ImageRecord> apply(Collection<ImageRecord> toGroup) {
-		Multimap<Long, ImageRecord> resultMap = MultimapBuilder.hashKeys().hashSetValues().build();
+	public Multimap<Long, ImageRecord> apply(Iterable<ImageRecord> toGroup) {
 		rs.build(toGroup);
 
 		Stopwatch sw = Stopwatch.createStarted();
-		toGroup.forEach(new Consumer<ImageRecord>() {
-			@Override
-			public void accept(ImageRecord t) {
-				resultMap.putAll(t.getpHash(), rs.distanceMatch(t.getpHash(), hammingDistance).values());
+		RecordStore records = rs.getRecordStore();
+		RecordGroups.Builder groups = RecordGroups.builder(records);
+		HammingJoin join = null;
+		Map<WideHash, int[]> wideMatches = new HashMap<>();
+		long pairs = 0;
+
+		for (int i = 0; i < records.getHashCount(); i++) {
+			int[] ids = new int[0];
+			boolean matchHash = false;
+			Set<WideHash> groupWideHashes = null;
+
+			for (int position = records.getGroupStart(i); position < records.getGroupEnd(i); position++) {
+				WideHash wideHash = useWideHash ? records.getWideHash(records.getId(position)) : null;
+
+				if (wideHash == null) {
+					matchHash = true;
+					continue;
+				}
+
+				if (groupWideHashes == null) {
+					groupWideHashes = new HashSet<>();
+				}
+
+				if (groupWideHashes.add(wideHash)) {
+					int[] matches = wideMatches.computeIfAbsent(wideHash,
+							hash -> rs.distanceMatchIds(hash, wideHashDistance(hash)));
+
+					// the matches are shared between groups, but the builder sorts the ids in place
+					ids = ids.length == 0 ? matches.clone() : append(ids, matches);
+				}
+			}
+
+			if (matchHash) {
+				if (join == null) {
+					join = rs.distanceJoin(hammingDistance);
+				}
+
+				ids = append(ids, matchedIds(records, join, i));
 			}
-		});
 
-		LOGGER.info("Built result map with {} pairs in {}, using hamming distance {}", resultMap.size(), sw,
-				hammingDistance);
+			groups.put(records.getUniqueHash(i), ids);
+			pairs += ids.length;
+		}
 
-		return resultMap;
+		LOGGER.info("Built result map with {} pairs in {}, using hamming distance {}", pairs, sw, hammingDistance);
+
+		return groups.build();
+	}
+
+	private int wideHashDistance(WideHash wideHash) {
+		return hammingDistance * wideHash.getBitLength() / Long.SIZE;
+	}
+
+	private static int[] matchedIds(RecordStore records, HammingJoin join, int index) {
+		int size = 0;
+
+		for (int match = join.getMatchesStart(index); match < join.getMatchesEnd(index); match++) {
+			int group = join.getMatchIndex(match);
+			size += records.getGroupEnd(group) - records.getGroupStart(group);
+		}
+
+		int[] ids = new int[size];
+		int next = 0;
+
+		for (int match = join.getMatchesStart(index); match < join.getMatchesEnd(index); match++) {
+			int group = join.getMatchIndex(match);
+
+			for (int position = records.getGroupStart(group); position < records.getGroupEnd(group); position++) {
+				ids[next++] = records.getId(position);
+			}
+		}
+
+		return ids;
+	}
+
+	private static int[] append(int[] ids, int[] toAppend) {
+		if (ids.length == 0) {
+			return toAppend;
+		}
+
+		int[] appended = Arrays.copyOf(ids, ids.length + toAppend.length);
+		System.arraycopy(toAppend, 0, appended, ids.length, toAppend.length);
+
+		return appended;
 	}
 
 	/**
@@ -94,4 +210,22 @@ public class GroupImagesStage implements Function<Collection<ImageRecord>, Multi
 	public int getHammingDistance() {
 		return hammingDistance;
 	}
+
+	/**
+	 * Check if wide hashes are used for grouping.
+	 * 
+	 * @return true if images with wide hashes are matched by wide hash
+	 */
+	public boolean isUsingWideHash() {
+		return useWideHash;
+	}
+
+	/**
+	 * Get the index used to search 64 bit hashes.
+	 * 
+	 * @return the index type
+	 */
+	public HammingIndexType getIndexType() {
+		return rs.getIndexType();
+	}
 }
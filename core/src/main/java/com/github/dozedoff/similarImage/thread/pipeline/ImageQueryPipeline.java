@@ -19,7 +19,6 @@ package com.github.dozedoff.similarImage.thread.pipeline;
 
 import java.nio.file.Path;
 import java.util.Collection;
-import java.util.List;
 import java.util.function.Function;
 
 import com.github.dozedoff.similarImage.db.ImageRecord;
@@ -39,8 +38,8 @@ import com.google.common.collect.Multimap;
  *
  */
 public class ImageQueryPipeline implements Function<Path, Multimap<Long, ImageRecord>> {
-	private final Function<Path, List<ImageRecord>> imageQueryStage;
-	private final Function<Collection<ImageRecord>, Multimap<Long, ImageRecord>> imageGrouper;
+	private final Function<Path, ? extends Iterable<ImageRecord>> imageQueryStage;
+	private final Function<Iterable<ImageRecord>, Multimap<Long, ImageRecord>> imageGrouper;
 	private Collection<Function<Multimap<Long, ImageRecord>, Multimap<Long, ImageRecord>>> postProcessingStages;
 	
 	/**
@@ -53,8 +52,8 @@ public class ImageQueryPipeline implements Function<Path, Multimap<Long, ImageRe
 	 * @param postProcessingStages
 	 *            stages for performing post-processing
 	 */
-	public ImageQueryPipeline(Function<Path, List<ImageRecord>> imageQueryStage,
-			Function<Collection<ImageRecord>, Multimap<Long, ImageRecord>> imageGrouper,
+	public ImageQueryPipeline(Function<Path, ? extends Iterable<ImageRecord>> imageQueryStage,
+			Function<Iterable<ImageRecord>, Multimap<Long, ImageRecord>> imageGrouper,
 			Collection<Function<Multimap<Long, ImageRecord>, Multimap<Long, ImageRecord>>> postProcessingStages) {
 		this.imageQueryStage = imageQueryStage;
 		this.imageGrouper = imageGrouper;
@@ -71,7 +70,7 @@ public class ImageQueryPipeline implements Function<Path, Multimap<Long, ImageRe
 	 */
 	@Override
 	public Multimap<Long, ImageRecord> apply(Path path) {
-		List<ImageRecord> images = imageQueryStage.apply(path);
+		Iterable<ImageRecord> images = imageQueryStage.apply(path);
 		Multimap<Long, ImageRecord> groups = imageGrouper.apply(images);
 		return postProcessing(groups);
 	}
@@ -100,7 +99,7 @@ public class ImageQueryPipeline implements Function<Path, Multimap<Long, ImageRe
 	 * 
 	 * @return image grouper for this instance
 	 */
-	public Function<Collection<ImageRecord>, Multimap<Long, ImageRecord>> getImageGrouper() {
+	public Function<Iterable<ImageRecord>, Multimap<Long, ImageRecord>> getImageGrouper() {
 		return imageGrouper;
 	}
 }
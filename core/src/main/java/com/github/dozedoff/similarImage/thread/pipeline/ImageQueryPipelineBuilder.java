@@ -18,7 +18,6 @@
 package com.github.dozedoff.similarImage.thread.pipeline;
 
 import java.nio.file.Path;
-import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.function.Function;
@@ -30,6 +29,7 @@ import com.github.dozedoff.similarImage.db.ImageRecord;
 import com.github.dozedoff.similarImage.db.Tag;
 import com.github.dozedoff.similarImage.db.repository.FilterRepository;
 import com.github.dozedoff.similarImage.db.repository.ImageRepository;
+import com.github.dozedoff.similarImage.duplicate.HammingIndexType;
 import com.google.common.collect.Multimap;
 
 /**
@@ -44,10 +44,12 @@ public class ImageQueryPipelineBuilder {
 	private final ImageRepository imageRepository;
 	private final FilterRepository filterRepository;
 
-	private Function<Path, List<ImageRecord>> imageQuery;
+	private Function<Path, Iterable<ImageRecord>> imageQuery;
 	private List<Function<Multimap<Long, ImageRecord>, Multimap<Long, ImageRecord>>> postProcessing;
 	private int hammingDistance;
-	private Function<Collection<ImageRecord>, Multimap<Long, ImageRecord>> imageGrouper;
+	private boolean useWideHash;
+	private HammingIndexType indexType;
+	private Function<Iterable<ImageRecord>, Multimap<Long, ImageRecord>> imageGrouper;
 
 	/**
 	 * Create a new builder that can be used to create {@link ImageQueryPipeline}.
@@ -63,6 +65,7 @@ public class ImageQueryPipelineBuilder {
 		this.imageQuery = new ImageQueryStage(imageRepository);
 		this.postProcessing = new LinkedList<>();
 		this.hammingDistance = 0;
+		this.indexType = HammingIndexType.BK_TREE;
 	}
 
 	/**
@@ -132,6 +135,39 @@ public class ImageQueryPipelineBuilder {
 		return this;
 	}
 
+	/**
+	 * Match images using the wide hash, if they have one. Must be set before the grouping stage.
+	 * 
+	 * @return instance of this builder for method chaining
+	 */
+	public ImageQueryPipelineBuilder wideHash() {
+		return wideHash(true);
+	}
+
+	/**
+	 * Set if images are matched using the wide hash, if they have one. Must be set before the grouping stage.
+	 * 
+	 * @param useWideHash
+	 *            if true, images are matched using the wide hash
+	 * @return instance of this builder for method chaining
+	 */
+	public ImageQueryPipelineBuilder wideHash(boolean useWideHash) {
+		this.useWideHash = useWideHash;
+		return this;
+	}
+
+	/**
+	 * Set the index used to search for hashes within the hamming distance. Must be set before the grouping stage.
+	 * 
+	 * @param indexType
+	 *            the index to use
+	 * @return instance of this builder for method chaining
+	 */
+	public ImageQueryPipelineBuilder searchIndex(HammingIndexType indexType) {
+		this.indexType = indexType;
+		return this;
+	}
+
 	/**
 	 * Group images by hashes that are tagged with the given tag.
 	 * 
@@ -140,7 +176,7 @@ public class ImageQueryPipelineBuilder {
 	 * @return instance of this builder for method chaining
 	 */
 	public ImageQueryPipelineBuilder groupByTag(Tag tag) {
-		this.imageGrouper = new GroupByTagStage(filterRepository, tag, hammingDistance);
+		this.imageGrouper = new GroupByTagStage(filterRepository, tag, hammingDistance, indexType);
 		return this;
 	}
 
@@ -150,7 +186,7 @@ public class ImageQueryPipelineBuilder {
 	 * @return instance of this builder for method chaining
 	 */
 	public ImageQueryPipelineBuilder groupAll() {
-		this.imageGrouper = new GroupImagesStage(hammingDistance);
+		this.imageGrouper = new GroupImagesStage(hammingDistance, useWideHash, indexType);
 		return this;
 	}
 
@@ -161,7 +197,7 @@ public class ImageQueryPipelineBuilder {
 	 */
 	public ImageQueryPipeline build() {
 		if (imageGrouper == null) {
-			imageGrouper = new GroupImagesStage(hammingDistance);
+			imageGrouper = new GroupImagesStage(hammingDistance, useWideHash, indexType);
 			LOGGER.warn("No image group stage set, using {}", imageGrouper.getClass().getSimpleName());
 		}
 
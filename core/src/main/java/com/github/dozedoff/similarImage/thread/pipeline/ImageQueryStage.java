@@ -20,7 +20,6 @@ package com.github.dozedoff.similarImage.thread.pipeline;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Collections;
-import java.util.List;
 import java.util.function.Function;
 
 import org.slf4j.Logger;
@@ -31,12 +30,12 @@ import com.github.dozedoff.similarImage.db.repository.ImageRepository;
 import com.github.dozedoff.similarImage.db.repository.RepositoryException;
 
 /**
- * Stage to get image records.
+ * Stage to get image records. The records are streamed from the repository when the result is iterated.
  * 
  * @author Nicholas Wright
  *
  */
-public class ImageQueryStage implements Function<Path, List<ImageRecord>> {
+public class ImageQueryStage implements Function<Path, Iterable<ImageRecord>> {
 	private static final Logger LOGGER = LoggerFactory.getLogger(ImageQueryStage.class);
 
 	private final ImageRepository imageRepository;
@@ -52,27 +51,25 @@ public class ImageQueryStage implements Function<Path, List<ImageRecord>> {
 	}
 
 	/**
-	 * Query for the given path.
+	 * Query for the given path. Every iteration of the result streams the records from the repository again, without
+	 * holding all records in memory.
 	 * 
 	 * @param path
 	 *            path to limit query. If null or empty, all images will be returned.
 	 * 
-	 * @return a list of images
+	 * @return images, read in batches as the result is iterated
 	 */
 	@Override
-	public List<ImageRecord> apply(Path path) {
-		List<ImageRecord> result = Collections.emptyList();
+	public Iterable<ImageRecord> apply(Path path) {
+		Path directory = (path == null || Paths.get("").equals(path)) ? null : path;
 
-		try {
-			if (path == null || Paths.get("").equals(path)) {
-				result = imageRepository.getAll();
-			} else {
-				result = imageRepository.startsWithPath(path);
+		return () -> {
+			try {
+				return imageRepository.stream(directory).iterator();
+			} catch (RepositoryException e) {
+				LOGGER.error("Failed to query images: {}, cause: {}", e.toString(), e.getCause());
+				return Collections.emptyIterator();
 			}
-		} catch (RepositoryException e) {
-			LOGGER.error("Failed to query images: {}, cause: {}", e.toString(), e.getCause());
-		}
-
-		return result;
+		};
 	}
 }
@@ -19,7 +19,6 @@ package com.github.dozedoff.similarImage.util;
 
 import java.awt.image.BufferedImage;
 import java.io.BufferedInputStream;
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -28,7 +27,9 @@ import java.nio.file.Path;
 
 import javax.imageio.ImageIO;
 
-import at.dhyan.open_imaging.GifDecoder;
+import com.github.dozedoff.similarImage.image.FirstFrameGifDecoder;
+import com.github.dozedoff.similarImage.image.ImageDecodeService;
+import com.github.dozedoff.similarImage.image.SubsamplingImageDecoder;
 
 public abstract class ImageUtil {
 	/**
@@ -41,8 +42,7 @@ public abstract class ImageUtil {
 	 *             on error during conversion
 	 */
 	public static BufferedImage bytesToImage(byte[] data) throws IOException {
-		InputStream is = new ByteArrayInputStream(data);
-		return ImageIO.read(is);
+		return ImageDecodeService.getDefault().read(data);
 	}
 
 	/**
@@ -73,15 +73,34 @@ public abstract class ImageUtil {
 	 */
 	public static BufferedImage loadImage(Path path) throws IOException {
 		try (InputStream is = new BufferedInputStream(Files.newInputStream(path))) {
-			BufferedImage bi;
+			if (FirstFrameGifDecoder.isGif(path)) {
+				return FirstFrameGifDecoder.decode(is);
+			}
+
+			return ImageDecodeService.getDefault().read(is);
+		}
+	}
 
-			try {
-				bi = ImageIO.read(is);
-			} catch (ArrayIndexOutOfBoundsException e) {
-				bi = GifDecoder.read(is).getFrame(0);
+	/**
+	 * Load an image from the given path at the reduced resolution of the decoder. Use this instead of
+	 * {@link #loadImage(Path)} if the image will be scaled down anyway. GIF images are always loaded at full
+	 * resolution.
+	 * 
+	 * @param path
+	 *            to the image to load
+	 * @param decoder
+	 *            used to decode the image, the caller should re-use it for all images
+	 * @return the loaded image
+	 * @throws IOException
+	 *             if there is an error reading the image
+	 */
+	public static BufferedImage loadImage(Path path, SubsamplingImageDecoder decoder) throws IOException {
+		try (InputStream is = new BufferedInputStream(Files.newInputStream(path))) {
+			if (FirstFrameGifDecoder.isGif(path)) {
+				return FirstFrameGifDecoder.decode(is);
 			}
 
-			return bi;
+			return decoder.decode(is);
 		}
 	}
 }
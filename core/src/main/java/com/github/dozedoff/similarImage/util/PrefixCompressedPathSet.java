@@ -0,0 +1,395 @@
+/*  Copyright (C) 2016  Nicholas Wright
+    
+    This file is part of similarImage - A similar image finder using pHash
+    
+    similarImage is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.similarImage.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Immutable set of paths, stored as sorted UTF-8 byte strings with front coding. Paths that share a directory only
+ * store the differing suffix, so millions of paths fit into a few bytes per entry. Entries are grouped into blocks
+ * that start with a complete path, which are binary searched for lookups.
+ * 
+ * @author Nicholas Wright
+ * 
+ */
+public final class PrefixCompressedPathSet {
+	private static final int BLOCK_SIZE = 16;
+	private static final int VARINT_MASK = 0x7F;
+	private static final int VARINT_CONTINUE = 0x80;
+	private static final int BYTE_MASK = 0xFF;
+
+	private final byte[] data;
+	private final int[] blockOffsets;
+	private final int size;
+	private final int maxLength;
+
+	private PrefixCompressedPathSet(byte[] data, int[] blockOffsets, int size, int maxLength) {
+		this.data = data;
+		this.blockOffsets = blockOffsets;
+		this.size = size;
+		this.maxLength = maxLength;
+	}
+
+	/**
+	 * Create a set containing the given paths. The paths do not need to be sorted.
+	 * 
+	 * @param paths
+	 *            to add to the set
+	 * @return a new set
+	 */
+	public static PrefixCompressedPathSet of(Collection<String> paths) {
+		byte[][] encoded = new byte[paths.size()][];
+		int i = 0;
+
+		for (String path : paths) {
+			encoded[i++] = encode(path);
+		}
+
+		Arrays.sort(encoded, PrefixCompressedPathSet::compare);
+
+		Builder builder = new Builder();
+
+		for (byte[] path : encoded) {
+			builder.add(path);
+		}
+
+		return builder.build();
+	}
+
+	/**
+	 * Create a new builder. Paths must be added in ascending order of their UTF-8 bytes, which is the order of a
+	 * SQLite query sorted by the path with the default collation.
+	 * 
+	 * @return a new builder
+	 */
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	/**
+	 * Check if the path is in the set.
+	 * 
+	 * @param path
+	 *            to look up
+	 * @return true if the set contains the path
+	 */
+	public boolean contains(String path) {
+		return indexOf(path) >= 0;
+	}
+
+	/**
+	 * Get the position of the path in the ascending order of the set.
+	 * 
+	 * @param path
+	 *            to look up
+	 * @return the index of the path, or -1 if the set does not contain the path
+	 */
+	public int indexOf(String path) {
+		if (size == 0) {
+			return -1;
+		}
+
+		byte[] key = encode(path);
+		int block = findBlock(key);
+
+		if (block < 0) {
+			return -1;
+		}
+
+		int position = positionInBlock(block, key);
+
+		return position < 0 ? -1 : block * BLOCK_SIZE + position;
+	}
+
+	/**
+	 * Get the path at the given position in the ascending order of the set.
+	 * 
+	 * @param index
+	 *            of the path
+	 * @return the path at the index
+	 * @throws IndexOutOfBoundsException
+	 *             if the index is negative or not less than the size of the set
+	 */
+	public String get(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index " + index + " is out of bounds for size " + size);
+		}
+
+		int offset = blockOffsets[index / BLOCK_SIZE];
+		byte[] current = new byte[maxLength];
+
+		int length = readVarint(offset);
+		offset += varintLength(length);
+		System.arraycopy(data, offset, current, 0, length);
+		offset += length;
+
+		for (int i = index % BLOCK_SIZE; i > 0; i--) {
+			int shared = readVarint(offset);
+			offset += varintLength(shared);
+			int suffix = readVarint(offset);
+			offset += varintLength(suffix);
+
+			System.arraycopy(data, offset, current, shared, suffix);
+			offset += suffix;
+			length = shared + suffix;
+		}
+
+		return new String(current, 0, length, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Get the number of paths in the set.
+	 * 
+	 * @return number of paths
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Get the number of bytes used to store the paths.
+	 * 
+	 * @return size of the encoded paths in bytes
+	 */
+	public int encodedSize() {
+		return data.length;
+	}
+
+	/**
+	 * Find the last block that starts with a path less than or equal to the key.
+	 */
+	private int findBlock(byte[] key) {
+		int low = 0;
+		int high = blockOffsets.length - 1;
+		int found = -1;
+
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int offset = blockOffsets[mid];
+			int length = readVarint(offset);
+			offset += varintLength(length);
+
+			int cmp = compare(data, offset, length, key);
+
+			if (cmp == 0) {
+				return mid;
+			} else if (cmp < 0) {
+				found = mid;
+				low = mid + 1;
+			} else {
+				high = mid - 1;
+			}
+		}
+
+		return found;
+	}
+
+	/**
+	 * Get the position of the key within the block, or -1 if the block does not contain it.
+	 */
+	private int positionInBlock(int block, byte[] key) {
+		int offset = blockOffsets[block];
+		int end = block + 1 < blockOffsets.length ? blockOffsets[block + 1] : data.length;
+		byte[] current = new byte[maxLength];
+
+		int length = readVarint(offset);
+		offset += varintLength(length);
+		System.arraycopy(data, offset, current, 0, length);
+		offset += length;
+
+		for (int position = 0;; position++) {
+			int cmp = compare(current, 0, length, key);
+
+			if (cmp == 0) {
+				return position;
+			} else if (cmp > 0 || offset >= end) {
+				return -1;
+			}
+
+			int shared = readVarint(offset);
+			offset += varintLength(shared);
+			int suffix = readVarint(offset);
+			offset += varintLength(suffix);
+
+			System.arraycopy(data, offset, current, shared, suffix);
+			offset += suffix;
+			length = shared + suffix;
+		}
+	}
+
+	private int readVarint(int offset) {
+		int value = 0;
+		int shift = 0;
+		int b;
+
+		do {
+			b = data[offset++] & BYTE_MASK;
+			value |= (b & VARINT_MASK) << shift;
+			shift += 7;
+		} while ((b & VARINT_CONTINUE) != 0);
+
+		return value;
+	}
+
+	private static int varintLength(int value) {
+		int length = 1;
+
+		while ((value >>>= 7) != 0) {
+			length++;
+		}
+
+		return length;
+	}
+
+	private static byte[] encode(String path) {
+		return path.getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static int compare(byte[] a, byte[] b) {
+		return compare(a, 0, a.length, b);
+	}
+
+	private static int compare(byte[] a, int offset, int length, byte[] b) {
+		int common = Math.min(length, b.length);
+
+		for (int i = 0; i < common; i++) {
+			int cmp = Integer.compare(a[offset + i] & BYTE_MASK, b[i] & BYTE_MASK);
+
+			if (cmp != 0) {
+				return cmp;
+			}
+		}
+
+		return Integer.compare(length, b.length);
+	}
+
+	/**
+	 * Builds a {@link PrefixCompressedPathSet} from paths in ascending order.
+	 */
+	public static final class Builder {
+		private static final int INITIAL_CAPACITY = 4096;
+
+		private byte[] data = new byte[INITIAL_CAPACITY];
+		private int length;
+		private final List<Integer> blockOffsets = new ArrayList<>();
+		private byte[] previous;
+		private int size;
+		private int maxLength;
+
+		private Builder() {
+		}
+
+		/**
+		 * Add a path to the set. Duplicates of the previous path are ignored.
+		 * 
+		 * @param path
+		 *            to add, must not be less than the previous path
+		 * @return this builder
+		 * @throws IllegalArgumentException
+		 *             if the path is out of order
+		 */
+		public Builder add(String path) {
+			return add(encode(path));
+		}
+
+		private Builder add(byte[] path) {
+			if (previous != null) {
+				int cmp = compare(previous, path);
+
+				if (cmp == 0) {
+					return this;
+				} else if (cmp > 0) {
+					throw new IllegalArgumentException("Paths must be added in ascending order");
+				}
+			}
+
+			if (size % BLOCK_SIZE == 0) {
+				blockOffsets.add(length);
+				writeVarint(path.length);
+				write(path, 0, path.length);
+			} else {
+				int shared = sharedPrefix(previous, path);
+				writeVarint(shared);
+				writeVarint(path.length - shared);
+				write(path, shared, path.length - shared);
+			}
+
+			previous = path;
+			maxLength = Math.max(maxLength, path.length);
+			size++;
+
+			return this;
+		}
+
+		/**
+		 * Create the set. The builder should not be used afterwards.
+		 * 
+		 * @return a set containing all added paths
+		 */
+		public PrefixCompressedPathSet build() {
+			int[] offsets = new int[blockOffsets.size()];
+
+			for (int i = 0; i < offsets.length; i++) {
+				offsets[i] = blockOffsets.get(i);
+			}
+
+			return new PrefixCompressedPathSet(Arrays.copyOf(data, length), offsets, size, maxLength);
+		}
+
+		private static int sharedPrefix(byte[] a, byte[] b) {
+			int common = Math.min(a.length, b.length);
+			int i = 0;
+
+			while (i < common && a[i] == b[i]) {
+				i++;
+			}
+
+			return i;
+		}
+
+		private void writeVarint(int value) {
+			while ((value & ~VARINT_MASK) != 0) {
+				writeByte((value & VARINT_MASK) | VARINT_CONTINUE);
+				value >>>= 7;
+			}
+
+			writeByte(value);
+		}
+
+		private void writeByte(int value) {
+			ensureCapacity(1);
+			data[length++] = (byte) value;
+		}
+
+		private void write(byte[] bytes, int offset, int count) {
+			ensureCapacity(count);
+			System.arraycopy(bytes, offset, data, length, count);
+			length += count;
+		}
+
+		private void ensureCapacity(int additional) {
+			if (length + additional > data.length) {
+				data = Arrays.copyOf(data, Math.max(data.length * 2, length + additional));
+			}
+		}
+	}
+}
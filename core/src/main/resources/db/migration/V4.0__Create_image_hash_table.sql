@@ -0,0 +1,5 @@
+CREATE TABLE `imagehashrecord`
+-- Hashes of additional hash families, one per image and hash name
+(`id` INTEGER PRIMARY KEY AUTOINCREMENT , `path` VARCHAR NOT NULL , `hashName` VARCHAR NOT NULL , `hash` BIGINT NOT NULL , UNIQUE (`path`,`hashName`) );
+CREATE INDEX `imagehashrecord_path_idx` ON `imagehashrecord` ( `path` );
+CREATE INDEX `imagehashrecord_hashName_hash_idx` ON `imagehashrecord` ( `hashName`, `hash` );
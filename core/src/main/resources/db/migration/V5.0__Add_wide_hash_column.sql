@@ -0,0 +1 @@
+ALTER TABLE `imagerecord` ADD COLUMN `wideHash` BLOB;
@@ -0,0 +1,3 @@
+ALTER TABLE `imagerecord` ADD COLUMN `fileSize` BIGINT;
+ALTER TABLE `imagerecord` ADD COLUMN `digest` BIGINT;
+CREATE INDEX `imagerecord_fileSize_digest_idx` ON `imagerecord` ( `fileSize`, `digest` );
@@ -0,0 +1,3 @@
+CREATE TABLE `directoryrecord`
+-- Fingerprint of a directory listing, used to skip unchanged directory trees when rescanning
+(`path` VARCHAR NOT NULL , `lastModified` BIGINT NOT NULL , `entryCount` INTEGER NOT NULL , `listingHash` BIGINT NOT NULL , `fileCount` INTEGER NOT NULL , PRIMARY KEY (`path`) );
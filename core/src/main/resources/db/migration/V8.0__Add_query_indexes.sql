@@ -0,0 +1,6 @@
+-- Lookup by hash. Also covers reading (pHash, path) pairs in hash order, without reading the table
+CREATE INDEX `imagerecord_pHash_path_idx` ON `imagerecord` ( `pHash`, `path` );
+-- Lookup of ignored paths, and the left join used to exclude ignored images
+CREATE INDEX `ignorerecord_path_idx` ON `ignorerecord` ( `path` );
+-- Tags shown in the context menu
+CREATE INDEX `tag_contextMenu_idx` ON `tag` ( `contextMenu` );
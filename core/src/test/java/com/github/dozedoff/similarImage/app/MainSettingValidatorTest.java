@@ -22,12 +22,16 @@ import org.mockito.junit.MockitoRule;
 import org.mockito.junit.MockitoJUnit;
 import org.mockito.quality.Strictness;
 
+import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.when;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mock;
 
+import com.github.dozedoff.similarImage.duplicate.HammingIndexType;
+import com.github.dozedoff.similarImage.image.kernel.DCTBackend;
+
 public class MainSettingValidatorTest {
 	public @Rule MockitoRule mockito = MockitoJUnit.rule().strictness(Strictness.STRICT_STUBS);
 
@@ -37,6 +41,11 @@ public class MainSettingValidatorTest {
 	@Before
 	public void setup() {
 		when(mainSetting.threads()).thenReturn(1);
+		lenient().when(mainSetting.hashQueueCapacity()).thenReturn(1);
+		lenient().when(mainSetting.wideHashBits()).thenReturn(0);
+		lenient().when(mainSetting.searchIndex()).thenReturn(HammingIndexType.BK_TREE.name());
+		lenient().when(mainSetting.dctBatch()).thenReturn(0);
+		lenient().when(mainSetting.dctBackend()).thenReturn(DCTBackend.APARAPI.name());
 	}
 
 	@Test
@@ -57,4 +66,74 @@ public class MainSettingValidatorTest {
 
 		MainSettingValidator.validate(mainSetting);
 	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testValidateZeroHashQueueCapacity() throws Exception {
+		when(mainSetting.hashQueueCapacity()).thenReturn(0);
+
+		MainSettingValidator.validate(mainSetting);
+	}
+
+	@Test
+	public void testValidateWideHashBits() throws Exception {
+		when(mainSetting.wideHashBits()).thenReturn(256);
+
+		MainSettingValidator.validate(mainSetting);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testValidateWideHashBitsNotMultipleOfLong() throws Exception {
+		when(mainSetting.wideHashBits()).thenReturn(100);
+
+		MainSettingValidator.validate(mainSetting);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testValidateWideHashBitsTooLarge() throws Exception {
+		when(mainSetting.wideHashBits()).thenReturn(1024);
+
+		MainSettingValidator.validate(mainSetting);
+	}
+
+	@Test
+	public void testValidateMultiIndex() throws Exception {
+		when(mainSetting.searchIndex()).thenReturn(HammingIndexType.MULTI_INDEX.name());
+
+		MainSettingValidator.validate(mainSetting);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testValidateUnknownSearchIndex() throws Exception {
+		when(mainSetting.searchIndex()).thenReturn("foo");
+
+		MainSettingValidator.validate(mainSetting);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testValidateMissingSearchIndex() throws Exception {
+		when(mainSetting.searchIndex()).thenReturn(null);
+
+		MainSettingValidator.validate(mainSetting);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testValidateNegativeDctBatch() throws Exception {
+		when(mainSetting.dctBatch()).thenReturn(-1);
+
+		MainSettingValidator.validate(mainSetting);
+	}
+
+	@Test
+	public void testValidateCpuDctBackend() throws Exception {
+		when(mainSetting.dctBackend()).thenReturn(DCTBackend.CPU.name());
+
+		MainSettingValidator.validate(mainSetting);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testValidateUnknownDctBackend() throws Exception {
+		when(mainSetting.dctBackend()).thenReturn("foo");
+
+		MainSettingValidator.validate(mainSetting);
+	}
 }
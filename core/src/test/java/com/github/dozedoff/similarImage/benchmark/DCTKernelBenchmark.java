@@ -1,5 +1,7 @@
 package com.github.dozedoff.similarImage.benchmark;
 
+import static org.junit.Assert.assertArrayEquals;
+
 import org.junit.After;
 import org.junit.Before;
 import org.junit.BeforeClass;
@@ -11,6 +13,8 @@ import com.aparapi.device.Device;
 import com.aparapi.internal.kernel.KernelManager;
 import com.aparapi.internal.kernel.KernelManagers;
 import com.github.dozedoff.similarImage.image.kernel.DCTKernel;
+import com.github.dozedoff.similarImage.image.kernel.DCTTransformer;
+import com.github.dozedoff.similarImage.image.kernel.SeparableDCT;
 import com.google.common.base.Stopwatch;
 
 public class DCTKernelBenchmark {
@@ -19,11 +23,13 @@ public class DCTKernelBenchmark {
 	private static final int SAMPLES = 200;
 	private static final int MATRIX_SIZE = 8;
 	private static final int BENCHMARK_ITERATIONS = 4;
+	private static final double TOLERANCE = 0.000001;
 
 	private static double[][] samples;
 	private double[][] results;
 
 	private static DCTKernel kernel;
+	private static SeparableDCT separable;
 	private Stopwatch sw;
 
 	private Device device;
@@ -32,6 +38,7 @@ public class DCTKernelBenchmark {
 	public static void setUpBeforeClass() throws Exception {
 		createSamples();
 		kernel = new DCTKernel();
+		separable = new SeparableDCT(MATRIX_SIZE);
 	}
 
 	@Before
@@ -65,17 +72,21 @@ public class DCTKernelBenchmark {
 		return matrix;
 	}
 
-	private void computeMatrix() {
+	private void computeMatrix(DCTTransformer transformer) {
 		for (int i = 0; i < SAMPLES; i++) {
-			results[i] = kernel.transformDCT(samples[i]);
+			results[i] = transformer.transformDCT(samples[i]);
 		}
 	}
 
 	private void runBenchmark() {
+		runBenchmark(kernel);
+	}
+
+	private void runBenchmark(DCTTransformer transformer) {
 		for (int i = 0; i < BENCHMARK_ITERATIONS; i++) {
 			Stopwatch sw = Stopwatch.createStarted();
 
-			computeMatrix();
+			computeMatrix(transformer);
 
 			sw.stop();
 			LOGGER.info("Interation: {}, time: {}", i + 1, sw);
@@ -99,4 +110,15 @@ public class DCTKernelBenchmark {
 
 		runBenchmark();
 	}
+
+	@Test
+	public void separableCpu() {
+		LOGGER.info("Separable CPU, matrix size: {}", separable.getMatrixSize());
+
+		runBenchmark(separable);
+
+		for (int i = 0; i < SAMPLES; i++) {
+			assertArrayEquals(kernel.transformDCT(samples[i]), results[i], TOLERANCE);
+		}
+	}
 }
@@ -0,0 +1,110 @@
+/*  Copyright (C) 2016  Nicholas Wright
+    
+    This file is part of similarImage - A similar image finder using pHash
+    
+    similarImage is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.similarImage.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.everpeace.search.BKTree;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.dozedoff.similarImage.duplicate.CompareHammingDistance;
+import com.github.dozedoff.similarImage.duplicate.LongBKTree;
+import com.google.common.base.Stopwatch;
+
+/**
+ * Compares build and query time of the generic {@link BKTree} with the {@link LongBKTree}.
+ */
+public class LongBKTreeBenchmark {
+	private static final Logger LOGGER = LoggerFactory.getLogger(LongBKTreeBenchmark.class);
+
+	private static final int NUMBER_OF_HASHES = 200000;
+	private static final int NUMBER_OF_QUERIES = 2000;
+	private static final int HAMMING_DISTANCE = 4;
+	private static final int BENCHMARK_ITERATIONS = 5;
+	private static final long SEED = 42L;
+
+	private static long[] hashes;
+	private static List<Long> boxedHashes;
+	private static long[] queries;
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		Random random = new Random(SEED);
+
+		hashes = new long[NUMBER_OF_HASHES];
+		boxedHashes = new ArrayList<>(NUMBER_OF_HASHES);
+		queries = new long[NUMBER_OF_QUERIES];
+
+		for (int i = 0; i < NUMBER_OF_HASHES; i++) {
+			hashes[i] = random.nextLong();
+			boxedHashes.add(hashes[i]);
+		}
+
+		for (int i = 0; i < NUMBER_OF_QUERIES; i++) {
+			queries[i] = hashes[random.nextInt(NUMBER_OF_HASHES)] ^ (1L << random.nextInt(Long.SIZE));
+		}
+	}
+
+	@Test
+	public void genericTree() throws Exception {
+		for (int i = 0; i < BENCHMARK_ITERATIONS; i++) {
+			Stopwatch swBuild = Stopwatch.createStarted();
+
+			BKTree<Long> tree = BKTree.build(boxedHashes, new CompareHammingDistance());
+
+			swBuild.stop();
+			Stopwatch swQuery = Stopwatch.createStarted();
+			long matches = 0;
+
+			for (long query : queries) {
+				matches += tree.searchWithin(query, (double) HAMMING_DISTANCE).size();
+			}
+
+			swQuery.stop();
+			LOGGER.info("BKTree iteration: {}, build: {}, query: {}, matches: {}", i + 1, swBuild, swQuery, matches);
+		}
+	}
+
+	@Test
+	public void longTree() throws Exception {
+		long[] results = new long[NUMBER_OF_HASHES];
+
+		for (int i = 0; i < BENCHMARK_ITERATIONS; i++) {
+			Stopwatch swBuild = Stopwatch.createStarted();
+
+			LongBKTree tree = new LongBKTree(hashes);
+
+			swBuild.stop();
+			Stopwatch swQuery = Stopwatch.createStarted();
+			long matches = 0;
+
+			for (long query : queries) {
+				matches += tree.searchWithin(query, HAMMING_DISTANCE, results);
+			}
+
+			swQuery.stop();
+			LOGGER.info("LongBKTree iteration: {}, build: {}, query: {}, matches: {}", i + 1, swBuild, swQuery,
+					matches);
+		}
+	}
+}
@@ -0,0 +1,114 @@
+/*  Copyright (C) 2016  Nicholas Wright
+    
+    This file is part of similarImage - A similar image finder using pHash
+    
+    similarImage is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.similarImage.benchmark;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.dozedoff.similarImage.db.ImageRecord;
+import com.github.dozedoff.similarImage.db.SQLiteDatabase;
+import com.github.dozedoff.similarImage.db.repository.ImageRepository;
+import com.github.dozedoff.similarImage.db.repository.ormlite.OrmliteRepositoryFactory;
+import com.google.common.base.Stopwatch;
+import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.dao.DaoManager;
+import com.j256.ormlite.stmt.PreparedQuery;
+import com.j256.ormlite.stmt.SelectArg;
+
+/**
+ * Compares the folder scoped query using LIKE, as it was used before, with the range query used by the repository.
+ */
+public class ScopedQueryBenchmark {
+	private static final Logger LOGGER = LoggerFactory.getLogger(ScopedQueryBenchmark.class);
+
+	private static final int DIRECTORIES = 100;
+	private static final int FILES_PER_DIRECTORY = 1000;
+	private static final int BENCHMARK_ITERATIONS = 20;
+	private static final Path SCOPE = Paths.get("images", "dir50");
+
+	private static Path databaseFile;
+	private static SQLiteDatabase database;
+	private static ImageRepository repository;
+	private static Dao<ImageRecord, String> dao;
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		databaseFile = Files.createTempFile(ScopedQueryBenchmark.class.getSimpleName(), ".db");
+		database = new SQLiteDatabase(databaseFile);
+		repository = new OrmliteRepositoryFactory(database).buildImageRepository();
+		dao = DaoManager.createDao(database.getCs(), ImageRecord.class);
+
+		for (int d = 0; d < DIRECTORIES; d++) {
+			List<ImageRecord> records = new ArrayList<>(FILES_PER_DIRECTORY);
+
+			for (int f = 0; f < FILES_PER_DIRECTORY; f++) {
+				records.add(new ImageRecord(Paths.get("images", "dir" + d, "image" + f + ".jpg").toString(), f));
+			}
+
+			repository.storeAll(records);
+		}
+
+		LOGGER.info("Created {} records", dao.countOf());
+	}
+
+	@AfterClass
+	public static void tearDownAfterClass() throws Exception {
+		database.close();
+		Files.deleteIfExists(databaseFile);
+	}
+
+	@Test
+	public void like() throws Exception {
+		PreparedQuery<ImageRecord> query = dao.queryBuilder().where()
+				.like(ImageRecord.PATH_COLUMN_NAME, new SelectArg(SCOPE.toString() + "%")).prepare();
+
+		for (int i = 0; i < BENCHMARK_ITERATIONS; i++) {
+			Stopwatch sw = Stopwatch.createStarted();
+
+			List<ImageRecord> result = dao.query(query);
+
+			sw.stop();
+			LOGGER.info("LIKE iteration: {}, records: {}, time: {}", i + 1, result.size(), sw);
+		}
+	}
+
+	@Test
+	public void range() throws Exception {
+		for (int i = 0; i < BENCHMARK_ITERATIONS; i++) {
+			Stopwatch sw = Stopwatch.createStarted();
+
+			List<ImageRecord> result = repository.startsWithPath(SCOPE);
+
+			sw.stop();
+			LOGGER.info("Range iteration: {}, records: {}, time: {}", i + 1, result.size(), sw);
+			assertThat(result.size(), is(FILES_PER_DIRECTORY));
+		}
+	}
+}
@@ -23,6 +23,8 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.github.dozedoff.similarImage.duplicate.WideHash;
+
 import nl.jqno.equalsverifier.EqualsVerifier;
 import nl.jqno.equalsverifier.Warning;
 
@@ -46,6 +48,31 @@ public class ImageRecordTest {
 		assertThat(imageRecord.getpHash(), is(42L));
 	}
 
+	@Test
+	public void testNoWideHash() throws Exception {
+		assertThat(imageRecord.hasWideHash(), is(false));
+	}
+
+	@Test
+	public void testGetWideHash() throws Exception {
+		WideHash wideHash = new WideHash(1, 2);
+
+		assertThat(new ImageRecord("foo", 42, wideHash).getWideHash(), is(wideHash));
+	}
+
+	@Test
+	public void testNoContentDigest() throws Exception {
+		assertThat(imageRecord.hasContentDigest(), is(false));
+	}
+
+	@Test
+	public void testGetContentDigest() throws Exception {
+		ImageRecord digested = new ImageRecord("foo", 42, null, 1024, 7);
+
+		assertThat(digested.getFileSize(), is(1024L));
+		assertThat(digested.getDigest(), is(7L));
+	}
+
 	@Test
 	public void testCompareToSelf() throws Exception {
 		assertThat(imageRecord.compareTo(imageRecord), is(0));
@@ -73,7 +100,24 @@ public class ImageRecordTest {
 
 	@Test
 	public void testEquals() throws Exception {
-		EqualsVerifier.forClass(ImageRecord.class).suppress(Warning.NONFINAL_FIELDS).verify();
+		EqualsVerifier.forClass(ImageRecord.class).suppress(Warning.NONFINAL_FIELDS)
+				.withIgnoredFields("wideHash", "fileSize", "digest").verify();
+	}
+
+	@Test
+	public void testEqualsIgnoresWideHash() throws Exception {
+		ImageRecord wide = new ImageRecord("foo", 42, new WideHash(1, 2));
+
+		assertThat(wide, is(imageRecord));
+		assertThat(wide.hashCode(), is(imageRecord.hashCode()));
+	}
+
+	@Test
+	public void testEqualsIgnoresContentDigest() throws Exception {
+		ImageRecord digested = new ImageRecord("foo", 42, null, 1024, 7);
+
+		assertThat(digested, is(imageRecord));
+		assertThat(digested.hashCode(), is(imageRecord.hashCode()));
 	}
 
 	@Test
@@ -0,0 +1,158 @@
+/*  Copyright (C) 2016  Nicholas Wright
+    
+    This file is part of similarImage - A similar image finder using pHash
+    
+    similarImage is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.similarImage.db;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.dao.DaoManager;
+import com.j256.ormlite.misc.TransactionManager;
+import com.j256.ormlite.support.ConnectionSource;
+import com.j256.ormlite.support.DatabaseConnection;
+
+public class SQLiteWalConnectionSourceTest {
+	private static final String TABLE_NAME = "";
+	private static final long TIMEOUT_SECONDS = 5;
+	private static final long BLOCKED_MILLIS = 200;
+
+	private Path databaseFile;
+	private SQLiteDatabase database;
+	private ConnectionSource cut;
+	private Dao<ImageRecord, String> dao;
+	private ExecutorService executor;
+
+	@Before
+	public void setUp() throws Exception {
+		databaseFile = Files.createTempFile(SQLiteWalConnectionSourceTest.class.getSimpleName(), ".db");
+		database = new SQLiteDatabase(databaseFile);
+		cut = database.getCs();
+		dao = DaoManager.createDao(cut, ImageRecord.class);
+		executor = Executors.newSingleThreadExecutor();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		executor.shutdownNow();
+		database.close();
+	}
+
+	@Test
+	public void testJournalModeIsWal() throws Exception {
+		try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + databaseFile);
+				Statement statement = connection.createStatement();
+				ResultSet result = statement.executeQuery("PRAGMA journal_mode;")) {
+			result.next();
+
+			assertThat(result.getString(1), is("wal"));
+		}
+	}
+
+	@Test
+	public void testWriterIsReused() throws Exception {
+		DatabaseConnection first = cut.getReadWriteConnection(TABLE_NAME);
+		cut.releaseConnection(first);
+
+		DatabaseConnection second = cut.getReadWriteConnection(TABLE_NAME);
+		cut.releaseConnection(second);
+
+		assertThat(second, is(sameInstance(first)));
+	}
+
+	@Test
+	public void testReaderIsNotWriter() throws Exception {
+		DatabaseConnection writer = cut.getReadWriteConnection(TABLE_NAME);
+		DatabaseConnection reader = cut.getReadOnlyConnection(TABLE_NAME);
+
+		assertThat(reader, is(not(sameInstance(writer))));
+
+		cut.releaseConnection(reader);
+		cut.releaseConnection(writer);
+	}
+
+	@Test
+	public void testSecondWriterWaits() throws Exception {
+		DatabaseConnection writer = cut.getReadWriteConnection(TABLE_NAME);
+
+		Future<?> secondWriter = executor.submit(() -> {
+			cut.releaseConnection(cut.getReadWriteConnection(TABLE_NAME));
+			return null;
+		});
+
+		try {
+			secondWriter.get(BLOCKED_MILLIS, TimeUnit.MILLISECONDS);
+		} catch (TimeoutException e) {
+			// expected, the writer is still held
+		}
+
+		assertThat(secondWriter.isDone(), is(false));
+
+		cut.releaseConnection(writer);
+		secondWriter.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void testReadDuringWriteTransaction() throws Exception {
+		dao.create(new ImageRecord("existing", 1));
+
+		long count = TransactionManager.callInTransaction(cut, () -> {
+			dao.create(new ImageRecord("uncommitted", 2));
+
+			return executor.submit(() -> dao.countOf()).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+		});
+
+		assertThat(count, is(1L));
+		assertThat(dao.countOf(), is(2L));
+	}
+
+	@Test
+	public void testTransactionReadsOwnWrites() throws Exception {
+		long count = TransactionManager.callInTransaction(cut, () -> {
+			dao.create(new ImageRecord("uncommitted", 2));
+
+			return dao.countOf();
+		});
+
+		assertThat(count, is(1L));
+	}
+
+	@Test
+	public void testWriterReleasedAfterTransaction() throws Exception {
+		TransactionManager.callInTransaction(cut, () -> dao.create(new ImageRecord("committed", 1)));
+
+		assertThat(((SQLiteWalConnectionSource) cut).isWriterInUse(), is(false));
+	}
+}
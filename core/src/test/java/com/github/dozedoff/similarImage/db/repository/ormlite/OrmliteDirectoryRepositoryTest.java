@@ -0,0 +1,109 @@
+/*  Copyright (C) 2016  Nicholas Wright
+    
+    This file is part of similarImage - A similar image finder using pHash
+    
+    similarImage is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.similarImage.db.repository.ormlite;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.dozedoff.similarImage.db.DirectoryRecord;
+import com.github.dozedoff.similarImage.db.repository.DirectoryRepository;
+import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.dao.DaoManager;
+
+public class OrmliteDirectoryRepositoryTest extends BaseOrmliteRepositoryTest {
+	private static final Path ROOT = Paths.get("root");
+	private static final Path SUB = ROOT.resolve("sub");
+	private static final Path OTHER = Paths.get("other");
+
+	private static final long LAST_MODIFIED = 42L;
+	private static final int ENTRY_COUNT = 5;
+	private static final long LISTING_HASH = 7L;
+	private static final int FILE_COUNT = 3;
+
+	private DirectoryRecord root;
+	private DirectoryRecord sub;
+	private DirectoryRecord other;
+
+	private Dao<DirectoryRecord, String> dao;
+	private DirectoryRepository cut;
+
+	@Before
+	public void setUp() throws Exception {
+		dao = DaoManager.createDao(db.getCs(), DirectoryRecord.class);
+		cut = new OrmliteDirectoryRepository(dao);
+
+		root = new DirectoryRecord(ROOT.toString(), LAST_MODIFIED, ENTRY_COUNT, LISTING_HASH, FILE_COUNT);
+		sub = new DirectoryRecord(SUB.toString(), LAST_MODIFIED, ENTRY_COUNT, LISTING_HASH, FILE_COUNT);
+		other = new DirectoryRecord(OTHER.toString(), LAST_MODIFIED, ENTRY_COUNT, LISTING_HASH, FILE_COUNT);
+
+		dao.create(sub);
+		dao.create(root);
+		dao.create(other);
+	}
+
+	@Test
+	public void testStoreNew() throws Exception {
+		DirectoryRecord record = new DirectoryRecord("new", LAST_MODIFIED, ENTRY_COUNT, LISTING_HASH, FILE_COUNT);
+
+		cut.store(record);
+
+		assertThat(cut.getByPath(Paths.get("new")), is(record));
+	}
+
+	@Test
+	public void testStoreUpdatesExisting() throws Exception {
+		DirectoryRecord updated = new DirectoryRecord(ROOT.toString(), LAST_MODIFIED + 1, ENTRY_COUNT, LISTING_HASH,
+				FILE_COUNT);
+
+		cut.store(updated);
+
+		assertThat(cut.getByPath(ROOT), is(updated));
+		assertThat(dao.countOf(), is(3L));
+	}
+
+	@Test
+	public void testGetByPath() throws Exception {
+		assertThat(cut.getByPath(SUB), is(sub));
+	}
+
+	@Test
+	public void testGetByPathNotFound() throws Exception {
+		assertThat(cut.getByPath(Paths.get("missing")), is(nullValue()));
+	}
+
+	@Test
+	public void testStartsWithPathIsOrdered() throws Exception {
+		assertThat(cut.startsWithPath(ROOT), contains(root, sub));
+	}
+
+	@Test
+	public void testRemove() throws Exception {
+		cut.remove(sub);
+
+		assertThat(cut.getByPath(SUB), is(nullValue()));
+		assertThat(cut.startsWithPath(ROOT), contains(root));
+	}
+}
@@ -22,6 +22,7 @@ import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.not;
 import static org.hamcrest.MatcherAssert.assertThat;
 
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -197,6 +198,24 @@ public class OrmliteFilterRepositoryTest extends OrmliteRepositoryBaseTest {
 			assertThat(filters, containsInAnyOrder(new FilterRecord(HASH_EXISTING_THUMBNAIL, TAG_ONE, exsitingThumbnail)));
 		}
 
+	@Test
+		public void testStoreAll() throws Exception {
+			cut.storeAll(Arrays.asList(new FilterRecord(HASH_NEW_THUMBNAIL, TAG_ONE, newThumbnail),
+					new FilterRecord(HASH_EXISTING_THUMBNAIL, TAG_TWO, null)));
+	
+			assertThat(cut.getByHash(HASH_NEW_THUMBNAIL),
+					containsInAnyOrder(new FilterRecord(HASH_NEW_THUMBNAIL, TAG_ONE, newThumbnail)));
+			assertThat(cut.getByHash(HASH_EXISTING_THUMBNAIL),
+					containsInAnyOrder(new FilterRecord(HASH_EXISTING_THUMBNAIL, TAG_TWO, null)));
+		}
+
+	@Test(expected = RepositoryException.class)
+		public void testStoreAllFilterException() throws Exception {
+			TableUtils.dropTable(cs, FilterRecord.class, false);
+	
+			cut.storeAll(Arrays.asList(new FilterRecord(HASH_NEW_THUMBNAIL, TAG_ONE, null)));
+		}
+
 	@Test
 		public void testStoreWithThumbMatchingHash() throws Exception {
 			Thumbnail matchingHashThumb = new Thumbnail(THUMB_HASH_EXISTING, new byte[] {});
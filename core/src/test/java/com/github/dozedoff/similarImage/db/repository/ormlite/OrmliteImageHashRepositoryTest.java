@@ -0,0 +1,114 @@
+/*  Copyright (C) 2016  Nicholas Wright
+    
+    This file is part of similarImage - A similar image finder using pHash
+    
+    similarImage is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.similarImage.db.repository.ormlite;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.dozedoff.similarImage.db.ImageHashRecord;
+import com.github.dozedoff.similarImage.db.repository.ImageHashRepository;
+import com.github.dozedoff.similarImage.handler.HashNames;
+import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.dao.DaoManager;
+
+public class OrmliteImageHashRepositoryTest extends BaseOrmliteRepositoryTest {
+	private static final Path PATH_A = Paths.get("foo");
+	private static final Path PATH_B = Paths.get("bar");
+	private static final long HASH_A = 42L;
+	private static final long HASH_B = 7L;
+
+	private ImageHashRecord averageA;
+	private ImageHashRecord differenceA;
+	private ImageHashRecord averageB;
+
+	private Dao<ImageHashRecord, Integer> dao;
+	private ImageHashRepository cut;
+
+	@Before
+	public void setUp() throws Exception {
+		dao = DaoManager.createDao(db.getCs(), ImageHashRecord.class);
+		cut = new OrmliteImageHashRepository(dao);
+
+		averageA = new ImageHashRecord(PATH_A.toString(), HashNames.AVERAGE_HASH, HASH_A);
+		differenceA = new ImageHashRecord(PATH_A.toString(), HashNames.DIFFERENCE_HASH, HASH_B);
+		averageB = new ImageHashRecord(PATH_B.toString(), HashNames.AVERAGE_HASH, HASH_A);
+
+		dao.create(averageA);
+		dao.create(differenceA);
+	}
+
+	@Test
+	public void testStoreNew() throws Exception {
+		cut.store(averageB);
+
+		assertThat(cut.getByPath(PATH_B, HashNames.AVERAGE_HASH), is(averageB));
+	}
+
+	@Test
+	public void testStoreReplacesExistingHash() throws Exception {
+		cut.store(new ImageHashRecord(PATH_A.toString(), HashNames.AVERAGE_HASH, HASH_B));
+
+		assertThat(cut.getByPath(PATH_A, HashNames.AVERAGE_HASH).getHash(), is(HASH_B));
+		assertThat(dao.countOf(), is(2L));
+	}
+
+	@Test
+	public void testGetByPath() throws Exception {
+		assertThat(cut.getByPath(PATH_A), containsInAnyOrder(averageA, differenceA));
+	}
+
+	@Test
+	public void testGetByPathAndNameNotFound() throws Exception {
+		assertThat(cut.getByPath(PATH_B, HashNames.AVERAGE_HASH), is(nullValue()));
+	}
+
+	@Test
+	public void testGetByHash() throws Exception {
+		dao.create(averageB);
+
+		assertThat(cut.getByHash(HashNames.AVERAGE_HASH, HASH_A), containsInAnyOrder(averageA, averageB));
+	}
+
+	@Test
+	public void testGetByHashIsSeparatedByName() throws Exception {
+		assertThat(cut.getByHash(HashNames.DIFFERENCE_HASH, HASH_A), is(empty()));
+	}
+
+	@Test
+	public void testGetAll() throws Exception {
+		dao.create(averageB);
+
+		assertThat(cut.getAll(HashNames.AVERAGE_HASH), containsInAnyOrder(averageA, averageB));
+	}
+
+	@Test
+	public void testRemove() throws Exception {
+		cut.remove(PATH_A);
+
+		assertThat(cut.getByPath(PATH_A), is(empty()));
+	}
+}
@@ -19,15 +19,20 @@ package com.github.dozedoff.similarImage.db.repository.ormlite;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.MatcherAssert.assertThat;
 
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -44,6 +49,9 @@ public class OrmliteImageRepositoryTest extends OrmliteRepositoryBaseTest {
 
 	private static final long HASH_EXISTING_RECORD = 1;
 	private static final long HASH_NEW_RECORD = 2;
+	private static final long FILE_SIZE = 1024;
+	private static final long DIGEST = 42;
+	private static final int LARGE_BATCH = 1200;
 
 	private String pathExisting;
 	private String pathNew;
@@ -61,6 +69,16 @@ public class OrmliteImageRepositoryTest extends OrmliteRepositoryBaseTest {
 		return this.getClass().getCanonicalName();
 	}
 
+	private List<ImageRecord> createRecords(int count) {
+		List<ImageRecord> records = new ArrayList<>(count);
+
+		for (int i = 0; i < count; i++) {
+			records.add(new ImageRecord("batch" + i, i));
+		}
+
+		return records;
+	}
+
 	@Before
 	public void setUp() throws Exception {
 		imageDao = DaoManager.createDao(getConnectionSource(), ImageRecord.class);
@@ -88,6 +106,61 @@ public class OrmliteImageRepositoryTest extends OrmliteRepositoryBaseTest {
 		assertThat(imageDao.queryForId(pathNew), is(imageNew));
 	}
 
+	@Test
+	public void testStoreAllNew() throws Exception {
+		cut.storeAll(Arrays.asList(imageNew));
+
+		assertThat(imageDao.queryForId(pathNew), is(imageNew));
+	}
+
+	@Test
+	public void testStoreAllUpdatesExisting() throws Exception {
+		ImageRecord updated = new ImageRecord(pathExisting, HASH_NEW_RECORD);
+
+		cut.storeAll(Arrays.asList(updated, imageNew));
+
+		assertThat(imageDao.queryForAll(), containsInAnyOrder(updated, imageNew));
+	}
+
+	@Test
+	public void testStoreAllMoreThanOneChunk() throws Exception {
+		cut.storeAll(createRecords(LARGE_BATCH));
+
+		assertThat(imageDao.countOf(), is(LARGE_BATCH + 1L));
+	}
+
+	@Test
+	public void testGetByPaths() throws Exception {
+		imageDao.create(imageNew);
+
+		assertThat(cut.getByPaths(Arrays.asList(Paths.get(pathExisting), Paths.get(pathNew))),
+				containsInAnyOrder(imageExisting, imageNew));
+	}
+
+	@Test
+	public void testGetByPathsMissingPath() throws Exception {
+		assertThat(cut.getByPaths(Arrays.asList(Paths.get(pathExisting), Paths.get(pathNew))),
+				containsInAnyOrder(imageExisting));
+	}
+
+	@Test
+	public void testGetByPathsWithQuote() throws Exception {
+		ImageRecord quoted = new ImageRecord("it's", HASH_NEW_RECORD);
+		imageDao.create(quoted);
+
+		assertThat(cut.getByPaths(Arrays.asList(Paths.get("it's"))), containsInAnyOrder(quoted));
+	}
+
+	@Test
+	public void testGetByPathsMoreThanOneChunk() throws Exception {
+		List<ImageRecord> records = createRecords(LARGE_BATCH);
+		imageDao.create(records);
+
+		List<Path> paths = records.stream().map(ImageRecord::getPath).map(Paths::get).collect(Collectors.toList());
+
+		assertThat(cut.getByPaths(paths), hasSize(LARGE_BATCH));
+	}
+
 	@Test
 	public void testGetByHashExists() throws Exception {
 		assertThat(cut.getByHash(HASH_EXISTING_RECORD), containsInAnyOrder(imageExisting));
@@ -98,6 +171,33 @@ public class OrmliteImageRepositoryTest extends OrmliteRepositoryBaseTest {
 		assertThat(cut.getByHash(HASH_NEW_RECORD), hasSize(0));
 	}
 
+	@Test
+	public void testGetByContentDigest() throws Exception {
+		ImageRecord digested = new ImageRecord(pathNew, HASH_NEW_RECORD, null, FILE_SIZE, DIGEST);
+		cut.store(digested);
+
+		assertThat(cut.getByContentDigest(FILE_SIZE, DIGEST), containsInAnyOrder(digested));
+	}
+
+	@Test
+	public void testGetByContentDigestSizeMismatch() throws Exception {
+		cut.store(new ImageRecord(pathNew, HASH_NEW_RECORD, null, FILE_SIZE, DIGEST));
+
+		assertThat(cut.getByContentDigest(FILE_SIZE + 1, DIGEST), is(empty()));
+	}
+
+	@Test
+	public void testGetByContentDigestWithoutDigest() throws Exception {
+		assertThat(cut.getByContentDigest(FILE_SIZE, DIGEST), is(empty()));
+	}
+
+	@Test
+	public void testGetByHashIgnoresDigest() throws Exception {
+		cut.store(new ImageRecord(pathNew, HASH_EXISTING_RECORD, null, FILE_SIZE, DIGEST));
+
+		assertThat(cut.getByHash(HASH_EXISTING_RECORD), hasSize(2));
+	}
+
 	@Test
 	public void testGetByPathExists() throws Exception {
 		assertThat(cut.getByPath(Paths.get(pathExisting)), is(imageExisting));
@@ -113,6 +213,25 @@ public class OrmliteImageRepositoryTest extends OrmliteRepositoryBaseTest {
 		assertThat(cut.startsWithPath(Paths.get("exi")), containsInAnyOrder(imageExisting));
 	}
 
+	@Test
+	public void testStartsWithPathIsCaseSensitive() throws Exception {
+		assertThat(cut.startsWithPath(Paths.get("EXI")), is(empty()));
+	}
+
+	@Test
+	public void testStartsWithPathWildcardIsLiteral() throws Exception {
+		assertThat(cut.startsWithPath(Paths.get("e_i")), is(empty()));
+	}
+
+	@Test
+	public void testStartsWithPathIncludesSubdirectories() throws Exception {
+		ImageRecord nested = new ImageRecord(Paths.get("dir", "sub", "nested").toString(), HASH_NEW_RECORD);
+		imageDao.create(nested);
+		imageDao.create(new ImageRecord(Paths.get("dir", "other").toString(), HASH_NEW_RECORD));
+
+		assertThat(cut.startsWithPath(Paths.get("dir", "sub")), containsInAnyOrder(nested));
+	}
+
 	@Test
 	public void testRemoveImageRecord() throws Exception {
 		cut.remove(imageExisting);
@@ -135,6 +254,79 @@ public class OrmliteImageRepositoryTest extends OrmliteRepositoryBaseTest {
 		assertThat(imageDao.queryForMatching(imageExisting), hasSize(0));
 	}
 
+	@Test
+	public void testRemoveImageRecordCollectionMoreThanOneChunk() throws Exception {
+		List<ImageRecord> records = createRecords(LARGE_BATCH);
+		imageDao.create(records);
+
+		cut.remove(records);
+
+		assertThat(imageDao.queryForAll(), containsInAnyOrder(imageExisting));
+	}
+
+	@Test
+	public void testForEachPathOrdered() throws Exception {
+		imageDao.create(imageNew);
+		imageDao.create(new ImageRecord("apple", HASH_NEW_RECORD));
+		List<String> paths = new LinkedList<String>();
+
+		cut.forEachPath(Paths.get(""), paths::add);
+
+		assertThat(paths, contains("apple", pathExisting, pathNew));
+	}
+
+	@Test
+	public void testForEachPathWithPrefix() throws Exception {
+		imageDao.create(imageNew);
+		List<String> paths = new LinkedList<String>();
+
+		cut.forEachPath(Paths.get("ex"), paths::add);
+
+		assertThat(paths, contains(pathExisting));
+	}
+
+	@Test
+	public void testStreamAll() throws Exception {
+		imageDao.create(imageNew);
+
+		assertThat(cut.stream(null).collect(Collectors.toList()), contains(imageExisting, imageNew));
+	}
+
+	@Test
+	public void testStreamWithPrefix() throws Exception {
+		imageDao.create(imageNew);
+
+		assertThat(cut.stream(Paths.get("ex")).collect(Collectors.toList()), contains(imageExisting));
+	}
+
+	@Test
+	public void testStreamMoreThanOneBatch() throws Exception {
+		imageDao.create(createRecords(LARGE_BATCH));
+
+		assertThat(cut.stream(Paths.get("batch")).count(), is((long) LARGE_BATCH));
+	}
+
+	@Test
+	public void testStreamWithoutIgnored() throws Exception {
+		imageDao.create(imageNew);
+
+		assertThat(cut.streamWithoutIgnored(null).collect(Collectors.toList()), contains(imageNew));
+	}
+
+	@Test
+	public void testStreamWithoutIgnoredPathNoMatch() throws Exception {
+		imageDao.create(imageNew);
+
+		assertThat(cut.streamWithoutIgnored(Paths.get(pathExisting)).count(), is(0L));
+	}
+
+	@Test
+	public void testStreamWithoutIgnoredMoreThanOneBatch() throws Exception {
+		imageDao.create(createRecords(LARGE_BATCH));
+
+		assertThat(cut.streamWithoutIgnored(null).count(), is((long) LARGE_BATCH));
+	}
+
 	@Test
 	public void testGetAll() throws Exception {
 		imageDao.create(imageNew);
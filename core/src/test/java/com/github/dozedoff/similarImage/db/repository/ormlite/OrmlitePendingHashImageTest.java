@@ -24,6 +24,7 @@ import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.nullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
 
+import java.util.Arrays;
 import java.util.UUID;
 
 import org.junit.Before;
@@ -115,4 +116,13 @@ public class OrmlitePendingHashImageTest extends BaseOrmliteRepositoryTest {
 
 		assertThat(dao.queryForSameId(existingEntry), is(nullValue()));
 	}
+
+	@Test
+	public void testRemoveAll() throws Exception {
+		dao.create(newEntry);
+
+		cut.removeAll(Arrays.asList(existingEntry, newEntry));
+
+		assertThat(dao.countOf(), is(0L));
+	}
 }
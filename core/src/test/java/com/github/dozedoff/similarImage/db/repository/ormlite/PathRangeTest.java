@@ -0,0 +1,70 @@
+/*  Copyright (C) 2016  Nicholas Wright
+    
+    This file is part of similarImage - A similar image finder using pHash
+    
+    similarImage is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.similarImage.db.repository.ormlite;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.nio.file.Paths;
+
+import org.junit.Test;
+
+import com.j256.ormlite.stmt.SelectArg;
+
+public class PathRangeTest {
+	private static final String MAX_CODE_POINT = new String(Character.toChars(Character.MAX_CODE_POINT));
+
+	@Test
+	public void testUpperBound() throws Exception {
+		assertThat(PathRange.upperBound("foo"), is("fop"));
+	}
+
+	@Test
+	public void testUpperBoundSkipsSurrogates() throws Exception {
+		assertThat(PathRange.upperBound("foo\uD7FF"), is("foo\uE000"));
+	}
+
+	@Test
+	public void testUpperBoundSupplementaryCodePoint() throws Exception {
+		String prefix = new StringBuilder("foo").appendCodePoint(0x1F600).toString();
+		String expected = new StringBuilder("foo").appendCodePoint(0x1F601).toString();
+
+		assertThat(PathRange.upperBound(prefix), is(expected));
+	}
+
+	@Test
+	public void testUpperBoundMaxCodePoint() throws Exception {
+		assertThat(PathRange.upperBound("foo" + MAX_CODE_POINT), is("fop"));
+	}
+
+	@Test
+	public void testUpperBoundEmptyPrefix() throws Exception {
+		assertThat(PathRange.upperBound(""), is(MAX_CODE_POINT));
+	}
+
+	@Test
+	public void testSetBounds() throws Exception {
+		SelectArg lower = new SelectArg();
+		SelectArg upper = new SelectArg();
+
+		PathRange.setBounds(Paths.get("foo"), lower, upper);
+
+		assertThat(lower.getSqlArgValue(), is("foo"));
+		assertThat(upper.getSqlArgValue(), is("fop"));
+	}
+}
@@ -0,0 +1,729 @@
+/*  Copyright (C) 2016  Nicholas Wright
+    
+    This file is part of similarImage - A similar image finder using pHash
+    
+    similarImage is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.similarImage.db.repository.ormlite;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.dozedoff.similarImage.db.Database;
+import com.github.dozedoff.similarImage.db.DirectoryRecord;
+import com.github.dozedoff.similarImage.db.FilterRecord;
+import com.github.dozedoff.similarImage.db.IgnoreRecord;
+import com.github.dozedoff.similarImage.db.ImageHashRecord;
+import com.github.dozedoff.similarImage.db.ImageRecord;
+import com.github.dozedoff.similarImage.db.PendingHashImage;
+import com.github.dozedoff.similarImage.db.SQLiteDatabase;
+import com.github.dozedoff.similarImage.db.Tag;
+import com.github.dozedoff.similarImage.db.Thumbnail;
+import com.github.dozedoff.similarImage.db.repository.DirectoryRepository;
+import com.github.dozedoff.similarImage.db.repository.FilterRepository;
+import com.github.dozedoff.similarImage.db.repository.IgnoreRepository;
+import com.github.dozedoff.similarImage.db.repository.ImageHashRepository;
+import com.github.dozedoff.similarImage.db.repository.ImageRepository;
+import com.github.dozedoff.similarImage.db.repository.PendingHashImageRepository;
+import com.github.dozedoff.similarImage.db.repository.TagRepository;
+import com.j256.ormlite.support.ConnectionSource;
+import com.j256.ormlite.support.DatabaseConnection;
+
+/**
+ * Runs every repository query against a migrated database, and checks the query plan of each SQL statement that was
+ * executed. A full table scan, or an index SQLite had to create on the fly, fails the test unless the query is meant to
+ * read the whole table.
+ */
+public class RepositoryQueryPlanTest {
+	/**
+	 * Matches a table scan without an index, newer SQLite versions omit the TABLE keyword.
+	 */
+	private static final Pattern FULL_SCAN = Pattern.compile("^SCAN (?:TABLE )?(\\w+)(?: AS \\w+)?$");
+	private static final Pattern STATEMENT = Pattern.compile("^\\s*(?:SELECT|INSERT|UPDATE|DELETE)\\b",
+			Pattern.CASE_INSENSITIVE);
+	private static final String AUTOMATIC_INDEX = "AUTOMATIC";
+
+	private static final String IMAGE_TABLE = "imagerecord";
+	private static final String IGNORE_TABLE = "ignorerecord";
+	private static final String FILTER_TABLE = "filterrecord";
+	private static final String TAG_TABLE = "tag";
+	private static final String PENDING_TABLE = "pendinghashimage";
+
+	private static final Path DIRECTORY = Paths.get("foo");
+	private static final Path PATH = DIRECTORY.resolve("bar.jpg");
+	private static final long HASH = 42L;
+	private static final long FILE_SIZE = 1024L;
+	private static final long DIGEST = 7L;
+	private static final long MOST = 1L;
+	private static final long LEAST = 2L;
+	private static final String HASH_NAME = "dHash";
+	private static final String TAG_NAME = "tag";
+
+	private Path databaseFile;
+	private SQLiteDatabase database;
+	private Connection explainConnection;
+	private List<String> statements;
+
+	private ImageRepository imageRepository;
+	private IgnoreRepository ignoreRepository;
+	private FilterRepository filterRepository;
+	private TagRepository tagRepository;
+	private PendingHashImageRepository pendingRepository;
+	private ImageHashRepository imageHashRepository;
+	private DirectoryRepository directoryRepository;
+
+	private ImageRecord image;
+	private Tag tag;
+
+	@Before
+	public void setUp() throws Exception {
+		databaseFile = Files.createTempFile(RepositoryQueryPlanTest.class.getSimpleName(), ".db");
+		database = new SQLiteDatabase(databaseFile);
+		statements = new ArrayList<>();
+
+		ConnectionSource recording = recordingProxy(database.getCs(), ConnectionSource.class);
+		OrmliteRepositoryFactory factory = new OrmliteRepositoryFactory(new Database() {
+			@Override
+			public ConnectionSource getCs() {
+				return recording;
+			}
+
+			@Override
+			public void close() {
+				database.close();
+			}
+		});
+
+		imageRepository = factory.buildImageRepository();
+		ignoreRepository = factory.buildIgnoreRepository();
+		filterRepository = factory.buildFilterRepository();
+		tagRepository = factory.buildTagRepository();
+		pendingRepository = factory.buildPendingHashImageRepository();
+		imageHashRepository = factory.buildImageHashRepository();
+		directoryRepository = factory.buildDirectoryRepository();
+
+		image = new ImageRecord(PATH.toString(), HASH);
+		tag = new Tag(TAG_NAME, true);
+
+		explainConnection = DriverManager.getConnection("jdbc:sqlite:" + databaseFile);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		explainConnection.close();
+		database.close();
+	}
+
+	private <T> T recordingProxy(T delegate, Class<T> type) {
+		return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type },
+				new RecordingHandler(delegate)));
+	}
+
+	/**
+	 * Records the SQL passed to connections, and hands out recording proxies for connections.
+	 */
+	private final class RecordingHandler implements InvocationHandler {
+		private final Object delegate;
+
+		RecordingHandler(Object delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			if (method.getDeclaringClass() == Object.class && !"toString".equals(method.getName())) {
+				return "equals".equals(method.getName()) ? proxy == args[0] : System.identityHashCode(proxy);
+			}
+
+			if (args != null) {
+				for (int i = 0; i < args.length; i++) {
+					args[i] = unwrap(args[i]);
+				}
+
+				if (args.length > 0 && args[0] instanceof String && STATEMENT.matcher((String) args[0]).find()) {
+					statements.add((String) args[0]);
+				}
+			}
+
+			Object result;
+
+			try {
+				result = method.invoke(delegate, args);
+			} catch (InvocationTargetException e) {
+				throw e.getCause();
+			}
+
+			if (result instanceof DatabaseConnection) {
+				return recordingProxy((DatabaseConnection) result, DatabaseConnection.class);
+			}
+
+			return result;
+		}
+	}
+
+	private Object unwrap(Object arg) {
+		if (arg != null && Proxy.isProxyClass(arg.getClass())
+				&& Proxy.getInvocationHandler(arg) instanceof RecordingHandler) {
+			return ((RecordingHandler) Proxy.getInvocationHandler(arg)).delegate;
+		}
+
+		return arg;
+	}
+
+	private List<String> explain(String sql) throws SQLException {
+		List<String> plan = new ArrayList<>();
+
+		try (PreparedStatement statement = explainConnection.prepareStatement("EXPLAIN QUERY PLAN " + sql)) {
+			int parameters = statement.getParameterMetaData().getParameterCount();
+
+			for (int i = 1; i <= parameters; i++) {
+				statement.setNull(i, Types.NULL);
+			}
+
+			try (ResultSet result = statement.executeQuery()) {
+				while (result.next()) {
+					plan.add(result.getString(4));
+				}
+			}
+		}
+
+		return plan;
+	}
+
+	/**
+	 * Check the plans of all statements recorded since the last {@link #startRecording()}.
+	 * 
+	 * @param scannedTables
+	 *            tables the queries are allowed to read completely
+	 */
+	private void assertIndexed(String... scannedTables) throws SQLException {
+		Set<String> allowed = new HashSet<>(Arrays.asList(scannedTables));
+
+		assertThat("No statements were recorded", statements, is(not(empty())));
+
+		for (String sql : statements) {
+			for (String detail : explain(sql)) {
+				Matcher scan = FULL_SCAN.matcher(detail);
+
+				if (scan.matches()) {
+					assertThat("Full table scan (" + detail + ") for: " + sql, allowed.contains(scan.group(1)),
+							is(true));
+				}
+
+				assertThat("Automatic index for: " + sql, detail, not(containsString(AUTOMATIC_INDEX)));
+			}
+		}
+	}
+
+	private void startRecording() {
+		statements.clear();
+	}
+
+	@Test
+	public void testImageStore() throws Exception {
+		startRecording();
+
+		imageRepository.store(image);
+
+		assertIndexed();
+	}
+
+	@Test
+	public void testImageStoreAll() throws Exception {
+		startRecording();
+
+		imageRepository.storeAll(Arrays.asList(image, new ImageRecord("other", HASH)));
+
+		assertIndexed();
+	}
+
+	@Test
+	public void testImageGetByHash() throws Exception {
+		startRecording();
+
+		imageRepository.getByHash(HASH);
+
+		assertIndexed();
+	}
+
+	@Test
+	public void testImageGetByContentDigest() throws Exception {
+		startRecording();
+
+		imageRepository.getByContentDigest(FILE_SIZE, DIGEST);
+
+		assertIndexed();
+	}
+
+	@Test
+	public void testImageGetByPath() throws Exception {
+		startRecording();
+
+		imageRepository.getByPath(PATH);
+
+		assertIndexed();
+	}
+
+	@Test
+	public void testImageGetByPaths() throws Exception {
+		startRecording();
+
+		imageRepository.getByPaths(Arrays.asList(PATH, DIRECTORY));
+
+		assertIndexed();
+	}
+
+	@Test
+	public void testImageStartsWithPath() throws Exception {
+		startRecording();
+
+		imageRepository.startsWithPath(DIRECTORY);
+
+		assertIndexed();
+	}
+
+	@Test
+	public void testImageForEachPath() throws Exception {
+		startRecording();
+
+		imageRepository.forEachPath(DIRECTORY, path -> {
+		});
+
+		assertIndexed();
+	}
+
+	@Test
+	public void testImageStreamDirectory() throws Exception {
+		startRecording();
+
+		imageRepository.stream(DIRECTORY).count();
+
+		assertIndexed();
+	}
+
+	@Test
+	public void testImageStreamAll() throws Exception {
+		startRecording();
+
+		imageRepository.stream(null).count();
+
+		assertIndexed(IMAGE_TABLE);
+	}
+
+	@Test
+	public void testImageStreamWithoutIgnoredDirectory() throws Exception {
+		startRecording();
+
+		imageRepository.streamWithoutIgnored(DIRECTORY).count();
+
+		assertIndexed();
+	}
+
+	@Test
+	public void testImageStreamWithoutIgnoredAll() throws Exception {
+		startRecording();
+
+		imageRepository.streamWithoutIgnored(null).count();
+
+		assertIndexed(IMAGE_TABLE);
+	}
+
+	@Test
+	public void testImageRemove() throws Exception {
+		imageRepository.store(image);
+		startRecording();
+
+		imageRepository.remove(image);
+
+		assertIndexed();
+	}
+
+	@Test
+	public void testImageRemoveCollection() throws Exception {
+		imageRepository.store(image);
+		startRecording();
+
+		imageRepository.remove(Arrays.asList(image));
+
+		assertIndexed();
+	}
+
+	@Test
+	public void testImageGetAll() throws Exception {
+		startRecording();
+
+		imageRepository.getAll();
+
+		assertIndexed(IMAGE_TABLE);
+	}
+
+	@Test
+	public void testImageGetAllWithoutIgnored() throws Exception {
+		startRecording();
+
+		imageRepository.getAllWithoutIgnored();
+
+		assertIndexed(IMAGE_TABLE);
+	}
+
+	@Test
+	public void testImageGetAllWithoutIgnoredDirectory() throws Exception {
+		startRecording();
+
+		imageRepository.getAllWithoutIgnored(DIRECTORY);
+
+		assertIndexed();
+	}
+
+	@Test
+	public void testIgnoreStore() throws Exception {
+		startRecording();
+
+		ignoreRepository.store(new IgnoreRecord(image));
+
+		assertIndexed();
+	}
+
+	@Test
+	public void testIgnoreRemove() throws Exception {
+		IgnoreRecord ignore = new IgnoreRecord(image);
+		ignoreRepository.store(ignore);
+		startRecording();
+
+		ignoreRepository.remove(ignore);
+
+		assertIndexed();
+	}
+
+	@Test
+	public void testIgnoreFindByPath() throws Exception {
+		startRecording();
+
+		ignoreRepository.findByPath(PATH);
+
+		assertIndexed();
+	}
+
+	@Test
+	public void testIgnoreIsPathIgnored() throws Exception {
+		startRecording();
+
+		ignoreRepository.isPathIgnored(PATH);
+
+		assertIndexed();
+	}
+
+	@Test
+	public void testIgnoreGetAll() throws Exception {
+		startRecording();
+
+		ignoreRepository.getAll();
+
+		assertIndexed(IGNORE_TABLE);
+	}
+
+	@Test
+	public void testFilterGetByHash() throws Exception {
+		startRecording();
+
+		filterRepository.getByHash(HASH);
+
+		assertIndexed();
+	}
+
+	@Test
+	public void testFilterGetByTag() throws Exception {
+		tagRepository.store(tag);
+		startRecording();
+
+		filterRepository.getByTag(tag);
+
+		assertIndexed();
+	}
+
+	@Test
+	public void testFilterStore() throws Exception {
+		tagRepository.store(tag);
+		startRecording();
+
+		filterRepository.store(new FilterRecord(HASH, tag));
+
+		assertIndexed();
+	}
+
+	@Test
+	public void testFilterStoreWithThumbnail() throws Exception {
+		tagRepository.store(tag);
+		startRecording();
+
+		filterRepository.store(new FilterRecord(HASH, tag, new Thumbnail(new byte[] { 1 }, new byte[] { 2 })));
+
+		assertIndexed();
+	}
+
+	@Test
+	public void testFilterStoreAll() throws Exception {
+		tagRepository.store(tag);
+		startRecording();
+
+		filterRepository.storeAll(Arrays.asList(new FilterRecord(HASH, tag)));
+
+		assertIndexed();
+	}
+
+	@Test
+	public void testFilterRemove() throws Exception {
+		tagRepository.store(tag);
+		FilterRecord filter = new FilterRecord(HASH, tag);
+		filterRepository.store(filter);
+		startRecording();
+
+		filterRepository.remove(filter);
+
+		assertIndexed();
+	}
+
+	@Test
+	public void testFilterGetAll() throws Exception {
+		startRecording();
+
+		filterRepository.getAll();
+
+		assertIndexed(FILTER_TABLE);
+	}
+
+	@Test
+	public void testTagGetByName() throws Exception {
+		startRecording();
+
+		tagRepository.getByName(TAG_NAME);
+
+		assertIndexed();
+	}
+
+	@Test
+	public void testTagStore() throws Exception {
+		startRecording();
+
+		tagRepository.store(tag);
+
+		assertIndexed();
+	}
+
+	@Test
+	public void testTagRemove() throws Exception {
+		tagRepository.store(tag);
+		startRecording();
+
+		tagRepository.remove(tag);
+
+		assertIndexed();
+	}
+
+	@Test
+	public void testTagGetAll() throws Exception {
+		startRecording();
+
+		tagRepository.getAll();
+
+		assertIndexed(TAG_TABLE);
+	}
+
+	@Test
+	public void testTagGetWithContext() throws Exception {
+		startRecording();
+
+		tagRepository.getWithContext();
+
+		assertIndexed();
+	}
+
+	@Test
+	public void testPendingStore() throws Exception {
+		startRecording();
+
+		pendingRepository.store(new PendingHashImage(PATH.toString(), MOST, LEAST));
+
+		assertIndexed();
+	}
+
+	@Test
+	public void testPendingExists() throws Exception {
+		startRecording();
+
+		pendingRepository.exists(new PendingHashImage(PATH.toString(), MOST, LEAST));
+
+		assertIndexed();
+	}
+
+	@Test
+	public void testPendingGetByUUID() throws Exception {
+		startRecording();
+
+		pendingRepository.getByUUID(MOST, LEAST);
+
+		assertIndexed();
+	}
+
+	@Test
+	public void testPendingRemove() throws Exception {
+		PendingHashImage pending = new PendingHashImage(PATH.toString(), MOST, LEAST);
+		pendingRepository.store(pending);
+		startRecording();
+
+		pendingRepository.remove(pending);
+
+		assertIndexed();
+	}
+
+	@Test
+	public void testPendingRemoveAll() throws Exception {
+		PendingHashImage pending = new PendingHashImage(PATH.toString(), MOST, LEAST);
+		pendingRepository.store(pending);
+		startRecording();
+
+		pendingRepository.removeAll(Arrays.asList(pending));
+
+		assertIndexed();
+	}
+
+	@Test
+	public void testPendingGetAll() throws Exception {
+		startRecording();
+
+		pendingRepository.getAll();
+
+		assertIndexed(PENDING_TABLE);
+	}
+
+	@Test
+	public void testImageHashStore() throws Exception {
+		startRecording();
+
+		imageHashRepository.store(new ImageHashRecord(PATH.toString(), HASH_NAME, HASH));
+
+		assertIndexed();
+	}
+
+	@Test
+	public void testImageHashGetByPath() throws Exception {
+		startRecording();
+
+		imageHashRepository.getByPath(PATH);
+
+		assertIndexed();
+	}
+
+	@Test
+	public void testImageHashGetByPathAndName() throws Exception {
+		startRecording();
+
+		imageHashRepository.getByPath(PATH, HASH_NAME);
+
+		assertIndexed();
+	}
+
+	@Test
+	public void testImageHashGetByHash() throws Exception {
+		startRecording();
+
+		imageHashRepository.getByHash(HASH_NAME, HASH);
+
+		assertIndexed();
+	}
+
+	@Test
+	public void testImageHashGetAll() throws Exception {
+		startRecording();
+
+		imageHashRepository.getAll(HASH_NAME);
+
+		assertIndexed();
+	}
+
+	@Test
+	public void testImageHashRemove() throws Exception {
+		startRecording();
+
+		imageHashRepository.remove(PATH);
+
+		assertIndexed();
+	}
+
+	@Test
+	public void testDirectoryStore() throws Exception {
+		startRecording();
+
+		directoryRepository.store(new DirectoryRecord(DIRECTORY.toString(), 1L, 1, HASH, 1));
+
+		assertIndexed();
+	}
+
+	@Test
+	public void testDirectoryGetByPath() throws Exception {
+		startRecording();
+
+		directoryRepository.getByPath(DIRECTORY);
+
+		assertIndexed();
+	}
+
+	@Test
+	public void testDirectoryStartsWithPath() throws Exception {
+		startRecording();
+
+		directoryRepository.startsWithPath(DIRECTORY);
+
+		assertIndexed();
+	}
+
+	@Test
+	public void testDirectoryRemove() throws Exception {
+		DirectoryRecord directory = new DirectoryRecord(DIRECTORY.toString(), 1L, 1, HASH, 1);
+		directoryRepository.store(directory);
+		startRecording();
+
+		directoryRepository.remove(directory);
+
+		assertIndexed();
+	}
+}
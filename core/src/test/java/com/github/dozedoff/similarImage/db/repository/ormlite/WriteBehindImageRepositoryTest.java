@@ -0,0 +1,292 @@
+/*  Copyright (C) 2016  Nicholas Wright
+    
+    This file is part of similarImage - A similar image finder using pHash
+    
+    similarImage is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.similarImage.db.repository.ormlite;
+
+import static org.awaitility.Awaitility.await;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.codahale.metrics.MetricRegistry;
+import com.github.dozedoff.similarImage.db.ImageRecord;
+import com.github.dozedoff.similarImage.db.repository.ImageRepository;
+import com.github.dozedoff.similarImage.db.repository.RepositoryException;
+
+public class WriteBehindImageRepositoryTest extends BaseOrmliteRepositoryTest {
+	private static final int BATCH_SIZE = 3;
+	private static final long MAX_AGE_HOURS = 1;
+
+	private static final long HASH = 42L;
+	private static final long FILE_SIZE = 1024L;
+	private static final long DIGEST = 7L;
+
+	private ImageRecord recordA;
+	private ImageRecord recordB;
+	private ImageRecord recordC;
+
+	private ImageRepository delegate;
+	private MetricRegistry metrics;
+	private WriteBehindImageRepository cut;
+
+	@Before
+	public void setUp() throws Exception {
+		delegate = new OrmliteRepositoryFactory(db).buildImageRepository();
+		metrics = new MetricRegistry();
+
+		recordA = new ImageRecord("a", HASH);
+		recordB = new ImageRecord("b", HASH);
+		recordC = new ImageRecord("c", HASH, null, FILE_SIZE, DIGEST);
+
+		cut = createRepository(BATCH_SIZE, MAX_AGE_HOURS, TimeUnit.HOURS);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		cut.close();
+	}
+
+	private WriteBehindImageRepository createRepository(int batchSize, long maxAge, TimeUnit unit) {
+		return new WriteBehindImageRepository(delegate, metrics, batchSize, maxAge, unit);
+	}
+
+	@Test
+	public void testStoreIsQueued() throws Exception {
+		cut.store(recordA);
+
+		assertThat(delegate.getByPath(Paths.get("a")), is(nullValue()));
+		assertThat(cut.getPendingCount(), is(1));
+	}
+
+	@Test
+	public void testFlush() throws Exception {
+		cut.store(recordA);
+
+		cut.flush();
+
+		assertThat(delegate.getByPath(Paths.get("a")), is(recordA));
+		assertThat(cut.getPendingCount(), is(0));
+	}
+
+	@Test
+	public void testBatchSizeTriggersFlush() throws Exception {
+		cut.store(recordA);
+		cut.store(recordB);
+		cut.store(recordC);
+
+		await().until(() -> delegate.getAll().size(), is(BATCH_SIZE));
+	}
+
+	@Test
+	public void testMaxAgeTriggersFlush() throws Exception {
+		cut.close();
+		cut = createRepository(BATCH_SIZE, 50, TimeUnit.MILLISECONDS);
+
+		cut.store(recordA);
+
+		await().until(() -> delegate.getByPath(Paths.get("a")), is(recordA));
+	}
+
+	@Test
+	public void testGetByPathIncludesQueued() throws Exception {
+		cut.store(recordA);
+
+		assertThat(cut.getByPath(Paths.get("a")), is(recordA));
+	}
+
+	@Test
+	public void testGetByPathQueuedReplacesStored() throws Exception {
+		delegate.store(recordA);
+		ImageRecord updated = new ImageRecord("a", HASH + 1);
+
+		cut.store(updated);
+
+		assertThat(cut.getByPath(Paths.get("a")), is(updated));
+	}
+
+	@Test
+	public void testStoreAllIsQueued() throws Exception {
+		cut.storeAll(Arrays.asList(recordA, recordB));
+
+		assertThat(delegate.getAll(), is(empty()));
+		assertThat(cut.getPendingCount(), is(2));
+	}
+
+	@Test
+	public void testGetByPathsMergesQueued() throws Exception {
+		delegate.store(recordA);
+		ImageRecord updated = new ImageRecord("a", HASH + 1);
+
+		cut.store(updated);
+		cut.store(recordB);
+
+		assertThat(cut.getByPaths(Arrays.asList(Paths.get("a"), Paths.get("b"))),
+				containsInAnyOrder(updated, recordB));
+	}
+
+	@Test
+	public void testGetByHashMergesQueued() throws Exception {
+		delegate.store(recordA);
+
+		cut.store(recordB);
+
+		assertThat(cut.getByHash(HASH), containsInAnyOrder(recordA, recordB));
+	}
+
+	@Test
+	public void testGetByHashExcludesQueuedUpdate() throws Exception {
+		delegate.store(recordA);
+
+		cut.store(new ImageRecord("a", HASH + 1));
+
+		assertThat(cut.getByHash(HASH), is(empty()));
+	}
+
+	@Test
+	public void testGetByContentDigestIncludesQueued() throws Exception {
+		cut.store(recordA);
+		cut.store(recordC);
+
+		assertThat(cut.getByContentDigest(FILE_SIZE, DIGEST), containsInAnyOrder(recordC));
+	}
+
+	@Test
+	public void testGetAllFlushesQueued() throws Exception {
+		cut.store(recordA);
+		cut.store(recordB);
+
+		assertThat(cut.getAll(), containsInAnyOrder(recordA, recordB));
+	}
+
+	@Test
+	public void testStreamFlushesQueued() throws Exception {
+		cut.store(recordA);
+
+		assertThat(cut.stream(null).collect(Collectors.toList()), containsInAnyOrder(recordA));
+	}
+
+	@Test
+	public void testRemoveAfterStore() throws Exception {
+		cut.store(recordA);
+
+		cut.remove(recordA);
+
+		assertThat(cut.getByPath(Paths.get("a")), is(nullValue()));
+	}
+
+	@Test
+	public void testCloseFlushesQueued() throws Exception {
+		cut.store(recordA);
+
+		cut.close();
+
+		assertThat(delegate.getByPath(Paths.get("a")), is(recordA));
+	}
+
+	@Test
+	public void testStoreAfterCloseWritesImmediately() throws Exception {
+		cut.close();
+
+		cut.store(recordA);
+
+		assertThat(delegate.getByPath(Paths.get("a")), is(recordA));
+	}
+
+	@Test
+	public void testBatchSizeHistogram() throws Exception {
+		cut.store(recordA);
+		cut.store(recordB);
+
+		cut.flush();
+
+		assertThat(metrics.histogram(WriteBehindImageRepository.METRIC_NAME_BATCH_SIZE).getSnapshot().getMax(),
+				is(2L));
+	}
+
+	@Test
+	public void testFlushTimer() throws Exception {
+		cut.store(recordA);
+
+		cut.flush();
+
+		assertThat(metrics.timer(WriteBehindImageRepository.METRIC_NAME_FLUSH).getCount(), is(1L));
+	}
+
+	@Test
+	public void testFailedWriteIsRetried() throws Exception {
+		ImageRepository failing = mock(ImageRepository.class);
+		doThrow(new RepositoryException("busy")).doNothing().when(failing).storeAll(anyCollection());
+
+		try (WriteBehindImageRepository repository = new WriteBehindImageRepository(failing, metrics, BATCH_SIZE,
+				MAX_AGE_HOURS, TimeUnit.HOURS)) {
+			repository.store(recordA);
+
+			repository.flush();
+
+			verify(failing, times(2)).storeAll(anyCollection());
+			assertThat(repository.getPendingCount(), is(0));
+		}
+	}
+
+	@Test
+	public void testFailedBatchIsQueuedAgain() throws Exception {
+		RepositoryException busy = new RepositoryException("busy");
+		ImageRepository failing = mock(ImageRepository.class);
+		doThrow(busy).doThrow(busy).doThrow(busy).doNothing().when(failing).storeAll(anyCollection());
+
+		try (WriteBehindImageRepository repository = new WriteBehindImageRepository(failing, metrics, BATCH_SIZE,
+				MAX_AGE_HOURS, TimeUnit.HOURS)) {
+			repository.store(recordA);
+
+			try {
+				repository.flush();
+			} catch (RepositoryException e) {
+				// expected, all attempts fail
+			}
+
+			assertThat(repository.getPendingCount(), is(1));
+			assertThat(repository.getByPath(Paths.get("a")), is(recordA));
+			assertThat(metrics.meter(WriteBehindImageRepository.METRIC_NAME_FLUSH_FAILED).getCount(), is(1L));
+
+			repository.flush();
+
+			verify(failing, times(4)).storeAll(anyCollection());
+			assertThat(repository.getPendingCount(), is(0));
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidBatchSize() throws Exception {
+		createRepository(0, MAX_AGE_HOURS, TimeUnit.HOURS);
+	}
+}
@@ -294,8 +294,19 @@ public class DuplicateOperationsTest {
 
 		dupOp.markDirectoryAs(tempDirectory, TAG_FOO);
 
-		verify(imageRepository, times(3)).getByPath(any(Path.class));
-		verify(filterRepository, never()).store(any(FilterRecord.class));
+		verify(imageRepository).getByPaths(any());
+		verify(filterRepository, never()).storeAll(any());
+	}
+
+	@Test
+	public void testMarkDirectoryRecordFound() throws Exception {
+		List<Path> files = createTempTestFiles(3);
+		Path file = files.get(0);
+		when(imageRepository.getByPaths(any())).thenReturn(Arrays.asList(new ImageRecord(file.toString(), TEST_HASH)));
+
+		dupOp.markDirectoryAs(tempDirectory, TAG_FOO);
+
+		verify(filterRepository).storeAll(Arrays.asList(fooFilter));
 	}
 
 	@Test
@@ -305,8 +316,8 @@ public class DuplicateOperationsTest {
 
 		dupOp.markDirectoryAs(file, TAG_FOO);
 
-		verify(imageRepository, never()).getByPath(any(Path.class));
-		verify(filterRepository, never()).store(any(FilterRecord.class));
+		verify(imageRepository, never()).getByPaths(any());
+		verify(filterRepository, never()).storeAll(any());
 	}
 
 	@Test
@@ -315,8 +326,8 @@ public class DuplicateOperationsTest {
 
 		dupOp.markDirectoryAs(null, TAG_FOO);
 
-		verify(imageRepository, never()).getByPath(any(Path.class));
-		verify(filterRepository, never()).store(any(FilterRecord.class));
+		verify(imageRepository, never()).getByPaths(any());
+		verify(filterRepository, never()).storeAll(any());
 	}
 
 	@Test
@@ -325,8 +336,8 @@ public class DuplicateOperationsTest {
 
 		dupOp.markDirectoryAs(tempDirectory.resolve("foobar"), TAG_FOO);
 
-		verify(imageRepository, never()).getByPath(any(Path.class));
-		verify(filterRepository, never()).store(any(FilterRecord.class));
+		verify(imageRepository, never()).getByPaths(any());
+		verify(filterRepository, never()).storeAll(any());
 	}
 
 	@Test
@@ -337,8 +348,7 @@ public class DuplicateOperationsTest {
 
 		dupOp.markAll(records, TAG_ALL);
 
-		verify(filterRepository).store(new FilterRecord(0, TAG_ALL));
-		verify(filterRepository).store(new FilterRecord(1, TAG_ALL));
+		verify(filterRepository).storeAll(Arrays.asList(new FilterRecord(0, TAG_ALL), new FilterRecord(1, TAG_ALL)));
 	}
 
 	private LinkedList<Path> createTempTestFiles(int amount) throws IOException {
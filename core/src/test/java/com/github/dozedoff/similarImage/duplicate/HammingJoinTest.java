@@ -0,0 +1,142 @@
+/*  Copyright (C) 2016  Nicholas Wright
+    
+    This file is part of similarImage - A similar image finder using pHash
+    
+    similarImage is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.similarImage.duplicate;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HammingJoinTest {
+	private static final int NUMBER_OF_HASHES = 3000;
+	private static final int DISTANCE = 3;
+	private static final int PARALLELISM = 4;
+	private static final long SEED = 42L;
+
+	private long[] hashes;
+	private ForkJoinPool pool;
+	private HammingJoin cut;
+
+	@Before
+	public void setUp() throws Exception {
+		Random random = new Random(SEED);
+		hashes = new long[NUMBER_OF_HASHES];
+
+		for (int i = 0; i < NUMBER_OF_HASHES; i += 2) {
+			hashes[i] = random.nextLong();
+			hashes[i + 1] = hashes[i] ^ (1L << random.nextInt(Long.SIZE)) ^ (1L << random.nextInt(Long.SIZE));
+		}
+
+		hashes = Arrays.stream(hashes).distinct().sorted().toArray();
+		pool = new ForkJoinPool(PARALLELISM);
+		cut = HammingJoin.join(hashes, HammingIndexType.BK_TREE, DISTANCE, pool);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		pool.shutdownNow();
+	}
+
+	private long[] linearSearch(long query) {
+		return Arrays.stream(hashes).filter(hash -> Long.bitCount(hash ^ query) <= DISTANCE).sorted().toArray();
+	}
+
+	private void assertMatchesLinearSearch() {
+		for (int i = 0; i < hashes.length; i++) {
+			long[] matches = cut.getMatches(i);
+			Arrays.sort(matches);
+
+			assertThat(matches, is(linearSearch(hashes[i])));
+		}
+	}
+
+	@Test
+	public void testMatchesLinearSearch() throws Exception {
+		assertMatchesLinearSearch();
+	}
+
+	@Test
+	public void testMultiIndexMatchesLinearSearch() throws Exception {
+		cut = HammingJoin.join(hashes, HammingIndexType.MULTI_INDEX, DISTANCE, pool);
+
+		assertMatchesLinearSearch();
+	}
+
+	@Test
+	public void testSmallHashesMatchLinearSearch() throws Exception {
+		hashes = Arrays.stream(hashes).map(hash -> hash >>> 40).distinct().sorted().toArray();
+		cut = HammingJoin.join(hashes, HammingIndexType.BK_TREE, DISTANCE, pool);
+
+		assertMatchesLinearSearch();
+	}
+
+	@Test
+	public void testPairCount() throws Exception {
+		long matches = 0;
+
+		for (int i = 0; i < hashes.length; i++) {
+			matches += linearSearch(hashes[i]).length - 1;
+		}
+
+		assertThat(cut.getPairCount(), is(matches / 2));
+	}
+
+	@Test
+	public void testMatchIndicesMatchHashes() throws Exception {
+		for (int i = 0; i < hashes.length; i++) {
+			long[] matches = new long[cut.getMatchesEnd(i) - cut.getMatchesStart(i)];
+
+			for (int position = cut.getMatchesStart(i); position < cut.getMatchesEnd(i); position++) {
+				matches[position - cut.getMatchesStart(i)] = cut.getHash(cut.getMatchIndex(position));
+			}
+
+			assertThat(matches, is(cut.getMatches(i)));
+		}
+	}
+
+	@Test
+	public void testSize() throws Exception {
+		assertThat(cut.size(), is(hashes.length));
+	}
+
+	@Test
+	public void testHashOrder() throws Exception {
+		assertThat(cut.getHash(1), is(hashes[1]));
+	}
+
+	@Test
+	public void testExactMatchOnly() throws Exception {
+		cut = HammingJoin.join(hashes, HammingIndexType.MULTI_INDEX, 0, pool);
+
+		assertThat(cut.getMatches(0), is(new long[] { hashes[0] }));
+	}
+
+	@Test
+	public void testEmpty() throws Exception {
+		cut = HammingJoin.join(new long[0], HammingIndexType.BK_TREE, DISTANCE, pool);
+
+		assertThat(cut.size(), is(0));
+		assertThat(cut.getPairCount(), is(0L));
+	}
+}
@@ -0,0 +1,162 @@
+/*  Copyright (C) 2016  Nicholas Wright
+    
+    This file is part of similarImage - A similar image finder using pHash
+    
+    similarImage is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.similarImage.duplicate;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class LongBKTreeTest {
+	private static final int NUMBER_OF_HASHES = 2000;
+	private static final int NUMBER_OF_QUERIES = 100;
+	private static final int MAX_DISTANCE = 12;
+	private static final long SEED = 42L;
+
+	private long[] hashes;
+	private Random random;
+	private LongBKTree cut;
+
+	@Before
+	public void setUp() throws Exception {
+		random = new Random(SEED);
+		Set<Long> generated = new LinkedHashSet<>();
+
+		while (generated.size() < NUMBER_OF_HASHES) {
+			long hash = random.nextLong();
+			generated.add(hash);
+
+			// add close hashes, so queries find more than the hash itself
+			generated.add(hash ^ (1L << random.nextInt(Long.SIZE)));
+			generated.add(hash ^ (1L << random.nextInt(Long.SIZE)) ^ (1L << random.nextInt(Long.SIZE)));
+		}
+
+		hashes = generated.stream().mapToLong(Long::longValue).toArray();
+		cut = new LongBKTree(hashes);
+	}
+
+	private long[] linearSearch(long query, int distance) {
+		return Arrays.stream(hashes).filter(hash -> Long.bitCount(hash ^ query) <= distance).sorted().toArray();
+	}
+
+	@Test
+	public void testSearchMatchesLinearSearch() throws Exception {
+		for (int i = 0; i < NUMBER_OF_QUERIES; i++) {
+			long query = hashes[random.nextInt(hashes.length)] ^ (1L << random.nextInt(Long.SIZE));
+
+			for (int distance = 0; distance <= MAX_DISTANCE; distance++) {
+				long[] result = cut.searchWithin(query, distance);
+				Arrays.sort(result);
+
+				assertThat(result, is(linearSearch(query, distance)));
+			}
+		}
+	}
+
+	@Test
+	public void testSearchAll() throws Exception {
+		assertThat(cut.searchWithin(0L, Long.SIZE).length, is(hashes.length));
+	}
+
+	@Test
+	public void testSearchDistanceLargerThanHash() throws Exception {
+		assertThat(cut.searchWithin(0L, Integer.MAX_VALUE).length, is(hashes.length));
+	}
+
+	@Test
+	public void testResultBuffer() throws Exception {
+		long[] results = new long[2];
+
+		int found = cut.searchWithin(hashes[0], 0, results);
+
+		assertThat(found, is(1));
+		assertThat(results[0], is(hashes[0]));
+	}
+
+	@Test
+	public void testResultBufferTooSmall() throws Exception {
+		long[] results = new long[2];
+
+		int found = cut.searchWithin(0L, Long.SIZE, results);
+
+		assertThat(found, is(hashes.length));
+	}
+
+	@Test
+	public void testEmptyResultBuffer() throws Exception {
+		assertThat(cut.searchWithin(hashes[0], 0, new long[0]), is(1));
+	}
+
+	@Test
+	public void testNegativeDistance() throws Exception {
+		assertThat(cut.searchWithin(hashes[0], -1).length, is(0));
+	}
+
+	@Test
+	public void testEmptyTree() throws Exception {
+		cut = new LongBKTree(new long[0]);
+
+		assertThat(cut.searchWithin(0L, MAX_DISTANCE).length, is(0));
+	}
+
+	@Test
+	public void testSingleHash() throws Exception {
+		cut = new LongBKTree(new long[] { 42L });
+
+		assertThat(cut.searchWithin(43L, 1), is(new long[] { 42L }));
+	}
+
+	@Test
+	public void testDuplicatesAddedOnce() throws Exception {
+		cut = new LongBKTree(new long[] { 1L, 1L, 3L });
+
+		assertThat(cut.size(), is(2));
+		assertThat(cut.searchWithin(1L, 0), is(new long[] { 1L }));
+	}
+
+	@Test
+	public void testStackSmallerThanTree() throws Exception {
+		assertThat(cut.stackSize() < cut.size(), is(true));
+	}
+
+	@Test
+	public void testSearchWithCallerStack() throws Exception {
+		int[] stack = new int[cut.stackSize()];
+		long[] results = new long[hashes.length];
+
+		assertThat(cut.searchWithin(0L, Long.SIZE, results, stack), is(hashes.length));
+		assertThat(cut.searchWithin(hashes[0], 0, results, stack), is(1));
+		assertThat(results[0], is(hashes[0]));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSearchWithTooSmallStack() throws Exception {
+		cut.searchWithin(0L, Long.SIZE, new long[hashes.length], new int[cut.stackSize() - 1]);
+	}
+
+	@Test
+	public void testSize() throws Exception {
+		assertThat(cut.size(), is(hashes.length));
+	}
+}
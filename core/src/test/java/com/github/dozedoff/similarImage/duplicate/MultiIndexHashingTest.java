@@ -0,0 +1,134 @@
+/*  Copyright (C) 2016  Nicholas Wright
+    
+    This file is part of similarImage - A similar image finder using pHash
+    
+    similarImage is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.similarImage.duplicate;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class MultiIndexHashingTest {
+	private static final int NUMBER_OF_HASHES = 2000;
+	private static final int NUMBER_OF_QUERIES = 100;
+	private static final int MAX_DISTANCE = 8;
+	private static final long SEED = 42L;
+
+	private long[] hashes;
+	private Random random;
+	private MultiIndexHashing cut;
+
+	@Before
+	public void setUp() throws Exception {
+		random = new Random(SEED);
+		Set<Long> generated = new LinkedHashSet<>();
+
+		while (generated.size() < NUMBER_OF_HASHES) {
+			long hash = random.nextLong();
+			generated.add(hash);
+
+			// add close hashes, so queries find more than the hash itself
+			generated.add(hash ^ (1L << random.nextInt(Long.SIZE)));
+			generated.add(hash ^ (1L << random.nextInt(Long.SIZE)) ^ (1L << random.nextInt(Long.SIZE)));
+		}
+
+		hashes = generated.stream().mapToLong(Long::longValue).toArray();
+		cut = new MultiIndexHashing(hashes);
+	}
+
+	private long[] linearSearch(long query, int distance) {
+		return Arrays.stream(hashes).filter(hash -> Long.bitCount(hash ^ query) <= distance).sorted().toArray();
+	}
+
+	private void assertMatchesLinearSearch(MultiIndexHashing index) {
+		for (int i = 0; i < NUMBER_OF_QUERIES; i++) {
+			long query = hashes[random.nextInt(hashes.length)] ^ (1L << random.nextInt(Long.SIZE));
+
+			for (int distance = 0; distance <= MAX_DISTANCE; distance++) {
+				long[] result = index.searchWithin(query, distance);
+				Arrays.sort(result);
+
+				assertThat(result, is(linearSearch(query, distance)));
+			}
+		}
+	}
+
+	@Test
+	public void testSearchMatchesLinearSearch() throws Exception {
+		assertMatchesLinearSearch(cut);
+	}
+
+	@Test
+	public void testUnevenSubstrings() throws Exception {
+		assertMatchesLinearSearch(new MultiIndexHashing(hashes, 5));
+	}
+
+	@Test
+	public void testSingleSubstring() throws Exception {
+		cut = new MultiIndexHashing(hashes, 1);
+
+		assertThat(cut.searchWithin(hashes[0], 0), is(new long[] { hashes[0] }));
+	}
+
+	@Test
+	public void testOneBitSubstrings() throws Exception {
+		assertMatchesLinearSearch(new MultiIndexHashing(hashes, Long.SIZE));
+	}
+
+	@Test
+	public void testExactMatch() throws Exception {
+		assertThat(cut.searchWithin(hashes[0], 0), is(new long[] { hashes[0] }));
+	}
+
+	@Test
+	public void testNegativeDistance() throws Exception {
+		assertThat(cut.searchWithin(hashes[0], -1).length, is(0));
+	}
+
+	@Test
+	public void testEmptyIndex() throws Exception {
+		cut = new MultiIndexHashing(new long[0]);
+
+		assertThat(cut.searchWithin(0L, MAX_DISTANCE).length, is(0));
+	}
+
+	@Test
+	public void testSize() throws Exception {
+		assertThat(cut.size(), is(hashes.length));
+	}
+
+	@Test
+	public void testDefaultSubstrings() throws Exception {
+		assertThat(cut.getSubstrings(), is(MultiIndexHashing.DEFAULT_SUBSTRINGS));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testTooFewSubstrings() throws Exception {
+		new MultiIndexHashing(hashes, 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testTooManySubstrings() throws Exception {
+		new MultiIndexHashing(hashes, Long.SIZE + 1);
+	}
+}
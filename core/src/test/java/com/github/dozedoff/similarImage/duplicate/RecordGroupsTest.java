@@ -0,0 +1,157 @@
+/*  Copyright (C) 2016  Nicholas Wright
+    
+    This file is part of similarImage - A similar image finder using pHash
+    
+    similarImage is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.similarImage.duplicate;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.dozedoff.similarImage.db.ImageRecord;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.MultimapBuilder;
+
+public class RecordGroupsTest {
+	private static final long KEY_A = 1L;
+	private static final long KEY_B = 2L;
+	private static final long KEY_C = 3L;
+	private static final long KEY_MISSING = 99L;
+
+	private ImageRecord recordA;
+	private ImageRecord recordB;
+	private ImageRecord recordC;
+
+	private RecordGroups cut;
+
+	@Before
+	public void setUp() throws Exception {
+		recordA = new ImageRecord("foo/a", KEY_A);
+		recordB = new ImageRecord("foo/b", KEY_B);
+		recordC = new ImageRecord("foo/c", KEY_C);
+
+		RecordStore records = RecordStore.of(Arrays.asList(recordA, recordB, recordC));
+
+		cut = RecordGroups.builder(records).put(KEY_A, new int[] { 1, 0, 1 }).put(KEY_B, new int[] { 0, 1 })
+				.put(KEY_C, new int[] { 2 }).build();
+	}
+
+	@Test
+	public void testGet() throws Exception {
+		assertThat(cut.get(KEY_A), containsInAnyOrder(recordA, recordB));
+	}
+
+	@Test
+	public void testGetMissingKey() throws Exception {
+		assertThat(cut.get(KEY_MISSING), is(empty()));
+	}
+
+	@Test
+	public void testDuplicateIdsAddedOnce() throws Exception {
+		assertThat(cut.get(KEY_A).size(), is(2));
+	}
+
+	@Test
+	public void testSize() throws Exception {
+		assertThat(cut.size(), is(5));
+	}
+
+	@Test
+	public void testRecordsAreNotKept() throws Exception {
+		assertThat(cut.get(KEY_C).iterator().next(), is(not(sameInstance(cut.get(KEY_C).iterator().next()))));
+	}
+
+	@Test
+	public void testContainsEntry() throws Exception {
+		assertThat(cut.containsEntry(KEY_A, recordB), is(true));
+	}
+
+	@Test
+	public void testContainsEntryWithDifferentHash() throws Exception {
+		assertThat(cut.containsEntry(KEY_A, new ImageRecord("foo/b", KEY_C)), is(false));
+	}
+
+	@Test
+	public void testContainsEntryNotInGroup() throws Exception {
+		assertThat(cut.containsEntry(KEY_C, recordA), is(false));
+	}
+
+	@Test
+	public void testEqualsMultimapWithSameRecords() throws Exception {
+		Multimap<Long, ImageRecord> expected = MultimapBuilder.hashKeys().hashSetValues().build();
+		expected.putAll(KEY_A, Arrays.asList(recordA, recordB));
+		expected.putAll(KEY_B, Arrays.asList(recordA, recordB));
+		expected.put(KEY_C, recordC);
+
+		assertThat(cut.equals(expected), is(true));
+		assertThat(cut.hashCode(), is(expected.hashCode()));
+	}
+
+	@Test
+	public void testGroupsWithSameIdsAreEqual() throws Exception {
+		assertThat(cut.get(KEY_A), is(cut.get(KEY_B)));
+		assertThat(cut.get(KEY_A).hashCode(), is(cut.get(KEY_B).hashCode()));
+	}
+
+	@Test
+	public void testGroupsWithDifferentIdsAreNotEqual() throws Exception {
+		assertThat(cut.get(KEY_A), is(not(cut.get(KEY_C))));
+	}
+
+	@Test
+	public void testEntries() throws Exception {
+		assertThat(cut.entries().size(), is(5));
+		assertThat(cut.values(), containsInAnyOrder(recordA, recordB, recordA, recordB, recordC));
+	}
+
+	@Test
+	public void testKeysCountGroupSize() throws Exception {
+		assertThat(cut.keys().count(KEY_A), is(2));
+	}
+
+	@Test
+	public void testRemoveAll() throws Exception {
+		assertThat(cut.removeAll(KEY_C), containsInAnyOrder(recordC));
+		assertThat(cut.containsKey(KEY_C), is(false));
+	}
+
+	@Test
+	public void testRemoveSingleImageGroups() throws Exception {
+		DuplicateUtil.removeSingleImageGroups(cut);
+
+		assertThat(cut.keySet(), containsInAnyOrder(KEY_A, KEY_B));
+	}
+
+	@Test
+	public void testRemoveDuplicateSets() throws Exception {
+		DuplicateUtil.removeDuplicateSets(cut);
+
+		assertThat(cut.keySet().size(), is(2));
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testPutIsNotSupported() throws Exception {
+		cut.put(KEY_C, recordA);
+	}
+}
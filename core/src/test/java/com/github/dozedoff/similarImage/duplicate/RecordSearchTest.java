@@ -23,6 +23,7 @@ import org.mockito.junit.MockitoJUnit;
 import org.mockito.quality.Strictness;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.is;
 
@@ -42,6 +43,7 @@ import com.github.dozedoff.similarImage.db.ImageRecord;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.MultimapBuilder;
 import com.google.common.jimfs.Jimfs;
+import com.google.common.primitives.Longs;
 
 public class RecordSearchTest {
 	public @Rule MockitoRule mockito = MockitoJUnit.rule().strictness(Strictness.STRICT_STUBS);
@@ -166,6 +168,62 @@ public class RecordSearchTest {
 		assertThat(result.containsKey(1L), is(true));
 	}
 
+	@Test
+	public void testMultiIndexDistanceMatch() throws Exception {
+		cut = new RecordSearch(HammingIndexType.MULTI_INDEX);
+		cut.build(dbRecords);
+
+		assertThat(cut.distanceMatch(2L, 2L).keySet(), containsInAnyOrder(1L, 2L, 3L, 6L));
+	}
+
+	@Test
+	public void testMultiIndexEmpty() throws Exception {
+		cut = new RecordSearch(HammingIndexType.MULTI_INDEX);
+		cut.build(Collections.emptyList());
+
+		assertThat(cut.distanceMatch(2L, 2L).isEmpty(), is(true));
+	}
+
+	@Test
+	public void testDistanceMatchAfterRebuild() throws Exception {
+		cut.distanceMatch(2L, 0L);
+		cut.build(Collections.singletonList(generateRecord(8L)));
+
+		assertThat(cut.distanceMatch(8L, 0L).keySet(), containsInAnyOrder(8L));
+	}
+
+	@Test
+	public void testDistanceMatchAfterRebuildDiscardsOldHashes() throws Exception {
+		cut.distanceMatch(2L, 0L);
+		cut.build(Collections.singletonList(generateRecord(8L)));
+
+		assertThat(cut.distanceMatch(2L, 0L).isEmpty(), is(true));
+	}
+
+	@Test
+	public void testDistanceJoinMatches() throws Exception {
+		HammingJoin join = cut.distanceJoin(1L);
+
+		assertThat(Longs.asList(join.getMatches(1)), containsInAnyOrder(2L, 3L, 6L));
+	}
+
+	@Test
+	public void testDistanceJoinPairCount() throws Exception {
+		assertThat(cut.distanceJoin(1L).getPairCount(), is(3L));
+	}
+
+	@Test
+	public void testDistanceJoinEmpty() throws Exception {
+		cut.build(Collections.emptyList());
+
+		assertThat(cut.distanceJoin(1L).size(), is(0));
+	}
+
+	@Test
+	public void testDefaultIndexType() throws Exception {
+		assertThat(cut.getIndexType(), is(HammingIndexType.BK_TREE));
+	}
+
 	@Test
 	public void testSortingEmptyCollection() throws Exception {
 		cut.build(Collections.emptyList());
@@ -0,0 +1,172 @@
+/*  Copyright (C) 2016  Nicholas Wright
+    
+    This file is part of similarImage - A similar image finder using pHash
+    
+    similarImage is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.similarImage.duplicate;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.dozedoff.similarImage.db.ImageRecord;
+
+public class RecordStoreTest {
+	private static final long HASH_A = 10L;
+	private static final long HASH_B = 2L;
+	private static final long HASH_MISSING = 99L;
+
+	private static final WideHash WIDE_HASH = new WideHash(1L, 2L);
+
+	private RecordStore cut;
+
+	@Before
+	public void setUp() throws Exception {
+		cut = RecordStore.of(Arrays.asList(new ImageRecord("foo/c", HASH_A), new ImageRecord("foo/a", HASH_B),
+				new ImageRecord("foo/b", HASH_A, WIDE_HASH)));
+	}
+
+	private String[] pathsOf(int[] ids) {
+		String[] paths = new String[ids.length];
+
+		for (int i = 0; i < ids.length; i++) {
+			paths[i] = cut.getPath(ids[i]);
+		}
+
+		return paths;
+	}
+
+	@Test
+	public void testSize() throws Exception {
+		assertThat(cut.size(), is(3));
+	}
+
+	@Test
+	public void testDuplicatePathKeepsLast() throws Exception {
+		cut = RecordStore.of(Arrays.asList(new ImageRecord("foo", HASH_A), new ImageRecord("foo", HASH_B)));
+
+		assertThat(cut.size(), is(1));
+		assertThat(cut.getHash(0), is(HASH_B));
+	}
+
+	@Test
+	public void testHashCount() throws Exception {
+		assertThat(cut.getHashCount(), is(2));
+	}
+
+	@Test
+	public void testUniqueHashesAreSorted() throws Exception {
+		assertThat(cut.getUniqueHash(0), is(HASH_B));
+		assertThat(cut.getUniqueHash(1), is(HASH_A));
+	}
+
+	private int[] idsOf(long hash) {
+		int index = cut.indexOfHash(hash);
+		int[] ids = new int[cut.getGroupEnd(index) - cut.getGroupStart(index)];
+
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = cut.getId(cut.getGroupStart(index) + i);
+		}
+
+		return ids;
+	}
+
+	@Test
+	public void testGroupRange() throws Exception {
+		assertThat(pathsOf(idsOf(HASH_A)), is(new String[] { "foo/b", "foo/c" }));
+	}
+
+	@Test
+	public void testIndexOfHash() throws Exception {
+		assertThat(cut.indexOfHash(HASH_A), is(1));
+	}
+
+	@Test
+	public void testIndexOfMissingHash() throws Exception {
+		assertThat(cut.indexOfHash(HASH_MISSING) < 0, is(true));
+	}
+
+	@Test
+	public void testIndexOfPath() throws Exception {
+		assertThat(cut.indexOfPath("foo/c"), is(2));
+	}
+
+	@Test
+	public void testIndexOfMissingPath() throws Exception {
+		assertThat(cut.indexOfPath("bar") < 0, is(true));
+	}
+
+	@Test
+	public void testGroupSize() throws Exception {
+		assertThat(cut.getGroupSize(HASH_A), is(2));
+	}
+
+	@Test
+	public void testGroupSizeMissingHash() throws Exception {
+		assertThat(cut.getGroupSize(HASH_MISSING), is(0));
+	}
+
+	@Test
+	public void testIdsArePathOrder() throws Exception {
+		assertThat(cut.getPath(0), is("foo/a"));
+	}
+
+	@Test
+	public void testGetRecord() throws Exception {
+		assertThat(cut.getRecord(idsOf(HASH_B)[0]), is(new ImageRecord("foo/a", HASH_B)));
+	}
+
+	@Test
+	public void testGetRecordIsNotKept() throws Exception {
+		assertThat(cut.getRecord(1), is(not(sameInstance(cut.getRecord(1)))));
+	}
+
+	@Test
+	public void testGetWideHash() throws Exception {
+		assertThat(cut.getWideHash(1), is(WIDE_HASH));
+	}
+
+	@Test
+	public void testGetWideHashMissing() throws Exception {
+		assertThat(cut.getWideHash(0), is(nullValue()));
+	}
+
+	@Test
+	public void testGetIdsByWideHash() throws Exception {
+		assertThat(pathsOf(cut.getIds(WIDE_HASH).toArray()), is(new String[] { "foo/b" }));
+	}
+
+	@Test
+	public void testWideHashes() throws Exception {
+		assertThat(cut.getWideHashes(), containsInAnyOrder(WIDE_HASH));
+	}
+
+	@Test
+	public void testEmptyStore() throws Exception {
+		cut = RecordStore.of(Collections.emptyList());
+
+		assertThat(cut.size(), is(0));
+		assertThat(cut.getHashCount(), is(0));
+	}
+}
@@ -0,0 +1,138 @@
+/*  Copyright (C) 2016  Nicholas Wright
+    
+    This file is part of similarImage - A similar image finder using pHash
+    
+    similarImage is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.similarImage.duplicate;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import nl.jqno.equalsverifier.EqualsVerifier;
+
+public class WideHashTest {
+	private static final long WORD_A = 0x0123456789ABCDEFL;
+	private static final long WORD_B = -1L;
+
+	private WideHash cut;
+
+	@Before
+	public void setUp() throws Exception {
+		cut = new WideHash(WORD_A, WORD_B);
+	}
+
+	@Test
+	public void testBitLength() throws Exception {
+		assertThat(cut.getBitLength(), is(128));
+	}
+
+	@Test
+	public void testWordCount() throws Exception {
+		assertThat(cut.getWordCount(), is(2));
+	}
+
+	@Test
+	public void testGetWord() throws Exception {
+		assertThat(cut.getWord(1), is(WORD_B));
+	}
+
+	@Test
+	public void testWordsAreCopied() throws Exception {
+		long[] words = { WORD_A, WORD_B };
+		WideHash hash = new WideHash(words);
+
+		words[0] = 0;
+
+		assertThat(hash.getWord(0), is(WORD_A));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNoWords() throws Exception {
+		new WideHash();
+	}
+
+	@Test
+	public void testBytesRoundTrip() throws Exception {
+		assertThat(WideHash.fromBytes(cut.toBytes()), is(cut));
+	}
+
+	@Test
+	public void testBytesAreBigEndian() throws Exception {
+		assertThat(cut.toBytes()[0], is((byte) 0x01));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testFromBytesInvalidLength() throws Exception {
+		WideHash.fromBytes(new byte[7]);
+	}
+
+	@Test
+	public void testDistanceToSelf() throws Exception {
+		assertThat(cut.distance(cut), is(0));
+	}
+
+	@Test
+	public void testDistanceAcrossWords() throws Exception {
+		WideHash other = new WideHash(WORD_A ^ 0b101, WORD_B ^ Long.MIN_VALUE);
+
+		assertThat(cut.distance(other), is(3));
+	}
+
+	@Test
+	public void testDistanceAllBitsDiffer() throws Exception {
+		assertThat(WideHash.distance(new long[] { 0, 0 }, new long[] { -1L, -1L }), is(128));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testDistanceDifferentWidth() throws Exception {
+		cut.distance(new WideHash(WORD_A));
+	}
+
+	@Test
+	public void testCompareToIsUnsigned() throws Exception {
+		assertThat(new WideHash(WORD_B, 0).compareTo(new WideHash(WORD_A, 0)), is(greaterThan(0)));
+	}
+
+	@Test
+	public void testCompareToShorter() throws Exception {
+		assertThat(new WideHash(WORD_B).compareTo(cut), is(lessThan(0)));
+	}
+
+	@Test
+	public void testCompareToEqual() throws Exception {
+		assertThat(cut.compareTo(new WideHash(WORD_A, WORD_B)), is(0));
+	}
+
+	@Test
+	public void testToString() throws Exception {
+		assertThat(new WideHash(1, WORD_B).toString(), is("0000000000000001ffffffffffffffff"));
+	}
+
+	@Test
+	public void testNotEqualDifferentWords() throws Exception {
+		assertThat(cut, is(not(new WideHash(WORD_B, WORD_A))));
+	}
+
+	@Test
+	public void testEquals() throws Exception {
+		EqualsVerifier.forClass(WideHash.class).verify();
+	}
+}
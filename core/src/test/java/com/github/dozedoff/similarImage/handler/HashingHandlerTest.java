@@ -25,11 +25,13 @@ import org.mockito.quality.Strictness;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.verify;
 
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -38,6 +40,7 @@ import org.mockito.Mock;
 
 import com.github.dozedoff.commonj.hash.ImagePHash;
 import com.github.dozedoff.similarImage.db.repository.ImageRepository;
+import com.github.dozedoff.similarImage.io.ContentDigestShortcut;
 import com.github.dozedoff.similarImage.io.HashAttribute;
 import com.github.dozedoff.similarImage.io.Statistics;
 import com.github.dozedoff.similarImage.thread.ImageHashJob;
@@ -60,6 +63,9 @@ public class HashingHandlerTest {
 	@Mock
 	private ExecutorService threadPool;
 
+	@Mock
+	private ContentDigestShortcut digestShortcut;
+
 	@InjectMocks
 	private HashingHandler cut;
 
@@ -81,4 +87,11 @@ public class HashingHandlerTest {
 
 		verify(threadPool).execute(any(ImageHashJob.class));
 	}
+
+	@Test
+	public void testHandleRejected() throws Exception {
+		doThrow(RejectedExecutionException.class).when(threadPool).execute(any(ImageHashJob.class));
+
+		assertThat(cut.handle(testPath), is(false));
+	}
 }
@@ -0,0 +1,80 @@
+/*  Copyright (C) 2016  Nicholas Wright
+    
+    This file is part of similarImage - A similar image finder using pHash
+    
+    similarImage is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.similarImage.image;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+import javax.imageio.IIOException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class AverageHashTest {
+	private static final int IMAGE_SIZE = 64;
+
+	private AverageHash cut;
+
+	@Before
+	public void setUp() throws Exception {
+		cut = new AverageHash();
+	}
+
+	private BufferedImage leftHalfWhite() {
+		BufferedImage image = new BufferedImage(IMAGE_SIZE, IMAGE_SIZE, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = image.createGraphics();
+
+		try {
+			g.setColor(Color.WHITE);
+			g.fillRect(0, 0, IMAGE_SIZE / 2, IMAGE_SIZE);
+		} finally {
+			g.dispose();
+		}
+
+		return image;
+	}
+
+	@Test
+	public void testLeftHalfWhite() throws Exception {
+		assertThat(cut.hash(leftHalfWhite()), is(0xF0F0F0F0F0F0F0F0L));
+	}
+
+	@Test
+	public void testUniformImage() throws Exception {
+		assertThat(cut.hash(new BufferedImage(IMAGE_SIZE, IMAGE_SIZE, BufferedImage.TYPE_INT_RGB)), is(0L));
+	}
+
+	@Test
+	public void testTransparentImageAfterOtherImage() throws Exception {
+		BufferedImage transparent = new BufferedImage(IMAGE_SIZE, IMAGE_SIZE, BufferedImage.TYPE_INT_ARGB);
+		long expected = new AverageHash().hash(transparent);
+
+		cut.hash(leftHalfWhite());
+
+		assertThat(cut.hash(transparent), is(expected));
+	}
+
+	@Test(expected = IIOException.class)
+	public void testNullImage() throws Exception {
+		cut.hash(null);
+	}
+}
@@ -0,0 +1,62 @@
+/*  Copyright (C) 2016  Nicholas Wright
+    
+    This file is part of similarImage - A similar image finder using pHash
+    
+    similarImage is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.similarImage.image;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.awt.image.BufferedImage;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class DifferenceHashTest {
+	private static final int IMAGE_WIDTH = 90;
+	private static final int IMAGE_HEIGHT = 80;
+
+	private DifferenceHash cut;
+
+	@Before
+	public void setUp() throws Exception {
+		cut = new DifferenceHash();
+	}
+
+	private BufferedImage horizontalGradient(boolean descending) {
+		BufferedImage image = new BufferedImage(IMAGE_WIDTH, IMAGE_HEIGHT, BufferedImage.TYPE_BYTE_GRAY);
+
+		for (int x = 0; x < IMAGE_WIDTH; x++) {
+			int value = descending ? 255 - x * 2 : x * 2;
+
+			for (int y = 0; y < IMAGE_HEIGHT; y++) {
+				image.getRaster().setSample(x, y, 0, value);
+			}
+		}
+
+		return image;
+	}
+
+	@Test
+	public void testDescendingGradient() throws Exception {
+		assertThat(cut.hash(horizontalGradient(true)), is(-1L));
+	}
+
+	@Test
+	public void testAscendingGradient() throws Exception {
+		assertThat(cut.hash(horizontalGradient(false)), is(0L));
+	}
+}
@@ -0,0 +1,152 @@
+/*  Copyright (C) 2016  Nicholas Wright
+    
+    This file is part of similarImage - A similar image finder using pHash
+    
+    similarImage is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.similarImage.image;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import javax.imageio.IIOException;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import at.dhyan.open_imaging.GifDecoder;
+import at.dhyan.open_imaging.GifDecoder.GifImage;
+
+public class FirstFrameGifDecoderTest {
+	private static final int FRAME_COUNT = 10;
+	private static final int FRAME_SIZE = 64;
+
+	private static Path gifPath;
+	private static byte[] animatedGif;
+
+	@BeforeClass
+	public static void setUpClass() throws Exception {
+		gifPath = Paths.get(Thread.currentThread().getContextClassLoader().getResource("testImage.gif").toURI());
+		animatedGif = createAnimatedGif();
+	}
+
+	private static byte[] createAnimatedGif() throws Exception {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		ImageWriter writer = ImageIO.getImageWritersByFormatName("gif").next();
+
+		try (ImageOutputStream ios = ImageIO.createImageOutputStream(baos)) {
+			writer.setOutput(ios);
+			writer.prepareWriteSequence(null);
+
+			for (int frame = 0; frame < FRAME_COUNT; frame++) {
+				BufferedImage image = new BufferedImage(FRAME_SIZE, FRAME_SIZE, BufferedImage.TYPE_INT_RGB);
+
+				for (int x = 0; x < FRAME_SIZE; x++) {
+					for (int y = 0; y < FRAME_SIZE; y++) {
+						image.setRGB(x, y, (x * frame) ^ (y << 8));
+					}
+				}
+
+				writer.writeToSequence(new IIOImage(image, null, null), null);
+			}
+
+			writer.endWriteSequence();
+		} finally {
+			writer.dispose();
+		}
+
+		return baos.toByteArray();
+	}
+
+	private void assertSameImage(BufferedImage actual, BufferedImage expected) {
+		assertThat(actual.getWidth(), is(expected.getWidth()));
+		assertThat(actual.getHeight(), is(expected.getHeight()));
+
+		for (int x = 0; x < expected.getWidth(); x++) {
+			for (int y = 0; y < expected.getHeight(); y++) {
+				assertThat(actual.getRGB(x, y), is(expected.getRGB(x, y)));
+			}
+		}
+	}
+
+	@Test
+	public void testFirstFrameMatchesGifDecoder() throws Exception {
+		BufferedImage expected;
+
+		try (InputStream is = Files.newInputStream(gifPath)) {
+			expected = GifDecoder.read(is).getFrame(0);
+		}
+
+		try (InputStream is = Files.newInputStream(gifPath)) {
+			assertSameImage(FirstFrameGifDecoder.decode(is), expected);
+		}
+	}
+
+	@Test
+	public void testAnimatedFirstFrameMatchesGifDecoder() throws Exception {
+		BufferedImage expected = GifDecoder.read(animatedGif).getFrame(0);
+
+		assertSameImage(FirstFrameGifDecoder.decode(new ByteArrayInputStream(animatedGif)), expected);
+	}
+
+	@Test
+	public void testOnlyFirstFrameIsCopied() throws Exception {
+		byte[] firstFrame = FirstFrameGifDecoder.readFirstFrame(new ByteArrayInputStream(animatedGif));
+		GifImage gif = GifDecoder.read(firstFrame);
+
+		assertThat(gif.getFrameCount(), is(1));
+		assertThat(firstFrame.length < animatedGif.length / 2, is(true));
+	}
+
+	@Test
+	public void testReadingStopsAfterFirstFrame() throws Exception {
+		ByteArrayInputStream is = new ByteArrayInputStream(animatedGif);
+		byte[] firstFrame = FirstFrameGifDecoder.readFirstFrame(is);
+
+		assertThat(is.available(), is(animatedGif.length - firstFrame.length + 1));
+	}
+
+	@Test(expected = IIOException.class)
+	public void testInvalidHeader() throws Exception {
+		FirstFrameGifDecoder.readFirstFrame(new ByteArrayInputStream("GIF90aXXXXXXX".getBytes()));
+	}
+
+	@Test(expected = EOFException.class)
+	public void testTruncatedGif() throws Exception {
+		FirstFrameGifDecoder.readFirstFrame(new ByteArrayInputStream(animatedGif, 0, 20));
+	}
+
+	@Test
+	public void testIsGif() throws Exception {
+		assertThat(FirstFrameGifDecoder.isGif(Paths.get("foo", "bar.GIF")), is(true));
+	}
+
+	@Test
+	public void testIsNotGif() throws Exception {
+		assertThat(FirstFrameGifDecoder.isGif(Paths.get("foo", "bar.jpg")), is(false));
+	}
+}
@@ -0,0 +1,163 @@
+/*  Copyright (C) 2016  Nicholas Wright
+    
+    This file is part of similarImage - A similar image finder using pHash
+    
+    similarImage is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.similarImage.image;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.awt.image.BufferedImage;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import javax.imageio.IIOException;
+import javax.imageio.ImageIO;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.github.dozedoff.commonj.hash.ImagePHash;
+import com.github.dozedoff.similarImage.image.kernel.DCTBatcher;
+import com.github.dozedoff.similarImage.image.kernel.SeparableDCT;
+
+import at.dhyan.open_imaging.GifDecoder;
+
+public class FusedImagePHashTest {
+	private static final int TRANSPARENT_IMAGE_SIZE = 50;
+	private static final int MAX_BATCHED_BIT_DIFFERENCE = 1;
+
+	private static Path jpgPath;
+	private static Path gifPath;
+
+	private ImagePHash reference;
+	private FusedImagePHash cut;
+
+	@BeforeClass
+	public static void setUpClass() throws Exception {
+		jpgPath = Paths.get(Thread.currentThread().getContextClassLoader().getResource("testImage.jpg").toURI());
+		gifPath = Paths.get(Thread.currentThread().getContextClassLoader().getResource("testImage.gif").toURI());
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		reference = new ImagePHash();
+		cut = new FusedImagePHash();
+	}
+
+	private BufferedImage transparentImage() {
+		BufferedImage image = new BufferedImage(TRANSPARENT_IMAGE_SIZE, TRANSPARENT_IMAGE_SIZE,
+				BufferedImage.TYPE_INT_ARGB);
+
+		for (int x = 0; x < TRANSPARENT_IMAGE_SIZE; x++) {
+			for (int y = 0; y < TRANSPARENT_IMAGE_SIZE; y++) {
+				int alpha = (x * 5) & 0xFF;
+				image.setRGB(x, y, (alpha << 24) | (y * 5) << 8 | x);
+			}
+		}
+
+		return image;
+	}
+
+	@Test
+	public void testJpgHashIsIdenticalToReference() throws Exception {
+		BufferedImage image = ImageIO.read(jpgPath.toFile());
+
+		assertThat(cut.getLongHash(image), is(reference.getLongHash(image)));
+	}
+
+	@Test
+	public void testJpgStreamHashIsIdenticalToReference() throws Exception {
+		long expected;
+
+		try (InputStream is = Files.newInputStream(jpgPath)) {
+			expected = reference.getLongHash(is);
+		}
+
+		try (InputStream is = Files.newInputStream(jpgPath)) {
+			assertThat(cut.getLongHash(is), is(expected));
+		}
+	}
+
+	@Test
+	public void testGifFrameHashIsIdenticalToReference() throws Exception {
+		BufferedImage image;
+
+		try (InputStream is = Files.newInputStream(gifPath)) {
+			image = GifDecoder.read(is).getFrame(0);
+		}
+
+		assertThat(cut.getLongHash(image), is(reference.getLongHash(image)));
+	}
+
+	@Test
+	public void testTransparentImageHashIsIdenticalToReference() throws Exception {
+		BufferedImage image = transparentImage();
+
+		assertThat(cut.getLongHash(image), is(reference.getLongHash(image)));
+	}
+
+	@Test
+	public void testScratchBuffersDoNotLeakBetweenImages() throws Exception {
+		BufferedImage jpg = ImageIO.read(jpgPath.toFile());
+		BufferedImage transparent = transparentImage();
+
+		long expected = cut.getLongHash(transparent);
+		cut.getLongHash(jpg);
+
+		assertThat(cut.getLongHash(transparent), is(expected));
+	}
+
+	@Test(expected = IIOException.class)
+	public void testNullImage() throws Exception {
+		cut.getLongHash((BufferedImage) null);
+	}
+
+	@Test
+	public void testBatchedHashMatchesReference() throws Exception {
+		FusedImagePHash batched = new FusedImagePHash(new DCTBatcher(new SeparableDCT(FusedImagePHash.RESIZE_SIZE), 1));
+		BufferedImage image = ImageIO.read(jpgPath.toFile());
+
+		long difference = reference.getLongHash(image) ^ batched.getLongHash(image);
+
+		assertThat(Long.bitCount(difference), is(lessThanOrEqualTo(MAX_BATCHED_BIT_DIFFERENCE)));
+	}
+
+	@Test
+	public void testBatchedCoefficientBlockMatchesReference() throws Exception {
+		FusedImagePHash batched = new FusedImagePHash(new DCTBatcher(
+				new SeparableDCT(FusedImagePHash.RESIZE_SIZE, FusedImagePHash.DCT_SIZE), 1));
+		BufferedImage image = ImageIO.read(jpgPath.toFile());
+
+		long difference = reference.getLongHash(image) ^ batched.getLongHash(image);
+
+		assertThat(Long.bitCount(difference), is(lessThanOrEqualTo(MAX_BATCHED_BIT_DIFFERENCE)));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testBatcherWithTooFewCoefficients() throws Exception {
+		new FusedImagePHash(new DCTBatcher(new SeparableDCT(FusedImagePHash.RESIZE_SIZE, 4), 1));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testBatcherWithWrongMatrixSize() throws Exception {
+		new FusedImagePHash(new DCTBatcher(new SeparableDCT(FusedImagePHash.DCT_SIZE), 1));
+	}
+}
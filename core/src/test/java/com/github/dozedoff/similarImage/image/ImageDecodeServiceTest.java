@@ -0,0 +1,171 @@
+/*  Copyright (C) 2016  Nicholas Wright
+    
+    This file is part of similarImage - A similar image finder using pHash
+    
+    similarImage is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.similarImage.image;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import javax.imageio.ImageReader;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.codahale.metrics.MetricRegistry;
+
+public class ImageDecodeServiceTest {
+	private static final String METRIC_NAME_JPEG = MetricRegistry.name(ImageDecodeService.METRIC_NAME_DECODE, "jpeg");
+	private static final byte[] INVALID_DATA = { 1, 2, 3, 4, 5, 6, 7, 8 };
+
+	private static Path jpgPath;
+	private static byte[] jpgData;
+	private static BufferedImage reference;
+
+	private MetricRegistry metrics;
+	private ImageDecodeService cut;
+
+	@BeforeClass
+	public static void setUpClass() throws Exception {
+		jpgPath = Paths.get(Thread.currentThread().getContextClassLoader().getResource("testImage.jpg").toURI());
+		jpgData = Files.readAllBytes(jpgPath);
+		reference = new ImageDecodeService(new MetricRegistry()).read(jpgData);
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		metrics = new MetricRegistry();
+		cut = new ImageDecodeService(metrics);
+	}
+
+	private static void assertSameSize(BufferedImage image) {
+		assertThat(image, is(notNullValue()));
+		assertThat(image.getWidth(), is(reference.getWidth()));
+		assertThat(image.getHeight(), is(reference.getHeight()));
+	}
+
+	@Test
+	public void testReadByteArray() throws Exception {
+		assertSameSize(cut.read(jpgData));
+	}
+
+	@Test
+	public void testReadByteBuffer() throws Exception {
+		assertSameSize(cut.read(ByteBuffer.wrap(jpgData)));
+	}
+
+	@Test
+	public void testReadDirectByteBuffer() throws Exception {
+		ByteBuffer buffer = ByteBuffer.allocateDirect(jpgData.length);
+		buffer.put(jpgData);
+		buffer.flip();
+
+		assertSameSize(cut.read(buffer));
+	}
+
+	@Test
+	public void testReadByteBufferPositionUnchanged() throws Exception {
+		ByteBuffer buffer = ByteBuffer.wrap(jpgData);
+
+		cut.read(buffer);
+
+		assertThat(buffer.position(), is(0));
+	}
+
+	@Test
+	public void testReadPath() throws Exception {
+		assertSameSize(cut.read(jpgPath));
+	}
+
+	@Test
+	public void testReadInputStream() throws Exception {
+		try (InputStream is = Files.newInputStream(jpgPath)) {
+			assertSameSize(cut.read(is));
+		}
+	}
+
+	@Test
+	public void testReadInvalidData() throws Exception {
+		assertThat(cut.read(INVALID_DATA), is(nullValue()));
+	}
+
+	@Test
+	public void testReadInvalidStream() throws Exception {
+		assertThat(cut.read(new ByteArrayInputStream(INVALID_DATA)), is(nullValue()));
+	}
+
+	@Test
+	public void testReaderIsReused() throws Exception {
+		ImageReader first = cut.read(ByteBuffer.wrap(jpgData), ImageDecodeServiceTest::readAndReturnReader);
+		ImageReader second = cut.read(ByteBuffer.wrap(jpgData), ImageDecodeServiceTest::readAndReturnReader);
+
+		assertThat(second, is(sameInstance(first)));
+	}
+
+	@Test
+	public void testReaderIsNotReusedAfterFailure() throws Exception {
+		try {
+			cut.read(ByteBuffer.wrap(jpgData), reader -> {
+				throw new IOException("Testing");
+			});
+		} catch (IOException e) {
+			// expected
+		}
+
+		ImageReader first = cut.read(ByteBuffer.wrap(jpgData), ImageDecodeServiceTest::readAndReturnReader);
+		ImageReader second = cut.read(ByteBuffer.wrap(jpgData), ImageDecodeServiceTest::readAndReturnReader);
+
+		assertThat(second, is(sameInstance(first)));
+	}
+
+	@Test
+	public void testReaderIsResetAfterUse() throws Exception {
+		ImageReader reader = cut.read(ByteBuffer.wrap(jpgData), ImageDecodeServiceTest::readAndReturnReader);
+
+		assertThat(reader.getInput(), is(nullValue()));
+	}
+
+	@Test
+	public void testDecodeLatencyIsRecordedPerFormat() throws Exception {
+		cut.read(jpgData);
+		cut.read(jpgPath);
+
+		assertThat(metrics.timer(METRIC_NAME_JPEG).getCount(), is(2L));
+	}
+
+	@Test
+	public void testDefaultInstanceIsShared() throws Exception {
+		assertThat(ImageDecodeService.getDefault(), is(sameInstance(ImageDecodeService.getDefault())));
+	}
+
+	private static ImageReader readAndReturnReader(ImageReader reader) throws IOException {
+		reader.read(0);
+		return reader;
+	}
+}
@@ -0,0 +1,85 @@
+/*  Copyright (C) 2016  Nicholas Wright
+    
+    This file is part of similarImage - A similar image finder using pHash
+    
+    similarImage is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.similarImage.image;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+
+import java.awt.image.BufferedImage;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+
+import javax.imageio.ImageIO;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.github.dozedoff.similarImage.handler.HashNames;
+
+public class MultiHasherTest {
+	private static BufferedImage image;
+
+	private MultiHasher cut;
+
+	@BeforeClass
+	public static void setUpClass() throws Exception {
+		Path jpgPath = Paths.get(Thread.currentThread().getContextClassLoader().getResource("testImage.jpg").toURI());
+		image = ImageIO.read(jpgPath.toFile());
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		cut = MultiHasher.allFamilies();
+	}
+
+	@Test
+	public void testHashNames() throws Exception {
+		assertThat(cut.getHashNames(),
+				contains(HashNames.DEFAULT_DCT_HASH_2, HashNames.AVERAGE_HASH, HashNames.DIFFERENCE_HASH));
+	}
+
+	@Test
+	public void testHashContainsAllFamilies() throws Exception {
+		Map<String, Long> hashes = cut.hash(image);
+
+		assertThat(hashes.keySet(),
+				contains(HashNames.DEFAULT_DCT_HASH_2, HashNames.AVERAGE_HASH, HashNames.DIFFERENCE_HASH));
+	}
+
+	@Test
+	public void testDctHashMatchesSingleHasher() throws Exception {
+		Map<String, Long> hashes = cut.hash(image);
+
+		assertThat(hashes.get(HashNames.DEFAULT_DCT_HASH_2), is(new FusedImagePHash().getLongHash(image)));
+	}
+
+	@Test
+	public void testAverageHashMatchesSingleHasher() throws Exception {
+		Map<String, Long> hashes = cut.hash(image);
+
+		assertThat(hashes.get(HashNames.AVERAGE_HASH), is(new AverageHash().hash(image)));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testDuplicateFamily() throws Exception {
+		new MultiHasher(new AverageHash(), new AverageHash());
+	}
+}
@@ -0,0 +1,161 @@
+/*  Copyright (C) 2016  Nicholas Wright
+    
+    This file is part of similarImage - A similar image finder using pHash
+    
+    similarImage is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.similarImage.image;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import javax.imageio.ImageIO;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.codahale.metrics.MetricRegistry;
+
+public class SubsamplingImageDecoderTest {
+	private static final int LARGE_WIDTH = 2000;
+	private static final int LARGE_HEIGHT = 1500;
+	private static final int MAX_HASH_BIT_DIFFERENCE = 6;
+
+	private static Path jpgPath;
+	private static byte[] largeJpg;
+
+	private MetricRegistry metrics;
+	private SubsamplingImageDecoder cut;
+
+	@BeforeClass
+	public static void setUpClass() throws Exception {
+		jpgPath = Paths.get(Thread.currentThread().getContextClassLoader().getResource("testImage.jpg").toURI());
+		largeJpg = createLargeJpg();
+	}
+
+	private static byte[] createLargeJpg() throws Exception {
+		BufferedImage image = new BufferedImage(LARGE_WIDTH, LARGE_HEIGHT, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = image.createGraphics();
+
+		try {
+			g.setPaint(new GradientPaint(0, 0, Color.BLUE, LARGE_WIDTH, LARGE_HEIGHT, Color.ORANGE));
+			g.fillRect(0, 0, LARGE_WIDTH, LARGE_HEIGHT);
+			g.setColor(Color.WHITE);
+			g.fillOval(250, 200, 750, 600);
+			g.setColor(Color.DARK_GRAY);
+			g.fillRect(1250, 750, 500, 600);
+		} finally {
+			g.dispose();
+		}
+
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		ImageIO.write(image, "jpg", baos);
+		return baos.toByteArray();
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		metrics = new MetricRegistry();
+		cut = new SubsamplingImageDecoder(SubsamplingImageDecoder.MINIMUM_HASH_SIZE, false, metrics);
+	}
+
+	private BufferedImage decodeLarge(SubsamplingImageDecoder decoder) throws Exception {
+		try (InputStream is = new ByteArrayInputStream(largeJpg)) {
+			return decoder.decode(is);
+		}
+	}
+
+	@Test
+	public void testLargeImageIsSubsampled() throws Exception {
+		BufferedImage image = decodeLarge(cut);
+		int factor = cut.subsamplingFactor(LARGE_WIDTH, LARGE_HEIGHT);
+
+		assertThat(image.getHeight(), is((LARGE_HEIGHT + factor - 1) / factor));
+		assertThat(image.getWidth() < LARGE_WIDTH, is(true));
+	}
+
+	@Test
+	public void testSubsampledSizeIsAboveMinimum() throws Exception {
+		BufferedImage image = decodeLarge(cut);
+
+		assertThat(image.getHeight(), is(greaterThan(SubsamplingImageDecoder.MINIMUM_HASH_SIZE - 1)));
+	}
+
+	@Test
+	public void testSmallImageIsNotSubsampled() throws Exception {
+		try (InputStream is = Files.newInputStream(jpgPath)) {
+			BufferedImage image = cut.decode(is);
+
+			assertThat(image.getWidth(), is(ImageIO.read(jpgPath.toFile()).getWidth()));
+		}
+
+		assertThat(metrics.meter(SubsamplingImageDecoder.METRIC_NAME_FULL_RESOLUTION).getCount(), is(1L));
+	}
+
+	@Test
+	public void testGrayscaleDestination() throws Exception {
+		BufferedImage image = decodeLarge(
+				new SubsamplingImageDecoder(SubsamplingImageDecoder.MINIMUM_HASH_SIZE, true, metrics));
+
+		assertThat(image.getType(), is(BufferedImage.TYPE_BYTE_GRAY));
+	}
+
+	@Test
+	public void testHashIsWithinTolerance() throws Exception {
+		FusedImagePHash hasher = new FusedImagePHash();
+		long fullHash = hasher.getLongHash(ImageIO.read(new ByteArrayInputStream(largeJpg)));
+		long subsampledHash = hasher.getLongHash(decodeLarge(new SubsamplingImageDecoder()));
+
+		assertThat(Long.bitCount(fullHash ^ subsampledHash), is(lessThanOrEqualTo(MAX_HASH_BIT_DIFFERENCE)));
+	}
+
+	@Test
+	public void testBytesMetrics() throws Exception {
+		decodeLarge(cut);
+
+		long decoded = metrics.counter(SubsamplingImageDecoder.METRIC_NAME_DECODED_BYTES).getCount();
+		long saved = metrics.counter(SubsamplingImageDecoder.METRIC_NAME_SAVED_BYTES).getCount();
+
+		assertThat(decoded, is(greaterThan(0L)));
+		assertThat(decoded + saved, is((long) LARGE_WIDTH * LARGE_HEIGHT * 3));
+		assertThat(metrics.meter(SubsamplingImageDecoder.METRIC_NAME_SUBSAMPLED).getCount(), is(1L));
+	}
+
+	@Test
+	public void testUnknownFormat() throws Exception {
+		try (InputStream is = new ByteArrayInputStream(new byte[] { 1, 2, 3, 4 })) {
+			assertThat(cut.decode(is), is(nullValue()));
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidMinimumSize() throws Exception {
+		new SubsamplingImageDecoder(0, false, metrics);
+	}
+}
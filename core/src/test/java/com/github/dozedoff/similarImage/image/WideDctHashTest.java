@@ -0,0 +1,98 @@
+/*  Copyright (C) 2016  Nicholas Wright
+    
+    This file is part of similarImage - A similar image finder using pHash
+    
+    similarImage is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.similarImage.image;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import javax.imageio.IIOException;
+import javax.imageio.ImageIO;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.github.dozedoff.similarImage.duplicate.WideHash;
+
+public class WideDctHashTest {
+	private static final int SCALED_SIZE = 200;
+	private static final int MAX_SCALED_DISTANCE = 32;
+
+	private static BufferedImage image;
+
+	private WideDctHash cut;
+
+	@BeforeClass
+	public static void setUpClass() throws Exception {
+		Path jpgPath = Paths.get(Thread.currentThread().getContextClassLoader().getResource("testImage.jpg").toURI());
+		image = ImageIO.read(jpgPath.toFile());
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		cut = new WideDctHash();
+	}
+
+	@Test
+	public void testDefaultBitLength() throws Exception {
+		assertThat(cut.hash(image).getBitLength(), is(WideDctHash.DEFAULT_BIT_LENGTH));
+	}
+
+	@Test
+	public void test128BitHash() throws Exception {
+		assertThat(new WideDctHash(128).hash(image).getBitLength(), is(128));
+	}
+
+	@Test
+	public void testHashIsStable() throws Exception {
+		assertThat(cut.hash(image), is(cut.hash(image)));
+	}
+
+	@Test
+	public void testScaledImageIsSimilar() throws Exception {
+		BufferedImage scaled = new BufferedImage(SCALED_SIZE, SCALED_SIZE, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = scaled.createGraphics();
+		g.drawImage(image, 0, 0, SCALED_SIZE, SCALED_SIZE, null);
+		g.dispose();
+
+		WideHash original = cut.hash(image);
+
+		assertThat(original.distance(cut.hash(scaled)), is(lessThan(MAX_SCALED_DISTANCE)));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidBitLength() throws Exception {
+		new WideDctHash(100);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testBitLengthTooLarge() throws Exception {
+		new WideDctHash(1024);
+	}
+
+	@Test(expected = IIOException.class)
+	public void testNullImage() throws Exception {
+		cut.hash(null);
+	}
+}
@@ -0,0 +1,148 @@
+/*  Copyright (C) 2016  Nicholas Wright
+    
+    This file is part of similarImage - A similar image finder using pHash
+    
+    similarImage is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.similarImage.image.kernel;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertArrayEquals;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DCTBatcherTest {
+	private static final int MATRIX_SIZE = 8;
+	private static final int BATCH_SIZE = 4;
+	private static final long LONG_WAIT = 60000;
+	private static final double DELTA = 0.000001;
+
+	private CountingTransformer transformer;
+	private ExecutorService executor;
+
+	@Before
+	public void setUp() throws Exception {
+		transformer = new CountingTransformer(new SeparableDCT(MATRIX_SIZE));
+		executor = Executors.newFixedThreadPool(BATCH_SIZE);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		executor.shutdownNow();
+	}
+
+	private double[] createMatrix(int seed) {
+		double[] matrix = new double[MATRIX_SIZE * MATRIX_SIZE];
+
+		for (int i = 0; i < matrix.length; i++) {
+			matrix[i] = (seed * 31 + i * 7) % 256;
+		}
+
+		return matrix;
+	}
+
+	@Test
+	public void testFullBatchIsTransformedInOneCall() throws Exception {
+		DCTBatcher cut = new DCTBatcher(transformer, BATCH_SIZE, LONG_WAIT);
+		List<Future<double[]>> results = new ArrayList<>();
+
+		for (int i = 0; i < BATCH_SIZE; i++) {
+			double[] matrix = createMatrix(i);
+			results.add(executor.submit((Callable<double[]>) () -> cut.transformDCT(matrix)));
+		}
+
+		for (int i = 0; i < BATCH_SIZE; i++) {
+			assertArrayEquals(new SeparableDCT(MATRIX_SIZE).transformDCT(createMatrix(i)), results.get(i).get(), DELTA);
+		}
+
+		assertThat(transformer.batches.get(), is(1));
+	}
+
+	@Test
+	public void testPartialBatchIsFlushedAfterWait() throws Exception {
+		DCTBatcher cut = new DCTBatcher(transformer, BATCH_SIZE, 1);
+
+		double[] result = cut.transformDCT(createMatrix(1));
+
+		assertArrayEquals(new SeparableDCT(MATRIX_SIZE).transformDCT(createMatrix(1)), result, DELTA);
+		assertThat(transformer.batches.get(), is(1));
+	}
+
+	@Test
+	public void testFlushWithoutPending() throws Exception {
+		DCTBatcher cut = new DCTBatcher(transformer, BATCH_SIZE);
+
+		cut.flush();
+
+		assertThat(transformer.batches.get(), is(0));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testTransformerFailureIsPropagated() throws Exception {
+		DCTBatcher cut = new DCTBatcher(new DCTTransformer() {
+			@Override
+			public int getMatrixSize() {
+				return MATRIX_SIZE;
+			}
+
+			@Override
+			public double[] transformDCT(double[] matrix) {
+				throw new IllegalStateException("testing");
+			}
+		}, 1);
+
+		cut.transformDCT(createMatrix(1));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidBatchSize() throws Exception {
+		new DCTBatcher(transformer, 0);
+	}
+
+	private static final class CountingTransformer implements DCTTransformer {
+		private final DCTTransformer delegate;
+		private final AtomicInteger batches = new AtomicInteger();
+
+		CountingTransformer(DCTTransformer delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public int getMatrixSize() {
+			return delegate.getMatrixSize();
+		}
+
+		@Override
+		public double[] transformDCT(double[] matrix) {
+			return delegate.transformDCT(matrix);
+		}
+
+		@Override
+		public double[][] transformDCT(double[][] matrices) {
+			batches.incrementAndGet();
+			return delegate.transformDCT(matrices);
+		}
+	}
+}
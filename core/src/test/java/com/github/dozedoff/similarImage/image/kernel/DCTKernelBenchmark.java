@@ -1,6 +1,7 @@
 package com.github.dozedoff.similarImage.image.kernel;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertArrayEquals;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.Matchers.empty;
@@ -75,6 +76,23 @@ public class DCTKernelBenchmark {
 		System.out.println("Time for " + device.getType() + ":" + sw.toString());
 	}
 	
+	@Test
+	public void batchedJtp() {
+		kernel.setDevice(JavaDevice.THREAD_POOL);
+		System.out.println("Starting batched benchmark using device: " + JavaDevice.THREAD_POOL.getType());
+		Stopwatch sw = Stopwatch.createStarted();
+
+		double[][] result = kernel.transformDCT(samples);
+
+		sw.stop();
+
+		System.out.println("Time for batched " + JavaDevice.THREAD_POOL.getType() + ":" + sw.toString());
+
+		for (int i = 0; i < SAMPLE_SIZE; i++) {
+			assertArrayEquals(kernel.transformDCT(samples[i]), result[i], 0.000001);
+		}
+	}
+
 	@Test
 	public void benchmark() {
 		List<OpenCLDevice> gpuDevices = OpenCLDevice.listDevices(Device.TYPE.GPU);
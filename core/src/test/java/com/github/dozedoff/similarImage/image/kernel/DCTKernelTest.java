@@ -108,4 +108,38 @@ public class DCTKernelTest {
 
 		assertArrayEquals(EXPECTED2, Doubles.concat(result), 0.1);
 	}
+
+	@Test
+	public void testTransformDCTBatch() throws Exception {
+		double[][] results = cut
+				.transformDCT(new double[][] { Doubles.concat(testMatrix), Doubles.concat(testMatrix2) });
+
+		assertArrayEquals(EXPECTED, results[0], 0.1);
+		assertArrayEquals(EXPECTED2, results[1], 0.1);
+	}
+
+	@Test
+	public void testTransformDCTBatchEmpty() throws Exception {
+		assertThat(cut.transformDCT(new double[0][]).length, is(0));
+	}
+
+	@Test
+	public void testTransformCoefficientBlock() throws Exception {
+		int blockSize = DCTKernel.DEFAULT_MATRIX_SIZE / 2;
+		cut = new DCTKernel(DCTKernel.DEFAULT_MATRIX_SIZE, blockSize);
+		double[] expected = new double[blockSize * blockSize];
+
+		for (int u = 0; u < blockSize; u++) {
+			System.arraycopy(EXPECTED, u * DCTKernel.DEFAULT_MATRIX_SIZE, expected, u * blockSize, blockSize);
+		}
+
+		assertArrayEquals(expected, cut.transformDCT(Doubles.concat(testMatrix)), 0.1);
+	}
+
+	@Test
+	public void testSingleTransformAfterBatch() throws Exception {
+		cut.transformDCT(new double[][] { Doubles.concat(testMatrix2), Doubles.concat(testMatrix2) });
+
+		assertArrayEquals(EXPECTED, cut.transformDCT(Doubles.concat(testMatrix)), 0.1);
+	}
 }
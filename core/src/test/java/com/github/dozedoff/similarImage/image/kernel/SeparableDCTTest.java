@@ -0,0 +1,174 @@
+/*  Copyright (C) 2017  Nicholas Wright
+    
+    This file is part of similarImage - A similar image finder using pHash
+    
+    similarImage is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.similarImage.image.kernel;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertArrayEquals;
+
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class SeparableDCTTest {
+	private static final double TOLERANCE = 0.000001;
+	private static final int LARGE_MATRIX_SIZE = 32;
+	private static final long SEED = 42;
+
+	private SeparableDCT cut;
+	private Random random;
+
+	@Before
+	public void setUp() throws Exception {
+		cut = new SeparableDCT();
+		random = new Random(SEED);
+	}
+
+	private double[] sequentialMatrix(int size, double factor) {
+		double[] matrix = new double[size * size];
+
+		for (int i = 0; i < matrix.length; i++) {
+			matrix[i] = (i + 1) * factor;
+		}
+
+		return matrix;
+	}
+
+	private double[] randomMatrix(int size) {
+		double[] matrix = new double[size * size];
+
+		for (int i = 0; i < matrix.length; i++) {
+			matrix[i] = random.nextInt(256);
+		}
+
+		return matrix;
+	}
+
+	/**
+	 * Reference implementation, same formula as the {@link DCTKernel#run()}.
+	 */
+	private double[] referenceDCT(double[] matrix, int n) {
+		double[] result = new double[n * n];
+
+		for (int u = 0; u < n; u++) {
+			for (int v = 0; v < n; v++) {
+				double sum = 0.0;
+
+				for (int g = 0; g < n * n; g++) {
+					sum += Math.cos(((2 * (g / n) + 1) / (2.0 * n)) * u * Math.PI)
+							* Math.cos(((2 * (g % n) + 1) / (2.0 * n)) * v * Math.PI) * (matrix[g]);
+				}
+
+				double cu = u == 0 ? 1 / Math.sqrt(2.0) : 1;
+				double cv = v == 0 ? 1 / Math.sqrt(2.0) : 1;
+
+				result[u * n + v] = sum * ((cu * cv) / 4.0);
+			}
+		}
+
+		return result;
+	}
+
+	@Test
+	public void testMatrixSize() throws Exception {
+		assertThat(cut.getMatrixSize(), is(DCTKernel.DEFAULT_MATRIX_SIZE));
+	}
+
+	@Test
+	public void testTransformSequentialMatrix() throws Exception {
+		double[] matrix = sequentialMatrix(DCTKernel.DEFAULT_MATRIX_SIZE, 1);
+
+		assertArrayEquals(referenceDCT(matrix, DCTKernel.DEFAULT_MATRIX_SIZE), cut.transformDCT(matrix), TOLERANCE);
+	}
+
+	@Test
+	public void testTransformScaledMatrix() throws Exception {
+		double[] matrix = sequentialMatrix(DCTKernel.DEFAULT_MATRIX_SIZE, Math.PI);
+
+		assertArrayEquals(referenceDCT(matrix, DCTKernel.DEFAULT_MATRIX_SIZE), cut.transformDCT(matrix), TOLERANCE);
+	}
+
+	@Test
+	public void testTransformDcComponent() throws Exception {
+		double[] result = cut.transformDCT(sequentialMatrix(DCTKernel.DEFAULT_MATRIX_SIZE, 1));
+
+		assertThat(Math.round(result[0]), is(260L));
+	}
+
+	@Test
+	public void testTransformLargeRandomMatrix() throws Exception {
+		cut = new SeparableDCT(LARGE_MATRIX_SIZE);
+		double[] matrix = randomMatrix(LARGE_MATRIX_SIZE);
+
+		assertArrayEquals(referenceDCT(matrix, LARGE_MATRIX_SIZE), cut.transformDCT(matrix), TOLERANCE);
+	}
+
+	@Test
+	public void testTransformWithOffsets() throws Exception {
+		int area = DCTKernel.DEFAULT_MATRIX_SIZE * DCTKernel.DEFAULT_MATRIX_SIZE;
+		double[] matrix = randomMatrix(DCTKernel.DEFAULT_MATRIX_SIZE);
+		double[] packed = new double[area * 2];
+		double[] result = new double[area * 2];
+
+		System.arraycopy(matrix, 0, packed, area, area);
+		cut.transformDCT(packed, area, result, area);
+
+		double[] expected = new double[area * 2];
+		System.arraycopy(referenceDCT(matrix, DCTKernel.DEFAULT_MATRIX_SIZE), 0, expected, area, area);
+
+		assertArrayEquals(expected, result, TOLERANCE);
+	}
+
+	@Test
+	public void testTransformCoefficientBlock() throws Exception {
+		cut = new SeparableDCT(LARGE_MATRIX_SIZE, DCTKernel.DEFAULT_MATRIX_SIZE);
+		double[] matrix = randomMatrix(LARGE_MATRIX_SIZE);
+		double[] full = referenceDCT(matrix, LARGE_MATRIX_SIZE);
+		double[] expected = new double[DCTKernel.DEFAULT_MATRIX_SIZE * DCTKernel.DEFAULT_MATRIX_SIZE];
+
+		for (int u = 0; u < DCTKernel.DEFAULT_MATRIX_SIZE; u++) {
+			System.arraycopy(full, u * LARGE_MATRIX_SIZE, expected, u * DCTKernel.DEFAULT_MATRIX_SIZE,
+					DCTKernel.DEFAULT_MATRIX_SIZE);
+		}
+
+		assertArrayEquals(expected, cut.transformDCT(matrix), TOLERANCE);
+	}
+
+	@Test
+	public void testCoefficientSizeDefaultsToMatrixSize() throws Exception {
+		assertThat(cut.getCoefficientSize(), is(DCTKernel.DEFAULT_MATRIX_SIZE));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testCoefficientSizeLargerThanMatrix() throws Exception {
+		new SeparableDCT(DCTKernel.DEFAULT_MATRIX_SIZE, LARGE_MATRIX_SIZE);
+	}
+
+	@Test
+	public void testCpuBackendCoefficientSize() throws Exception {
+		DCTTransformer transformer = DCTBackend.CPU.create(LARGE_MATRIX_SIZE, DCTKernel.DEFAULT_MATRIX_SIZE);
+
+		assertThat(transformer.getCoefficientSize(), is(DCTKernel.DEFAULT_MATRIX_SIZE));
+	}
+
+	@Test
+	public void testCpuBackendCreatesSeparableDct() throws Exception {
+		assertThat(DCTBackend.CPU.create(LARGE_MATRIX_SIZE) instanceof SeparableDCT, is(true));
+	}
+}
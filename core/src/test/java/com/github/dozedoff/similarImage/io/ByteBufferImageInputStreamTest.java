@@ -0,0 +1,120 @@
+/*  Copyright (C) 2016  Nicholas Wright
+    
+    This file is part of similarImage - A similar image finder using pHash
+    
+    similarImage is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.similarImage.io;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import javax.imageio.stream.ImageInputStream;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ByteBufferImageInputStreamTest {
+	private static final byte[] TEST_DATA = { 2, 4, 6, 8, 7, 4, 89, 43, 12, 90 };
+	private static final int BUFFER_CAPACITY = 50;
+	private static final int BUFFER_OFFSET = 3;
+
+	private ByteBuffer buffer;
+	private ImageInputStream input;
+
+	@Before
+	public void setUp() throws Exception {
+		buffer = ByteBuffer.allocateDirect(BUFFER_CAPACITY);
+		buffer.put(TEST_DATA);
+		buffer.flip();
+
+		input = new ByteBufferImageInputStream(buffer);
+	}
+
+	@Test
+	public void testReadFirstByte() throws Exception {
+		assertThat(input.read(), is(2));
+	}
+
+	@Test
+	public void testReadAllData() throws Exception {
+		byte[] read = new byte[TEST_DATA.length];
+
+		input.readFully(read);
+
+		assertThat(read, is(TEST_DATA));
+	}
+
+	@Test
+	public void testReadPastEnd() throws Exception {
+		byte[] read = new byte[BUFFER_CAPACITY];
+
+		assertThat(input.read(read), is(TEST_DATA.length));
+		assertThat(input.read(read), is(-1));
+		assertThat(input.read(), is(-1));
+	}
+
+	@Test
+	public void testLength() throws Exception {
+		assertThat(input.length(), is((long) TEST_DATA.length));
+	}
+
+	@Test
+	public void testSeek() throws Exception {
+		input.seek(6);
+
+		assertThat(input.read(), is(89));
+	}
+
+	@Test
+	public void testSeekBackwards() throws Exception {
+		input.skipBytes(8);
+		input.seek(1);
+
+		assertThat(input.read(), is(4));
+	}
+
+	@Test
+	public void testBufferPositionUnchanged() throws Exception {
+		input.readFully(new byte[TEST_DATA.length]);
+
+		assertThat(buffer.position(), is(0));
+	}
+
+	@Test
+	public void testStartsAtBufferPosition() throws Exception {
+		buffer.position(BUFFER_OFFSET);
+
+		ImageInputStream offsetInput = new ByteBufferImageInputStream(buffer);
+
+		assertThat(offsetInput.read(), is(8));
+		assertThat(offsetInput.length(), is((long) (TEST_DATA.length - BUFFER_OFFSET)));
+	}
+
+	@Test
+	public void testByteArray() throws Exception {
+		ImageInputStream arrayInput = new ByteBufferImageInputStream(TEST_DATA);
+
+		assertThat(arrayInput.readShort(), is((short) 0x0204));
+	}
+
+	@Test(expected = IOException.class)
+	public void testReadAfterClose() throws Exception {
+		input.close();
+		input.read();
+	}
+}
@@ -0,0 +1,133 @@
+/*  Copyright (C) 2016  Nicholas Wright
+    
+    This file is part of similarImage - A similar image finder using pHash
+    
+    similarImage is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.similarImage.io;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ContentDigestTest {
+	private static final int DATA_SIZE = 100003;
+	private static final int MAX_CHUNK_SIZE = 70;
+	private static final int BUFFER_OFFSET = 13;
+
+	private byte[] data;
+
+	@Before
+	public void setUp() throws Exception {
+		data = new byte[DATA_SIZE];
+		new Random(1).nextBytes(data);
+	}
+
+	@Test
+	public void testEmpty() throws Exception {
+		assertThat(ContentDigest.digest(new byte[0]), is(0xEF46DB3751D8E999L));
+	}
+
+	@Test
+	public void testShortInput() throws Exception {
+		assertThat(ContentDigest.digest("abc".getBytes(StandardCharsets.US_ASCII)), is(0x44BC2CF5AD770999L));
+	}
+
+	@Test
+	public void testLongInput() throws Exception {
+		byte[] input = "Nobody inspects the spammish repetition".getBytes(StandardCharsets.US_ASCII);
+
+		assertThat(ContentDigest.digest(input), is(0xFBCEA83C8A378BF1L));
+	}
+
+	@Test
+	public void testStreamMatchesArray() throws Exception {
+		assertThat(ContentDigest.digest(new ByteArrayInputStream(data)), is(ContentDigest.digest(data)));
+	}
+
+	@Test
+	public void testHeapBufferMatchesArray() throws Exception {
+		assertThat(ContentDigest.digest(ByteBuffer.wrap(data)), is(ContentDigest.digest(data)));
+	}
+
+	@Test
+	public void testDirectBufferMatchesArray() throws Exception {
+		ByteBuffer buffer = ByteBuffer.allocateDirect(data.length);
+		buffer.put(data);
+		buffer.flip();
+
+		assertThat(ContentDigest.digest(buffer), is(ContentDigest.digest(data)));
+	}
+
+	@Test
+	public void testBufferRemainingOnly() throws Exception {
+		ByteBuffer buffer = ByteBuffer.wrap(data);
+		buffer.position(BUFFER_OFFSET);
+		byte[] remaining = Arrays.copyOfRange(data, BUFFER_OFFSET, data.length);
+
+		assertThat(ContentDigest.digest(buffer), is(ContentDigest.digest(remaining)));
+	}
+
+	@Test
+	public void testBufferPositionUnchanged() throws Exception {
+		ByteBuffer buffer = ByteBuffer.allocateDirect(data.length);
+		buffer.put(data);
+		buffer.flip();
+
+		ContentDigest.digest(buffer);
+
+		assertThat(buffer.position(), is(0));
+	}
+
+	@Test
+	public void testChunkedUpdate() throws Exception {
+		ContentDigest cut = new ContentDigest();
+		Random random = new Random(2);
+		int offset = 0;
+
+		while (offset < data.length) {
+			int length = Math.min(random.nextInt(MAX_CHUNK_SIZE), data.length - offset);
+			cut.update(data, offset, length);
+			offset += length;
+		}
+
+		assertThat(cut.getValue(), is(ContentDigest.digest(data)));
+	}
+
+	@Test
+	public void testSingleBitChange() throws Exception {
+		long original = ContentDigest.digest(data);
+		data[DATA_SIZE / 2] ^= 1;
+
+		assertThat(ContentDigest.digest(data), is(not(original)));
+	}
+
+	@Test
+	public void testReset() throws Exception {
+		ContentDigest cut = new ContentDigest();
+		cut.update(data, 0, data.length);
+		cut.reset();
+
+		assertThat(cut.getValue(), is(0xEF46DB3751D8E999L));
+	}
+}
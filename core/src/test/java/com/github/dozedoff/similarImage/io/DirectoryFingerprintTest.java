@@ -0,0 +1,123 @@
+/*  Copyright (C) 2016  Nicholas Wright
+    
+    This file is part of similarImage - A similar image finder using pHash
+    
+    similarImage is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.similarImage.io;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.dozedoff.similarImage.db.DirectoryRecord;
+import com.google.common.jimfs.Configuration;
+import com.google.common.jimfs.Jimfs;
+
+public class DirectoryFingerprintTest {
+	private static final FileTime LAST_MODIFIED = FileTime.fromMillis(1000L);
+	private static final int FILE_COUNT = 2;
+
+	private FileSystem fs;
+	private Path directory;
+
+	@Before
+	public void setUp() throws Exception {
+		fs = Jimfs.newFileSystem(Configuration.unix());
+		directory = Files.createDirectories(fs.getPath("/data/images"));
+
+		Files.createFile(directory.resolve("a.jpg"));
+		Files.createFile(directory.resolve("b.jpg"));
+		Files.createDirectory(directory.resolve("sub"));
+		Files.setLastModifiedTime(directory, LAST_MODIFIED);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		fs.close();
+	}
+
+	private DirectoryRecord record() throws Exception {
+		return DirectoryFingerprint.of(directory).toRecord(FILE_COUNT);
+	}
+
+	@Test
+	public void testLastModified() throws Exception {
+		assertThat(DirectoryFingerprint.of(directory).getLastModified(), is(LAST_MODIFIED.toMillis()));
+	}
+
+	@Test
+	public void testEntryCount() throws Exception {
+		assertThat(DirectoryFingerprint.of(directory).getEntryCount(), is(3));
+	}
+
+	@Test
+	public void testUnchangedDirectoryMatches() throws Exception {
+		DirectoryRecord record = record();
+
+		assertThat(DirectoryFingerprint.of(directory).matches(record), is(true));
+	}
+
+	@Test
+	public void testAddedFileDoesNotMatch() throws Exception {
+		DirectoryRecord record = record();
+
+		Files.createFile(directory.resolve("c.jpg"));
+		Files.setLastModifiedTime(directory, LAST_MODIFIED);
+
+		assertThat(DirectoryFingerprint.of(directory).matches(record), is(false));
+	}
+
+	@Test
+	public void testRenamedFileChangesListingHash() throws Exception {
+		DirectoryRecord record = record();
+
+		Files.move(directory.resolve("a.jpg"), directory.resolve("c.jpg"));
+		Files.setLastModifiedTime(directory, LAST_MODIFIED);
+
+		assertThat(DirectoryFingerprint.of(directory).getListingHash(), is(not(record.getListingHash())));
+	}
+
+	@Test
+	public void testModifiedTimeDoesNotMatch() throws Exception {
+		DirectoryRecord record = record();
+
+		Files.setLastModifiedTime(directory, FileTime.fromMillis(LAST_MODIFIED.toMillis() + 1));
+
+		assertThat(DirectoryFingerprint.of(directory).matches(record), is(false));
+	}
+
+	@Test
+	public void testToRecord() throws Exception {
+		DirectoryFingerprint fingerprint = DirectoryFingerprint.of(directory);
+
+		assertThat(fingerprint.toRecord(FILE_COUNT), is(new DirectoryRecord(directory.toString(),
+				LAST_MODIFIED.toMillis(), 3, fingerprint.getListingHash(), FILE_COUNT)));
+	}
+
+	@Test(expected = NoSuchFileException.class)
+	public void testMissingDirectory() throws Exception {
+		DirectoryFingerprint.of(fs.getPath("/missing"));
+	}
+}
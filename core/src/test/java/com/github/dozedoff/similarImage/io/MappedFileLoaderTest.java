@@ -0,0 +1,135 @@
+/*  Copyright (C) 2016  Nicholas Wright
+    
+    This file is part of similarImage - A similar image finder using pHash
+    
+    similarImage is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.similarImage.io;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MappedFileLoaderTest {
+	private static final int SMALL_FILE_SIZE = 1000;
+	private static final int LARGE_FILE_SIZE = MappedFileLoader.DEFAULT_MAP_THRESHOLD + 1;
+
+	private Path smallFile;
+	private Path largeFile;
+	private Path emptyFile;
+	private byte[] smallData;
+	private byte[] largeData;
+
+	private MappedFileLoader cut;
+
+	@Before
+	public void setUp() throws Exception {
+		Random random = new Random(1);
+		smallData = new byte[SMALL_FILE_SIZE];
+		largeData = new byte[LARGE_FILE_SIZE];
+		random.nextBytes(smallData);
+		random.nextBytes(largeData);
+
+		smallFile = Files.write(Files.createTempFile("MappedFileLoaderTest", null), smallData);
+		largeFile = Files.write(Files.createTempFile("MappedFileLoaderTest", null), largeData);
+		emptyFile = Files.createTempFile("MappedFileLoaderTest", null);
+
+		cut = new MappedFileLoader();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		Files.deleteIfExists(smallFile);
+		Files.deleteIfExists(largeFile);
+		Files.deleteIfExists(emptyFile);
+	}
+
+	private static byte[] toArray(ByteBuffer buffer) {
+		byte[] data = new byte[buffer.remaining()];
+		buffer.duplicate().get(data);
+		return data;
+	}
+
+	@Test
+	public void testSmallFileData() throws Exception {
+		assertThat(toArray(cut.load(smallFile)), is(smallData));
+	}
+
+	@Test
+	public void testSmallFileIsOnHeap() throws Exception {
+		assertThat(cut.load(smallFile).isDirect(), is(false));
+	}
+
+	@Test
+	public void testLargeFileData() throws Exception {
+		assertThat(toArray(cut.load(largeFile)), is(largeData));
+	}
+
+	@Test
+	public void testLargeFileIsDirect() throws Exception {
+		assertThat(cut.load(largeFile).isDirect(), is(true));
+	}
+
+	@Test
+	public void testZeroThresholdMappedSmallFileData() throws Exception {
+		cut = new MappedFileLoader(0);
+
+		assertThat(toArray(cut.load(smallFile)), is(smallData));
+	}
+
+	@Test
+	public void testBufferIsReadOnly() throws Exception {
+		assertThat(cut.load(smallFile).isReadOnly(), is(true));
+		assertThat(cut.load(largeFile).isReadOnly(), is(true));
+	}
+
+	@Test
+	public void testBufferStartsAtFileStart() throws Exception {
+		ByteBuffer buffer = cut.load(largeFile);
+
+		assertThat(buffer.position(), is(0));
+		assertThat(buffer.remaining(), is(LARGE_FILE_SIZE));
+	}
+
+	@Test
+	public void testEmptyFile() throws Exception {
+		assertThat(cut.load(emptyFile).remaining(), is(0));
+	}
+
+	@Test(expected = NoSuchFileException.class)
+	public void testMissingFile() throws Exception {
+		Files.delete(smallFile);
+
+		cut.load(smallFile);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeThreshold() throws Exception {
+		new MappedFileLoader(-1);
+	}
+
+	@Test
+	public void testGetMapThreshold() throws Exception {
+		assertThat(new MappedFileLoader().getMapThreshold(), is(MappedFileLoader.DEFAULT_MAP_THRESHOLD));
+	}
+}
@@ -79,6 +79,35 @@ public class StatisticsTest {
 		verify(listener).statisticsChangedEvent(eq(StatisticsEvent.SKIPPED_FILES), eq(1));
 	}
 
+	@Test
+	public void testAddSkippedFilesCounter() throws Exception {
+		cut.incrementSkippedFiles();
+		cut.addSkippedFiles(3);
+
+		assertThat(cut.getSkippedFiles(), is(4));
+	}
+
+	@Test
+	public void testAddSkippedFilesEvent() throws Exception {
+		cut.addSkippedFiles(3);
+
+		verify(listener).statisticsChangedEvent(eq(StatisticsEvent.SKIPPED_FILES), eq(3));
+	}
+
+	@Test
+	public void testAddSkippedDirectoriesCounter() throws Exception {
+		cut.addSkippedDirectories(2);
+
+		assertThat(cut.getSkippedDirectories(), is(2));
+	}
+
+	@Test
+	public void testAddSkippedDirectoriesEvent() throws Exception {
+		cut.addSkippedDirectories(2);
+
+		verify(listener).statisticsChangedEvent(eq(StatisticsEvent.SKIPPED_DIRECTORIES), eq(2));
+	}
+
 	@Test
 	public void testResetFailed() throws Exception {
 		cut.incrementFailedFiles();
@@ -118,6 +147,15 @@ public class StatisticsTest {
 		assertThat(cut.getSkippedFiles(), is(0));
 	}
 
+	@Test
+	public void testResetSkippedDirectories() throws Exception {
+		cut.addSkippedDirectories(1);
+		assertThat(cut.getSkippedDirectories(), is(1)); // Guard
+
+		cut.reset();
+		assertThat(cut.getSkippedDirectories(), is(0));
+	}
+
 	@Test
 	public void testRemoveStatisticsListener() throws Exception {
 		cut.removeStatisticsListener(listener);
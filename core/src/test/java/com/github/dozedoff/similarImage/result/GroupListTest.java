@@ -181,4 +181,23 @@ public class GroupListTest {
 	public void testNextGroupWithUnknownGroup() throws Exception {
 		assertThat(cut.nextGroup(groupUnknown), is(groupA));
 	}
+
+	@Test
+	public void testRemoveUpdatesPendingGroupSize() throws Exception {
+		groupB.remove(new Result(groupB, recordC));
+
+		assertThat(groupA.toString(), is(HASH_A + " (1)"));
+	}
+
+	@Test
+	public void testPendingGroupRemovedFromGuiWhenEmpty() throws Exception {
+		cut = new GroupList(dlm);
+		initGroupList();
+
+		groupB.remove(new Result(groupB, recordC));
+		cut.remove(new Result(groupB, recordA));
+
+		assertThat(dlm.contains(groupA), is(false));
+		assertThat(cut.groupCount(), is(1));
+	}
 }
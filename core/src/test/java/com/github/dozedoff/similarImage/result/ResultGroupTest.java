@@ -160,6 +160,6 @@ public class ResultGroupTest {
 
 	@Test
 	public void testHashAndEquals() throws Exception {
-		EqualsVerifier.forClass(ResultGroup.class).withIgnoredFields("parent", "results").withPrefabValues(GroupList.class, parentGreen, parentBlue).withPrefabValues(Result.class, resultA, resultB).verify();
+		EqualsVerifier.forClass(ResultGroup.class).withIgnoredFields("parent", "records", "results").withPrefabValues(GroupList.class, parentGreen, parentBlue).withPrefabValues(Result.class, resultA, resultB).verify();
 	}
 }
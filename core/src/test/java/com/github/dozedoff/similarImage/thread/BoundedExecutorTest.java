@@ -0,0 +1,278 @@
+/*  Copyright (C) 2016  Nicholas Wright
+    
+    This file is part of similarImage - A similar image finder using pHash
+    
+    similarImage is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.similarImage.thread;
+
+import static org.awaitility.Awaitility.await;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+
+public class BoundedExecutorTest {
+	private static final int QUEUE_CAPACITY = 2;
+	private static final long TIMEOUT_SECONDS = 5;
+	private static final long TIMEOUT_MILLIS = 5000;
+
+	private MetricRegistry metrics;
+	private BoundedExecutor cut;
+	private CountDownLatch blocker;
+	private Runnable blockingTask;
+
+	@Before
+	public void setUp() throws Exception {
+		metrics = new MetricRegistry();
+		cut = new BoundedExecutor(1, QUEUE_CAPACITY, "test", metrics);
+		blocker = new CountDownLatch(1);
+
+		blockingTask = () -> {
+			try {
+				blocker.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		};
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		blocker.countDown();
+		cut.shutdownNow();
+		cut.awaitTermination(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Occupy the single thread and fill the queue.
+	 */
+	private void fillQueue() throws InterruptedException {
+		CountDownLatch started = new CountDownLatch(1);
+
+		cut.execute(() -> {
+			started.countDown();
+			blockingTask.run();
+		});
+
+		started.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+		for (int i = 0; i < QUEUE_CAPACITY; i++) {
+			cut.execute(blockingTask);
+		}
+
+		await().until(cut::getQueueDepth, is(QUEUE_CAPACITY));
+	}
+
+	private Thread submitInBackground(AtomicBoolean submitted, AtomicReference<Exception> failure) {
+		Thread submitter = new Thread(() -> {
+			try {
+				cut.execute(blockingTask);
+				submitted.set(true);
+			} catch (RejectedExecutionException e) {
+				failure.set(e);
+			}
+		});
+
+		submitter.start();
+		return submitter;
+	}
+
+	@SuppressWarnings("unchecked")
+	private int queueDepthGauge() {
+		return ((Gauge<Integer>) metrics.getGauges().get(BoundedExecutor.METRIC_NAME_QUEUE_DEPTH)).getValue();
+	}
+
+	@Test
+	public void testExecutesTask() throws Exception {
+		CountDownLatch executed = new CountDownLatch(1);
+
+		cut.execute(executed::countDown);
+
+		assertThat(executed.await(TIMEOUT_SECONDS, TimeUnit.SECONDS), is(true));
+	}
+
+	@Test
+	public void testQueueDepth() throws Exception {
+		fillQueue();
+
+		assertThat(cut.getQueueDepth(), is(QUEUE_CAPACITY));
+	}
+
+	@Test
+	public void testQueueDepthGauge() throws Exception {
+		fillQueue();
+
+		assertThat(queueDepthGauge(), is(QUEUE_CAPACITY));
+	}
+
+	@Test
+	public void testSubmitBlocksWhenFull() throws Exception {
+		AtomicBoolean submitted = new AtomicBoolean();
+		fillQueue();
+
+		Thread submitter = submitInBackground(submitted, new AtomicReference<>());
+
+		await().until(submitter::getState, is(Thread.State.WAITING));
+		assertThat(submitted.get(), is(false));
+		assertThat(cut.getQueueDepth(), is(QUEUE_CAPACITY));
+	}
+
+	@Test
+	public void testSubmitResumesWhenTaskStarts() throws Exception {
+		AtomicBoolean submitted = new AtomicBoolean();
+		fillQueue();
+
+		Thread submitter = submitInBackground(submitted, new AtomicReference<>());
+		await().until(submitter::getState, is(Thread.State.WAITING));
+		blocker.countDown();
+		submitter.join(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+
+		assertThat(submitted.get(), is(true));
+	}
+
+	@Test
+	public void testSubmitWaitIsRecorded() throws Exception {
+		fillQueue();
+
+		Thread submitter = submitInBackground(new AtomicBoolean(), new AtomicReference<>());
+		await().until(submitter::getState, is(Thread.State.WAITING));
+		blocker.countDown();
+		submitter.join(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+
+		assertThat(metrics.timer(BoundedExecutor.METRIC_NAME_SUBMIT_WAIT).getCount(), is(1L));
+	}
+
+	@Test
+	public void testQueueWaitIsRecorded() throws Exception {
+		CountDownLatch executed = new CountDownLatch(1);
+
+		cut.execute(executed::countDown);
+		executed.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+		assertThat(metrics.timer(BoundedExecutor.METRIC_NAME_QUEUE_WAIT).getCount(), is(1L));
+	}
+
+	@Test
+	public void testInterruptedSubmitIsRejected() throws Exception {
+		AtomicReference<Exception> failure = new AtomicReference<>();
+		fillQueue();
+
+		Thread submitter = submitInBackground(new AtomicBoolean(), failure);
+		await().until(submitter::getState, is(Thread.State.WAITING));
+		submitter.interrupt();
+		submitter.join(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+
+		assertThat(failure.get() instanceof RejectedExecutionException, is(true));
+		assertThat(metrics.meter(BoundedExecutor.METRIC_NAME_REJECTED).getCount(), is(1L));
+	}
+
+	@Test
+	public void testShutdownNowReleasesWaitingSubmitter() throws Exception {
+		AtomicReference<Exception> failure = new AtomicReference<>();
+		fillQueue();
+
+		Thread submitter = submitInBackground(new AtomicBoolean(), failure);
+		await().until(submitter::getState, is(Thread.State.WAITING));
+		cut.shutdownNow();
+		submitter.join(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+
+		assertThat(failure.get() instanceof RejectedExecutionException, is(true));
+	}
+
+	@Test(expected = RejectedExecutionException.class)
+	public void testRejectedAfterShutdown() throws Exception {
+		cut.shutdown();
+
+		cut.execute(blockingTask);
+	}
+
+	@Test
+	public void testRejectedAfterShutdownIsCounted() throws Exception {
+		cut.shutdown();
+
+		try {
+			cut.execute(blockingTask);
+		} catch (RejectedExecutionException e) {
+			// expected
+		}
+
+		assertThat(metrics.meter(BoundedExecutor.METRIC_NAME_REJECTED).getCount(), is(1L));
+	}
+
+	@Test(timeout = TIMEOUT_MILLIS)
+	public void testRejectedTaskReleasesSlot() throws Exception {
+		cut.shutdown();
+
+		for (int i = 0; i <= QUEUE_CAPACITY; i++) {
+			try {
+				cut.execute(blockingTask);
+			} catch (RejectedExecutionException e) {
+				// expected
+			}
+		}
+
+		assertThat(metrics.timer(BoundedExecutor.METRIC_NAME_SUBMIT_WAIT).getCount(), is(0L));
+	}
+
+	@Test
+	public void testIncreaseThreadCount() throws Exception {
+		fillQueue();
+
+		cut.setThreadCount(1 + QUEUE_CAPACITY);
+
+		await().until(cut::getQueueDepth, is(0));
+		assertThat(cut.getPoolSize(), is(1 + QUEUE_CAPACITY));
+	}
+
+	@Test
+	public void testDecreaseThreadCount() throws Exception {
+		cut.setThreadCount(QUEUE_CAPACITY);
+		cut.setThreadCount(1);
+
+		assertThat(cut.getThreadCount(), is(1));
+		assertThat(cut.getMaximumPoolSize(), is(1));
+	}
+
+	@Test
+	public void testGetQueueCapacity() throws Exception {
+		assertThat(cut.getQueueCapacity(), is(QUEUE_CAPACITY));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidThreadCount() throws Exception {
+		cut.setThreadCount(0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidQueueCapacity() throws Exception {
+		new BoundedExecutor(1, 0, "test", metrics);
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void testNullTask() throws Exception {
+		cut.execute(null);
+	}
+}
@@ -0,0 +1,306 @@
+/*  Copyright (C) 2016  Nicholas Wright
+    
+    This file is part of similarImage - A similar image finder using pHash
+    
+    similarImage is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.similarImage.thread;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream.Filter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.mockito.quality.Strictness;
+
+import com.github.dozedoff.similarImage.db.DirectoryRecord;
+import com.github.dozedoff.similarImage.db.repository.DirectoryRepository;
+import com.github.dozedoff.similarImage.handler.HashHandler;
+import com.github.dozedoff.similarImage.io.Statistics;
+import com.github.dozedoff.similarImage.util.PrefixCompressedPathSet;
+
+public class ImageFindJobTest {
+	private static final int DIRECTORY_COUNT = 4;
+	private static final int FILES_PER_DIRECTORY = 10;
+	private static final int FAILED_FILE_INDEX = 3;
+
+	private static final Filter<Path> JPG_FILTER = path -> path.toString().endsWith(".jpg");
+	private static final HashHandler FAILING_HANDLER = path -> !path.getFileName().toString()
+			.startsWith("image" + FAILED_FILE_INDEX);
+
+	private static final int TREE_DIRECTORY_COUNT = DIRECTORY_COUNT * 2 + 1;
+
+	public @Rule MockitoRule mockito = MockitoJUnit.rule().strictness(Strictness.STRICT_STUBS);
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@Mock
+	private DirectoryRepository directoryRepository;
+
+	private Path root;
+	private List<String> knownImages;
+
+	@Before
+	public void setUp() throws Exception {
+		root = temporaryFolder.getRoot().toPath();
+
+		for (int d = 0; d < DIRECTORY_COUNT; d++) {
+			Path directory = Files.createDirectories(root.resolve("dir" + d).resolve("sub"));
+
+			for (int f = 0; f < FILES_PER_DIRECTORY; f++) {
+				Files.createFile(directory.resolve("image" + f + ".jpg"));
+				Files.createFile(directory.resolve("text" + f + ".txt"));
+			}
+		}
+
+		knownImages = imagePaths();
+	}
+
+	private Statistics scan(ParallelDirectoryWalker walker) throws IOException {
+		Statistics statistics = new Statistics();
+		ImageFindJobVisitor visitor = new ImageFindJobVisitor(JPG_FILTER, Collections.singletonList(FAILING_HANDLER),
+				statistics);
+		ImageFindJob job = new ImageFindJob(root.toString(), visitor);
+		job.setDirectoryWalker(walker);
+
+		job.run();
+
+		return statistics;
+	}
+
+	private Statistics scanIncremental(List<DirectoryRecord> stored, boolean allKnown) throws IOException {
+		return scanIncremental(stored, allKnown, null);
+	}
+
+	private Statistics scanIncremental(List<DirectoryRecord> stored, boolean allKnown, ParallelDirectoryWalker walker)
+			throws IOException {
+		Statistics statistics = new Statistics();
+		ImageFindJobVisitor visitor = new ImageFindJobVisitor(JPG_FILTER, Collections.singletonList(FAILING_HANDLER),
+				statistics);
+
+		if (allKnown) {
+			visitor.setKnownPaths(PrefixCompressedPathSet.of(knownImages));
+		}
+
+		when(directoryRepository.startsWithPath(root)).thenReturn(stored);
+
+		ImageFindJob job = new ImageFindJob(root.toString(), visitor);
+		job.setDirectoryRepository(directoryRepository);
+		job.setDirectoryWalker(walker);
+
+		job.run();
+
+		return statistics;
+	}
+
+	private List<String> imagePaths() throws IOException {
+		try (Stream<Path> stream = Files.walk(root)) {
+			return stream.map(Path::toString).filter(path -> path.endsWith(".jpg")).sorted().collect(Collectors.toList());
+		}
+	}
+
+	private List<DirectoryRecord> storedRecords(int expectedCount) throws Exception {
+		ArgumentCaptor<DirectoryRecord> captor = ArgumentCaptor.forClass(DirectoryRecord.class);
+		verify(directoryRepository, times(expectedCount)).store(captor.capture());
+
+		return new ArrayList<>(captor.getAllValues());
+	}
+
+	private static int[] counts(Statistics statistics) {
+		return new int[] { statistics.getFoundFiles(), statistics.getProcessedFiles(), statistics.getFailedFiles(),
+				statistics.getSkippedFiles() };
+	}
+
+	@Test
+	public void testSequentialFoundFiles() throws Exception {
+		assertThat(scan(null).getFoundFiles(), is(DIRECTORY_COUNT * FILES_PER_DIRECTORY));
+	}
+
+	@Test
+	public void testParallelFoundFiles() throws Exception {
+		assertThat(scan(new ParallelDirectoryWalker(2, 3)).getFoundFiles(), is(DIRECTORY_COUNT * FILES_PER_DIRECTORY));
+	}
+
+	@Test
+	public void testParallelStatisticsMatchSequential() throws Exception {
+		int[] expected = counts(scan(null));
+
+		assertThat(counts(scan(new ParallelDirectoryWalker(2, 3))), is(expected));
+	}
+
+	@Test
+	public void testParallelFailedFiles() throws Exception {
+		assertThat(scan(new ParallelDirectoryWalker()).getFailedFiles(), is(DIRECTORY_COUNT));
+	}
+
+	@Test
+	public void testInterruptedParallelScanStops() throws Exception {
+		Thread.currentThread().interrupt();
+
+		Statistics statistics = scan(new ParallelDirectoryWalker());
+
+		assertThat(Thread.interrupted(), is(true));
+		assertThat(statistics.getFoundFiles(), is(0));
+	}
+
+	@Test
+	public void testIncrementalStoresCompleteDirectories() throws Exception {
+		scanIncremental(Collections.emptyList(), true);
+
+		List<DirectoryRecord> records = storedRecords(TREE_DIRECTORY_COUNT);
+
+		assertThat(records.stream().mapToInt(DirectoryRecord::getFileCount).sum(),
+				is(DIRECTORY_COUNT * FILES_PER_DIRECTORY));
+	}
+
+	@Test
+	public void testIncrementalDoesNotStoreDirectoriesWithNewFiles() throws Exception {
+		scanIncremental(Collections.emptyList(), false);
+
+		verify(directoryRepository, never()).store(any());
+	}
+
+	@Test
+	public void testIncrementalRescanSkipsUnchangedTree() throws Exception {
+		scanIncremental(Collections.emptyList(), true);
+		List<DirectoryRecord> records = storedRecords(TREE_DIRECTORY_COUNT);
+
+		Statistics statistics = scanIncremental(records, true);
+
+		assertThat(statistics.getFoundFiles(), is(0));
+		assertThat(statistics.getSkippedDirectories(), is(TREE_DIRECTORY_COUNT));
+		assertThat(statistics.getSkippedFiles(), is(DIRECTORY_COUNT * FILES_PER_DIRECTORY));
+	}
+
+	@Test
+	public void testIncrementalRescanWalksChangedDirectory() throws Exception {
+		scanIncremental(Collections.emptyList(), true);
+		List<DirectoryRecord> records = storedRecords(TREE_DIRECTORY_COUNT);
+
+		Files.createFile(root.resolve("dir1").resolve("sub").resolve("new.jpg"));
+		Statistics statistics = scanIncremental(records, true);
+
+		assertThat(statistics.getFoundFiles(), is(FILES_PER_DIRECTORY + 1));
+		assertThat(statistics.getSkippedDirectories(), is((DIRECTORY_COUNT - 1) * 2));
+		assertThat(statistics.getSkippedFiles(),
+				is((DIRECTORY_COUNT - 1) * FILES_PER_DIRECTORY + FILES_PER_DIRECTORY));
+	}
+
+	@Test
+	public void testIncrementalRemovesDeletedDirectory() throws Exception {
+		scanIncremental(Collections.emptyList(), true);
+		List<DirectoryRecord> records = storedRecords(TREE_DIRECTORY_COUNT);
+		Path deleted = root.resolve("dir2").resolve("sub");
+
+		try (Stream<Path> files = Files.list(deleted)) {
+			for (Path file : files.collect(Collectors.toList())) {
+				Files.delete(file);
+			}
+		}
+
+		Files.delete(deleted);
+		scanIncremental(records, true);
+
+		DirectoryRecord stale = records.stream().filter(record -> record.getPath().equals(deleted.toString()))
+				.findFirst().get();
+		verify(directoryRepository, atLeastOnce()).remove(stale);
+	}
+
+	@Test
+	public void testParallelIncrementalStoresSameRecords() throws Exception {
+		scanIncremental(Collections.emptyList(), true);
+		List<DirectoryRecord> expected = storedRecords(TREE_DIRECTORY_COUNT);
+		reset(directoryRepository);
+
+		scanIncremental(Collections.emptyList(), true, new ParallelDirectoryWalker(2, 3));
+
+		assertThat(storedRecords(TREE_DIRECTORY_COUNT), containsInAnyOrder(expected.toArray()));
+	}
+
+	@Test
+	public void testParallelIncrementalDoesNotStoreDirectoriesWithNewFiles() throws Exception {
+		scanIncremental(Collections.emptyList(), false, new ParallelDirectoryWalker(2, 3));
+
+		verify(directoryRepository, never()).store(any());
+	}
+
+	@Test
+	public void testParallelIncrementalRescanSkipsUnchangedTree() throws Exception {
+		scanIncremental(Collections.emptyList(), true);
+		List<DirectoryRecord> records = storedRecords(TREE_DIRECTORY_COUNT);
+
+		Statistics statistics = scanIncremental(records, true, new ParallelDirectoryWalker(2, 3));
+
+		assertThat(statistics.getFoundFiles(), is(0));
+		assertThat(statistics.getSkippedDirectories(), is(TREE_DIRECTORY_COUNT));
+		assertThat(statistics.getSkippedFiles(), is(DIRECTORY_COUNT * FILES_PER_DIRECTORY));
+	}
+
+	@Test
+	public void testParallelIncrementalRescanWalksChangedDirectory() throws Exception {
+		scanIncremental(Collections.emptyList(), true);
+		List<DirectoryRecord> records = storedRecords(TREE_DIRECTORY_COUNT);
+
+		Files.createFile(root.resolve("dir1").resolve("sub").resolve("new.jpg"));
+		Statistics statistics = scanIncremental(records, true, new ParallelDirectoryWalker(2, 3));
+
+		assertThat(statistics.getFoundFiles(), is(FILES_PER_DIRECTORY + 1));
+		assertThat(statistics.getSkippedDirectories(), is((DIRECTORY_COUNT - 1) * 2));
+	}
+
+	@Test
+	public void testParallelIncrementalRemovesDeletedDirectory() throws Exception {
+		scanIncremental(Collections.emptyList(), true);
+		List<DirectoryRecord> records = storedRecords(TREE_DIRECTORY_COUNT);
+		Path deleted = root.resolve("dir2").resolve("sub");
+
+		try (Stream<Path> files = Files.list(deleted)) {
+			for (Path file : files.collect(Collectors.toList())) {
+				Files.delete(file);
+			}
+		}
+
+		Files.delete(deleted);
+		scanIncremental(records, true, new ParallelDirectoryWalker(2, 3));
+
+		DirectoryRecord stale = records.stream().filter(record -> record.getPath().equals(deleted.toString()))
+				.findFirst().get();
+		verify(directoryRepository, atLeastOnce()).remove(stale);
+	}
+}
@@ -26,11 +26,15 @@ import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.nio.file.DirectoryStream.Filter;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.LinkedList;
 
@@ -40,6 +44,7 @@ import org.mockito.Mock;
 
 import com.github.dozedoff.similarImage.handler.HashHandler;
 import com.github.dozedoff.similarImage.io.Statistics;
+import com.github.dozedoff.similarImage.util.PrefixCompressedPathSet;
 
 public class ImageFindJobVisitorTest {
 	public @Rule MockitoRule mockito = MockitoJUnit.rule().strictness(Strictness.STRICT_STUBS);
@@ -121,4 +126,35 @@ public class ImageFindJobVisitorTest {
 
 		assertThat(cut.getFileCount(), is(1));
 	}
+
+	@Test
+	public void testKnownPathIsNotHandled() throws Exception {
+		Path known = Paths.get("known");
+		cut.setKnownPaths(PrefixCompressedPathSet.of(Arrays.asList(known.toString())));
+
+		cut.visitFile(known, attrs);
+
+		verify(handler, never()).handle(known);
+	}
+
+	@Test
+	public void testKnownPathIsSkipped() throws Exception {
+		Path known = Paths.get("known");
+		cut.setKnownPaths(PrefixCompressedPathSet.of(Arrays.asList(known.toString())));
+
+		cut.visitFile(known, attrs);
+
+		assertThat(statistics.getSkippedFiles(), is(1));
+		assertThat(statistics.getFailedFiles(), is(0));
+	}
+
+	@Test
+	public void testUnknownPathIsHandled() throws Exception {
+		Path unknown = Paths.get("unknown");
+		cut.setKnownPaths(PrefixCompressedPathSet.of(Arrays.asList("known")));
+
+		cut.visitFile(unknown, attrs);
+
+		verify(handler).handle(unknown);
+	}
 }
@@ -22,14 +22,20 @@ import org.mockito.junit.MockitoRule;
 import org.mockito.junit.MockitoJUnit;
 import org.mockito.quality.Strictness;
 
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.awt.image.BufferedImage;
 import java.io.InputStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Collections;
 
 import javax.imageio.IIOException;
 
@@ -40,14 +46,21 @@ import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
 
+import com.codahale.metrics.MetricRegistry;
 import com.github.dozedoff.commonj.hash.ImagePHash;
 import com.github.dozedoff.similarImage.db.ImageRecord;
 import com.github.dozedoff.similarImage.db.repository.ImageRepository;
 import com.github.dozedoff.similarImage.db.repository.RepositoryException;
+import com.github.dozedoff.similarImage.image.SubsamplingImageDecoder;
+import com.github.dozedoff.similarImage.io.ContentDigest;
+import com.github.dozedoff.similarImage.io.ContentDigestShortcut;
 import com.github.dozedoff.similarImage.io.HashAttribute;
+import com.github.dozedoff.similarImage.io.MappedFileLoader;
 import com.github.dozedoff.similarImage.io.Statistics;
 
 public class ImageHashJobTest {
+	private static final long IDENTICAL_HASH = 42L;
+
 	public @Rule MockitoRule mockito = MockitoJUnit.rule().strictness(Strictness.STRICT_STUBS);
 
 	@Mock
@@ -63,18 +76,26 @@ public class ImageHashJobTest {
 	private HashAttribute hashAttributeMock;
 
 	private ImageHashJob imageLoadJob;
+	private MetricRegistry metrics;
 
 	private static Path testImage;
+	private static long testImageSize;
+	private static long testImageDigest;
 
 	@BeforeClass
 	public static void setUpClass() throws Exception {
 		testImage = Paths.get(Thread.currentThread().getContextClassLoader().getResource("testImage.jpg").toURI());
+
+		byte[] data = Files.readAllBytes(testImage);
+		testImageSize = data.length;
+		testImageDigest = ContentDigest.digest(data);
 	}
 
 	@Before
 	public void setUp() throws Exception {
 		MockitoAnnotations.initMocks(this);
 		imageLoadJob = new ImageHashJob(testImage, phw, imageRepository, statistics);
+		metrics = new MetricRegistry();
 	}
 
 	@Test
@@ -93,6 +114,25 @@ public class ImageHashJobTest {
 		verify(statistics).incrementFailedFiles();
 	}
 
+	@Test
+	public void testRunWithImageDecoder() throws Exception {
+		imageLoadJob.setImageDecoder(new SubsamplingImageDecoder());
+		imageLoadJob.run();
+
+		verify(phw).getLongHash(any(BufferedImage.class));
+		verify(imageRepository).store(new ImageRecord(testImage.toString(), 0));
+	}
+
+	@Test
+	public void testRunWithMappedFile() throws Exception {
+		imageLoadJob.setFileLoader(new MappedFileLoader(0));
+		imageLoadJob.setImageDecoder(new SubsamplingImageDecoder());
+		imageLoadJob.run();
+
+		verify(phw).getLongHash(any(BufferedImage.class));
+		verify(imageRepository).store(new ImageRecord(testImage.toString(), 0));
+	}
+
 	@Test
 	public void testWriteExtendedAttributes() throws Exception {
 		imageLoadJob.setHashAttribute(hashAttributeMock);
@@ -109,4 +149,50 @@ public class ImageHashJobTest {
 
 		verify(hashAttributeMock, never()).writeHash(testImage, 0);
 	}
+
+	@Test
+	public void testDigestShortcutHitSkipsHashing() throws Exception {
+		when(imageRepository.getByContentDigest(testImageSize, testImageDigest))
+				.thenReturn(Collections.singletonList(new ImageRecord("copy", IDENTICAL_HASH)));
+		imageLoadJob.setDigestShortcut(new ContentDigestShortcut(imageRepository, metrics));
+
+		imageLoadJob.run();
+
+		verify(phw, never()).getLongHash(any(InputStream.class));
+		verify(imageRepository)
+				.store(new ImageRecord(testImage.toString(), IDENTICAL_HASH, null, testImageSize, testImageDigest));
+	}
+
+	@Test
+	public void testDigestShortcutHitWritesExtendedAttribute() throws Exception {
+		when(imageRepository.getByContentDigest(testImageSize, testImageDigest))
+				.thenReturn(Collections.singletonList(new ImageRecord("copy", IDENTICAL_HASH)));
+		imageLoadJob.setDigestShortcut(new ContentDigestShortcut(imageRepository, metrics));
+		imageLoadJob.setHashAttribute(hashAttributeMock);
+
+		imageLoadJob.run();
+
+		verify(hashAttributeMock).writeHash(testImage, IDENTICAL_HASH);
+	}
+
+	@Test
+	public void testDigestShortcutMissStoresDigest() throws Exception {
+		when(imageRepository.getByContentDigest(anyLong(), anyLong())).thenReturn(Collections.emptyList());
+		imageLoadJob.setDigestShortcut(new ContentDigestShortcut(imageRepository, metrics));
+
+		imageLoadJob.run();
+
+		verify(phw).getLongHash(any(InputStream.class));
+		verify(imageRepository).store(new ImageRecord(testImage.toString(), 0, null, testImageSize, testImageDigest));
+	}
+
+	@Test
+	public void testDigestShortcutMetrics() throws Exception {
+		when(imageRepository.getByContentDigest(anyLong(), anyLong())).thenReturn(Collections.emptyList());
+		imageLoadJob.setDigestShortcut(new ContentDigestShortcut(imageRepository, metrics));
+
+		imageLoadJob.run();
+
+		assertThat(metrics.counter(ContentDigestShortcut.METRIC_NAME_DIGEST_MISS).getCount(), is(1L));
+	}
 }
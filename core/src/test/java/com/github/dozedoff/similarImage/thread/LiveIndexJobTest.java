@@ -0,0 +1,249 @@
+/*  Copyright (C) 2016  Nicholas Wright
+    
+    This file is part of similarImage - A similar image finder using pHash
+    
+    similarImage is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.similarImage.thread;
+
+import static org.awaitility.Awaitility.await;
+import static org.hamcrest.CoreMatchers.hasItem;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+import java.nio.file.DirectoryStream.Filter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.InvalidAttributeValueException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.mockito.quality.Strictness;
+
+import com.github.dozedoff.similarImage.db.ImageRecord;
+import com.github.dozedoff.similarImage.db.repository.ImageRepository;
+import com.github.dozedoff.similarImage.io.HashAttribute;
+import com.github.dozedoff.similarImage.io.Statistics;
+
+public class LiveIndexJobTest {
+	private static final long DEBOUNCE_MILLIS = 100;
+	private static final long JOIN_TIMEOUT_MILLIS = 5000;
+	private static final long VERIFY_TIMEOUT_MILLIS = 10000;
+	private static final long RECORD_HASH = 42L;
+
+	private static final Filter<Path> JPG_FILTER = path -> path.toString().endsWith(".jpg");
+
+	public @Rule MockitoRule mockito = MockitoJUnit.rule().strictness(Strictness.STRICT_STUBS);
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@Mock
+	private ImageRepository imageRepository;
+
+	@Mock
+	private HashAttribute hashAttribute;
+
+	private Path root;
+	private Path initialImage;
+	private List<Path> handled;
+	private Statistics statistics;
+	private LiveIndexJob cut;
+	private Thread jobThread;
+
+	@Before
+	public void setUp() throws Exception {
+		root = temporaryFolder.getRoot().toPath();
+		initialImage = Files.createFile(root.resolve("initial.jpg"));
+
+		handled = new CopyOnWriteArrayList<>();
+		statistics = new Statistics();
+
+		cut = new LiveIndexJob(Collections.singletonList(root), JPG_FILTER, Collections.singletonList(file -> {
+			handled.add(file);
+			return true;
+		}), statistics);
+		cut.setDebounce(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		if (jobThread != null) {
+			jobThread.interrupt();
+			jobThread.join(JOIN_TIMEOUT_MILLIS);
+		}
+	}
+
+	private void startAndAwaitReconciliation() {
+		jobThread = new Thread(cut);
+		jobThread.start();
+
+		await().until(() -> handled.contains(initialImage), is(true));
+	}
+
+	private long countHandled(Path file) {
+		return handled.stream().filter(file::equals).count();
+	}
+
+	@Test
+	public void testExistingFileHandledOnStart() throws Exception {
+		startAndAwaitReconciliation();
+
+		assertThat(handled, hasItem(initialImage));
+	}
+
+	@Test
+	public void testCreatedFileIsHandled() throws Exception {
+		startAndAwaitReconciliation();
+
+		Path created = Files.createFile(root.resolve("created.jpg"));
+
+		await().until(() -> handled.contains(created), is(true));
+	}
+
+	@Test
+	public void testFileInNewDirectoryIsHandled() throws Exception {
+		startAndAwaitReconciliation();
+
+		Path directory = Files.createDirectories(root.resolve("new").resolve("sub"));
+		Path created = Files.createFile(directory.resolve("created.jpg"));
+
+		await().until(() -> handled.contains(created), is(true));
+	}
+
+	@Test
+	public void testNotAcceptedFileIsIgnored() throws Exception {
+		startAndAwaitReconciliation();
+
+		Files.createFile(root.resolve("ignored.txt"));
+		Path created = Files.createFile(root.resolve("created.jpg"));
+
+		await().until(() -> handled.contains(created), is(true));
+		assertThat(handled.size(), is(2));
+	}
+
+	@Test
+	public void testRepeatedWritesAreDebounced() throws Exception {
+		cut.setDebounce(DEBOUNCE_MILLIS * 5, TimeUnit.MILLISECONDS);
+		startAndAwaitReconciliation();
+
+		Path written = root.resolve("written.jpg");
+
+		for (int i = 0; i < 3; i++) {
+			Files.write(written, new byte[] { (byte) i });
+		}
+
+		Path marker = Files.createFile(root.resolve("marker.jpg"));
+		await().until(() -> handled.contains(marker), is(true));
+
+		assertThat(countHandled(written), is(1L));
+	}
+
+	@Test
+	public void testFoundFilesStatistics() throws Exception {
+		startAndAwaitReconciliation();
+
+		Files.createFile(root.resolve("created.jpg"));
+
+		await().until(statistics::getFoundFiles, is(2));
+	}
+
+	@Test
+	public void testDeletedFileIsRemovedFromRepository() throws Exception {
+		Path deleted = Files.createFile(root.resolve("deleted.jpg"));
+		ImageRecord record = new ImageRecord(deleted.toString(), 0);
+		lenient().when(imageRepository.getByPath(any())).thenAnswer(
+				invocation -> deleted.equals(invocation.getArgument(0)) && Files.notExists(deleted) ? record : null);
+		cut.setImageRepository(imageRepository);
+		startAndAwaitReconciliation();
+
+		Files.delete(deleted);
+
+		verify(imageRepository, timeout(VERIFY_TIMEOUT_MILLIS)).remove(record);
+	}
+
+	private void modifyIndexedFile(ImageRecord record) throws Exception {
+		Path modified = root.getFileSystem().getPath(record.getPath());
+		lenient().when(imageRepository.getByPath(modified)).thenReturn(record);
+		cut.setImageRepository(imageRepository);
+		cut.setHashAttribute(hashAttribute);
+		startAndAwaitReconciliation();
+		await().until(() -> handled.contains(modified), is(true));
+
+		Files.write(modified, new byte[] { 1 });
+
+		Path marker = Files.createFile(root.resolve("marker.jpg"));
+		await().until(() -> handled.contains(marker), is(true));
+	}
+
+	@Test
+	public void testValidHashAttributeSkipsModifiedFile() throws Exception {
+		Path modified = Files.createFile(root.resolve("modified.jpg"));
+		ImageRecord record = new ImageRecord(modified.toString(), RECORD_HASH);
+		lenient().when(hashAttribute.readHash(modified)).thenReturn(RECORD_HASH);
+
+		modifyIndexedFile(record);
+
+		assertThat(countHandled(modified), is(1L));
+		verify(imageRepository, never()).remove(record);
+	}
+
+	@Test
+	public void testInvalidHashAttributeHandlesModifiedFile() throws Exception {
+		Path modified = Files.createFile(root.resolve("modified.jpg"));
+		ImageRecord record = new ImageRecord(modified.toString(), RECORD_HASH);
+		lenient().when(hashAttribute.readHash(modified)).thenThrow(new InvalidAttributeValueException("Testing"));
+
+		modifyIndexedFile(record);
+
+		assertThat(countHandled(modified), is(2L));
+		verify(imageRepository).remove(record);
+	}
+
+	@Test
+	public void testInterruptStopsJob() throws Exception {
+		startAndAwaitReconciliation();
+
+		jobThread.interrupt();
+		jobThread.join(JOIN_TIMEOUT_MILLIS);
+
+		assertThat(jobThread.isAlive(), is(false));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNoRoots() throws Exception {
+		new LiveIndexJob(Collections.emptyList(), JPG_FILTER, Collections.emptyList(), statistics);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeDebounce() throws Exception {
+		cut.setDebounce(-1, TimeUnit.MILLISECONDS);
+	}
+}
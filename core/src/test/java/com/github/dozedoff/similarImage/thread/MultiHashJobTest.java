@@ -0,0 +1,182 @@
+/*  Copyright (C) 2016  Nicholas Wright
+    
+    This file is part of similarImage - A similar image finder using pHash
+    
+    similarImage is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.similarImage.thread;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.awt.image.BufferedImage;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.imageio.ImageIO;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.mockito.quality.Strictness;
+
+import com.github.dozedoff.commonj.hash.ImagePHash;
+import com.github.dozedoff.similarImage.db.ImageHashRecord;
+import com.github.dozedoff.similarImage.db.ImageRecord;
+import com.github.dozedoff.similarImage.db.repository.ImageHashRepository;
+import com.github.dozedoff.similarImage.db.repository.ImageRepository;
+import com.github.dozedoff.similarImage.db.repository.RepositoryException;
+import com.github.dozedoff.similarImage.handler.HashNames;
+import com.github.dozedoff.similarImage.image.AverageHash;
+import com.github.dozedoff.similarImage.image.DctHash;
+import com.github.dozedoff.similarImage.image.FusedImagePHash;
+import com.github.dozedoff.similarImage.image.MultiHasher;
+import com.github.dozedoff.similarImage.image.SubsamplingImageDecoder;
+import com.github.dozedoff.similarImage.io.HashAttribute;
+import com.github.dozedoff.similarImage.io.Statistics;
+
+public class MultiHashJobTest {
+	public @Rule MockitoRule mockito = MockitoJUnit.rule().strictness(Strictness.STRICT_STUBS);
+
+	@Mock
+	private ImageRepository imageRepository;
+
+	@Mock
+	private ImageHashRepository imageHashRepository;
+
+	@Mock
+	private Statistics statistics;
+
+	@Mock
+	private HashAttribute dctAttribute;
+
+	@Mock
+	private HashAttribute averageAttribute;
+
+	private static Path testImage;
+
+	private long expectedDctHash;
+	private long expectedAverageHash;
+
+	private MultiHashJob cut;
+
+	@BeforeClass
+	public static void setUpClass() throws Exception {
+		testImage = Paths.get(Thread.currentThread().getContextClassLoader().getResource("testImage.jpg").toURI());
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		MultiHasher hasher = new MultiHasher(new DctHash(), new AverageHash());
+
+		try (InputStream is = Files.newInputStream(testImage)) {
+			BufferedImage image = ImageIO.read(is);
+			expectedDctHash = new FusedImagePHash().getLongHash(image);
+			expectedAverageHash = new AverageHash().hash(image);
+		}
+
+		cut = new MultiHashJob(testImage, hasher, imageRepository, imageHashRepository, statistics);
+	}
+
+	@Test
+	public void testDefaultHashStoredAsImageRecord() throws Exception {
+		cut.run();
+
+		verify(imageRepository).store(new ImageRecord(testImage.toString(), expectedDctHash));
+	}
+
+	@Test
+	public void testHashIdenticalToSingleHasher() throws Exception {
+		long expected;
+
+		try (InputStream is = Files.newInputStream(testImage)) {
+			expected = new ImagePHash().getLongHash(is);
+		}
+
+		cut.run();
+
+		verify(imageRepository).store(new ImageRecord(testImage.toString(), expected));
+	}
+
+	@Test
+	public void testSubsampledDecode() throws Exception {
+		SubsamplingImageDecoder decoder = new SubsamplingImageDecoder();
+		long subsampledHash;
+
+		try (InputStream is = Files.newInputStream(testImage)) {
+			subsampledHash = new FusedImagePHash().getLongHash(decoder.decode(is));
+		}
+
+		cut.setImageDecoder(decoder);
+		cut.run();
+
+		verify(imageRepository).store(new ImageRecord(testImage.toString(), subsampledHash));
+	}
+
+	@Test
+	public void testOtherHashesStoredAsImageHashRecord() throws Exception {
+		cut.run();
+
+		verify(imageHashRepository)
+				.store(new ImageHashRecord(testImage.toString(), HashNames.AVERAGE_HASH, expectedAverageHash));
+	}
+
+	@Test
+	public void testWriteExtendedAttributes() throws Exception {
+		Map<String, HashAttribute> attributes = new HashMap<>();
+		attributes.put(HashNames.DEFAULT_DCT_HASH_2, dctAttribute);
+		attributes.put(HashNames.AVERAGE_HASH, averageAttribute);
+		cut.setHashAttributes(attributes);
+
+		cut.run();
+
+		verify(dctAttribute).writeHash(testImage, expectedDctHash);
+		verify(averageAttribute).writeHash(testImage, expectedAverageHash);
+	}
+
+	@Test
+	public void testDoNotWriteExtendedAttributesOnRepositoryError() throws Exception {
+		Mockito.doThrow(RepositoryException.class).when(imageRepository).store(any(ImageRecord.class));
+		Map<String, HashAttribute> attributes = new HashMap<>();
+		attributes.put(HashNames.DEFAULT_DCT_HASH_2, dctAttribute);
+		cut.setHashAttributes(attributes);
+
+		cut.run();
+
+		verify(dctAttribute, never()).writeHash(eq(testImage), anyLong());
+		verify(statistics).incrementFailedFiles();
+	}
+
+	@Test
+	public void testMissingFile() throws Exception {
+		cut = new MultiHashJob(Paths.get("does-not-exist.jpg"), new MultiHasher(new AverageHash()), imageRepository,
+				imageHashRepository, statistics);
+
+		cut.run();
+
+		verify(statistics).incrementFailedFiles();
+	}
+}
@@ -0,0 +1,222 @@
+/*  Copyright (C) 2016  Nicholas Wright
+    
+    This file is part of similarImage - A similar image finder using pHash
+    
+    similarImage is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.similarImage.thread;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.IOException;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.jimfs.Jimfs;
+
+public class ParallelDirectoryWalkerTest {
+	private static final int DIRECTORY_COUNT = 5;
+	private static final int DIRECTORY_DEPTH = 3;
+	private static final int FILES_PER_DIRECTORY = 7;
+	private static final int BATCH_SIZE = 4;
+
+	private FileSystem fs;
+	private Path root;
+	private ParallelDirectoryWalker cut;
+
+	@Before
+	public void setUp() throws Exception {
+		fs = Jimfs.newFileSystem();
+		root = fs.getPath("root");
+		createTree(root, DIRECTORY_DEPTH);
+
+		cut = new ParallelDirectoryWalker(3, BATCH_SIZE);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		fs.close();
+	}
+
+	private static void createTree(Path directory, int depth) throws IOException {
+		Files.createDirectories(directory);
+
+		for (int i = 0; i < FILES_PER_DIRECTORY; i++) {
+			Files.createFile(directory.resolve("file" + i + ".jpg"));
+		}
+
+		if (depth == 0) {
+			return;
+		}
+
+		for (int i = 0; i < DIRECTORY_COUNT; i++) {
+			createTree(directory.resolve("dir" + i), depth - 1);
+		}
+	}
+
+	private static Set<Path> walkSequential(Path start) throws IOException {
+		try (Stream<Path> stream = Files.walk(start)) {
+			return stream.collect(Collectors.toSet());
+		}
+	}
+
+	private List<Path> walkParallel(Path start) throws Exception {
+		List<Path> found = new LinkedList<>();
+		cut.walk(start, found::addAll);
+		return found;
+	}
+
+	@Test
+	public void testFindsSamePathsAsFilesWalk() throws Exception {
+		assertThat(new HashSet<>(walkParallel(root)), is(walkSequential(root)));
+	}
+
+	@Test
+	public void testNoDuplicatePaths() throws Exception {
+		List<Path> found = walkParallel(root);
+
+		assertThat(found.size(), is(walkSequential(root).size()));
+	}
+
+	@Test
+	public void testSingleThread() throws Exception {
+		cut = new ParallelDirectoryWalker(1, 1);
+
+		assertThat(new HashSet<>(walkParallel(root)), is(walkSequential(root)));
+	}
+
+	@Test
+	public void testBatchSizeLimit() throws Exception {
+		AtomicBoolean oversized = new AtomicBoolean();
+
+		cut.walk(root, batch -> oversized.compareAndSet(false, batch.size() > BATCH_SIZE));
+
+		assertThat(oversized.get(), is(false));
+	}
+
+	@Test
+	public void testHandlerRunsOnCallingThread() throws Exception {
+		Thread caller = Thread.currentThread();
+		AtomicBoolean otherThread = new AtomicBoolean();
+
+		cut.walk(root, batch -> otherThread.compareAndSet(false, Thread.currentThread() != caller));
+
+		assertThat(otherThread.get(), is(false));
+	}
+
+	@Test
+	public void testRejectedDirectoryIsNotListed() throws Exception {
+		Path rejected = root.resolve("dir1");
+		List<Path> found = new LinkedList<>();
+
+		cut.walk(root, directory -> !directory.equals(rejected), found::addAll);
+
+		Set<Path> expected = walkSequential(root).stream()
+				.filter(path -> path.equals(rejected) || !path.startsWith(rejected)).collect(Collectors.toSet());
+		assertThat(new HashSet<>(found), is(expected));
+	}
+
+	@Test
+	public void testFilterOnlyChecksDirectories() throws Exception {
+		AtomicBoolean checkedFile = new AtomicBoolean();
+
+		cut.walk(root, directory -> {
+			checkedFile.compareAndSet(false, !Files.isDirectory(directory));
+			return true;
+		}, batch -> {
+		});
+
+		assertThat(checkedFile.get(), is(false));
+	}
+
+	@Test
+	public void testRejectedStartIsNotListed() throws Exception {
+		List<Path> found = new LinkedList<>();
+
+		cut.walk(root, directory -> false, found::addAll);
+
+		assertThat(found, is(Collections.singletonList(root)));
+	}
+
+	@Test
+	public void testStartIsFile() throws Exception {
+		Path file = root.resolve("file0.jpg");
+
+		assertThat(walkParallel(file), is(walkSequential(file).stream().collect(Collectors.toList())));
+	}
+
+	@Test
+	public void testEmptyDirectory() throws Exception {
+		Path empty = Files.createDirectory(fs.getPath("empty"));
+
+		assertThat(new HashSet<>(walkParallel(empty)), is(walkSequential(empty)));
+	}
+
+	@Test(expected = IOException.class)
+	public void testMissingStart() throws Exception {
+		walkParallel(fs.getPath("missing"));
+	}
+
+	@Test(expected = IOException.class)
+	public void testHandlerExceptionStopsWalk() throws Exception {
+		cut.walk(root, batch -> {
+			throw new IOException("Testing");
+		});
+	}
+
+	@Test(expected = InterruptedException.class)
+	public void testInterrupted() throws Exception {
+		cut.walk(root, batch -> Thread.currentThread().interrupt());
+	}
+
+	@Test
+	public void testInterruptClearsFlag() throws Exception {
+		try {
+			cut.walk(root, batch -> Thread.currentThread().interrupt());
+		} catch (InterruptedException e) {
+			// expected
+		}
+
+		assertThat(Thread.currentThread().isInterrupted(), is(false));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidParallelism() throws Exception {
+		new ParallelDirectoryWalker(0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidBatchSize() throws Exception {
+		new ParallelDirectoryWalker(1, 0);
+	}
+
+	@Test
+	public void testGetParallelism() throws Exception {
+		assertThat(new ParallelDirectoryWalker().getParallelism(), is(ParallelDirectoryWalker.DEFAULT_PARALLELISM));
+	}
+}
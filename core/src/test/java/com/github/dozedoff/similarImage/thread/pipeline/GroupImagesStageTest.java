@@ -20,6 +20,7 @@ package com.github.dozedoff.similarImage.thread.pipeline;
 import static org.hamcrest.CoreMatchers.hasItem;
 import static org.hamcrest.CoreMatchers.hasItems;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.MatcherAssert.assertThat;
 
@@ -30,6 +31,9 @@ import org.junit.Before;
 import org.junit.Test;
 
 import com.github.dozedoff.similarImage.db.ImageRecord;
+import com.github.dozedoff.similarImage.duplicate.HammingIndexType;
+import com.github.dozedoff.similarImage.duplicate.WideHash;
+import com.google.common.collect.Multimap;
 
 public class GroupImagesStageTest {
 	private static final long HASH_A = 0;
@@ -76,6 +80,13 @@ public class GroupImagesStageTest {
 		assertThat(cut.apply(images).get(HASH_B), hasItems(imageA, imageB));
 	}
 
+	@Test
+	public void testHammingDistanceMultiIndex() throws Exception {
+		cut = new GroupImagesStage(1, false, HammingIndexType.MULTI_INDEX);
+
+		assertThat(cut.apply(images).get(HASH_B), hasItems(imageA, imageB));
+	}
+
 	@Test
 	public void testGetHammingDistance() throws Exception {
 		cut = new GroupImagesStage(DISTANCE);
@@ -87,4 +98,74 @@ public class GroupImagesStageTest {
 	public void testDefaultDistance() throws Exception {
 		assertThat(cut.getHammingDistance(), is(0));
 	}
+
+	@Test
+	public void testWideHashSeparatesCloseNarrowHash() throws Exception {
+		ImageRecord wideA = new ImageRecord("wideA", HASH_A, new WideHash(0, 0));
+		ImageRecord wideB = new ImageRecord("wideB", HASH_B, new WideHash(-1L, -1L));
+		cut = new GroupImagesStage(1, true);
+
+		assertThat(cut.apply(Arrays.asList(wideA, wideB)).get(HASH_A), hasSize(1));
+	}
+
+	@Test
+	public void testWideHashDistance() throws Exception {
+		ImageRecord wideA = new ImageRecord("wideA", HASH_A, new WideHash(0, 0));
+		ImageRecord wideB = new ImageRecord("wideB", HASH_B, new WideHash(0, 1));
+		cut = new GroupImagesStage(1, true);
+
+		assertThat(cut.apply(Arrays.asList(wideA, wideB)).get(HASH_A), hasItems(wideA, wideB));
+	}
+
+	@Test
+	public void testWideHashDistanceIsScaled() throws Exception {
+		ImageRecord wideA = new ImageRecord("wideA", HASH_A, new WideHash(0, 0));
+		ImageRecord wideB = new ImageRecord("wideB", HASH_B, new WideHash(0, 3));
+		cut = new GroupImagesStage(1, true);
+
+		assertThat(cut.apply(Arrays.asList(wideA, wideB)).get(HASH_A), hasItems(wideA, wideB));
+	}
+
+	@Test
+	public void testWideHashOutsideScaledDistance() throws Exception {
+		ImageRecord wideA = new ImageRecord("wideA", HASH_A, new WideHash(0, 0));
+		ImageRecord wideB = new ImageRecord("wideB", HASH_B, new WideHash(0, 7));
+		cut = new GroupImagesStage(1, true);
+
+		assertThat(cut.apply(Arrays.asList(wideA, wideB)).get(HASH_A), hasSize(1));
+	}
+
+	@Test
+	public void testSameWideHashInSeveralGroups() throws Exception {
+		ImageRecord wideA = new ImageRecord("wideA", HASH_A, new WideHash(0, 0));
+		ImageRecord wideB = new ImageRecord("wideB", HASH_B, new WideHash(0, 0));
+		ImageRecord wideC = new ImageRecord("wideC", HASH_B, new WideHash(0, 0));
+		cut = new GroupImagesStage(0, true);
+
+		Multimap<Long, ImageRecord> groups = cut.apply(Arrays.asList(wideA, wideB, wideC));
+
+		assertThat(groups.get(HASH_A), containsInAnyOrder(wideA, wideB, wideC));
+		assertThat(groups.get(HASH_B), containsInAnyOrder(wideA, wideB, wideC));
+	}
+
+	@Test
+	public void testWideHashIgnoredByDefault() throws Exception {
+		ImageRecord wideA = new ImageRecord("wideA", HASH_A, new WideHash(0, 0));
+		ImageRecord wideB = new ImageRecord("wideB", HASH_B, new WideHash(-1L, -1L));
+		cut = new GroupImagesStage(1);
+
+		assertThat(cut.apply(Arrays.asList(wideA, wideB)).get(HASH_A), hasSize(2));
+	}
+
+	@Test
+	public void testRecordWithoutWideHashUsesNarrowHash() throws Exception {
+		cut = new GroupImagesStage(1, true);
+
+		assertThat(cut.apply(images).get(HASH_B), hasItems(imageA, imageB));
+	}
+
+	@Test
+	public void testIsUsingWideHash() throws Exception {
+		assertThat(new GroupImagesStage(1, true).isUsingWideHash(), is(true));
+	}
 }
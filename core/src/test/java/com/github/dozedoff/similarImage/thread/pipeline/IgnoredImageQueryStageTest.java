@@ -24,18 +24,22 @@ import org.mockito.quality.Strictness;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
-import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.emptyIterable;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.stream.Stream;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 
+import com.github.dozedoff.similarImage.db.ImageRecord;
 import com.github.dozedoff.similarImage.db.repository.ImageRepository;
 import com.github.dozedoff.similarImage.db.repository.RepositoryException;
 
@@ -56,29 +60,44 @@ public class IgnoredImageQueryStageTest {
 	
 	@Test
 	public void testQueryForNull() throws Exception {
-		cut.apply(null);
+		cut.apply(null).iterator();
 
-		verify(imageRepository).getAllWithoutIgnored();
+		verify(imageRepository).streamWithoutIgnored(null);
 	}
 
 	@Test
 	public void testQueryForEmpty() throws Exception {
-		cut.apply(Paths.get(""));
+		cut.apply(Paths.get("")).iterator();
 
-		verify(imageRepository).getAllWithoutIgnored();
+		verify(imageRepository).streamWithoutIgnored(null);
 	}
 
 	@Test
 	public void testQueryForPath() throws Exception {
-		cut.apply(PATH);
+		cut.apply(PATH).iterator();
 
-		verify(imageRepository).getAllWithoutIgnored(PATH);
+		verify(imageRepository).streamWithoutIgnored(PATH);
 	}
 
 	@Test
 	public void testRepositoryError() throws Exception {
-		when(imageRepository.getAllWithoutIgnored()).thenThrow(new RepositoryException(""));
+		when(imageRepository.streamWithoutIgnored(null)).thenThrow(new RepositoryException(""));
+
+		assertThat(cut.apply(null), is(emptyIterable()));
+	}
+
+	@Test
+	public void testQueryIsLazy() throws Exception {
+		cut.apply(PATH);
+
+		verifyNoInteractions(imageRepository);
+	}
+
+	@Test
+	public void testRecordsStreamed() throws Exception {
+		ImageRecord image = new ImageRecord(PATH.toString(), 0);
+		when(imageRepository.streamWithoutIgnored(PATH)).thenReturn(Stream.of(image));
 
-		assertThat(cut.apply(null), is(empty()));
+		assertThat(cut.apply(PATH), contains(image));
 	}
 }
@@ -36,6 +36,7 @@ import org.mockito.Mock;
 import com.github.dozedoff.similarImage.db.Tag;
 import com.github.dozedoff.similarImage.db.repository.FilterRepository;
 import com.github.dozedoff.similarImage.db.repository.ImageRepository;
+import com.github.dozedoff.similarImage.duplicate.HammingIndexType;
 
 public class ImageQueryPipelineBuilderTest {
 	public @Rule MockitoRule mockito = MockitoJUnit.rule().strictness(Strictness.STRICT_STUBS);
@@ -62,14 +63,14 @@ public class ImageQueryPipelineBuilderTest {
 	public void testImagesWithIgnore() throws Exception {
 		cut.build().apply(null);
 
-		verify(imageRepository).getAll();
+		verify(imageRepository).stream(null);
 	}
 
 	@Test
 	public void testImagesLimitedByScopeWithIgnore() throws Exception {
 		cut.excludeIgnored().build().apply(null);
 
-		verify(imageRepository).getAllWithoutIgnored();
+		verify(imageRepository).streamWithoutIgnored(null);
 	}
 
 	@Test
@@ -103,6 +104,38 @@ public class ImageQueryPipelineBuilderTest {
 		assertThat(grouper.getHammingDistance(), is(DISTANCE));
 	}
 
+	@Test
+	public void testSearchIndexSet() throws Exception {
+		ImageQueryPipeline pipeline = cut.searchIndex(HammingIndexType.MULTI_INDEX).groupAll().build();
+		GroupImagesStage grouper = (GroupImagesStage) pipeline.getImageGrouper();
+
+		assertThat(grouper.getIndexType(), is(HammingIndexType.MULTI_INDEX));
+	}
+
+	@Test
+	public void testWideHashSet() throws Exception {
+		ImageQueryPipeline pipeline = cut.wideHash(true).groupAll().build();
+		GroupImagesStage grouper = (GroupImagesStage) pipeline.getImageGrouper();
+
+		assertThat(grouper.isUsingWideHash(), is(true));
+	}
+
+	@Test
+	public void testWideHashNotSet() throws Exception {
+		ImageQueryPipeline pipeline = cut.wideHash(false).groupAll().build();
+		GroupImagesStage grouper = (GroupImagesStage) pipeline.getImageGrouper();
+
+		assertThat(grouper.isUsingWideHash(), is(false));
+	}
+
+	@Test
+	public void testSearchIndexSetForTagGrouper() throws Exception {
+		ImageQueryPipeline pipeline = cut.searchIndex(HammingIndexType.MULTI_INDEX).groupByTag(new Tag("")).build();
+		GroupByTagStage grouper = (GroupByTagStage) pipeline.getImageGrouper();
+
+		assertThat(grouper.getIndexType(), is(HammingIndexType.MULTI_INDEX));
+	}
+
 	@Test
 	public void testGroupByTagGrouper() throws Exception {
 		ImageQueryPipeline pipeline = cut.groupByTag(new Tag("")).build();
@@ -121,13 +154,13 @@ public class ImageQueryPipelineBuilderTest {
 	public void testExcludeIgnoredBooleanSetToFalse() throws Exception {
 		cut.excludeIgnored(false).build().apply(null);
 
-		verify(imageRepository).getAll();
+		verify(imageRepository).stream(null);
 	}
 
 	@Test
 	public void testExcludeIgnoredBooleanSetToTrue() throws Exception {
 		cut.excludeIgnored(true).build().apply(null);
 
-		verify(imageRepository).getAllWithoutIgnored();
+		verify(imageRepository).streamWithoutIgnored(null);
 	}
 }
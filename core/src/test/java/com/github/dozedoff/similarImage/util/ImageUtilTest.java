@@ -30,6 +30,10 @@ import javax.imageio.ImageIO;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.codahale.metrics.MetricRegistry;
+import com.github.dozedoff.similarImage.image.ImageDecodeService;
+import com.github.dozedoff.similarImage.image.SubsamplingImageDecoder;
+
 public class ImageUtilTest {
 	private static final int IMAGE_SIZE = 40;
 
@@ -37,6 +41,7 @@ public class ImageUtilTest {
 	private BufferedImage gifImage;
 	private Path jpgPath;
 	private Path gifPath;
+	private MetricRegistry metrics;
 
 	@Before
 	public void setUp() throws Exception {
@@ -45,6 +50,11 @@ public class ImageUtilTest {
 
 		jpgImage = ImageIO.read(Files.newInputStream(jpgPath));
 		gifImage = ImageIO.read(Files.newInputStream(gifPath));
+		metrics = new MetricRegistry();
+	}
+
+	private SubsamplingImageDecoder createDecoder(int minimumSize) {
+		return new SubsamplingImageDecoder(minimumSize, false, metrics, ImageDecodeService.getDefault());
 	}
 
 	@Test
@@ -83,4 +93,36 @@ public class ImageUtilTest {
 		assertThat(image.getHeight(), is(IMAGE_SIZE));
 		assertThat(image.getWidth(), is(IMAGE_SIZE));
 	}
+
+	@Test
+	public void testLoadImageSubsampled() throws Exception {
+		BufferedImage image = ImageUtil.loadImage(jpgPath, createDecoder(IMAGE_SIZE / 2));
+
+		assertThat(image.getHeight(), is(IMAGE_SIZE / 2));
+		assertThat(image.getWidth(), is(IMAGE_SIZE / 2));
+	}
+
+	@Test
+	public void testLoadImageSubsampledRepeated() throws Exception {
+		SubsamplingImageDecoder decoder = createDecoder(IMAGE_SIZE / 2);
+
+		ImageUtil.loadImage(jpgPath, decoder);
+		BufferedImage image = ImageUtil.loadImage(jpgPath, decoder);
+
+		assertThat(image.getHeight(), is(IMAGE_SIZE / 2));
+	}
+
+	@Test
+	public void testLoadImageSubsampledMetrics() throws Exception {
+		ImageUtil.loadImage(jpgPath, createDecoder(IMAGE_SIZE / 2));
+
+		assertThat(metrics.meter(SubsamplingImageDecoder.METRIC_NAME_SUBSAMPLED).getCount(), is(1L));
+	}
+
+	@Test
+	public void testLoadImageLargerMinimumSize() throws Exception {
+		BufferedImage image = ImageUtil.loadImage(jpgPath, createDecoder(IMAGE_SIZE * 2));
+
+		assertThat(image.getHeight(), is(IMAGE_SIZE));
+	}
 }
@@ -0,0 +1,147 @@
+/*  Copyright (C) 2016  Nicholas Wright
+    
+    This file is part of similarImage - A similar image finder using pHash
+    
+    similarImage is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.dozedoff.similarImage.util;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class PrefixCompressedPathSetTest {
+	private static final int NUMBER_OF_PATHS = 1000;
+
+	private List<String> paths;
+	private PrefixCompressedPathSet cut;
+
+	@Before
+	public void setUp() throws Exception {
+		paths = new ArrayList<>();
+
+		for (int i = 0; i < NUMBER_OF_PATHS; i++) {
+			paths.add("/data/images/" + (i % 7) + "/image" + i + ".jpg");
+		}
+
+		cut = PrefixCompressedPathSet.of(paths);
+	}
+
+	@Test
+	public void testContainsAllPaths() throws Exception {
+		for (String path : paths) {
+			assertThat(path, cut.contains(path), is(true));
+		}
+	}
+
+	@Test
+	public void testGetReturnsIndexedPath() throws Exception {
+		for (String path : paths) {
+			assertThat(path, cut.get(cut.indexOf(path)), is(path));
+		}
+	}
+
+	@Test
+	public void testIndexOfUnknownPath() throws Exception {
+		assertThat(cut.indexOf("/data/images/1/image1000.jpg"), is(-1));
+	}
+
+	@Test
+	public void testIndexOfIsAscending() throws Exception {
+		cut = PrefixCompressedPathSet.of(Arrays.asList("c", "a", "b"));
+
+		assertThat(cut.indexOf("a"), is(0));
+		assertThat(cut.indexOf("c"), is(2));
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testGetOutOfBounds() throws Exception {
+		cut.get(NUMBER_OF_PATHS);
+	}
+
+	@Test
+	public void testDoesNotContainUnknownPath() throws Exception {
+		assertThat(cut.contains("/data/images/1/image1000.jpg"), is(false));
+	}
+
+	@Test
+	public void testDoesNotContainPrefix() throws Exception {
+		assertThat(cut.contains("/data/images/1/image1"), is(false));
+	}
+
+	@Test
+	public void testDoesNotContainPathBeforeFirst() throws Exception {
+		assertThat(cut.contains("/"), is(false));
+	}
+
+	@Test
+	public void testDoesNotContainPathAfterLast() throws Exception {
+		assertThat(cut.contains("/data/images/9"), is(false));
+	}
+
+	@Test
+	public void testSize() throws Exception {
+		assertThat(cut.size(), is(NUMBER_OF_PATHS));
+	}
+
+	@Test
+	public void testDuplicatesAreIgnored() throws Exception {
+		assertThat(PrefixCompressedPathSet.of(Arrays.asList("a", "a", "b")).size(), is(2));
+	}
+
+	@Test
+	public void testEmptySet() throws Exception {
+		assertThat(PrefixCompressedPathSet.of(Collections.emptyList()).contains("a"), is(false));
+	}
+
+	@Test
+	public void testNonAsciiPaths() throws Exception {
+		cut = PrefixCompressedPathSet.of(Arrays.asList("/b/\u00e9.jpg", "/b/\ud83d\ude00.jpg", "/b/\uffff.jpg"));
+
+		assertThat(cut.contains("/b/\ud83d\ude00.jpg"), is(true));
+		assertThat(cut.contains("/b/\u00e9.jpg"), is(true));
+	}
+
+	@Test
+	public void testEncodedSizeIsCompressed() throws Exception {
+		int rawSize = 0;
+
+		for (String path : paths) {
+			rawSize += path.getBytes(StandardCharsets.UTF_8).length;
+		}
+
+		assertThat(cut.encodedSize(), is(lessThan(rawSize / 2)));
+	}
+
+	@Test
+	public void testBuilderInOrder() throws Exception {
+		cut = PrefixCompressedPathSet.builder().add("a").add("ab").add("b").build();
+
+		assertThat(cut.contains("ab"), is(true));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testBuilderOutOfOrder() throws Exception {
+		PrefixCompressedPathSet.builder().add("b").add("a");
+	}
+}
@@ -17,10 +17,15 @@
  */
 package com.github.dozedoff.similarImage.component;
 
+import javax.inject.Named;
+
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.Slf4jReporter;
+import com.github.dozedoff.similarImage.app.MainSetting;
+import com.github.dozedoff.similarImage.db.repository.DirectoryRepository;
 import com.github.dozedoff.similarImage.db.repository.FilterRepository;
 import com.github.dozedoff.similarImage.db.repository.IgnoreRepository;
+import com.github.dozedoff.similarImage.db.repository.ImageHashRepository;
 import com.github.dozedoff.similarImage.db.repository.ImageRepository;
 import com.github.dozedoff.similarImage.db.repository.TagRepository;
 import com.github.dozedoff.similarImage.io.Statistics;
@@ -35,12 +40,13 @@ import com.github.dozedoff.similarImage.module.ArtemisModule;
 import com.github.dozedoff.similarImage.module.NodeModule;
 import com.github.dozedoff.similarImage.module.RepositoryNodeModule;
 import com.github.dozedoff.similarImage.module.StatisticsModule;
+import com.github.dozedoff.similarImage.thread.BoundedExecutor;
 
 import dagger.Component;
 
 @MainScope
 @Component(modules = { ArtemisModule.class, StatisticsModule.class, RepositoryNodeModule.class,
-		NodeModule.class }, dependencies = PersistenceComponent.class)
+		NodeModule.class }, dependencies = { PersistenceComponent.class, SettingComponent.class })
 public interface MessagingComponent {
 	ArtemisSession getSessionModule();
 
@@ -56,6 +62,11 @@ public interface MessagingComponent {
 
 	Slf4jReporter getSlf4jReporter();
 
+	@Named("hashProducer")
+	BoundedExecutor getHashProducerExecutor();
+
+	MainSetting getMainSetting();
+
 	// TODO remove methods below, temporary for refactoring
 
 	MetricRegistry getMetricRegistry();
@@ -66,10 +77,17 @@ public interface MessagingComponent {
 
 	ImageRepository getImageRepository();
 
+	@Named("writeBehind")
+	ImageRepository getWriteBehindImageRepository();
+
 	FilterRepository getfilFilterRepository();
 
 	TagRepository gettaTagRepository();
 
 	IgnoreRepository getIgnoreRepository();
 
+	DirectoryRepository getDirectoryRepository();
+
+	ImageHashRepository getImageHashRepository();
+
 }
@@ -18,14 +18,17 @@
 package com.github.dozedoff.similarImage.handler;
 
 import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.github.dozedoff.similarImage.messaging.StorageNode;
+import com.github.dozedoff.similarImage.thread.BoundedExecutor;
 
 /**
- * Creates Messages from the files and sends them to the queue.
+ * Creates Messages from the files and sends them to the queue. Files are read and sent on the given thread pool.
  * 
  * @author Nicholas Wright
  *
@@ -33,30 +36,42 @@ import com.github.dozedoff.similarImage.messaging.StorageNode;
 public class ArtemisHashProducer implements HashHandler {
 	private static final Logger LOGGER = LoggerFactory.getLogger(ArtemisHashProducer.class);
 	private final StorageNode storageNode;
+	private final ExecutorService threadPool;
 
 	/**
 	 * Create a new handler using the given {@link StorageNode}.
 	 * 
 	 * @param storageNode
 	 *            used for filesystem access
+	 * @param threadPool
+	 *            used to read and send files. Use a {@link BoundedExecutor} to block the caller if too many files are
+	 *            pending
 	 * 
 	 * @throws Exception
 	 *             if pending image query failed
 	 */
-	public ArtemisHashProducer(StorageNode storageNode) throws Exception {
+	public ArtemisHashProducer(StorageNode storageNode, ExecutorService threadPool) throws Exception {
 		this.storageNode = storageNode;
+		this.threadPool = threadPool;
 	}
 
 	/**
-	 * Read the file, create a message and send it.
+	 * Queue the file to be read, and a message to be created and sent.
 	 * 
 	 * @param file
 	 *            to read and send
-	 * @return true if the file was read and sent successfully
+	 * @return true if the file was queued, false if the thread pool rejected it
 	 */
 	@Override
 	public boolean handle(Path file) {
 		LOGGER.trace("Handling {} with {}", file, this.getClass().getSimpleName());
-		return storageNode.processFile(file);
+
+		try {
+			threadPool.execute(() -> storageNode.processFile(file));
+			return true;
+		} catch (RejectedExecutionException e) {
+			LOGGER.warn("Sending {} was rejected: {}", file, e.toString());
+			return false;
+		}
 	}
 }
@@ -22,8 +22,16 @@ import java.util.LinkedList;
 import java.util.List;
 
 import javax.inject.Inject;
+import javax.inject.Named;
 
+import com.codahale.metrics.MetricRegistry;
+import com.github.dozedoff.similarImage.app.MainSetting;
+import com.github.dozedoff.similarImage.db.repository.ImageHashRepository;
 import com.github.dozedoff.similarImage.db.repository.ImageRepository;
+import com.github.dozedoff.similarImage.image.MultiHasher;
+import com.github.dozedoff.similarImage.image.SubsamplingImageDecoder;
+import com.github.dozedoff.similarImage.image.WideDctHash;
+import com.github.dozedoff.similarImage.io.ContentDigestShortcut;
 import com.github.dozedoff.similarImage.io.ExtendedAttribute;
 import com.github.dozedoff.similarImage.io.ExtendedAttributeDirectoryCache;
 import com.github.dozedoff.similarImage.io.ExtendedAttributeQuery;
@@ -31,36 +39,80 @@ import com.github.dozedoff.similarImage.io.HashAttribute;
 import com.github.dozedoff.similarImage.io.Statistics;
 import com.github.dozedoff.similarImage.messaging.ArtemisSession;
 import com.github.dozedoff.similarImage.messaging.StorageNode;
+import com.github.dozedoff.similarImage.thread.BoundedExecutor;
 
 public class HandlerListFactory {
 	private final ImageRepository imageRepository;
 	private final Statistics statistics;
 	private final ArtemisSession session;
 	private final ExtendedAttributeQuery eaQuery;
+	private final MetricRegistry metrics;
+	private final BoundedExecutor hashProducerExecutor;
+	private final MainSetting settings;
+	private final ImageHashRepository imageHashRepository;
 
 	@Inject
-	public HandlerListFactory(ImageRepository imageRepository, Statistics statistics, ArtemisSession as, ExtendedAttributeQuery eaQuery) {
+	public HandlerListFactory(@Named("writeBehind") ImageRepository imageRepository, Statistics statistics,
+			ArtemisSession as, ExtendedAttributeQuery eaQuery, MetricRegistry metrics,
+			@Named("hashProducer") BoundedExecutor hashProducerExecutor, MainSetting settings,
+			ImageHashRepository imageHashRepository) {
 		this.imageRepository = imageRepository;
 		this.statistics = statistics;
 		this.session = as;
 		this.eaQuery = eaQuery;
+		this.metrics = metrics;
+		this.hashProducerExecutor = hashProducerExecutor;
+		this.settings = settings;
+		this.imageHashRepository = imageHashRepository;
 	}
 
+	/**
+	 * Create the handlers for indexing images. Images that are not in the database or have no extended attribute are
+	 * sent to the hashing nodes, or hashed locally with all hash families if {@link MainSetting#multiHash()} is set.
+	 * 
+	 * @param hashAttribute
+	 *            used to read and write the hash as extended attribute
+	 * @return the handlers, in the order they should be tried
+	 * @throws Exception
+	 *             if the hash producer could not be created
+	 */
 	public List<HashHandler> withExtendedAttributeSupport(HashAttribute hashAttribute) throws Exception {
 		List<HashHandler> handlers = new LinkedList<HashHandler>();
 
 		handlers.add(new DatabaseHandler(imageRepository, statistics));
 		handlers.add(new ExtendedAttributeHandler(hashAttribute, imageRepository, eaQuery));
 
+		if (settings.multiHash()) {
+			handlers.add(createMultiHashingHandler());
+			return handlers;
+		}
+
 		StorageNode sn = new StorageNode(session.getSession(), new ExtendedAttributeDirectoryCache(new ExtendedAttribute()),
 				new HashAttribute(HashNames.DEFAULT_DCT_HASH_2), Collections.emptyList());
+		sn.setDigestShortcut(new ContentDigestShortcut(imageRepository, metrics));
 
 		try {
-			handlers.add(new ArtemisHashProducer(sn));
+			handlers.add(new ArtemisHashProducer(sn, hashProducerExecutor));
 		} catch (Exception e) {
 			throw new RuntimeException("Failed to setup hash producer");
 		}
 
 		return handlers;
 	}
+
+	private MultiHashingHandler createMultiHashingHandler() {
+		MultiHashingHandler handler = new MultiHashingHandler(hashProducerExecutor, MultiHasher.allFamilies(),
+				imageRepository, imageHashRepository, statistics);
+
+		if (settings.subsampledDecode()) {
+			handler.setImageDecoder(
+					new SubsamplingImageDecoder(SubsamplingImageDecoder.MINIMUM_HASH_SIZE, true, metrics));
+		}
+
+		if (settings.wideHashBits() > 0) {
+			handler.setWideHasher(new WideDctHash(settings.wideHashBits()));
+		}
+
+		return handler;
+	}
 }
@@ -18,11 +18,10 @@
 package com.github.dozedoff.similarImage.messaging;
 
 import java.awt.image.BufferedImage;
+import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.UUID;
 
-import javax.imageio.ImageIO;
-
 import org.apache.activemq.artemis.api.core.ActiveMQException;
 import org.apache.activemq.artemis.api.core.client.ClientConsumer;
 import org.apache.activemq.artemis.api.core.client.ClientMessage;
@@ -37,7 +36,8 @@ import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.Timer;
 import com.codahale.metrics.Timer.Context;
 import com.github.dozedoff.commonj.hash.ImagePHash;
-import com.github.dozedoff.similarImage.io.ByteBufferInputstream;
+import com.github.dozedoff.similarImage.image.ImageDecodeService;
+import com.github.dozedoff.similarImage.image.WideDctHash;
 import com.github.dozedoff.similarImage.util.MessagingUtil;
 
 /**
@@ -55,8 +55,10 @@ public class HasherNode implements MessageHandler, Node {
 	private final ClientProducer producer;
 	private final ClientSession session;
 	private final ImagePHash hasher;
+	private final ImageDecodeService decodeService;
 	private ByteBuffer buffer;
 	private MessageFactory messageFactory;
+	private WideDctHash wideHasher;
 
 	private final UUID identity;
 
@@ -89,6 +91,7 @@ public class HasherNode implements MessageHandler, Node {
 	public HasherNode(ClientSession session, ImagePHash hasher, String requestAddress, String resultAddress,
 			MetricRegistry metrics) throws ActiveMQException {
 		this.hasher = hasher;
+		this.decodeService = new ImageDecodeService(metrics);
 		this.session = session;
 		this.consumer = session.createConsumer(requestAddress);
 		this.producer = session.createProducer(resultAddress);
@@ -115,6 +118,16 @@ public class HasherNode implements MessageHandler, Node {
 		this.messageFactory = messageFactory;
 	}
 
+	/**
+	 * Also calculate a wide hash for every image and send it with the result.
+	 * 
+	 * @param wideHasher
+	 *            to use, or null to disable wide hashes
+	 */
+	public void setWideHasher(WideDctHash wideHasher) {
+		this.wideHasher = wideHasher;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -163,8 +176,9 @@ public class HasherNode implements MessageHandler, Node {
 			message.getBodyBuffer().readBytes(buffer);
 			buffer.rewind();
 
-			long hash = doHash(ImageIO.read(new ByteBufferInputstream(buffer)));
-			ClientMessage response = messageFactory.resultMessage(hash, most, least);
+			BufferedImage image = decodeService.read(buffer);
+			long hash = doHash(image);
+			ClientMessage response = createResult(image, hash, most, least);
 			producer.send(response);
 
 			if (LOGGER.isTraceEnabled()) {
@@ -189,6 +203,14 @@ public class HasherNode implements MessageHandler, Node {
 		}
 	}
 
+	private ClientMessage createResult(BufferedImage image, long hash, long most, long least) throws IOException {
+		if (wideHasher == null) {
+			return messageFactory.resultMessage(hash, most, least);
+		}
+
+		return messageFactory.resultMessage(hash, wideHasher.hash(image), most, least);
+	}
+
 	private long doHash(BufferedImage image) throws Exception {
 		long hash = hasher.getLongHash(image);
 		return hash;
@@ -21,6 +21,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
 import java.nio.file.Path;
 import java.util.LinkedList;
 import java.util.List;
@@ -31,6 +32,7 @@ import org.apache.activemq.artemis.api.core.client.ClientMessage;
 import org.apache.activemq.artemis.api.core.client.ClientSession;
 
 import com.github.dozedoff.similarImage.db.PendingHashImage;
+import com.github.dozedoff.similarImage.duplicate.WideHash;
 
 /**
  * Used to create pre-configured messages.
@@ -124,6 +126,33 @@ public class MessageFactory {
 		return message;
 	}
 
+	/**
+	 * Create a new message for the hashing result, with a wide hash. The words of the wide hash are written after the
+	 * hash, preceded by their count.
+	 * 
+	 * @param hash
+	 *            that was calculated
+	 * @param wideHash
+	 *            that was calculated for the same image
+	 * @param most
+	 *            most significant bits of the {@link UUID}
+	 * @param least
+	 *            least significant bits of the {@link UUID}
+	 * @return configured message
+	 */
+	public ClientMessage resultMessage(long hash, WideHash wideHash, long most, long least) {
+		ClientMessage message = resultMessage(hash, most, least);
+		ActiveMQBuffer buffer = message.getBodyBuffer();
+
+		buffer.writeInt(wideHash.getWordCount());
+
+		for (int i = 0; i < wideHash.getWordCount(); i++) {
+			buffer.writeLong(wideHash.getWord(i));
+		}
+
+		return message;
+	}
+
 	/**
 	 * Create a new message for a corrupt image.
 	 * 
@@ -238,6 +267,25 @@ public class MessageFactory {
 		return message;
 	}
 
+	/**
+	 * Create a message for resizing an image. The remaining bytes of the buffer are written to the message in a single
+	 * bulk copy, the position of the buffer is not modified.
+	 * 
+	 * @param path
+	 *            of the image
+	 * @param data
+	 *            buffer containing the image file
+	 * @return configured message
+	 */
+	public ClientMessage resizeRequest(Path path, ByteBuffer data) {
+		ClientMessage message = session.createMessage(true);
+		message.getBodyBuffer().writeBytes(data.duplicate());
+		setTaskType(message, TaskType.hash);
+		setPath(message, path);
+
+		return message;
+	}
+
 	private void copyInputStreamToMessage(InputStream is, ClientMessage message) throws IOException {
 		ActiveMQBuffer buffer = message.getBodyBuffer();
 		
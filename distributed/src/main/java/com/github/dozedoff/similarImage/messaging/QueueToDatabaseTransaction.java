@@ -17,8 +17,8 @@
  */
 package com.github.dozedoff.similarImage.messaging;
 
-import java.nio.file.Path;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.Callable;
 
@@ -41,6 +41,7 @@ import com.github.dozedoff.similarImage.db.PendingHashImage;
 import com.github.dozedoff.similarImage.db.repository.ImageRepository;
 import com.github.dozedoff.similarImage.db.repository.PendingHashImageRepository;
 import com.github.dozedoff.similarImage.db.repository.RepositoryException;
+import com.github.dozedoff.similarImage.duplicate.WideHash;
 import com.github.dozedoff.similarImage.messaging.ArtemisQueue.QueueAddress;
 import com.j256.ormlite.misc.TransactionManager;
 
@@ -167,7 +168,8 @@ public class QueueToDatabaseTransaction implements CollectedMessageConsumer {
 	}
 
 	/**
-	 * Called on a database transaction. This method is protected for testing purposes.
+	 * Called on a database transaction. Results and processed pending records are written with one bulk operation each.
+	 * This method is protected for testing purposes.
 	 * 
 	 * @param messages
 	 *            to store in the database
@@ -178,18 +180,34 @@ public class QueueToDatabaseTransaction implements CollectedMessageConsumer {
 	 *             if there is an error with the message queue
 	 */
 	protected void onCall(List<ClientMessage> messages) throws RepositoryException, ActiveMQException {
+		List<ImageRecord> results = new ArrayList<>(messages.size());
+		List<PendingHashImage> processed = new ArrayList<>(messages.size());
+
+		for (ClientMessage message : messages) {
+			processMessage(message, results, processed);
+		}
+
+		if (!results.isEmpty()) {
+			imageRepository.storeAll(results);
+		}
+
+		if (!processed.isEmpty()) {
+			pendingRepository.removeAll(processed);
+		}
+
 		for (ClientMessage message : messages) {
-			processMessage(message);
 			message.acknowledge();
 		}
 
 		session.commit();
 	}
 
-	private void processMessage(ClientMessage message) throws RepositoryException {
+	private void processMessage(ClientMessage message, List<ImageRecord> results, List<PendingHashImage> processed)
+			throws RepositoryException {
 			long most = message.getBodyBuffer().readLong();
 			long least = message.getBodyBuffer().readLong();
 			long hash = message.getBodyBuffer().readLong();
+			WideHash wideHash = readWideHash(message);
 
 			if (LOGGER.isTraceEnabled()) {
 				LOGGER.trace("Received result message with id {} and hash {}", new UUID(most, least), hash);
@@ -200,16 +218,31 @@ public class QueueToDatabaseTransaction implements CollectedMessageConsumer {
 			if (pending != null) {
 				pendingMessages.dec();
 				processedImages.mark();
-				updateRecords(hash, pending);
+				LOGGER.trace("Creating record for {} with hash {}", pending.getPath(), hash);
+				results.add(new ImageRecord(pending.getPathAsPath().toString(), hash, wideHash));
+				processed.add(pending);
+				sendEaUpdate(hash, pending);
 			} else {
 				pendingMessagesMissing.inc();
 				LOGGER.warn("No pending hash record found for {}", new UUID(most, least));
 			}
 		}
 
-		private void updateRecords(long hash, PendingHashImage pending) throws RepositoryException {
-			storeHash(pending.getPathAsPath(), hash);
-			pendingRepository.remove(pending);
+		private WideHash readWideHash(ClientMessage message) {
+			if (message.getBodyBuffer().readableBytes() == 0) {
+				return null;
+			}
+
+			long[] words = new long[message.getBodyBuffer().readInt()];
+
+			for (int i = 0; i < words.length; i++) {
+				words[i] = message.getBodyBuffer().readLong();
+			}
+
+			return new WideHash(words);
+		}
+
+		private void sendEaUpdate(long hash, PendingHashImage pending) {
 			ClientMessage eaUpdate = messageFactory.eaUpdate(pending.getPathAsPath(), hash);
 
 			try {
@@ -219,9 +252,4 @@ public class QueueToDatabaseTransaction implements CollectedMessageConsumer {
 				LOGGER.warn("Failed to send ea update message for {}: {}", pending.getPath(), e.toString());
 			}
 		}
-
-		private void storeHash(Path path, long hash) throws RepositoryException {
-			LOGGER.trace("Creating record for {} with hash {}", path, hash);
-			imageRepository.store(new ImageRecord(path.toString(), hash));
-		}
 }
@@ -18,9 +18,7 @@
 package com.github.dozedoff.similarImage.messaging;
 
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -29,7 +27,6 @@ import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 
 import javax.imageio.IIOException;
-import javax.imageio.ImageIO;
 import javax.inject.Inject;
 
 import org.apache.activemq.artemis.api.core.ActiveMQException;
@@ -47,18 +44,17 @@ import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.Timer;
 import com.codahale.metrics.Timer.Context;
+import com.github.dozedoff.similarImage.image.FirstFrameGifDecoder;
+import com.github.dozedoff.similarImage.image.ImageDecodeService;
 import com.github.dozedoff.similarImage.image.ImageResizer;
+import com.github.dozedoff.similarImage.image.SubsamplingImageDecoder;
 import com.github.dozedoff.similarImage.io.ByteBufferInputstream;
 import com.github.dozedoff.similarImage.messaging.ArtemisQueue.QueueAddress;
 import com.github.dozedoff.similarImage.messaging.MessageFactory.MessageProperty;
-import com.github.dozedoff.similarImage.util.ImageUtil;
 import com.github.dozedoff.similarImage.util.MessagingUtil;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 
-import at.dhyan.open_imaging.GifDecoder;
-import at.dhyan.open_imaging.GifDecoder.GifImage;
-
 /**
  * Consumes resize request messages with full-sized images and produces hash request messages with a resized image for hashing.
  * 
@@ -88,6 +84,8 @@ public class ResizerNode implements MessageHandler, Node {
 	private final ClientConsumer consumer;
 	private final ClientProducer producer;
 	private final ImageResizer resizer;
+	private final ImageDecodeService decodeService;
+	private SubsamplingImageDecoder imageDecoder;
 	private MessageFactory messageFactory;
 
 	private final Cache<String, String> pendingCache;
@@ -142,6 +140,7 @@ public class ResizerNode implements MessageHandler, Node {
 			this.consumer = session.createConsumer(requestAddress);
 			this.producer = session.createProducer(resultAddress);
 			this.resizer = resizer;
+			this.decodeService = new ImageDecodeService(metrics);
 			this.messageFactory = new MessageFactory(session);
 			this.pendingCache = CacheBuilder.newBuilder()
 					.expireAfterAccess(PENDING_CACHE_TIMEOUT_MINUTES, TimeUnit.MINUTES).build();
@@ -173,6 +172,17 @@ public class ResizerNode implements MessageHandler, Node {
 		}
 	}
 
+	/**
+	 * Decode images at a reduced resolution before resizing. This is faster for large images, but the hash can differ
+	 * from the full resolution hash by a few bits.
+	 * 
+	 * @param imageDecoder
+	 *            to use, or null to decode images at full resolution
+	 */
+	public void setImageDecoder(SubsamplingImageDecoder imageDecoder) {
+		this.imageDecoder = imageDecoder;
+	}
+
 	/**
 	 * Overwrite the {@link MessageFactory} of the class. For testing only!
 	 * 
@@ -238,15 +248,16 @@ public class ResizerNode implements MessageHandler, Node {
 			messageBuffer.rewind();
 
 			Path path = Paths.get(pathPropterty);
-			Path filename = path.getFileName();
-			InputStream is = new ByteBufferInputstream(messageBuffer);
+			BufferedImage originalImage;
 
-			if (filename != null && filename.toString().toLowerCase().endsWith(".gif")) {
-				GifImage gi = GifDecoder.read(is);
-				is = new ByteArrayInputStream(ImageUtil.imageToBytes(gi.getFrame(0)));
+			if (FirstFrameGifDecoder.isGif(path)) {
+				originalImage = FirstFrameGifDecoder.decode(new ByteBufferInputstream(messageBuffer));
+			} else if (imageDecoder == null) {
+				originalImage = decodeService.read(messageBuffer);
+			} else {
+				originalImage = imageDecoder.decode(messageBuffer);
 			}
 
-			BufferedImage originalImage = ImageIO.read(is);
 			//FIXME nullcheck if image read failed
 			byte[] resizedImageData = resizer.resize(originalImage);
 
@@ -1,9 +1,7 @@
 package com.github.dozedoff.similarImage.messaging;
 
-import java.io.BufferedInputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.nio.file.Files;
+import java.nio.ByteBuffer;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
@@ -21,8 +19,15 @@ import org.apache.activemq.artemis.api.core.client.MessageHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.github.dozedoff.similarImage.db.ImageRecord;
+import com.github.dozedoff.similarImage.db.repository.RepositoryException;
+import com.github.dozedoff.similarImage.image.FirstFrameGifDecoder;
+import com.github.dozedoff.similarImage.io.ByteBufferInputstream;
+import com.github.dozedoff.similarImage.io.ContentDigest;
+import com.github.dozedoff.similarImage.io.ContentDigestShortcut;
 import com.github.dozedoff.similarImage.io.ExtendedAttributeQuery;
 import com.github.dozedoff.similarImage.io.HashAttribute;
+import com.github.dozedoff.similarImage.io.MappedFileLoader;
 import com.github.dozedoff.similarImage.messaging.ArtemisQueue.QueueAddress;
 import com.github.dozedoff.similarImage.messaging.MessageFactory.MessageProperty;
 import com.github.dozedoff.similarImage.messaging.MessageFactory.TaskType;
@@ -31,7 +36,10 @@ import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 
 /**
- * Reads files and creates resize requests. Listens to extended attribute update messages.
+ * Reads files and creates resize requests. Listens to extended attribute update messages. If a
+ * {@link ContentDigestShortcut} is set, files that are byte-identical to a known file are not sent. Files are loaded
+ * with a {@link MappedFileLoader}, so large files are copied into the message directly from the mapped file.<br>
+ * Files can be processed by multiple threads, only creating and sending the message is done by one thread at a time.
  */
 public class StorageNode implements MessageHandler, Node {
 	private static final Logger LOGGER = LoggerFactory.getLogger(StorageNode.class);
@@ -42,6 +50,9 @@ public class StorageNode implements MessageHandler, Node {
 	private final ClientConsumer consumer;
 	private final MessageFactory messageFactory;
 	private final Cache<Path, Integer> sentRequests;
+	private final Cache<Path, FileDigest> pendingDigests;
+	private final MappedFileLoader fileLoader;
+	private ContentDigestShortcut digestShortcut;
 
 	/**
 	 * Create a instance for handling updates and generating resize requests.
@@ -67,8 +78,10 @@ public class StorageNode implements MessageHandler, Node {
 		this.consumer = session.createConsumer(eaUpdateAddress);
 		this.producer = session.createProducer(resizeAddress);
 		this.messageFactory = new MessageFactory(session);
+		this.fileLoader = new MappedFileLoader();
 
 		sentRequests = CacheBuilder.newBuilder().expireAfterAccess(10, TimeUnit.MINUTES).build();
+		pendingDigests = CacheBuilder.newBuilder().expireAfterAccess(10, TimeUnit.MINUTES).build();
 
 		this.consumer.setMessageHandler(this);
 			loadSentRequestCache(pendingPaths);
@@ -101,6 +114,17 @@ public class StorageNode implements MessageHandler, Node {
 		this(session, eaQuery, hashAttribute, pendingPaths, QueueAddress.RESIZE_REQUEST.toString(), QueueAddress.EA_UPDATE.toString());
 	}
 
+	/**
+	 * Set a {@link ContentDigestShortcut} to re-use the hash of byte-identical files instead of sending them. The digest
+	 * of sent files is stored once their hash is known.
+	 * 
+	 * @param digestShortcut
+	 *            to use for finding identical files
+	 */
+	public void setDigestShortcut(ContentDigestShortcut digestShortcut) {
+		this.digestShortcut = digestShortcut;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -112,6 +136,7 @@ public class StorageNode implements MessageHandler, Node {
 			long hash = message.getBodyBuffer().readLong();
 			hashAttribute.writeHash(path, hash);
 			LOGGER.trace("Updated EA for {} with hash {}", path, hash);
+			storeDigest(path, hash);
 		} else if (isCorrupt(message)) {
 			Path path = getPath(message);
 			try {
@@ -124,6 +149,22 @@ public class StorageNode implements MessageHandler, Node {
 		}
 	}
 
+	private void storeDigest(Path path, long hash) {
+		FileDigest fileDigest = pendingDigests.getIfPresent(path);
+
+		if (digestShortcut == null || fileDigest == null) {
+			return;
+		}
+
+		pendingDigests.invalidate(path);
+
+		try {
+			digestShortcut.store(path, hash, fileDigest.size, fileDigest.digest);
+		} catch (RepositoryException e) {
+			LOGGER.warn("Failed to store content digest for {}: {}", path, e.toString());
+		}
+	}
+
 	private Path getPath(ClientMessage message) {
 		return Paths.get(message.getStringProperty(MessageProperty.path.toString()));
 	}
@@ -150,14 +191,59 @@ public class StorageNode implements MessageHandler, Node {
 			return true;
 		}
 
-		try (InputStream bis = new BufferedInputStream(Files.newInputStream(path))) {
-			ClientMessage request = messageFactory.resizeRequest(path, bis);
-			producer.send(request);
+		try {
+			ByteBuffer data = fileLoader.load(path);
+
+			if (digestShortcut != null) {
+				return processFileWithDigest(path, data);
+			}
+
+			return sendResizeRequest(path, data);
+		} catch (IOException e) {
+			LOGGER.warn("Failed to access file {}: {}", path, e.toString());
+		}
+
+		return false;
+	}
+
+	private boolean processFileWithDigest(Path path, ByteBuffer data) throws IOException {
+		long digest = ContentDigest.digest(data);
+
+		if (copyIdentical(path, data.remaining(), digest)) {
+			return true;
+		}
+
+		pendingDigests.put(path, new FileDigest(data.remaining(), digest));
+		return sendResizeRequest(path, data);
+	}
+
+	private boolean copyIdentical(Path path, long size, long digest) {
+		try {
+			ImageRecord identical = digestShortcut.copyExisting(path, size, digest);
+
+			if (identical != null) {
+				hashAttribute.writeHash(path, identical.getpHash());
+				LOGGER.trace("Re-used hash {} for identical file {}", identical.getpHash(), path);
+				return true;
+			}
+		} catch (RepositoryException e) {
+			LOGGER.warn("Failed to query content digest for {}: {}", path, e.toString());
+		}
+
+		return false;
+	}
+
+	private boolean sendResizeRequest(Path path, ByteBuffer data) throws IOException {
+		try {
+			ByteBuffer imageData = imageData(path, data);
+
+			synchronized (producer) {
+				producer.send(messageFactory.resizeRequest(path, imageData));
+			}
+
 			sentRequests.put(path, 0);
 			LOGGER.trace("Sent resize request for {}", path);
 			return true;
-		} catch (IOException e) {
-			LOGGER.warn("Failed to access file {}: {}", path, e.toString());
 		} catch (ActiveMQException e) {
 			LOGGER.warn("Failed to send resize request for {}: {}", path, e.toString());
 		}
@@ -165,6 +251,17 @@ public class StorageNode implements MessageHandler, Node {
 		return false;
 	}
 
+	/**
+	 * Only the first frame of a GIF is used for hashing, so the remaining frames of animations are not sent.
+	 */
+	private ByteBuffer imageData(Path path, ByteBuffer data) throws IOException {
+		if (FirstFrameGifDecoder.isGif(path)) {
+			return ByteBuffer.wrap(FirstFrameGifDecoder.readFirstFrame(new ByteBufferInputstream(data.duplicate())));
+		}
+
+		return data;
+	}
+
 	private boolean isAlreadySent(Path path) {
 		return sentRequests.getIfPresent(path) != null;
 	}
@@ -178,6 +275,19 @@ public class StorageNode implements MessageHandler, Node {
 		MessagingUtil.silentClose(producer);
 	}
 
+	/**
+	 * Size and digest of a file that has been sent for hashing.
+	 */
+	private static final class FileDigest {
+		private final long size;
+		private final long digest;
+
+		FileDigest(long size, long digest) {
+			this.size = size;
+			this.digest = digest;
+		}
+	}
+
 	/**
 	 * Returns the class name.
 	 * 
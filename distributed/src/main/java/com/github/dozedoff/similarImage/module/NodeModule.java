@@ -32,9 +32,16 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.codahale.metrics.MetricRegistry;
-import com.github.dozedoff.commonj.hash.ImagePHash;
+import com.github.dozedoff.similarImage.app.MainSetting;
+import com.github.dozedoff.similarImage.component.MainScope;
 import com.github.dozedoff.similarImage.handler.HashNames;
+import com.github.dozedoff.similarImage.image.FusedImagePHash;
 import com.github.dozedoff.similarImage.image.ImageResizer;
+import com.github.dozedoff.similarImage.image.SubsamplingImageDecoder;
+import com.github.dozedoff.similarImage.image.WideDctHash;
+import com.github.dozedoff.similarImage.image.kernel.DCTBackend;
+import com.github.dozedoff.similarImage.image.kernel.DCTBatcher;
+import com.github.dozedoff.similarImage.image.kernel.DCTTransformer;
 import com.github.dozedoff.similarImage.io.ExtendedAttribute;
 import com.github.dozedoff.similarImage.io.ExtendedAttributeDirectoryCache;
 import com.github.dozedoff.similarImage.io.ExtendedAttributeQuery;
@@ -43,6 +50,7 @@ import com.github.dozedoff.similarImage.messaging.ArtemisQueue.QueueAddress;
 import com.github.dozedoff.similarImage.messaging.HasherNode;
 import com.github.dozedoff.similarImage.messaging.QueryMessage;
 import com.github.dozedoff.similarImage.messaging.ResizerNode;
+import com.github.dozedoff.similarImage.thread.BoundedExecutor;
 
 import dagger.Module;
 import dagger.Provides;
@@ -52,19 +60,69 @@ public class NodeModule {
 	private static final int IMAGE_SIZE = 32;
 	private static final Logger LOGGER = LoggerFactory.getLogger(NodeModule.class);
 
+	/**
+	 * The hasher is shared by all hasher nodes, so that they submit their DCTs to the same batcher if batching is
+	 * enabled in the settings.
+	 */
+	@MainScope
 	@Provides
-	public HasherNode provideHasherNode(MetricRegistry metrics, @Named("normal") ClientSession session) {
+	public FusedImagePHash provideFusedImagePHash(MainSetting settings) {
+		if (settings.dctBatch() < 1) {
+			return new FusedImagePHash();
+		}
+
+		DCTBackend backend = DCTBackend.valueOf(settings.dctBackend());
+		LOGGER.info("Using batched DCT with the {} backend and a batch size of {}", backend, settings.dctBatch());
+
+		DCTTransformer transformer = backend.create(FusedImagePHash.RESIZE_SIZE, FusedImagePHash.DCT_SIZE);
+		return new FusedImagePHash(new DCTBatcher(transformer, settings.dctBatch()));
+	}
+
+	/**
+	 * The hasher also calculates wide hashes if they are enabled in the settings.
+	 */
+	@Provides
+	public HasherNode provideHasherNode(MetricRegistry metrics, @Named("normal") ClientSession session,
+			MainSetting settings, FusedImagePHash hasher) {
 		try {
-			return new HasherNode(session, new ImagePHash(), QueueAddress.HASH_REQUEST.toString(),
+			HasherNode hasherNode = new HasherNode(session, hasher, QueueAddress.HASH_REQUEST.toString(),
 					QueueAddress.RESULT.toString(), metrics);
+
+			if (settings.wideHashBits() > 0) {
+				hasherNode.setWideHasher(new WideDctHash(settings.wideHashBits()));
+			}
+
+			return hasherNode;
 		} catch (ActiveMQException e) {
 			throw new RuntimeException("Failed to create " + HasherNode.class.getSimpleName(), e);
 		}
 	}
 
+	/**
+	 * The resizer decodes images at a reduced resolution if it is enabled in the settings.
+	 */
+	@Provides
+	public ResizerNode provideResizerNode(@Named("normal")ClientSession session, MetricRegistry metrics,
+			MainSetting settings) {
+		ResizerNode resizerNode = new ResizerNode(session, new ImageResizer(IMAGE_SIZE), metrics);
+
+		if (settings.subsampledDecode()) {
+			resizerNode.setImageDecoder(
+					new SubsamplingImageDecoder(SubsamplingImageDecoder.MINIMUM_HASH_SIZE, true, metrics));
+		}
+
+		return resizerNode;
+	}
+
+	/**
+	 * Files found by the directory scan are read and sent for hashing on this executor. It is shared by all scans, so
+	 * the thread count can be changed while they are running.
+	 */
+	@MainScope
 	@Provides
-	public ResizerNode provideResizerNode(@Named("normal")ClientSession session, MetricRegistry metrics) {
-		return new ResizerNode(session, new ImageResizer(IMAGE_SIZE), metrics);
+	@Named("hashProducer")
+	public BoundedExecutor provideHashProducerExecutor(MainSetting settings, MetricRegistry metrics) {
+		return new BoundedExecutor(settings.threads(), settings.hashQueueCapacity(), "Hash producer", metrics);
 	}
 
 	@Provides
@@ -24,6 +24,10 @@ import javax.inject.Named;
 import org.apache.activemq.artemis.api.core.ActiveMQException;
 import org.apache.activemq.artemis.api.core.client.ClientSession;
 
+import com.codahale.metrics.MetricRegistry;
+import com.github.dozedoff.similarImage.component.MainScope;
+import com.github.dozedoff.similarImage.db.repository.ImageRepository;
+import com.github.dozedoff.similarImage.db.repository.ormlite.WriteBehindImageRepository;
 import com.github.dozedoff.similarImage.messaging.ArtemisQueue.QueueAddress;
 import com.github.dozedoff.similarImage.messaging.MessageCollector;
 import com.github.dozedoff.similarImage.messaging.QueueToDatabaseTransaction;
@@ -55,4 +59,15 @@ public class RepositoryNodeModule {
 			throw new RuntimeException("Failed to create message sink", e);
 		}
 	}
+
+	/**
+	 * Results of local hashing are written in batches. {@link QueueToDatabaseTransaction} keeps using the plain
+	 * repository, as its writes have to be part of the message transaction.
+	 */
+	@MainScope
+	@Provides
+	@Named("writeBehind")
+	public ImageRepository provideWriteBehindImageRepository(ImageRepository imageRepository, MetricRegistry metrics) {
+		return new WriteBehindImageRepository(imageRepository, metrics);
+	}
 }
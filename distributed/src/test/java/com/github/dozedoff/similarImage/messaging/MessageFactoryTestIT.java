@@ -23,6 +23,7 @@ import static org.junit.Assert.assertArrayEquals;
 import static org.mockito.Mockito.when;
 
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Arrays;
@@ -38,6 +39,7 @@ import org.mockito.junit.MockitoRule;
 import org.mockito.quality.Strictness;
 
 import com.github.dozedoff.similarImage.db.PendingHashImage;
+import com.github.dozedoff.similarImage.duplicate.WideHash;
 import com.github.dozedoff.similarImage.messaging.MessageFactory.MessageProperty;
 import com.github.dozedoff.similarImage.messaging.MessageFactory.TaskType;
 
@@ -46,6 +48,7 @@ public class MessageFactoryTestIT extends MessagingBaseTest {
 
 	private static final int EXPECTED_MESSAGE_SIZE = 54;
 	private static final long HASH = 12L;
+	private static final WideHash WIDE_HASH = new WideHash(3L, 4L);
 	private static final byte[] IMAGE_DATA = { 0, 1, 2, 3, 4 };
 	private static final Path PATH = Paths.get("foo");
 	private static final UUID UUID = new UUID(99, 100);
@@ -119,6 +122,23 @@ public class MessageFactoryTestIT extends MessagingBaseTest {
 		assertThat(hash, is(HASH));
 	}
 
+	@Test
+	public void testResultMessageWideHash() throws Exception {
+		ClientMessage result = cut.resultMessage(HASH, WIDE_HASH, UUID.getMostSignificantBits(),
+				UUID.getLeastSignificantBits());
+
+		result.getBodyBuffer().readLong();
+		result.getBodyBuffer().readLong();
+		result.getBodyBuffer().readLong();
+		long[] words = new long[result.getBodyBuffer().readInt()];
+
+		for (int i = 0; i < words.length; i++) {
+			words[i] = result.getBodyBuffer().readLong();
+		}
+
+		assertThat(new WideHash(words), is(WIDE_HASH));
+	}
+
 	@Test
 	public void testPendingImageQuery() throws Exception {
 		ClientMessage result = cut.pendingImageQuery();
@@ -186,6 +206,35 @@ public class MessageFactoryTestIT extends MessagingBaseTest {
 		assertThat(result.getStringProperty(MessageProperty.task.toString()), is(TaskType.hash.toString()));
 	}
 
+	@Test
+	public void testResizeRequestBufferPath() throws Exception {
+		ClientMessage result = cut.resizeRequest(PATH, ByteBuffer.wrap(IMAGE_DATA));
+
+		assertThat(result.getStringProperty(MessageProperty.path.toString()), is(PATH.toString()));
+	}
+
+	@Test
+	public void testResizeRequestBufferTask() throws Exception {
+		ClientMessage result = cut.resizeRequest(PATH, ByteBuffer.wrap(IMAGE_DATA));
+
+		assertThat(result.getStringProperty(MessageProperty.task.toString()), is(TaskType.hash.toString()));
+	}
+
+	@Test
+	public void testResizeRequestBufferImageData() throws Exception {
+		ByteBuffer buffer = ByteBuffer.allocateDirect(IMAGE_DATA.length);
+		buffer.put(IMAGE_DATA);
+		buffer.flip();
+
+		ClientMessage result = cut.resizeRequest(PATH, buffer);
+
+		byte[] data = new byte[IMAGE_DATA.length];
+		result.getBodyBuffer().readBytes(data);
+
+		assertArrayEquals(data, IMAGE_DATA);
+		assertThat(buffer.position(), is(0));
+	}
+
 	@Test
 	public void testTrackPathPathProperty() throws Exception {
 		ClientMessage result = cut.trackPath(PATH, UUID);
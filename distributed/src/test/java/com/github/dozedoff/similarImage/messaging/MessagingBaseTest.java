@@ -31,6 +31,7 @@ import org.junit.BeforeClass;
 
 import com.github.dozedoff.similarImage.component.DaggerMessagingComponent;
 import com.github.dozedoff.similarImage.component.DaggerPersistenceComponent;
+import com.github.dozedoff.similarImage.component.DaggerSettingComponent;
 import com.github.dozedoff.similarImage.component.MessagingComponent;
 import com.github.dozedoff.similarImage.component.PersistenceComponent;
 import com.github.dozedoff.similarImage.module.ArtemisModule;
@@ -45,7 +46,7 @@ public abstract class MessagingBaseTest {
 	public static void setupMessagingForClass() throws Exception {
 		PersistenceComponent coreComponent = DaggerPersistenceComponent.create();
 		messagingComponent = DaggerMessagingComponent.builder().artemisModule(new ArtemisModule(Paths.get("testing"))).persistenceComponent(coreComponent)
-				.build();
+				.settingComponent(DaggerSettingComponent.create()).build();
 		artemisServer = messagingComponent.getServer();
 		artemisServer.start();
 		
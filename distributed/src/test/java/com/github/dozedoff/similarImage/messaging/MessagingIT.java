@@ -52,6 +52,7 @@ import org.junit.Test;
 import com.github.dozedoff.commonj.hash.ImagePHash;
 import com.github.dozedoff.similarImage.component.DaggerMessagingComponent;
 import com.github.dozedoff.similarImage.component.DaggerPersistenceComponent;
+import com.github.dozedoff.similarImage.component.DaggerSettingComponent;
 import com.github.dozedoff.similarImage.component.MessagingComponent;
 import com.github.dozedoff.similarImage.component.PersistenceComponent;
 import com.github.dozedoff.similarImage.db.Database;
@@ -68,6 +69,7 @@ import com.github.dozedoff.similarImage.messaging.ArtemisQueue.QueueAddress;
 import com.github.dozedoff.similarImage.module.ArtemisModule;
 import com.github.dozedoff.similarImage.module.SQLitePersistenceModule;
 import com.github.dozedoff.similarImage.util.TestUtil;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.j256.ormlite.support.ConnectionSource;
 import com.j256.ormlite.table.TableUtils;
 
@@ -117,6 +119,7 @@ public class MessagingIT {
 		database = persistenceComponent.getDatabase();
 
 		messageComponent = DaggerMessagingComponent.builder().persistenceComponent(persistenceComponent)
+				.settingComponent(DaggerSettingComponent.create())
 				.artemisModule(new ArtemisModule(workingdir)).build();
 
 		aes = messageComponent.getServer();
@@ -210,7 +213,7 @@ public class MessagingIT {
 		HasherNode hn = messageComponent.getHasherNode();
 		nodes.add(hn);
 		nodes.add(messageComponent.getRepositoryNode());
-		ArtemisHashProducer ahp = new ArtemisHashProducer(sn);
+		ArtemisHashProducer ahp = new ArtemisHashProducer(sn, MoreExecutors.newDirectExecutorService());
 
 		ahp.handle(testImageAutumn);
 
@@ -226,7 +229,7 @@ public class MessagingIT {
 
 		StorageNode sn = messageComponent.getStorageNode();
 		nodes.add(sn);
-		ArtemisHashProducer ahp = new ArtemisHashProducer(sn);
+		ArtemisHashProducer ahp = new ArtemisHashProducer(sn, MoreExecutors.newDirectExecutorService());
 		nodes.add(messageComponent.getResizerNode());
 
 		ahp.handle(testImageAutumn);
@@ -270,7 +273,7 @@ public class MessagingIT {
 		HashAttribute ha = new HashAttribute(HashNames.DEFAULT_DCT_HASH_2);
 
 		StorageNode sn = messageComponent.getStorageNode();
-		ArtemisHashProducer ahp = new ArtemisHashProducer(sn);
+		ArtemisHashProducer ahp = new ArtemisHashProducer(sn, MoreExecutors.newDirectExecutorService());
 
 		assertThat(ha.areAttributesValid(testImageAutumn), is(false));// guard assert
 
@@ -288,7 +291,7 @@ public class MessagingIT {
 
 		HashAttribute ha = new HashAttribute(HashNames.DEFAULT_DCT_HASH_2);
 		StorageNode sn = messageComponent.getStorageNode();
-		ArtemisHashProducer ahp = new ArtemisHashProducer(sn);
+		ArtemisHashProducer ahp = new ArtemisHashProducer(sn, MoreExecutors.newDirectExecutorService());
 
 		assertThat(ha.isCorrupted(testImageCorrupt), is(false));// guard assert
 
@@ -22,14 +22,15 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.anyString;
-import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.nio.file.Paths;
 import java.sql.SQLException;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.Callable;
@@ -55,6 +56,7 @@ import com.github.dozedoff.similarImage.db.ImageRecord;
 import com.github.dozedoff.similarImage.db.PendingHashImage;
 import com.github.dozedoff.similarImage.db.repository.ImageRepository;
 import com.github.dozedoff.similarImage.db.repository.PendingHashImageRepository;
+import com.github.dozedoff.similarImage.duplicate.WideHash;
 import com.j256.ormlite.misc.TransactionManager;
 
 public class QueueToDatabaseTransactionTest {
@@ -66,6 +68,8 @@ public class QueueToDatabaseTransactionTest {
 	private static final long UUID_MOST = 5;
 	private static final long UUID_LEAST = 7;
 	private static final long HASH = 42;
+	private static final long WIDE_WORD_A = 1;
+	private static final long WIDE_WORD_B = 2;
 	private static final String PATH = Paths.get("foo/bar").toString();
 
 	@Mock
@@ -97,6 +101,9 @@ public class QueueToDatabaseTransactionTest {
 	@Captor
 	private ArgumentCaptor<Callable<Void>> transactionCall;
 
+	@Captor
+	private ArgumentCaptor<List<ImageRecord>> storedRecords;
+
 	private MetricRegistry metrics;
 
 	private QueueToDatabaseTransaction cut;
@@ -218,14 +225,44 @@ public class QueueToDatabaseTransactionTest {
 	public void testOnCallResultStored() throws Exception {
 		cut.onCall(messages);
 
-		verify(imageRepository).store(eq(new ImageRecord(PATH, HASH)));
+		verify(imageRepository).storeAll(Collections.singletonList(new ImageRecord(PATH, HASH)));
+	}
+
+	@Test
+	public void testOnCallWithoutWideHash() throws Exception {
+		cut.onCall(messages);
+
+		verify(imageRepository).storeAll(storedRecords.capture());
+		assertThat(storedRecords.getValue().get(0).hasWideHash(), is(false));
+	}
+
+	@Test
+	public void testOnCallWideHashStored() throws Exception {
+		when(buffer.readableBytes()).thenReturn(Integer.BYTES + 2 * Long.BYTES);
+		when(buffer.readInt()).thenReturn(2);
+		when(buffer.readLong()).thenReturn(UUID_MOST, UUID_LEAST, HASH, WIDE_WORD_A, WIDE_WORD_B);
+
+		cut.onCall(Collections.singletonList(message));
+
+		verify(imageRepository).storeAll(storedRecords.capture());
+		assertThat(storedRecords.getValue().get(0).getWideHash(), is(new WideHash(WIDE_WORD_A, WIDE_WORD_B)));
 	}
 
 	@Test
 	public void testOnCallPendingRemoved() throws Exception {
 		cut.onCall(messages);
 
-		verify(pendingRepository).remove(new PendingHashImage(PATH, UUID_MOST, UUID_LEAST));
+		verify(pendingRepository).removeAll(Collections.singletonList(new PendingHashImage(PATH, UUID_MOST, UUID_LEAST)));
+	}
+
+	@Test
+	public void testOnCallNothingStoredIfPendingMissing() throws Exception {
+		when(pendingRepository.getByUUID(UUID_MOST, UUID_LEAST)).thenReturn(null);
+
+		cut.onCall(messages);
+
+		verify(imageRepository, never()).storeAll(any());
+		verify(pendingRepository, never()).removeAll(any());
 	}
 
 	@Test
@@ -120,9 +120,13 @@ public class SimilarImage {
 		logger.info("SimilarImage version " + version);
 		logger.info("System has {} processors", Runtime.getRuntime().availableProcessors());
 
+		logger.info("Loading settings...");
+		SettingComponent settingComponent = DaggerSettingComponent.create();
+		MainSetting settings = settingComponent.getMainSetting();
+
 		PersistenceComponent coreComponent = DaggerPersistenceComponent.create();
 		MessagingComponent messagingComponent = DaggerMessagingComponent.builder().persistenceComponent(coreComponent)
-				.build();
+				.settingComponent(settingComponent).build();
 
 		aes = messagingComponent.getServer();
 		aes.start();
@@ -141,10 +145,6 @@ public class SimilarImage {
 
 		logImageReaders();
 
-		logger.info("Loading settings...");
-		SettingComponent settingComponent = DaggerSettingComponent.create();
-		MainSetting settings = settingComponent.getMainSetting();
-
 		int threads = settings.threads();
 		logger.info("Using {} threads", threads);
 
@@ -25,12 +25,12 @@ import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 
-import javax.imageio.ImageIO;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import at.dhyan.open_imaging.GifDecoder;
+import com.github.dozedoff.similarImage.image.FirstFrameGifDecoder;
+import com.github.dozedoff.similarImage.image.ImageDecodeService;
 
 public class ImageInfo {
 	private final static Logger logger = LoggerFactory.getLogger(ImageInfo.class);
@@ -56,10 +56,10 @@ public class ImageInfo {
 
 			BufferedImage img;
 
-			try {
-				img = ImageIO.read(is);
-			} catch (ArrayIndexOutOfBoundsException e) {
-				img = GifDecoder.read(is).getFrame(0);
+			if (FirstFrameGifDecoder.isGif(path)) {
+				img = FirstFrameGifDecoder.decode(is);
+			} else {
+				img = ImageDecodeService.getDefault().read(is);
 			}
 
 			if (img == null) {
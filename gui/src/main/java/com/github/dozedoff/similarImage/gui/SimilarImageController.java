@@ -20,6 +20,7 @@ package com.github.dozedoff.similarImage.gui;
 import java.awt.image.BufferedImage;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
@@ -27,12 +28,14 @@ import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 import javax.inject.Inject;
+import javax.inject.Named;
 import javax.swing.DefaultListModel;
 import javax.swing.SwingUtilities;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.codahale.metrics.MetricRegistry;
 import com.github.dozedoff.commonj.filefilter.SimpleImageFilter;
 import com.github.dozedoff.similarImage.app.MainSetting;
 import com.github.dozedoff.similarImage.component.ApplicationScope;
@@ -40,8 +43,11 @@ import com.github.dozedoff.similarImage.component.DaggerSettingComponent;
 import com.github.dozedoff.similarImage.db.FilterRecord;
 import com.github.dozedoff.similarImage.db.ImageRecord;
 import com.github.dozedoff.similarImage.db.Tag;
+import com.github.dozedoff.similarImage.db.repository.DirectoryRepository;
 import com.github.dozedoff.similarImage.db.repository.FilterRepository;
+import com.github.dozedoff.similarImage.db.repository.ImageRepository;
 import com.github.dozedoff.similarImage.db.repository.RepositoryException;
+import com.github.dozedoff.similarImage.duplicate.HammingIndexType;
 import com.github.dozedoff.similarImage.event.GuiEventBus;
 import com.github.dozedoff.similarImage.event.GuiGroupEvent;
 import com.github.dozedoff.similarImage.handler.HandlerListFactory;
@@ -52,9 +58,12 @@ import com.github.dozedoff.similarImage.io.Statistics;
 import com.github.dozedoff.similarImage.result.GroupList;
 import com.github.dozedoff.similarImage.result.Result;
 import com.github.dozedoff.similarImage.result.ResultGroup;
+import com.github.dozedoff.similarImage.thread.BoundedExecutor;
 import com.github.dozedoff.similarImage.thread.GroupListPopulator;
 import com.github.dozedoff.similarImage.thread.ImageFindJob;
 import com.github.dozedoff.similarImage.thread.ImageFindJobVisitor;
+import com.github.dozedoff.similarImage.thread.LiveIndexJob;
+import com.github.dozedoff.similarImage.thread.ParallelDirectoryWalker;
 import com.github.dozedoff.similarImage.thread.pipeline.ImageQueryPipeline;
 import com.github.dozedoff.similarImage.thread.pipeline.ImageQueryPipelineBuilder;
 import com.google.common.cache.CacheBuilder;
@@ -73,7 +82,11 @@ public class SimilarImageController {
 	private SimilarImageView gui;
 	private final Statistics statistics;
 	private final LinkedList<Thread> tasks = new LinkedList<>();
+	private Thread liveIndexTask;
 	private boolean includeIgnoredImages;
+	private final int walkerThreads;
+	private final boolean useWideHash;
+	private final HammingIndexType searchIndex;
 
 	private final HandlerListFactory handlerCollectionFactory;
 	private final OperationsMenuFactory omf;
@@ -81,6 +94,9 @@ public class SimilarImageController {
 	private final LoadingCache<Result, BufferedImage> thumbnailCache;
 	private final ImageQueryPipelineBuilder imagePipelineBuilder;
 	private final FilterRepository filterRepository;
+	private final ImageRepository imageRepository;
+	private final DirectoryRepository directoryRepository;
+	private final BoundedExecutor hashProducerExecutor;
 	private Tag searchTag;
 
 	/**
@@ -94,27 +110,41 @@ public class SimilarImageController {
 	 *            factory to create menus with operations that can be performed on images
 	 * @param statistics
 	 *            program statistics tracking
+	 * @param imageRepository
+	 *            used to preload known paths when indexing, the same write-behind repository the handlers store to
+	 * @param directoryRepository
+	 *            used to skip unchanged directories when indexing
+	 * @param hashProducerExecutor
+	 *            reads and sends the files found when indexing
+	 * @param metrics
+	 *            application metrics, used for thumbnail decoding
 	 */
 	@Inject
 	public SimilarImageController(ImageQueryPipelineBuilder pipelineBuilder, HandlerListFactory handlerCollectionFactory,
-			OperationsMenuFactory opsMenuFactory, Statistics statistics, FilterRepository filterRepository) {
+			OperationsMenuFactory opsMenuFactory, Statistics statistics, FilterRepository filterRepository,
+			@Named("writeBehind") ImageRepository imageRepository, DirectoryRepository directoryRepository,
+			@Named("hashProducer") BoundedExecutor hashProducerExecutor, MetricRegistry metrics) {
 		groupList = new GroupList();
 		this.statistics = statistics;
 		this.handlerCollectionFactory = handlerCollectionFactory;
 		this.omf = opsMenuFactory;
 		GuiEventBus.getInstance().register(this);
 		groupListModel = new DefaultListModel<ResultGroup>();
-		this.thumbnailCache = CacheBuilder.newBuilder().softValues().build(new ThumbnailCacheLoader());
+		this.thumbnailCache = CacheBuilder.newBuilder().softValues().build(new ThumbnailCacheLoader(metrics));
 		this.imagePipelineBuilder = pipelineBuilder;
 		this.filterRepository = filterRepository;
+		this.imageRepository = imageRepository;
+		this.directoryRepository = directoryRepository;
+		this.hashProducerExecutor = hashProducerExecutor;
 
 		MainSetting settings = DaggerSettingComponent.create().getMainSetting();
 
 		includeIgnoredImages = settings.includeIgnoredImages();
+		walkerThreads = settings.walkerThreads();
+		useWideHash = settings.wideHashBits() > 0;
+		searchIndex = HammingIndexType.valueOf(settings.searchIndex());
 	}
 
-
-
 	private void setGroupListToResult(Multimap<Long, ImageRecord> results) {
 		Set<Long> keys = results.keySet();
 		List<ResultGroup> groups = keys.stream().map(key -> new ResultGroup(groupList, key, results.get(key)))
@@ -245,7 +275,11 @@ public class SimilarImageController {
 			ImageFindJobVisitor visitor = new ImageFindJobVisitor(new SimpleImageFilter(), handlers, statistics);
 
 			// TODO use a priority queue to let FindJobs run first
-			Thread t = new Thread(new ImageFindJob(path, visitor));
+			ImageFindJob findJob = new ImageFindJob(path, visitor);
+			findJob.setImageRepository(imageRepository);
+			findJob.setDirectoryRepository(directoryRepository);
+			findJob.setDirectoryWalker(new ParallelDirectoryWalker(walkerThreads));
+			Thread t = new Thread(findJob);
 			t.setName("Image Find Job");
 			startTask(t);
 
@@ -254,6 +288,44 @@ public class SimilarImageController {
 		}
 	}
 
+	/**
+	 * Index the path and keep watching it for changes until {@link #stopLiveIndexing()} is called. Any running live
+	 * indexing is stopped first.
+	 * 
+	 * @param path
+	 *            directory to watch
+	 */
+	public void startLiveIndexing(String path) {
+		stopLiveIndexing();
+
+		try {
+			HashAttribute hashAttribute = new HashAttribute(HashNames.DEFAULT_DCT_HASH_2);
+			List<HashHandler> handlers = handlerCollectionFactory.withExtendedAttributeSupport(hashAttribute);
+
+			LiveIndexJob liveIndexJob = new LiveIndexJob(Collections.singletonList(Paths.get(path)),
+					new SimpleImageFilter(), handlers, statistics);
+			liveIndexJob.setImageRepository(imageRepository);
+			liveIndexJob.setHashAttribute(hashAttribute);
+
+			liveIndexTask = new Thread(liveIndexJob);
+			liveIndexTask.setName("Live Index Job");
+			liveIndexTask.start();
+		} catch (Exception e) {
+			logger.error("Failed to start live indexing for {}: {}", path, e.toString());
+		}
+	}
+
+	/**
+	 * Stop watching for changes, if live indexing is running.
+	 */
+	public void stopLiveIndexing() {
+		if (liveIndexTask != null) {
+			logger.info("Stopping live indexing...");
+			liveIndexTask.interrupt();
+			liveIndexTask = null;
+		}
+	}
+
 	/**
 	 * For every image, find other images that have a matching hash.
 	 * 
@@ -265,7 +337,7 @@ public class SimilarImageController {
 	public void sortDuplicates(int hammingDistance, String path) {
 		setGUIStatus(GUI_MSG_SORTING);
 		ImageQueryPipeline pipeline = imagePipelineBuilder.excludeIgnored(!includeIgnoredImages)
-				.distance(hammingDistance).groupAll()
+				.distance(hammingDistance).wideHash(useWideHash).searchIndex(searchIndex).groupAll()
 				.removeSingleImageGroups().removeDuplicateGroups().build();
 		Thread t = createPipelineThread(pipeline, checkPath(path));
 		this.searchTag = null;
@@ -285,7 +357,7 @@ public class SimilarImageController {
 	public void sortFilter(int hammingDistance, Tag tag, String path) {
 
 		ImageQueryPipeline pipeline = imagePipelineBuilder.excludeIgnored(!includeIgnoredImages)
-				.distance(hammingDistance).groupByTag(tag).build();
+				.distance(hammingDistance).searchIndex(searchIndex).groupByTag(tag).build();
 		Thread t = createPipelineThread(pipeline, checkPath(path));
 		this.searchTag = tag;
 		startTask(t);
@@ -308,13 +380,33 @@ public class SimilarImageController {
 	}
 
 	/**
-	 * Get the approximate number of queued tasks.
+	 * Get the approximate number of files waiting to be sent for hashing.
 	 * 
-	 * @return number of queued tasks
+	 * @return number of queued files
 	 */
 	public int getNumberOfQueuedTasks() {
-		// TODO remove me
-		return 0;
+		return hashProducerExecutor.getQueueDepth();
+	}
+
+	/**
+	 * Get the number of threads used to read and send files for hashing.
+	 * 
+	 * @return the current thread count
+	 */
+	public int getHashThreads() {
+		return hashProducerExecutor.getThreadCount();
+	}
+
+	/**
+	 * Change the number of threads used to read and send files for hashing. Takes effect immediately, also for running
+	 * index jobs.
+	 * 
+	 * @param threads
+	 *            new thread count, must be at least 1
+	 */
+	public void setHashThreads(int threads) {
+		hashProducerExecutor.setThreadCount(threads);
+		logger.info("Using {} threads for sending files", threads);
 	}
 
 	/**
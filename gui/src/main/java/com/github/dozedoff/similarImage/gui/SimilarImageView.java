@@ -376,9 +376,44 @@ public class SimilarImageView implements StatisticsChangedListener {
 			}
 		});
 
+		JMenuItem hashThreads = new JMenuItem("Hashing threads");
+		hashThreads.setToolTipText("Number of threads used to read and send files for hashing.");
+		hashThreads.addActionListener(new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				Object threads = JOptionPane.showInputDialog(view, "Number of threads:", "Hashing threads",
+						JOptionPane.PLAIN_MESSAGE, null, null, controller.getHashThreads());
+
+				if (threads == null) {
+					return;
+				}
+
+				try {
+					controller.setHashThreads(Integer.parseInt(threads.toString().trim()));
+				} catch (IllegalArgumentException ex) {
+					JOptionPane.showMessageDialog(view, "Invalid thread count: " + threads, "Hashing threads",
+							JOptionPane.ERROR_MESSAGE);
+				}
+			}
+		});
+
+		JMenuItem liveIndexing = new JCheckBoxMenuItem("Live indexing");
+		liveIndexing.setToolTipText("If checked, the path is indexed and watched for new or changed images.");
+		liveIndexing.addActionListener(new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				if (liveIndexing.isSelected()) {
+					controller.startLiveIndexing(path.getText());
+				} else {
+					controller.stopLiveIndexing();
+				}
+			}
+		});
+
 		JMenu file = new JMenu("File");
 		file.add(directoryTag);
 		file.add(pruneRecords);
+		file.add(liveIndexing);
 
 		JMenu help = new JMenu("Help");
 		help.add(about);
@@ -388,6 +423,7 @@ public class SimilarImageView implements StatisticsChangedListener {
 		settings.add(filters);
 		settings.add(ignoredImages);
 		settings.add(includeIgnored);
+		settings.add(hashThreads);
 
 		JMenuBar menuBar = new JMenuBar();
 		menuBar.add(file);
@@ -23,6 +23,9 @@ import java.nio.file.Paths;
 import org.imgscalr.Scalr;
 import org.imgscalr.Scalr.Method;
 
+import com.codahale.metrics.MetricRegistry;
+import com.github.dozedoff.similarImage.image.ImageDecodeService;
+import com.github.dozedoff.similarImage.image.SubsamplingImageDecoder;
 import com.github.dozedoff.similarImage.result.Result;
 import com.github.dozedoff.similarImage.util.ImageUtil;
 import com.google.common.cache.CacheLoader;
@@ -36,6 +39,18 @@ import com.google.common.cache.CacheLoader;
 public class ThumbnailCacheLoader extends CacheLoader<Result, BufferedImage> {
 	private static final int THUMBNAIL_SIZE = 500;
 
+	private final SubsamplingImageDecoder decoder;
+
+	/**
+	 * Create a loader that decodes images at a reduced resolution, just large enough for the thumbnail.
+	 * 
+	 * @param metrics
+	 *            registry the decoder reports its timings to
+	 */
+	public ThumbnailCacheLoader(MetricRegistry metrics) {
+		this.decoder = new SubsamplingImageDecoder(THUMBNAIL_SIZE, false, metrics, ImageDecodeService.getDefault());
+	}
+
 	/**
 	 * Loads a thumbnail for the {@link Result}.
 	 * 
@@ -48,7 +63,7 @@ public class ThumbnailCacheLoader extends CacheLoader<Result, BufferedImage> {
 
 	@Override
 	public BufferedImage load(Result key) throws Exception {
-		BufferedImage bi = ImageUtil.loadImage(Paths.get(key.getImageRecord().getPath()));
+		BufferedImage bi = ImageUtil.loadImage(Paths.get(key.getImageRecord().getPath()), decoder);
 		return Scalr.resize(bi, Method.AUTOMATIC, THUMBNAIL_SIZE);
 	}
 }
@@ -38,6 +38,7 @@ import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
 import org.mockito.quality.Strictness;
 
+import com.codahale.metrics.MetricRegistry;
 import com.github.dozedoff.similarImage.db.ImageRecord;
 import com.github.dozedoff.similarImage.result.Result;
 import com.github.dozedoff.similarImage.result.ResultGroup;
@@ -71,7 +72,7 @@ public class ResultPresenterTest {
 	@Before
 	public void setUp() throws Exception {
 		result = new Result(resultGroup, new ImageRecord(testImage.toString(), HASH));
-		thumbnailCache = CacheBuilder.newBuilder().softValues().build(new ThumbnailCacheLoader());
+		thumbnailCache = CacheBuilder.newBuilder().softValues().build(new ThumbnailCacheLoader(new MetricRegistry()));
 		duplicateEntryController = new ResultPresenter(result, thumbnailCache);
 		duplicateEntryController.setView(view);
 
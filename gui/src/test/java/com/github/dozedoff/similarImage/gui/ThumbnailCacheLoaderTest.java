@@ -28,6 +28,7 @@ import java.nio.file.Paths;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.codahale.metrics.MetricRegistry;
 import com.github.dozedoff.similarImage.db.ImageRecord;
 import com.github.dozedoff.similarImage.result.Result;
 
@@ -45,7 +46,7 @@ public class ThumbnailCacheLoaderTest {
 		key = new Result(null, new ImageRecord(image.toString(), 0));
 		invalidImagePath = new Result(null, new ImageRecord("foo", 0));
 		
-		cut = new ThumbnailCacheLoader();
+		cut = new ThumbnailCacheLoader(new MetricRegistry());
 	}
 
 	@Test